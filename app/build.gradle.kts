@@ -37,6 +37,8 @@ android {
 }
 
 dependencies {
+    implementation(project(":recognition-core"))
+
     // Use parentheses and double quotes for dependencies
     implementation("androidx.appcompat:appcompat:1.6.1")
     implementation("androidx.core:core-ktx:1.12.0")
@@ -58,4 +60,6 @@ dependencies {
     // MediaPipe (optional - add if you will implement MediaPipe detection)
 //    implementation("com.google.mediapipe:mediapipe-face-detection:0.9.0")
     implementation(libs.play.services.mlkit.face.detection)
+
+    testImplementation(libs.junit)
 }
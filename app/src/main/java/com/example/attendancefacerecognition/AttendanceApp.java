@@ -0,0 +1,32 @@
+package com.example.attendancefacerecognition;
+
+import android.app.Application;
+
+import com.example.attendancefacerecognition.UI.AttendanceLog;
+import com.example.attendancefacerecognition.UI.ModelRegistry;
+
+public class AttendanceApp extends Application {
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        // Map and warm up the models while the user is still on the main menu
+        ModelRegistry.get(this).warmUpAsync();
+        // Recover the attendance journal and resume uploading what the server has not got yet, in
+        // the background
+        AttendanceLog.get(this).startUpload();
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        if (level >= TRIM_MEMORY_COMPLETE) ModelRegistry.get(this).trim();
+    }
+
+    @Override
+    public void onTerminate() {
+        ModelRegistry.get(this).close();
+        AttendanceLog.get(this).close();
+        super.onTerminate();
+    }
+}
@@ -8,6 +8,9 @@ public class AppPrefManager {
     private static final String KEY_DEVICE = "device_id";
     private static final String KEY_PASS = "password";
     private static final String KEY_URL = "url";
+    private static final String KEY_INFERENCE = "inference_"; // + model file, InferenceConfig.encode()
+    private static final String KEY_UPLOAD_CURSOR = "upload_cursor"; // last attendance sequence the server has
+    private static final String KEY_UPLOAD_JOURNAL = "upload_journal"; // journal id the cursor belongs to
 
     private SharedPreferences prefs;
     public AppPrefManager(Context ctx){ prefs = ctx.getSharedPreferences(PREF, Context.MODE_PRIVATE); }
@@ -20,4 +23,17 @@ public class AppPrefManager {
 
     public void setUrl(String url){ prefs.edit().putString(KEY_URL, url).apply(); }
     public String getUrl(){ return prefs.getString(KEY_URL, ""); }
+
+    public void setInferenceConfig(String model, String config){ prefs.edit().putString(KEY_INFERENCE + model, config).apply(); }
+    public String getInferenceConfig(String model){ return prefs.getString(KEY_INFERENCE + model, ""); }
+
+    // commit(), not apply(): journal segments behind the cursor are deleted right after it is stored
+    public void setUploadCursor(String journalId, long sequence){
+        prefs.edit().putString(KEY_UPLOAD_JOURNAL, journalId).putLong(KEY_UPLOAD_CURSOR, sequence).commit();
+    }
+
+    // A cursor left by another journal (e.g. the directory was cleared) says nothing about this one
+    public long getUploadCursor(String journalId){
+        return journalId.equals(prefs.getString(KEY_UPLOAD_JOURNAL, null)) ? prefs.getLong(KEY_UPLOAD_CURSOR, 0L) : 0L;
+    }
 }
@@ -1,10 +1,7 @@
 package com.example.attendancefacerecognition.UI;
 
-import android.content.res.AssetFileDescriptor;
-import android.graphics.Bitmap;
 import android.graphics.Rect;
 import android.os.Bundle;
-import android.os.Handler;
 import android.util.Log;
 import android.util.Size;
 import android.widget.Button;
@@ -20,74 +17,150 @@ import androidx.camera.lifecycle.ProcessCameraProvider;
 import androidx.camera.view.PreviewView;
 import androidx.core.content.ContextCompat;
 
+import com.example.attendancefacerecognition.Metrics.FrameMetrics;
+import com.example.attendancefacerecognition.Pipeline.AttendancePipeline;
+import com.example.attendancefacerecognition.Pipeline.StageStats;
 import com.example.attendancefacerecognition.R;
+import com.example.attendancefacerecognition.Recognition.EmbeddingGallery;
+import com.example.attendancefacerecognition.Recognition.GalleryState;
+import com.example.attendancefacerecognition.Recognition.GalleryStore;
+import com.example.attendancefacerecognition.Recognition.HnswIndex;
+import com.example.attendancefacerecognition.Recognition.QuantizedGallery;
+import com.example.attendancefacerecognition.Recognition.YuvFrame;
+import com.example.attendancefacerecognition.Replay.FrameRecorder;
 import com.google.common.util.concurrent.ListenableFuture;
 
-import org.json.JSONArray;
-import org.json.JSONException;
 import org.tensorflow.lite.Interpreter;
 
-import java.io.DataInputStream;
-import java.io.FileInputStream;
+import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
-import java.nio.MappedByteBuffer;
-import java.nio.channels.FileChannel;
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
-import java.util.concurrent.ExecutionException;
+import java.util.Locale;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class AttendanceActivity extends AppCompatActivity {
 
+    private static final String TAG = "AttendanceActivity";
+
+    // Optional compressed gallery; NONE keeps the float gallery (and ANN index when large).
+    // Thresholds, detection interval and voting are AttendancePipeline's, shared with the replay driver.
+    private static final QuantizedGallery.Mode GALLERY_QUANTIZATION = QuantizedGallery.Mode.NONE;
+
+    // Per-stage latency histograms and frame counters, written to FRAME_METRICS_FILE (in the app's
+    // files dir) once a minute and on exit. Recording is lock-free and allocation-free.
+    private static final boolean FRAME_METRICS = true;
+    private static final String FRAME_METRICS_FILE = "frame-metrics.json";
+
+    // Capture mode: record the first CAPTURE_FRAMES camera frames (raw planes, strides, rotation,
+    // timestamp) to capture-<time>.yuvr in the files dir, for the :recognition-core replay
+    // driver. About 0.5 MB per 640x480 frame, written on the camera thread; 0 turns it off.
+    private static final int CAPTURE_FRAMES = 0;
+
     private PreviewView previewView;
     private FaceOverlayView faceOverlay;
     private Button btnSwitchCamera;
 
     private ExecutorService cameraExecutor;
-    private Handler handler = new Handler();
-    private Runnable aggregateRunnable;
 
     private boolean useFrontCamera = true;
 
-    private List<String> knownNames;
-    private List<float[]> knownEmbeddings;
-    private Interpreter tflite;
-    private Interpreter faceDetector;
+    // The pipeline's GalleryState is swapped whole when an enrolment, re-enrolment or deletion lands
+    private GalleryStore galleryStore;
+    private final ExecutorService galleryExecutor = Executors.newSingleThreadExecutor();
+    private final GalleryStore.Listener galleryListener = snapshot -> galleryExecutor.execute(this::swapGallery);
+    private ModelRegistry models;
+    private Interpreter tflite;        // embed stage only
+    private Interpreter faceDetector;  // detect stage only
 
     private ProcessCameraProvider cameraProvider;
     private ImageAnalysis.Analyzer imageAnalyzer;
 
+    private final YuvFrame yuvFrame = new YuvFrame();
+    private AttendancePipeline pipeline;
+    private final FrameMetrics metrics = new FrameMetrics(FRAME_METRICS);
+
+    // FaceNet load with tracking against one embedding per detected face, logged once a minute
+    private final AtomicLong facesDetected = new AtomicLong();
+    private final AtomicLong facesEmbedded = new AtomicLong();
+    private final AtomicLong faceNetCalls = new AtomicLong();
+    private long reportStartNanos = System.nanoTime();
 
-    private List<String> frameResults = new ArrayList<>();
+    private volatile FrameRecorder recorder; // capture mode only; changed under this
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_attendance);
-        faceDetector = Utils.loadBlazeFaceModel(this, "blaze_face_short_range.tflite");
         previewView = findViewById(R.id.previewView);
         faceOverlay = findViewById(R.id.faceOverlay);
         btnSwitchCamera = findViewById(R.id.btnSwitchCamera);
 
         cameraExecutor = Executors.newSingleThreadExecutor();
 
-        // Load names, embeddings, model
-        knownNames = loadNamesFromJson("names.json");
-        knownEmbeddings = loadEmbeddings("embeddings.bin");
-        tflite = loadModelFile("facenet.tflite");
-
         btnSwitchCamera.setOnClickListener(v -> {
+            if (pipeline == null) return; // models still loading
             useFrontCamera = !useFrontCamera;
             startCamera();
         });
 
-        startCamera();
-        cameraExecutor = Executors.newSingleThreadExecutor();
+        // Acquiring may build and warm up an interpreter, and opening the gallery may import or
+        // merge one, so both run on the gallery thread; the pipeline and the camera start once
+        // they are in
+        models = ModelRegistry.get(this);
+        galleryExecutor.execute(this::load);
+    }
 
+    // Gallery thread
+    private void load() {
+        Interpreter detector = models.acquire(ModelRegistry.BLAZEFACE);
+        Interpreter embedder = detector == null ? null : models.acquire(ModelRegistry.FACENET);
+        GalleryStore store = embedder == null ? null : Utils.galleryStore(this);
+        GalleryState gallery = embedder == null ? null
+                : buildGalleryState(store == null ? null : store.snapshot(), null);
+        runOnUiThread(() -> onLoaded(detector, embedder, store, gallery));
+    }
+
+    private void onLoaded(Interpreter detector, Interpreter embedder, GalleryStore store, GalleryState gallery) {
+        if (isFinishing() || isDestroyed()) {
+            releaseModels(models, detector, embedder);
+            if (gallery != null) gallery.close();
+            return;
+        }
+        if (detector == null) {
+            Toast.makeText(this, "Failed to load BlazeFace model", Toast.LENGTH_SHORT).show();
+            finish();
+            return;
+        }
+        if (embedder == null) {
+            models.release(ModelRegistry.BLAZEFACE, detector);
+            Toast.makeText(this, "Failed to load TFLite model", Toast.LENGTH_SHORT).show();
+            finish();
+            return;
+        }
+        faceDetector = detector;
+        tflite = embedder;
+        galleryStore = store; // later enrolments are picked up by swapGallery
+
+        if (CAPTURE_FRAMES > 0) startCapture();
+        // The same stages, thresholds and voting as the :recognition-core replay driver; the
+        // camera-facing queues keep only the newest frame
+        pipeline = AttendancePipeline.builder(Utils.blazeFace(faceDetector, metrics), Utils.faceNet(tflite, metrics))
+                .gallery(gallery)
+                .metrics(metrics)
+                .onFrame(this::publish)
+                .onConfirmed(this::onAttendanceConfirmed)
+                .start();
+        galleryExecutor.execute(() -> attachIndex(gallery));
+        if (galleryStore != null) {
+            galleryStore.addListener(galleryListener);
+            galleryExecutor.execute(this::swapGallery); // an enrolment since the snapshot was taken
+        }
+
+        startCamera();
     }
 
     private void startCamera() {
@@ -136,125 +209,158 @@ public class AttendanceActivity extends AppCompatActivity {
     }
 
 
+    // Camera thread: copy the frame into a free job and hand it to the pipeline
     private void processImageProxy(@NonNull ImageProxy image) {
-        Bitmap bitmap = Utils.imageProxyToBitmap(image);
-        if (bitmap != null) {
-            try {
-                List<Rect> detectedFaces = Utils.detectFacesBlazeFace(bitmap, faceDetector);
-                List<String> namesForOverlay = new ArrayList<>();
-                List<Rect> scaledRects = new ArrayList<>();
-
-                float scaleX = previewView.getWidth() / (float) bitmap.getWidth();
-                float scaleY = previewView.getHeight() / (float) bitmap.getHeight();
-
-                for (Rect r : detectedFaces) {
-                    int left = Math.max(0, r.left);
-                    int top = Math.max(0, r.top);
-                    int right = Math.min(bitmap.getWidth(), r.right);
-                    int bottom = Math.min(bitmap.getHeight(), r.bottom);
-                    if (right - left <= 0 || bottom - top <= 0) continue;
-
-                    Bitmap faceBmp = Bitmap.createBitmap(bitmap, left, top, right - left, bottom - top);
-                    float[] emb = Utils.getFaceEmbedding(faceBmp, tflite);
-
-                    float[][] embeddingsArray = new float[knownEmbeddings.size()][128];
-                    for (int i = 0; i < knownEmbeddings.size(); i++)
-                        embeddingsArray[i] = knownEmbeddings.get(i);
-
-                    String name = Utils.recognizeFace(emb, embeddingsArray, knownNames, 0.65f);
-                    namesForOverlay.add(name);
-                    frameResults.add(name);
-
-                    Rect scaled = new Rect(
-                            (int) (left * scaleX),
-                            (int) (top * scaleY),
-                            (int) (right * scaleX),
-                            (int) (bottom * scaleY)
-                    );
-                    scaledRects.add(scaled);
-                }
-
-                runOnUiThread(() -> faceOverlay.setFaces(scaledRects, namesForOverlay));
-
-                // Aggregate every 5 seconds
-                if (aggregateRunnable != null) handler.removeCallbacks(aggregateRunnable);
-                aggregateRunnable = () -> {
-                    String confirmed = getMostFrequent(frameResults);
-                    runOnUiThread(() -> Toast.makeText(this,
-                            "Attendance Marked: " + confirmed, Toast.LENGTH_LONG).show());
-                    frameResults.clear();
-                };
-                handler.postDelayed(aggregateRunnable, 5000);
-            } finally {
-                image.close();
+        try {
+            metrics.increment(FrameMetrics.Counter.FRAMES_RECEIVED);
+            if (recorder != null) capture(Utils.toYuvFrame(image, yuvFrame));
+            AttendancePipeline.FrameJob job = pipeline.poll();
+            if (job == null) { // every job is still in flight; skip this frame
+                metrics.increment(FrameMetrics.Counter.FRAMES_DROPPED);
+                return;
             }
+            job.frame().copyFrom(Utils.toYuvFrame(image, yuvFrame));
+            pipeline.submit(job);
+        } finally {
+            image.close();
         }
     }
 
-    private String getMostFrequent(List<String> list) {
-        if (list.isEmpty()) return "Unknown";
-        String most = null;
-        int maxCount = 0;
-        for (String s : list) {
-            int count = 0;
-            for (String t : list) if (t.equals(s)) count++;
-            if (count > maxCount) {
-                maxCount = count;
-                most = s;
-            }
+    private synchronized void startCapture() {
+        File file = new File(getFilesDir(), "capture-" + System.currentTimeMillis() + ".yuvr");
+        try {
+            recorder = new FrameRecorder(file);
+            Log.i(TAG, "Capturing " + CAPTURE_FRAMES + " frames to " + file);
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to start capture: " + e.getMessage());
         }
-        return most;
     }
 
-    private List<String> loadNamesFromJson(String fileName) {
-        List<String> names = new ArrayList<>();
+    // Every camera frame is recorded, including the ones the pipeline has no room for
+    private synchronized void capture(YuvFrame frame) {
+        if (recorder == null) return;
         try {
-            InputStream is = getAssets().open(fileName);
-            int size = is.available();
-            byte[] buffer = new byte[size];
-            is.read(buffer);
-            is.close();
-            String json = new String(buffer, StandardCharsets.UTF_8);
-            JSONArray jsonArray = new JSONArray(json);
-            for (int i = 0; i < jsonArray.length(); i++) names.add(jsonArray.getString(i));
-        } catch (IOException | JSONException e) {
-            e.printStackTrace();
+            recorder.write(frame);
+            if (recorder.frames() >= CAPTURE_FRAMES) stopCapture();
+        } catch (IOException e) {
+            Log.w(TAG, "Capture failed: " + e.getMessage());
+            stopCapture();
         }
-        return names;
     }
 
-    private List<float[]> loadEmbeddings(String fileName) {
-        List<float[]> embeddings = new ArrayList<>();
+    private synchronized void stopCapture() {
+        if (recorder == null) return;
         try {
-            InputStream is = getAssets().open(fileName);
-            DataInputStream dis = new DataInputStream(is);
-            while (dis.available() > 0) {
-                float[] embedding = new float[128];
-                for (int i = 0; i < 128; i++) embedding[i] = dis.readFloat();
-                embeddings.add(embedding);
-            }
-            dis.close();
+            recorder.close();
+            Log.i(TAG, "Captured " + recorder.frames() + " frames");
         } catch (IOException e) {
-            e.printStackTrace();
+            Log.w(TAG, "Failed to close capture: " + e.getMessage());
+        }
+        recorder = null;
+    }
+
+    // Last stage's thread, after the pipeline has voted: update the overlay and the FaceNet load
+    private void publish(AttendancePipeline.FrameJob job) {
+        long start = metrics.start();
+        int n = job.count();
+        float[] boxes = job.boxes();
+        List<String> namesForOverlay = new ArrayList<>(n);
+        List<Rect> scaledRects = new ArrayList<>(n);
+
+        float scaleX = previewView.getWidth() / (float) job.frame().uprightWidth();
+        float scaleY = previewView.getHeight() / (float) job.frame().uprightHeight();
+
+        for (int i = 0; i < n; i++) {
+            namesForOverlay.add(job.names()[i]);
+            scaledRects.add(new Rect(
+                    (int) (boxes[i * 4] * scaleX),
+                    (int) (boxes[i * 4 + 1] * scaleY),
+                    (int) (boxes[i * 4 + 2] * scaleX),
+                    (int) (boxes[i * 4 + 3] * scaleY)
+            ));
         }
-        return embeddings;
+        runOnUiThread(() -> faceOverlay.setFaces(scaledRects, namesForOverlay));
+        metrics.stop(FrameMetrics.Stage.OVERLAY_POST, start);
+
+        int embedded = job.embeddedCount();
+        facesDetected.addAndGet(n);
+        facesEmbedded.addAndGet(embedded);
+        faceNetCalls.addAndGet((embedded + Utils.MAX_FACE_BATCH - 1) / Utils.MAX_FACE_BATCH);
+        reportFaceNetLoad(false);
     }
 
-    private Interpreter loadModelFile(String modelFile) {
+    private void reportFaceNetLoad(boolean force) {
+        long now = System.nanoTime();
+        double minutes = (now - reportStartNanos) / (double) TimeUnit.MINUTES.toNanos(1);
+        if (!force && minutes < 1) return;
+        if (minutes <= 0) return;
+        Log.i(TAG, String.format(Locale.US,
+                "FaceNet: %.0f calls/min, %.0f faces/min embedded, %.0f faces/min detected (untracked cost)",
+                faceNetCalls.getAndSet(0) / minutes, facesEmbedded.getAndSet(0) / minutes,
+                facesDetected.getAndSet(0) / minutes));
+        reportStartNanos = now;
+        writeFrameMetrics();
+    }
+
+    // Cumulative since launch; pull with `adb shell run-as <package> cat files/frame-metrics.json`
+    private void writeFrameMetrics() {
+        if (!metrics.isEnabled()) return;
         try {
-            AssetFileDescriptor fileDescriptor = getAssets().openFd(modelFile);
-            FileInputStream inputStream = new FileInputStream(fileDescriptor.getFileDescriptor());
-            FileChannel fileChannel = inputStream.getChannel();
-            long startOffset = fileDescriptor.getStartOffset();
-            long declaredLength = fileDescriptor.getDeclaredLength();
-            MappedByteBuffer modelBuffer = fileChannel.map(FileChannel.MapMode.READ_ONLY, startOffset, declaredLength);
-            return new Interpreter(modelBuffer);
+            metrics.writeJson(new File(getFilesDir(), FRAME_METRICS_FILE));
         } catch (IOException e) {
-            e.printStackTrace();
+            Log.w(TAG, "Failed to write frame metrics: " + e.getMessage());
         }
-        return null;
+        Log.d(TAG, "Frame metrics " + metrics.snapshot());
     }
 
+    // Matcher or quantized gallery for `snapshot`. When the snapshot only adds identities to the
+    // previous one, the centroid sums catch up on the new rows. The ANN index comes later, from
+    // attachIndex.
+    private GalleryState buildGalleryState(GalleryStore.Snapshot snapshot, GalleryState previous) {
+        EmbeddingGallery loaded = snapshot == null ? EmbeddingGallery.empty(Utils.EMBEDDING_DIM) : snapshot.gallery();
+        return GalleryState.build(snapshot, loaded, previous, GALLERY_QUANTIZATION);
+    }
+
+    // Gallery thread: loads, or builds and saves, the ANN index for `state` (the persisted index
+    // catches up on appended rows) and switches matching to it. Until then frames use the exact
+    // scan; a state swapped out meanwhile gets no index.
+    private void attachIndex(GalleryState state) {
+        if (GALLERY_QUANTIZATION != QuantizedGallery.Mode.NONE) return;
+        HnswIndex index = Utils.loadIndex(this, state.gallery);
+        if (index == null || pipeline.gallery() != state) return;
+        pipeline.setGallery(state.withIndex(index));
+        Log.i(TAG, "Gallery index ready: " + state.gallery.size() + " rows");
+    }
+
+    // Gallery thread: rebuild for the newest snapshot, skipping any that were superseded meanwhile
+    private void swapGallery() {
+        GalleryState current = pipeline.gallery();
+        GalleryStore.Snapshot latest = galleryStore.snapshot();
+        if (current.snapshot == latest) return;
+        GalleryState next = buildGalleryState(latest, current);
+        pipeline.setGallery(next);
+        Log.i(TAG, "Gallery updated: " + next.gallery.size() + " rows, "
+                + next.gallery.identityCount() + " identities");
+        attachIndex(next);
+    }
+
+    private static void releaseModels(ModelRegistry registry, Interpreter detector, Interpreter embedder) {
+        registry.release(ModelRegistry.BLAZEFACE, detector);
+        registry.release(ModelRegistry.FACENET, embedder);
+    }
+
+    // Called on the publishing thread, once per name per cooldown. The journal only queues the
+    // record, so this does not wait for the disk.
+    private void onAttendanceConfirmed(String name, float weight, long timestampNanos) {
+        Log.i(TAG, String.format(Locale.US, "Attendance confirmed: %s (%.1f votes)", name, weight));
+        AttendanceLog log = AttendanceLog.get(this);
+        long sequence = log.record(name, weight);
+        String failure = sequence < 0 ? "not recorded" : log.writeFailure();
+        String message = failure == null
+                ? "Attendance Marked: " + name
+                : "Attendance of " + name + " NOT saved: " + failure;
+        runOnUiThread(() -> Toast.makeText(this, message, Toast.LENGTH_LONG).show());
+    }
 
     @Override
     protected void onStop() {
@@ -266,6 +372,41 @@ public class AttendanceActivity extends AppCompatActivity {
     protected void onDestroy() {
         super.onDestroy();
         shutdownCamera();
+        stopCapture();
+        boolean stopped = true;
+        if (pipeline != null) {
+            for (StageStats stats : pipeline.stats()) Log.d(TAG, stats.toString());
+            stopped = pipeline.close(2, TimeUnit.SECONDS);
+            reportFaceNetLoad(true);
+        }
+        // Interpreters go back to the pool only once no stage thread can still be running them
+        if (models != null) {
+            ModelRegistry registry = models;
+            Interpreter detector = faceDetector;
+            Interpreter embedder = tflite;
+            faceDetector = null;
+            tflite = null;
+            if (stopped) {
+                releaseModels(registry, detector, embedder);
+            } else {
+                Log.w(TAG, "Pipeline stages still running; interpreters are released when they stop");
+                AttendancePipeline stuck = pipeline;
+                Thread waiter = new Thread(() -> {
+                    while (!stuck.close(30, TimeUnit.SECONDS)) Log.w(TAG, "Pipeline stages still running");
+                    releaseModels(registry, detector, embedder);
+                }, "attendance-release");
+                waiter.setDaemon(true);
+                waiter.start();
+            }
+        }
+        if (galleryStore != null) galleryStore.removeListener(galleryListener);
+        galleryExecutor.shutdown();
+        try {
+            galleryExecutor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (pipeline != null) pipeline.gallery().close();
     }
 
 }
@@ -0,0 +1,183 @@
+package com.example.attendancefacerecognition.UI;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.example.attendancefacerecognition.Attendance.AttendanceJournal;
+import com.example.attendancefacerecognition.Attendance.AttendanceUploader;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+// App-scoped attendance journal in files/attendance. Confirmations are queued and group-committed
+// by the journal's own writer thread, so recording one never waits for the disk.
+//
+// Once device login has stored a server URL, the journal is drained to it in the background
+// (AttendanceUploader): gzipped batches of up to UPLOAD_BATCH records, or whatever is waiting
+// after UPLOAD_DELAY_MS, with the upload cursor kept in AppPrefManager. Batches the server
+// refuses for good are kept in files/attendance-dead-letter. Starting and replacing the uploader
+// happen on an upload-control thread, since both can wait on the disk and on the old uploader.
+public class AttendanceLog {
+
+    private static final String TAG = "AttendanceLog";
+    private static final String DIR = "attendance";
+    private static final String DEAD_LETTER_DIR = "attendance-dead-letter";
+
+    private static final int UPLOAD_BATCH = 200;
+    private static final long UPLOAD_DELAY_MS = 10_000;
+    private static final int UPLOADS_IN_FLIGHT = 2;
+    private static final long RETRY_BASE_MS = 2_000;
+    private static final long RETRY_MAX_MS = 5 * 60_000;
+
+    private static AttendanceLog instance;
+
+    private final AppPrefManager prefs;
+    private final File dir;
+    private final File deadLetterDir;
+    private final ExecutorService control = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "attendance-upload-control");
+        t.setDaemon(true);
+        return t;
+    });
+    private AttendanceJournal journal;
+    private AttendanceUploader uploader;
+    private String uploaderConfig; // url, device id and password the uploader was started with
+
+    private AttendanceLog(Context context) {
+        Context app = context.getApplicationContext();
+        this.prefs = new AppPrefManager(app);
+        this.dir = new File(app.getFilesDir(), DIR);
+        this.deadLetterDir = new File(app.getFilesDir(), DEAD_LETTER_DIR);
+    }
+
+    public static synchronized AttendanceLog get(Context context) {
+        if (instance == null) instance = new AttendanceLog(context);
+        return instance;
+    }
+
+    // The journal, opened (and recovered after a crash) on first use; null if it cannot be opened
+    public synchronized AttendanceJournal journal() {
+        if (journal == null) {
+            try {
+                journal = AttendanceJournal.open(dir);
+            } catch (IOException e) {
+                Log.e(TAG, "Cannot open attendance journal: " + e.getMessage());
+            }
+        }
+        return journal;
+    }
+
+    // Queues a confirmed attendance; returns its sequence, or -1 if it could not be recorded
+    public long record(String identity, float score) {
+        AttendanceJournal j = journal();
+        if (j == null) return -1;
+        try {
+            return j.append(identity, System.currentTimeMillis(), prefs.getDeviceId(), score);
+        } catch (IllegalStateException | IllegalArgumentException e) {
+            Log.e(TAG, "Attendance of " + identity + " not recorded: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    // Why recorded attendance is not reaching the disk, or null if it is. The journal keeps
+    // retrying and holds the records in memory meanwhile.
+    public String writeFailure() {
+        AttendanceJournal j = journal();
+        if (j == null) return "attendance journal could not be opened";
+        IOException failure = j.failure();
+        return failure == null ? null : failure.getMessage();
+    }
+
+    // Starts draining the journal to the configured server in the background; no-op without a
+    // valid URL. If the login details changed since the running uploader was started, it is
+    // replaced; batches it was still retrying go out again from the stored cursor. Returns at once.
+    public void startUpload() {
+        try {
+            control.execute(this::restartUpload);
+        } catch (RejectedExecutionException e) {
+            Log.w(TAG, "Not uploading attendance, the log is closed");
+        }
+    }
+
+    // Upload-control thread. The monitor is only held to swap the uploader, never while one is
+    // being closed, so record() is not held up by the old uploader's threads winding down.
+    private void restartUpload() {
+        String url = prefs.getUrl();
+        String config = url + "\n" + prefs.getDeviceId() + "\n" + prefs.getPassword();
+        AttendanceUploader old;
+        synchronized (this) {
+            if (uploader != null && config.equals(uploaderConfig)) return;
+            old = uploader;
+            uploader = null;
+            uploaderConfig = null;
+        }
+        if (old != null) stop(old);
+        if (url.isEmpty()) return;
+        AttendanceJournal j = journal();
+        if (j == null) return;
+        AttendanceUploader started;
+        try {
+            started = AttendanceUploader.builder(j, new URL(url))
+                    .credentials(prefs.getDeviceId(), prefs.getPassword())
+                    .deadLetters(deadLetterDir)
+                    .cursor(new AttendanceUploader.Cursor() {
+                        @Override
+                        public long load(String journalId) { return prefs.getUploadCursor(journalId); }
+
+                        @Override
+                        public void store(String journalId, long uploadedThrough) {
+                            prefs.setUploadCursor(journalId, uploadedThrough);
+                        }
+                    })
+                    .batch(UPLOAD_BATCH, UPLOAD_DELAY_MS)
+                    .maxInFlight(UPLOADS_IN_FLIGHT)
+                    .backoff(RETRY_BASE_MS, RETRY_MAX_MS)
+                    .start();
+        } catch (MalformedURLException e) {
+            Log.e(TAG, "Not uploading attendance, bad server URL " + url + ": " + e.getMessage());
+            return;
+        }
+        synchronized (this) {
+            uploader = started;
+            uploaderConfig = config;
+        }
+    }
+
+    private static void stop(AttendanceUploader uploader) {
+        Log.i(TAG, uploader.stats());
+        uploader.close();
+    }
+
+    // Stops the upload, flushes pending records and stops the writer
+    public void close() {
+        control.shutdown();
+        try {
+            control.awaitTermination(15, TimeUnit.SECONDS); // a restart in progress
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        AttendanceUploader old;
+        synchronized (this) {
+            old = uploader;
+            uploader = null;
+            uploaderConfig = null;
+        }
+        if (old != null) stop(old);
+        synchronized (this) {
+            if (journal == null) return;
+            try {
+                Log.i(TAG, journal.stats());
+                journal.close();
+            } catch (IOException e) {
+                Log.e(TAG, "Attendance journal failed: " + e.getMessage());
+            }
+            journal = null;
+        }
+    }
+}
@@ -8,6 +8,7 @@ import android.widget.EditText;
 import android.widget.TextView;
 
 import androidx.appcompat.app.AppCompatActivity;
+import com.example.attendancefacerecognition.Attendance.AttendanceJournal;
 import com.example.attendancefacerecognition.UI.AppPrefManager;
 import com.example.attendancefacerecognition.MainActivity;
 import com.example.attendancefacerecognition.R;
@@ -40,6 +41,11 @@ public class DeviceLoginActivity extends AppCompatActivity {
             if (d.isEmpty()) {
                 tvError.setText("Enter Device ID"); tvError.setTextColor(Color.RED); return;
             }
+            // The attendance journal stores the id in a fixed-size header field
+            if (!AttendanceJournal.fitsDeviceId(d)) {
+                tvError.setText("Device ID is too long (max " + AttendanceJournal.MAX_DEVICE_ID_BYTES + " bytes)");
+                tvError.setTextColor(Color.RED); return;
+            }
             if (p.isEmpty()) {
                 tvError.setText("Enter Password"); tvError.setTextColor(Color.RED); return;
             }
@@ -48,6 +54,7 @@ public class DeviceLoginActivity extends AppCompatActivity {
             }
 
             appPref.setDeviceId(d); appPref.setPassword(p); appPref.setUrl(u);
+            AttendanceLog.get(this).startUpload();
             startActivity(new Intent(this, MainActivity.class));
             finish();
         });
@@ -0,0 +1,259 @@
+package com.example.attendancefacerecognition.UI;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.example.attendancefacerecognition.Recognition.InferenceConfig;
+import com.example.attendancefacerecognition.Recognition.InferenceTuner;
+import com.example.attendancefacerecognition.Recognition.ModelPool;
+
+import org.tensorflow.lite.Interpreter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// App-scoped TFLite models. Each model file is mapped once per process and its interpreters are
+// pooled (ModelPool), so switching between the register and attendance screens reuses warm
+// interpreters instead of mapping and building new ones in every onCreate.
+//
+// Interpreters are built with a per-model InferenceConfig. With AUTO_TUNE, the first launch
+// benchmarks the candidate configs on this device's CPU during warm-up and stores the fastest in
+// AppPrefManager; later launches use the stored config straight away.
+public class ModelRegistry {
+
+    private static final String TAG = "ModelRegistry";
+
+    public static final String BLAZEFACE = "blaze_face_short_range.tflite";
+    public static final String FACENET = "facenet.tflite";
+
+    // Used until a tuned config is stored, and always when AUTO_TUNE is off
+    private static final InferenceConfig BLAZEFACE_CONFIG = new InferenceConfig(2, true);
+    private static final InferenceConfig FACENET_CONFIG = new InferenceConfig(4, true);
+    private static final boolean AUTO_TUNE = true;
+    // Six candidates (at most) x 4 runs per model on first launch; the median of 3 is enough to
+    // separate thread counts, which differ by tens of percent
+    private static final int TUNE_WARM_UP_RUNS = 1;
+    private static final int TUNE_TIMED_RUNS = 3;
+
+    // One interpreter per screen; the old and the new screen overlap briefly on a switch
+    private static final int POOL_SIZE = 2;
+    private static final long ACQUIRE_TIMEOUT_MS = 2000;
+    private static final int WARM_UP_RUNS = 2;
+
+    private static ModelRegistry instance;
+
+    private final Context context;
+    private final AppPrefManager prefs;
+    private final Map<String, MappedByteBuffer> buffers = new HashMap<>();
+    private final Map<String, InferenceConfig> configs = new HashMap<>();
+    private final Map<String, ModelPool<Interpreter>> pools = new LinkedHashMap<>();
+    private final Map<Interpreter, ModelPool<Interpreter>> owners = new IdentityHashMap<>();
+    private final Map<String, Long> mapNanos = new HashMap<>();
+    private boolean closed;
+
+    private ModelRegistry(Context context) {
+        this.context = context.getApplicationContext();
+        this.prefs = new AppPrefManager(this.context);
+    }
+
+    public static synchronized ModelRegistry get(Context context) {
+        if (instance == null) instance = new ModelRegistry(context);
+        return instance;
+    }
+
+    // Checks out an interpreter for the caller's exclusive use; null if the model cannot be loaded
+    public Interpreter acquire(String model) {
+        try {
+            ModelPool<Interpreter> pool = pool(model);
+            Interpreter interpreter = pool.acquire(ACQUIRE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            if (interpreter == null) {
+                Log.e(TAG, "No free interpreter for " + model);
+                return null;
+            }
+            synchronized (this) {
+                owners.put(interpreter, pool);
+            }
+            return interpreter;
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to load " + model + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Returns an interpreter once no thread uses it any more, to the pool that built it
+    public void release(String model, Interpreter interpreter) {
+        if (interpreter == null) return;
+        ModelPool<Interpreter> pool;
+        synchronized (this) {
+            pool = owners.remove(interpreter);
+        }
+        if (pool != null) {
+            pool.release(interpreter);
+        } else {
+            interpreter.close();
+        }
+    }
+
+    // Config that new interpreters of `model` are built with
+    public synchronized InferenceConfig config(String model) {
+        InferenceConfig config = configs.get(model);
+        if (config == null) {
+            config = AUTO_TUNE ? InferenceConfig.decode(prefs.getInferenceConfig(model)) : null;
+            if (config == null) config = defaultConfig(model);
+            configs.put(model, config);
+        }
+        return config;
+    }
+
+    // Switches `model` to `config`. Idle interpreters of the old config are closed now, checked-out
+    // ones when they are released.
+    public void configure(String model, InferenceConfig config) {
+        ModelPool<Interpreter> retired;
+        synchronized (this) {
+            if (config.equals(configs.get(model))) return;
+            configs.put(model, config);
+            retired = pools.remove(model);
+        }
+        if (retired != null) retired.close();
+    }
+
+    // Tunes (first launch only), then maps, builds and warms up one interpreter per model on a
+    // background thread
+    public void warmUpAsync() {
+        Thread warmUp = new Thread(() -> {
+            for (String model : new String[]{BLAZEFACE, FACENET}) {
+                try {
+                    if (AUTO_TUNE && InferenceConfig.decode(prefs.getInferenceConfig(model)) == null) autoTune(model);
+                    pool(model).prestart(1);
+                } catch (Exception e) {
+                    Log.e(TAG, "Warm-up of " + model + " failed: " + e.getMessage());
+                }
+            }
+            Log.i(TAG, stats());
+        }, "model-warm-up");
+        warmUp.setPriority(Thread.MIN_PRIORITY);
+        warmUp.start();
+    }
+
+    // Benchmarks every candidate config on this CPU, stores the fastest and switches to it
+    public InferenceConfig autoTune(String model) throws IOException {
+        MappedByteBuffer buffer = buffer(model);
+        InferenceTuner.Result result = InferenceTuner.tune(model,
+                InferenceConfig.candidates(Runtime.getRuntime().availableProcessors()),
+                config -> {
+                    Interpreter interpreter = new Interpreter(buffer, Utils.interpreterOptions(config));
+                    try {
+                        ZeroIo io = new ZeroIo(interpreter);
+                        return InferenceTuner.medianNanos(() -> io.run(interpreter), TUNE_WARM_UP_RUNS, TUNE_TIMED_RUNS);
+                    } finally {
+                        interpreter.close();
+                    }
+                });
+        Log.i(TAG, "Auto-tune " + result);
+        prefs.setInferenceConfig(model, result.best.encode());
+        configure(model, result.best);
+        return result.best;
+    }
+
+    // Drops idle interpreters, keeping the mapped files
+    public void trim() {
+        for (ModelPool<Interpreter> pool : snapshot().values()) pool.trim();
+    }
+
+    public void close() {
+        Map<String, ModelPool<Interpreter>> all;
+        synchronized (this) {
+            closed = true;
+            all = new LinkedHashMap<>(pools);
+            pools.clear();
+            buffers.clear();
+        }
+        for (ModelPool<Interpreter> pool : all.values()) pool.close();
+    }
+
+    public String stats() {
+        StringBuilder sb = new StringBuilder();
+        Map<String, ModelPool<Interpreter>> all = snapshot();
+        for (Map.Entry<String, ModelPool<Interpreter>> e : all.entrySet()) {
+            Long mapped;
+            synchronized (this) {
+                mapped = mapNanos.get(e.getKey());
+            }
+            if (sb.length() > 0) sb.append("; ");
+            sb.append(e.getValue().stats()).append(" [").append(config(e.getKey())).append(']');
+            if (mapped != null) sb.append(String.format(Locale.US, ", mapped in %.1f ms", mapped / 1e6));
+        }
+        return sb.toString();
+    }
+
+    private static InferenceConfig defaultConfig(String model) {
+        InferenceConfig config = FACENET.equals(model) ? FACENET_CONFIG : BLAZEFACE_CONFIG;
+        int cores = Runtime.getRuntime().availableProcessors();
+        return config.threads() > cores ? config.withThreads(Math.max(1, cores)) : config;
+    }
+
+    private synchronized Map<String, ModelPool<Interpreter>> snapshot() {
+        return new LinkedHashMap<>(pools);
+    }
+
+    private synchronized MappedByteBuffer buffer(String model) throws IOException {
+        if (closed) throw new IllegalStateException("Model registry is closed");
+        MappedByteBuffer buffer = buffers.get(model);
+        if (buffer == null) {
+            long start = System.nanoTime();
+            buffer = Utils.mapModel(context, model);
+            mapNanos.put(model, System.nanoTime() - start);
+            buffers.put(model, buffer);
+        }
+        return buffer;
+    }
+
+    private synchronized ModelPool<Interpreter> pool(String model) throws IOException {
+        ModelPool<Interpreter> pool = pools.get(model);
+        if (pool == null) {
+            MappedByteBuffer buffer = buffer(model);
+            Interpreter.Options options = Utils.interpreterOptions(config(model));
+            pool = new ModelPool<>(model, POOL_SIZE, () -> new Interpreter(buffer, options),
+                    interpreter -> new ZeroIo(interpreter).run(interpreter, WARM_UP_RUNS));
+            pools.put(model, pool);
+        }
+        return pool;
+    }
+
+    // Zero-filled inputs and outputs of the model's own tensor shapes. Running them pays for
+    // delegate setup and kernel preparation, or measures a config, without a camera frame.
+    private static final class ZeroIo {
+        final Object[] inputs;
+        final Map<Integer, Object> outputs = new HashMap<>();
+
+        ZeroIo(Interpreter interpreter) {
+            inputs = new Object[interpreter.getInputTensorCount()];
+            for (int i = 0; i < inputs.length; i++) inputs[i] = direct(interpreter.getInputTensor(i).numBytes());
+            for (int i = 0; i < interpreter.getOutputTensorCount(); i++) {
+                outputs.put(i, direct(interpreter.getOutputTensor(i).numBytes()));
+            }
+        }
+
+        void run(Interpreter interpreter, int times) {
+            for (int i = 0; i < times; i++) run(interpreter);
+        }
+
+        void run(Interpreter interpreter) {
+            for (Object input : inputs) ((ByteBuffer) input).rewind();
+            for (Object output : outputs.values()) ((ByteBuffer) output).rewind();
+            interpreter.runForMultipleInputsOutputs(inputs, outputs);
+        }
+
+        private static ByteBuffer direct(int bytes) {
+            return ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+        }
+    }
+}
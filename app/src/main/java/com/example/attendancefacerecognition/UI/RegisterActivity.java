@@ -1,12 +1,10 @@
 package com.example.attendancefacerecognition.UI;
 
 import android.Manifest;
-import android.content.Context;
 import android.content.pm.PackageManager;
-import android.content.res.AssetFileDescriptor;
-import android.graphics.Bitmap;
 import android.graphics.Rect;
 import android.os.Bundle;
+import android.util.Log;
 import android.util.Size;
 import android.widget.Button;
 import android.widget.EditText;
@@ -22,23 +20,24 @@ import androidx.camera.view.PreviewView;
 import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
 
+import com.example.attendancefacerecognition.Metrics.FrameMetrics;
 import com.example.attendancefacerecognition.R;
+import com.example.attendancefacerecognition.Recognition.FaceModels;
+import com.example.attendancefacerecognition.Recognition.YuvFrame;
 import com.google.common.util.concurrent.ListenableFuture;
 
 import org.tensorflow.lite.Interpreter;
 
-import java.io.FileInputStream;
-import java.io.IOException;
-import java.nio.MappedByteBuffer;
-import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 public class RegisterActivity extends AppCompatActivity {
 
+    private static final String TAG = "RegisterActivity";
     private static final int CAMERA_PERMISSION_CODE = 111;
 
     private PreviewView previewView;
@@ -46,6 +45,8 @@ public class RegisterActivity extends AppCompatActivity {
     private EditText etName;
 
     private ExecutorService cameraExecutor;
+    private final ExecutorService loadExecutor = Executors.newSingleThreadExecutor();
+    private ModelRegistry models;
     private Interpreter tflite;
 
     private FaceOverlayView faceOverlay;
@@ -55,30 +56,11 @@ public class RegisterActivity extends AppCompatActivity {
     private boolean captureRequested = false;
 
     private Interpreter faceDetector;
+    private FaceModels.Detector blazeFace; // analyzer thread only
+    private final YuvFrame yuvFrame = new YuvFrame();
+    private final ScheduledFaceDetector faceLocator = new ScheduledFaceDetector(15f, 2, 8); // analyzer thread only
 
 
-    // -------------------------
-    // Load TFLite Model
-    // -------------------------
-    public static Interpreter loadTFLiteModel(Context context, String modelName) {
-        try {
-            AssetFileDescriptor fileDescriptor = context.getAssets().openFd(modelName);
-            FileInputStream inputStream = new FileInputStream(fileDescriptor.getFileDescriptor());
-            FileChannel fileChannel = inputStream.getChannel();
-
-            long startOffset = fileDescriptor.getStartOffset();
-            long declaredLength = fileDescriptor.getDeclaredLength();
-            MappedByteBuffer modelBuffer =
-                    fileChannel.map(FileChannel.MapMode.READ_ONLY, startOffset, declaredLength);
-
-            return new Interpreter(modelBuffer);
-
-        } catch (IOException e) {
-            e.printStackTrace();
-            return null;
-        }
-    }
-
     // -------------------------
     // onCreate
     // -------------------------
@@ -95,21 +77,6 @@ public class RegisterActivity extends AppCompatActivity {
 
         cameraExecutor = Executors.newSingleThreadExecutor();
 
-        // Initialize MediaPipe detector once
-        Interpreter faceDetector = Utils.loadBlazeFaceModel(this, "blaze_face_short_range.tflite");
-        if (faceDetector == null) {
-            Toast.makeText(this, "Failed to load BlazeFace model", Toast.LENGTH_SHORT).show();
-            finish();
-            return;
-        }
-
-        tflite = loadTFLiteModel(this, "facenet.tflite");
-        if (tflite == null) {
-            Toast.makeText(this, "Failed to load TFLite model", Toast.LENGTH_SHORT).show();
-            finish();
-            return;
-        }
-
         btnCapture.setOnClickListener(v -> {
             captureRequested = true;
             collectedEmbeddings.clear();
@@ -128,12 +95,48 @@ public class RegisterActivity extends AppCompatActivity {
                 return;
             }
 
-            boolean ok = Utils.appendEmbeddings(this, collectedEmbeddings, name);
+            int id = Utils.appendEmbeddings(this, collectedEmbeddings, name);
+            boolean ok = id >= 0;
+            if (ok) Log.i(TAG, "Enrolled " + name + " as identity " + id);
             Toast.makeText(this, ok ? "Saved Successfully" : "Failed to Save", Toast.LENGTH_SHORT).show();
 
             if (ok) finish();
         });
 
+        // Acquiring may build and warm up an interpreter, so it runs off the UI thread; the
+        // camera starts once both are in
+        models = ModelRegistry.get(this);
+        loadExecutor.execute(this::load);
+    }
+
+    // Load thread
+    private void load() {
+        Interpreter detector = models.acquire(ModelRegistry.BLAZEFACE);
+        Interpreter embedder = detector == null ? null : models.acquire(ModelRegistry.FACENET);
+        runOnUiThread(() -> onLoaded(detector, embedder));
+    }
+
+    private void onLoaded(Interpreter detector, Interpreter embedder) {
+        if (isFinishing() || isDestroyed()) {
+            models.release(ModelRegistry.BLAZEFACE, detector);
+            models.release(ModelRegistry.FACENET, embedder);
+            return;
+        }
+        if (detector == null) {
+            Toast.makeText(this, "Failed to load BlazeFace model", Toast.LENGTH_SHORT).show();
+            finish();
+            return;
+        }
+        if (embedder == null) {
+            models.release(ModelRegistry.BLAZEFACE, detector);
+            Toast.makeText(this, "Failed to load TFLite model", Toast.LENGTH_SHORT).show();
+            finish();
+            return;
+        }
+        faceDetector = detector;
+        blazeFace = Utils.blazeFace(faceDetector, new FrameMetrics(false));
+        tflite = embedder;
+
         // Request camera permission
         if (ContextCompat.checkSelfPermission(this, Manifest.permission.CAMERA)
                 != PackageManager.PERMISSION_GRANTED) {
@@ -168,29 +171,31 @@ public class RegisterActivity extends AppCompatActivity {
                                 .build();
 
                 analysis.setAnalyzer(cameraExecutor, image -> {
-                    Bitmap bitmap = Utils.imageProxyToBitmap(image);
-                    if (bitmap == null) {
-                        image.close();
-                        return;
+                    YuvFrame frame = Utils.toYuvFrame(image, yuvFrame);
+
+                    // Captured embeddings come from a real detection, not a propagated box
+                    if (captureRequested) faceLocator.invalidate();
+                    int faces = faceLocator.detect(frame, blazeFace);
+                    float[] boxes = faceLocator.boxes();
+                    List<Rect> detectedFaces = new ArrayList<>(faces); // handed to the UI thread
+                    for (int i = 0; i < faces; i++) {
+                        detectedFaces.add(new Rect(Math.round(boxes[i * 4]), Math.round(boxes[i * 4 + 1]),
+                                Math.round(boxes[i * 4 + 2]), Math.round(boxes[i * 4 + 3])));
                     }
-
-                    List<Rect> detectedFaces = Utils.detectFacesBlazeFace(bitmap, faceDetector);
                     runOnUiThread(() -> faceOverlay.setFaces(detectedFaces, null));
 
-                    if (captureRequested && detectedFaces.size() == 1) {
+                    if (captureRequested && faceLocator.lastDetected() && faces == 1) {
                         Rect rect = detectedFaces.get(0);
 
                         // Crop safely
                         int left = Math.max(0, rect.left);
                         int top = Math.max(0, rect.top);
-                        int right = Math.min(bitmap.getWidth(), rect.right);
-                        int bottom = Math.min(bitmap.getHeight(), rect.bottom);
+                        int right = Math.min(frame.uprightWidth(), rect.right);
+                        int bottom = Math.min(frame.uprightHeight(), rect.bottom);
                         if (right - left > 0 && bottom - top > 0) {
 
-                            Bitmap faceBitmap = Bitmap.createBitmap(
-                                    bitmap, left, top, right - left, bottom - top);
-
-                            float[] emb = Utils.getFaceEmbedding(faceBitmap, tflite);
+                            float[] emb = Utils.getFaceEmbedding(
+                                    frame, new Rect(left, top, right, bottom), tflite);
                             collectedEmbeddings.add(emb);
 
                             if (collectedEmbeddings.size() >= 5) {
@@ -253,6 +258,7 @@ public class RegisterActivity extends AppCompatActivity {
     @Override
     protected void onDestroy() {
         super.onDestroy();
+        loadExecutor.shutdown();
 
         if (cameraExecutor != null && !cameraExecutor.isShutdown()) {
             cameraExecutor.shutdownNow();
@@ -262,6 +268,19 @@ public class RegisterActivity extends AppCompatActivity {
             ProcessCameraProvider cameraProvider = ProcessCameraProvider.getInstance(this).get();
             cameraProvider.unbindAll();
         } catch (Exception ignored) {}
+
+        // Let a running analyzer finish before its interpreters go back to the pool
+        try {
+            if (cameraExecutor != null) cameraExecutor.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (models != null) {
+            models.release(ModelRegistry.BLAZEFACE, faceDetector);
+            models.release(ModelRegistry.FACENET, tflite);
+            faceDetector = null;
+            tflite = null;
+        }
     }
 
 }
@@ -0,0 +1,77 @@
+package com.example.attendancefacerecognition.UI;
+
+import android.util.Log;
+
+import com.example.attendancefacerecognition.Metrics.FrameMetrics;
+import com.example.attendancefacerecognition.Recognition.BoxPropagator;
+import com.example.attendancefacerecognition.Recognition.DetectionScheduler;
+import com.example.attendancefacerecognition.Recognition.FaceModels;
+import com.example.attendancefacerecognition.Recognition.TensorArena;
+import com.example.attendancefacerecognition.Recognition.YuvFrame;
+
+// BlazeFace every few frames; in between, the last boxes are shifted by luma template matching.
+// The interval follows the measured latencies (DetectionScheduler) and the detector runs early
+// when a box loses its face. Owned by the thread that runs the detector; nothing is allocated
+// per frame. The attendance screen gets the same scheduling from AttendancePipeline.
+public class ScheduledFaceDetector {
+
+    private static final String TAG = "ScheduledFaceDetector";
+
+    private final DetectionScheduler scheduler;
+    private final BoxPropagator propagator = new BoxPropagator(TensorArena.MAX_DETECTIONS);
+    private final float[] boxes = new float[TensorArena.MAX_DETECTIONS * 4];
+    private final FrameMetrics metrics;
+    private int count;
+    private boolean lastDetected;
+
+    public ScheduledFaceDetector(float targetFps, int minInterval, int maxInterval) {
+        this(targetFps, minInterval, maxInterval, new FrameMetrics(false));
+    }
+
+    // Detection and propagation are both timed as DETECT
+    public ScheduledFaceDetector(float targetFps, int minInterval, int maxInterval, FrameMetrics metrics) {
+        this.scheduler = new DetectionScheduler(targetFps, minInterval, maxInterval);
+        this.metrics = metrics;
+    }
+
+    // Number of faces in this frame; their boxes are in boxes() until the next call. A detector
+    // failure is logged and reported as no faces.
+    public int detect(YuvFrame frame, FaceModels.Detector detector) {
+        long start = metrics.start();
+        long began = System.nanoTime();
+        if (scheduler.shouldDetect()) {
+            int n;
+            try {
+                n = Math.min(detector.detect(frame, boxes), TensorArena.MAX_DETECTIONS);
+            } catch (Exception e) {
+                Log.e(TAG, "Face detection failed: " + e.getMessage());
+                n = 0;
+            }
+            propagator.capture(frame, boxes, n);
+            scheduler.detected(System.nanoTime() - began);
+            count = n;
+            lastDetected = true;
+        } else {
+            if (!propagator.propagate(frame, boxes)) scheduler.invalidate();
+            scheduler.propagated(System.nanoTime() - began);
+            count = propagator.count();
+            lastDetected = false;
+        }
+        metrics.stop(FrameMetrics.Stage.DETECT, start);
+        return count;
+    }
+
+    // (left, top, right, bottom) per face of the last frame, in upright frame pixels; may reach
+    // past the frame edges after propagation
+    public float[] boxes() { return boxes; }
+
+    public int count() { return count; }
+
+    // Whether the last detect() call ran the detector rather than propagating
+    public boolean lastDetected() { return lastDetected; }
+
+    // Runs the detector on the next frame, e.g. before capturing an embedding
+    public void invalidate() { scheduler.invalidate(); }
+
+    public int interval() { return scheduler.interval(); }
+}
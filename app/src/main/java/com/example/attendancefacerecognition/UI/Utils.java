@@ -1,26 +1,38 @@
 package com.example.attendancefacerecognition.UI;
 
 import android.content.Context;
+import android.content.res.AssetFileDescriptor;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
-import android.graphics.ImageFormat;
-import android.graphics.Matrix;
 import android.graphics.Rect;
-import android.graphics.YuvImage;
 import android.util.Log;
 
 import androidx.camera.core.ImageProxy;
 
-import org.json.JSONArray;
+import com.example.attendancefacerecognition.Metrics.FrameMetrics;
+import com.example.attendancefacerecognition.Recognition.BlazeFaceDecoder;
+import com.example.attendancefacerecognition.Recognition.EmbeddingGallery;
+import com.example.attendancefacerecognition.Recognition.FaceDatabase;
+import com.example.attendancefacerecognition.Recognition.FaceDetections;
+import com.example.attendancefacerecognition.Recognition.FaceModels;
+import com.example.attendancefacerecognition.Recognition.FaceRecognizer;
+import com.example.attendancefacerecognition.Recognition.GalleryStore;
+import com.example.attendancefacerecognition.Recognition.HnswIndex;
+import com.example.attendancefacerecognition.Recognition.InferenceConfig;
+import com.example.attendancefacerecognition.Recognition.QuantizedGallery;
+import com.example.attendancefacerecognition.Recognition.TensorArena;
+import com.example.attendancefacerecognition.Recognition.TensorFormat;
+import com.example.attendancefacerecognition.Recognition.YuvConverter;
+import com.example.attendancefacerecognition.Recognition.YuvFrame;
+
 import org.tensorflow.lite.Interpreter;
+import org.tensorflow.lite.Tensor;
 
-import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
 import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
 import java.util.ArrayList;
@@ -30,24 +42,38 @@ public class Utils {
 
     private static final String TAG = "Utils";
 
+    public static final int EMBEDDING_DIM = 512;
+    public static final String EMBEDDING_MODEL_ID = "facenet-512";
+    public static final int ANN_MIN_ROWS = 20000; // sharded exact scan is fast enough below this
+    public static final int SEED_VERSION = 1; // bump whenever the bundled embeddings.bin/names.json change
+    public static final int BLAZEFACE_INPUT_SIZE = 128;
+    public static final int FACENET_INPUT_SIZE = 160;
+    public static final int MAX_FACE_BATCH = 6; // faces embedded per FaceNet invocation
+
+    private static final ThreadLocal<TensorArena> TENSOR_ARENA = new ThreadLocal<>();
+    private static final BlazeFaceDecoder BLAZEFACE_DECODER =
+            new BlazeFaceDecoder(BlazeFaceDecoder.DEFAULT_MIN_SCORE, BlazeFaceDecoder.DEFAULT_IOU_THRESHOLD);
+    private static FaceDatabase faceDatabase; // under Utils.class
+
     // ========================================
-    // Load BlazeFace TFLite model
+    // Map a TFLite model from assets
     // ========================================
-    public static Interpreter loadBlazeFaceModel(Context context, String modelName) {
-        try {
-            FileInputStream fis = new FileInputStream(context.getAssets().openFd(modelName).getFileDescriptor());
-            FileChannel fileChannel = fis.getChannel();
-            long startOffset = context.getAssets().openFd(modelName).getStartOffset();
-            long declaredLength = context.getAssets().openFd(modelName).getDeclaredLength();
-            MappedByteBuffer buffer = fileChannel.map(FileChannel.MapMode.READ_ONLY, startOffset, declaredLength);
-            fis.close();
-            return new Interpreter(buffer);
-        } catch (IOException e) {
-            e.printStackTrace();
-            return null;
+    // Interpreters are built from this by ModelRegistry, which maps each model once per process
+    public static MappedByteBuffer mapModel(Context context, String modelName) throws IOException {
+        try (AssetFileDescriptor fd = context.getAssets().openFd(modelName);
+             FileInputStream fis = new FileInputStream(fd.getFileDescriptor())) {
+            return fis.getChannel().map(FileChannel.MapMode.READ_ONLY, fd.getStartOffset(), fd.getDeclaredLength());
         }
     }
 
+    // CPU-only interpreter options
+    public static Interpreter.Options interpreterOptions(InferenceConfig config) {
+        Interpreter.Options options = new Interpreter.Options();
+        options.setNumThreads(config.threads());
+        options.setUseXNNPACK(config.xnnpack());
+        return options;
+    }
+
     // ========================================
     // Detect faces with BlazeFace
     // ========================================
@@ -56,42 +82,16 @@ public class Utils {
         if (interpreter == null || bitmap == null) return faces;
 
         try {
-            int inputSize = 128; // BlazeFace input size
+            TensorArena arena = tensorArena();
+            bindDetector(arena, interpreter);
+            int inputSize = arena.detectorInputSize();
             Bitmap scaled = Bitmap.createScaledBitmap(bitmap, inputSize, inputSize, true);
 
-            ByteBuffer input = ByteBuffer.allocateDirect(1 * inputSize * inputSize * 3 * 4);
-            input.order(ByteOrder.nativeOrder());
-
-            int[] pixels = new int[inputSize * inputSize];
+            int[] pixels = arena.detectorPixels();
             scaled.getPixels(pixels, 0, inputSize, 0, 0, inputSize, inputSize);
+            TensorArena.putRgb(pixels, inputSize * inputSize, arena.detectorInputFormat(), arena.detectorInput());
 
-            for (int pixel : pixels) {
-                input.putFloat(((pixel >> 16) & 0xFF) / 255.f);
-                input.putFloat(((pixel >> 8) & 0xFF) / 255.f);
-                input.putFloat((pixel & 0xFF) / 255.f);
-            }
-            input.rewind();
-
-            float[][][] output = new float[1][896][16];
-            interpreter.run(input, output);
-
-            for (int i = 0; i < 896; i++) {
-                float score = output[0][i][4]; // confidence score
-                if (score > 0.5f) {
-                    float xMin = output[0][i][0] * bitmap.getWidth();
-                    float yMin = output[0][i][1] * bitmap.getHeight();
-                    float xMax = output[0][i][2] * bitmap.getWidth();
-                    float yMax = output[0][i][3] * bitmap.getHeight();
-
-                    faces.add(new Rect(
-                            Math.max(0, Math.round(xMin)),
-                            Math.max(0, Math.round(yMin)),
-                            Math.min(bitmap.getWidth(), Math.round(xMax)),
-                            Math.min(bitmap.getHeight(), Math.round(yMax))
-                    ));
-                }
-            }
-
+            runBlazeFace(arena, bitmap.getWidth(), bitmap.getHeight(), interpreter, faces);
         } catch (Exception e) {
             Log.e(TAG, "Face detection failed: " + e.getMessage());
         }
@@ -99,35 +99,100 @@ public class Utils {
         return faces;
     }
 
-    // ========================================
-    // Convert ImageProxy to Bitmap
-    // ========================================
-    public static Bitmap imageProxyToBitmap(ImageProxy image) {
-        try {
-            ByteBuffer yBuffer = image.getPlanes()[0].getBuffer();
-            ByteBuffer uBuffer = image.getPlanes()[1].getBuffer();
-            ByteBuffer vBuffer = image.getPlanes()[2].getBuffer();
+    // Regressors and score logits go through anchor decoding and weighted NMS, so each face
+    // yields one Rect (in pixels of the width x height frame) before anything is embedded
+    private static void runBlazeFace(TensorArena arena, int width, int height, Interpreter interpreter, List<Rect> faces) {
+        interpreter.runForMultipleInputsOutputs(arena.detectorInputs(), arena.detectorOutputs());
+        arena.dequantizeDetectorOutputs();
+        FaceDetections detections = BLAZEFACE_DECODER.decode(
+                arena.detectorOutput(), arena.detectorScores(), arena.detections());
+
+        for (int i = 0; i < detections.size(); i++) {
+            faces.add(new Rect(
+                    Math.max(0, Math.round(detections.xMin(i) * width)),
+                    Math.max(0, Math.round(detections.yMin(i) * height)),
+                    Math.min(width, Math.round(detections.xMax(i) * width)),
+                    Math.min(height, Math.round(detections.yMax(i) * height))
+            ));
+        }
+    }
 
-            int ySize = yBuffer.remaining();
-            int uSize = uBuffer.remaining();
-            int vSize = vBuffer.remaining();
+    // Lays the arena's detector tensors out for the interpreter's input and output types, so a
+    // float32 or an int8/uint8 BlazeFace file can be dropped in without code changes. Only
+    // re-reads the tensors when the arena last ran a different interpreter.
+    private static void bindDetector(TensorArena arena, Interpreter interpreter) {
+        if (arena.isDetectorBound(interpreter)) return;
+        arena.bindDetector(interpreter, tensorFormat(interpreter.getInputTensor(0)),
+                tensorFormat(interpreter.getOutputTensor(0)), tensorFormat(interpreter.getOutputTensor(1)));
+    }
 
-            byte[] nv21 = new byte[ySize + uSize + vSize];
+    // Same for FaceNet
+    private static void bindEmbedder(TensorArena arena, Interpreter interpreter) {
+        if (arena.isEmbedderBound(interpreter)) return;
+        arena.bindEmbedder(interpreter, tensorFormat(interpreter.getInputTensor(0)),
+                tensorFormat(interpreter.getOutputTensor(0)));
+    }
 
-            yBuffer.get(nv21, 0, ySize);
-            vBuffer.get(nv21, ySize, vSize);
-            uBuffer.get(nv21, ySize + vSize, uSize);
+    // BlazeFace behind the attendance pipeline's detect stage, tensors laid out for the
+    // interpreter's types. The returned detector owns its tensors; use it from one thread.
+    public static FaceModels.Detector blazeFace(Interpreter interpreter, FrameMetrics metrics) {
+        return FaceModels.blazeFace(interpreter::runForMultipleInputsOutputs,
+                tensorFormat(interpreter.getInputTensor(0)), tensorFormat(interpreter.getOutputTensor(0)),
+                tensorFormat(interpreter.getOutputTensor(1)), metrics);
+    }
 
-            YuvImage yuvImage = new YuvImage(nv21, ImageFormat.NV21, image.getWidth(), image.getHeight(), null);
-            ByteArrayOutputStream out = new ByteArrayOutputStream();
-            yuvImage.compressToJpeg(new Rect(0, 0, image.getWidth(), image.getHeight()), 100, out);
+    // FaceNet behind the embed stage, MAX_FACE_BATCH faces per invocation. The input tensor is
+    // only resized when the batch size changes, which this adapter tracks itself.
+    public static FaceModels.Embedder faceNet(Interpreter interpreter, FrameMetrics metrics) {
+        int[] batch = {-1};
+        FaceModels.EmbedderRunner runner = (input, output, n) -> {
+            if (batch[0] != n) {
+                interpreter.resizeInput(0, new int[]{n, FACENET_INPUT_SIZE, FACENET_INPUT_SIZE, 3});
+                batch[0] = n;
+            }
+            interpreter.run(input, output);
+        };
+        return FaceModels.faceNet(runner, FACENET_INPUT_SIZE, EMBEDDING_DIM, MAX_FACE_BATCH,
+                tensorFormat(interpreter.getInputTensor(0)), tensorFormat(interpreter.getOutputTensor(0)), metrics);
+    }
 
-            Bitmap bitmap = BitmapFactory.decodeByteArray(out.toByteArray(), 0, out.size());
+    // Element type, scale and zero point of a model tensor
+    public static TensorFormat tensorFormat(Tensor tensor) {
+        Tensor.QuantizationParams params = tensor.quantizationParams();
+        switch (tensor.dataType()) {
+            case FLOAT32:
+                return TensorFormat.FLOAT32;
+            case UINT8:
+                return TensorFormat.of(TensorFormat.Type.UINT8, params.getScale(), params.getZeroPoint());
+            case INT8:
+                return TensorFormat.of(TensorFormat.Type.INT8, params.getScale(), params.getZeroPoint());
+            default:
+                throw new IllegalArgumentException("Unsupported tensor type " + tensor.dataType());
+        }
+    }
 
-            Matrix matrix = new Matrix();
-            matrix.postRotate(image.getImageInfo().getRotationDegrees());
+    // Model tensors for the calling thread, allocated once per analyzer thread
+    public static TensorArena tensorArena() {
+        TensorArena arena = TENSOR_ARENA.get();
+        if (arena == null) {
+            arena = new TensorArena(BLAZEFACE_INPUT_SIZE, FACENET_INPUT_SIZE, EMBEDDING_DIM, MAX_FACE_BATCH);
+            TENSOR_ARENA.set(arena);
+        }
+        return arena;
+    }
 
-            return Bitmap.createBitmap(bitmap, 0, 0, bitmap.getWidth(), bitmap.getHeight(), matrix, true);
+    // ========================================
+    // Convert ImageProxy to Bitmap
+    // ========================================
+    public static Bitmap imageProxyToBitmap(ImageProxy image) {
+        try {
+            YuvFrame frame = toYuvFrame(image, new YuvFrame());
+            int width = frame.uprightWidth();
+            int height = frame.uprightHeight();
+
+            int[] argb = new int[width * height];
+            YuvConverter.toArgb(frame, argb);
+            return Bitmap.createBitmap(argb, width, height, Bitmap.Config.ARGB_8888);
 
         } catch (Exception e) {
             e.printStackTrace();
@@ -135,146 +200,161 @@ public class Utils {
         }
     }
 
+    // Points a reusable YuvFrame at the planes of a YUV_420_888 ImageProxy (no copy)
+    public static YuvFrame toYuvFrame(ImageProxy image, YuvFrame frame) {
+        ImageProxy.PlaneProxy[] planes = image.getPlanes();
+        return frame.set(
+                planes[0].getBuffer(), planes[0].getRowStride(),
+                planes[1].getBuffer(), planes[2].getBuffer(),
+                planes[1].getRowStride(), planes[1].getPixelStride(),
+                image.getWidth(), image.getHeight(),
+                image.getImageInfo().getRotationDegrees(),
+                image.getImageInfo().getTimestamp());
+    }
+
     // ========================================
     // Get FaceNet embedding (512-d)
     // ========================================
     public static float[] getFaceEmbedding(Bitmap faceBitmap, Interpreter tflite) {
-        Bitmap scaled = Bitmap.createScaledBitmap(faceBitmap, 160, 160, true);
-        ByteBuffer inputBuffer = convertBitmapToBuffer(scaled);
+        TensorArena arena = tensorArena();
+        bindEmbedder(arena, tflite);
+        int inputSize = arena.embedderInputSize();
+        Bitmap scaled = Bitmap.createScaledBitmap(faceBitmap, inputSize, inputSize, true);
+
+        int[] pixels = arena.embedderPixels();
+        scaled.getPixels(pixels, 0, inputSize, 0, 0, inputSize, inputSize);
+        TensorArena.putRgb(pixels, inputSize * inputSize, arena.embedderInputFormat(), arena.embedderSlot(0));
+        return runFaceNet(arena, 1, tflite)[0].clone();
+    }
 
-        float[][] embeddings = new float[1][512]; // FaceNet output
-        tflite.run(inputBuffer, embeddings);
+    // Crops, rotates and scales the face straight from the camera planes into the model input.
+    // Returns a copy the caller may keep.
+    public static float[] getFaceEmbedding(YuvFrame frame, Rect face, Interpreter tflite) {
+        return getFaceEmbedding(frame, face, tflite, tensorArena()).clone();
+    }
 
-        // Normalize
-        float norm = 0f;
-        for (float v : embeddings[0]) norm += v * v;
-        norm = (float) Math.sqrt(norm);
-        for (int i = 0; i < 512; i++) embeddings[0][i] /= norm;
+    // Allocation-free variant: the result is the arena's output row, overwritten by the next call
+    public static float[] getFaceEmbedding(YuvFrame frame, Rect face, Interpreter tflite, TensorArena arena) {
+        bindEmbedder(arena, tflite);
+        fillFaceSlot(frame, face, arena, 0);
+        return runFaceNet(arena, 1, tflite)[0];
+    }
 
-        return embeddings[0];
+    private static void fillFaceSlot(YuvFrame frame, Rect face, TensorArena arena, int slot) {
+        int inputSize = arena.embedderInputSize();
+        YuvConverter.toRgb(frame, face.left, face.top, face.width(), face.height(),
+                inputSize, inputSize, arena.embedderInputFormat(), arena.embedderSlot(slot));
     }
 
-    private static ByteBuffer convertBitmapToBuffer(Bitmap bitmap) {
-        ByteBuffer buffer = ByteBuffer.allocateDirect(1 * 160 * 160 * 3 * 4);
-        buffer.order(ByteOrder.nativeOrder());
-        int[] pixels = new int[160 * 160];
-        bitmap.getPixels(pixels, 0, 160, 0, 0, 160, 160);
-        for (int pixel : pixels) {
-            buffer.putFloat(((pixel >> 16) & 0xFF) / 255.f);
-            buffer.putFloat(((pixel >> 8) & 0xFF) / 255.f);
-            buffer.putFloat((pixel & 0xFF) / 255.f);
+    // Runs the first n slots; the input tensor is only resized when the batch size changes
+    private static float[][] runFaceNet(TensorArena arena, int n, Interpreter tflite) {
+        if (tflite.getInputTensor(0).shape()[0] != n) {
+            int size = arena.embedderInputSize();
+            tflite.resizeInput(0, new int[]{n, size, size, 3});
         }
-        buffer.rewind();
-        return buffer;
+        tflite.run(arena.embedderInput(n), arena.embedderRunOutput(n));
+        float[][] embeddings = arena.dequantizeEmbedderOutput(n);
+        for (int i = 0; i < n; i++) TensorArena.normalize(embeddings[i]);
+        return embeddings;
     }
 
     // ========================================
     // Recognize face
     // ========================================
     public static String recognizeFace(float[] emb, float[][] knownEmbeddings, List<String> knownNames, float threshold) {
-        String bestName = "Unknown";
-        float minDist = Float.MAX_VALUE;
-
-        for (int i = 0; i < knownEmbeddings.length; i++) {
-            if (knownEmbeddings[i].length != emb.length) continue; // safety
-            float dist = l2Distance(emb, knownEmbeddings[i]);
-            if (dist < minDist) {
-                minDist = dist;
-                bestName = knownNames.get(i);
-            }
-        }
+        return FaceRecognizer.recognize(emb, knownEmbeddings, knownNames, threshold);
+    }
 
-        return (minDist < threshold) ? bestName : "Unknown";
+    public static String recognizeFace(float[] emb, EmbeddingGallery gallery, float threshold) {
+        return FaceRecognizer.recognize(emb, gallery, threshold);
     }
 
-    private static float l2Distance(float[] a, float[] b) {
-        if (a.length != b.length) throw new IllegalArgumentException("Embedding size mismatch");
-        float sum = 0f;
-        for (int i = 0; i < a.length; i++) {
-            float diff = a[i] - b[i];
-            sum += diff * diff;
-        }
-        return (float) Math.sqrt(sum);
+    // Quantized gallery; exactRows (the mapped store) lets the top rerankK candidates be re-scored in float
+    public static String recognizeFace(float[] emb, QuantizedGallery gallery, FloatBuffer exactRows, int rerankK, float threshold) {
+        return FaceRecognizer.recognize(emb, gallery, exactRows, rerankK, threshold);
+    }
+
+    public static String recognizeFace(float[] emb, EmbeddingGallery gallery, HnswIndex index, float threshold) {
+        return FaceRecognizer.recognize(emb, gallery, index, threshold);
     }
 
     // ========================================
-    // Save/load embeddings and names
+    // Enrol and load faces
     // ========================================
-    public static boolean appendEmbeddings(Context context, List<float[]> newEmbeddings, String name) {
+    // Id of the new identity, or -1 if it could not be saved
+    public static int appendEmbeddings(Context context, List<float[]> newEmbeddings, String name) {
         try {
-            List<String> names = loadNames(context);
-            names.add(name);
-
-            List<float[]> embeddingsList = loadEmbeddings(context);
-            embeddingsList.addAll(newEmbeddings);
-
-            saveNames(context, names);
-            saveEmbeddings(context, embeddingsList);
+            return faceDatabase(context).enrol(newEmbeddings, name);
+        } catch (IOException | IllegalArgumentException e) {
+            Log.e(TAG, "Failed to enrol " + name + ": " + e.getMessage());
+            return -1;
+        }
+    }
 
-            return true;
-        } catch (Exception e) {
-            e.printStackTrace();
-            return false;
+    // Gallery over the app's enrolled faces, merged with the bundled assets once per SEED_VERSION
+    public static EmbeddingGallery loadGallery(Context context) {
+        try {
+            return faceDatabase(context).loadGallery();
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to open face database: " + e.getMessage());
+            return EmbeddingGallery.empty(EMBEDDING_DIM);
         }
     }
 
-    private static void saveNames(Context context, List<String> names) throws IOException {
-        JSONArray json = new JSONArray();
-        for (String n : names) json.put(n);
-        FileOutputStream fos = context.openFileOutput("names.json", Context.MODE_PRIVATE);
-        fos.write(json.toString().getBytes());
-        fos.close();
+    // Live store behind loadGallery, for snapshots and change listeners; null if it cannot be opened
+    public static GalleryStore galleryStore(Context context) {
+        try {
+            return faceDatabase(context).store();
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to open face database: " + e.getMessage());
+            return null;
+        }
     }
 
-    private static List<String> loadNames(Context context) {
-        List<String> names = new ArrayList<>();
+    // ANN index over the gallery, or null when the gallery is small enough for an exact scan
+    public static HnswIndex loadIndex(Context context, EmbeddingGallery gallery) {
         try {
-            FileInputStream fis = context.openFileInput("names.json");
-            byte[] data = new byte[fis.available()];
-            fis.read(data);
-            fis.close();
-
-            JSONArray json = new JSONArray(new String(data));
-            for (int i = 0; i < json.length(); i++) names.add(json.getString(i));
-        } catch (Exception ignore) {}
-        return names;
+            return faceDatabase(context).loadIndex(gallery);
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to open face database: " + e.getMessage());
+            return null;
+        }
     }
 
-    private static void saveEmbeddings(Context context, List<float[]> embeddings) throws IOException {
-        FileOutputStream fos = context.openFileOutput("embeddings.bin", Context.MODE_PRIVATE);
-        for (float[] emb : embeddings) {
-            if (emb.length != 512) continue; // safety check
-            ByteBuffer buffer = ByteBuffer.allocate(512 * 4).order(ByteOrder.LITTLE_ENDIAN);
-            for (float v : emb) buffer.putFloat(v);
-            fos.write(buffer.array());
+    // Enrolled faces in the app's files dir. One instance per process: it owns the gallery log
+    public static synchronized FaceDatabase faceDatabase(Context context) throws IOException {
+        if (faceDatabase == null) {
+            File dir = context.getApplicationContext().getFilesDir();
+            FaceDatabase db = new FaceDatabase(dir, EMBEDDING_DIM, EMBEDDING_MODEL_ID, ANN_MIN_ROWS);
+            if (db.seedVersion() < SEED_VERSION) mergeBundledFaces(context, db);
+            faceDatabase = db;
         }
-        fos.close();
+        return faceDatabase;
     }
 
-    private static List<float[]> loadEmbeddings(Context context) {
-        List<float[]> embeddings = new ArrayList<>();
+    // Copies the bundled gallery to a scratch dir (it is migrated in place) and merges it in
+    private static void mergeBundledFaces(Context context, FaceDatabase db) throws IOException {
+        File seed = new File(context.getCacheDir(), "seed");
+        if (!seed.isDirectory() && !seed.mkdirs()) throw new IOException("Cannot create " + seed);
+        File embeddings = new File(seed, FaceDatabase.EMBEDDINGS_FILE);
+        File names = new File(seed, FaceDatabase.NAMES_FILE);
         try {
-            FileInputStream fis = context.openFileInput("embeddings.bin");
-            byte[] data = readAllBytesCompat(fis);
-            fis.close();
-
-            ByteBuffer buffer = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
-            while (buffer.remaining() >= 512 * 4) {
-                float[] emb = new float[512];
-                for (int i = 0; i < 512; i++) emb[i] = buffer.getFloat();
-                embeddings.add(emb);
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
+            copyAsset(context, FaceDatabase.EMBEDDINGS_FILE, embeddings);
+            copyAsset(context, FaceDatabase.NAMES_FILE, names);
+            int added = db.mergeSeed(embeddings, names, SEED_VERSION);
+            Log.i(TAG, "Merged " + added + " bundled identities (seed " + SEED_VERSION + ")");
+        } finally {
+            embeddings.delete();
+            names.delete();
         }
-        return embeddings;
     }
 
-    public static byte[] readAllBytesCompat(InputStream is) throws IOException {
-        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
-        byte[] data = new byte[4096];
-        int nRead;
-        while ((nRead = is.read(data)) != -1) buffer.write(data, 0, nRead);
-        return buffer.toByteArray();
+    private static void copyAsset(Context context, String assetName, File target) throws IOException {
+        try (InputStream is = context.getAssets().open(assetName);
+             FileOutputStream fos = new FileOutputStream(target)) {
+            byte[] data = new byte[8192];
+            int nRead;
+            while ((nRead = is.read(data)) != -1) fos.write(data, 0, nRead);
+        }
     }
 }
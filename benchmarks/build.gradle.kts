@@ -0,0 +1,30 @@
+// JMH benchmarks for :recognition-core, run on the host JVM:
+//   ./gradlew :benchmarks:jmh
+// Results land in build/results/jmh; compare them against baseline/.
+plugins {
+    java
+    id("me.champeau.jmh")
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_17
+    targetCompatibility = JavaVersion.VERSION_17
+}
+
+dependencies {
+    implementation(project(":recognition-core"))
+}
+
+jmh {
+    jmhVersion.set("1.37")
+    // Three forks of ten measured seconds: one fork's JIT and GC luck no longer decides the score
+    fork.set(3)
+    warmupIterations.set(5)
+    warmup.set("1s")
+    iterations.set(10)
+    timeOnIteration.set("1s")
+    jvmArgs.set(listOf("-Xms2g", "-Xmx2g"))
+    resultFormat.set("JSON")
+    // e.g. ./gradlew :benchmarks:jmh -Pjmh.includes=Gallery
+    (project.findProperty("jmh.includes") as String?)?.let { includes.set(listOf(it)) }
+}
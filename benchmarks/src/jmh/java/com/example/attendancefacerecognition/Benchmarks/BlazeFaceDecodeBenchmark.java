@@ -0,0 +1,47 @@
+package com.example.attendancefacerecognition.Benchmarks;
+
+import com.example.attendancefacerecognition.Recognition.BlazeFaceDecoder;
+import com.example.attendancefacerecognition.Recognition.FaceDetections;
+import com.example.attendancefacerecognition.Recognition.TensorArena;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BlazeFace post-processing on one frame's raw outputs: logit threshold, box decode against the
+ * anchors, score sort and weighted NMS, for an empty room up to a crowded one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BlazeFaceDecodeBenchmark {
+
+    @Param({"0", "1", "4", "12"})
+    public int faces;
+
+    private final BlazeFaceDecoder decoder = new BlazeFaceDecoder();
+    private final FaceDetections detections = new FaceDetections(TensorArena.MAX_DETECTIONS);
+    private float[][][] regressors;
+    private float[][][] scores;
+
+    @Setup
+    public void setUp() {
+        float[][][][] outputs = Fixtures.detectorOutputs(faces, new Random(Fixtures.SEED));
+        regressors = outputs[0];
+        scores = outputs[1];
+    }
+
+    @Benchmark
+    public int decode() {
+        return decoder.decode(regressors, scores, detections).size();
+    }
+}
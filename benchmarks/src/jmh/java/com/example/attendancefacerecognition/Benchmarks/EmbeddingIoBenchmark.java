@@ -0,0 +1,235 @@
+package com.example.attendancefacerecognition.Benchmarks;
+
+import com.example.attendancefacerecognition.Recognition.EmbeddingGallery;
+import com.example.attendancefacerecognition.Recognition.EmbeddingStore;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loading and saving the enrolled embeddings in both layouts the app has shipped: 512-d
+ * little-endian rows as {@code Utils} wrote them, and the 128-d big-endian rows the first
+ * {@code AttendanceActivity} read from its assets.
+ *
+ * The {@code legacy*} benchmarks are the original headerless loaders and the full-file rewrite
+ * that enrolment used to do; the {@code store*} ones are {@link EmbeddingStore} over the same
+ * rows, mapped in place and appended to without a rewrite.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EmbeddingIoBenchmark {
+
+    @Param({"UTILS_512_LE", "ACTIVITY_128_BE"})
+    public Layout layout;
+
+    @Param({"100", "1000", "10000"})
+    public int rows;
+
+    public enum Layout {
+        UTILS_512_LE(512, ByteOrder.LITTLE_ENDIAN, "facenet-512"),
+        ACTIVITY_128_BE(128, ByteOrder.BIG_ENDIAN, "facenet-128");
+
+        final int dimension;
+        final ByteOrder order;
+        final String modelId;
+
+        Layout(int dimension, ByteOrder order, String modelId) {
+            this.dimension = dimension;
+            this.order = order;
+            this.modelId = modelId;
+        }
+    }
+
+    private File dir;
+    private File legacyFile;
+    private File storeFile;
+    private List<float[]> embeddings;
+    private List<String> names;
+    private float[] enrolled;
+
+    @Setup
+    public void setUp() throws IOException {
+        Random random = new Random(Fixtures.SEED);
+        embeddings = Fixtures.embeddings(rows, layout.dimension, random);
+        names = Fixtures.names(rows);
+        enrolled = Fixtures.unit(Fixtures.gaussian(layout.dimension, random, 1f));
+
+        dir = Files.createTempDirectory("embedding-io").toFile();
+        legacyFile = new File(dir, "legacy.bin");
+        storeFile = new File(dir, "store.bin");
+        writeLegacy(legacyFile, embeddings, layout.order);
+        writeStore(storeFile, embeddings, layout);
+    }
+
+    @TearDown
+    public void tearDown() {
+        File[] files = dir.listFiles();
+        if (files != null) for (File f : files) f.delete();
+        dir.delete();
+    }
+
+    // ========================================
+    // Load
+    // ========================================
+
+    @Benchmark
+    public int legacyLoad() throws IOException {
+        List<float[]> loaded = layout == Layout.UTILS_512_LE
+                ? loadUtilsFormat(legacyFile, layout.dimension)
+                : loadActivityFormat(legacyFile, layout.dimension);
+        return loaded.size();
+    }
+
+    @Benchmark
+    public int storeMap() throws IOException {
+        try (EmbeddingStore store = EmbeddingStore.open(storeFile, layout.dimension, layout.modelId)) {
+            return EmbeddingGallery.fromBuffer(store.rows(), store.dimension(), names).size();
+        }
+    }
+
+    @Benchmark
+    public int storeReadAll() throws IOException {
+        try (EmbeddingStore store = EmbeddingStore.open(storeFile, layout.dimension, layout.modelId)) {
+            return store.readAll().size();
+        }
+    }
+
+    // ========================================
+    // Enrol one more row
+    // ========================================
+
+    @Benchmark
+    public int legacyRewrite() throws IOException {
+        List<float[]> all = new ArrayList<>(embeddings.size() + 1);
+        all.addAll(embeddings);
+        all.add(enrolled);
+        writeLegacy(legacyFile, all, layout.order);
+        return all.size();
+    }
+
+    @Benchmark
+    public int storeAppend(AppendTarget target) throws IOException {
+        return target.store.append(Collections.singletonList(enrolled));
+    }
+
+    /** A store reset to the fixture rows before each iteration, so appends do not pile up. */
+    @State(Scope.Thread)
+    public static class AppendTarget {
+        EmbeddingStore store;
+
+        @Setup(Level.Iteration)
+        public void open(EmbeddingIoBenchmark bench) throws IOException {
+            File file = new File(bench.dir, "append.bin");
+            writeStore(file, bench.embeddings, bench.layout);
+            store = EmbeddingStore.open(file, bench.layout.dimension, bench.layout.modelId);
+        }
+
+        @TearDown(Level.Iteration)
+        public void close() throws IOException {
+            store.close();
+        }
+    }
+
+    // ========================================
+    // Original formats, kept as the reference point
+    // ========================================
+
+    // Utils.loadEmbeddings before the store: whole file into memory, then little-endian rows
+    private static List<float[]> loadUtilsFormat(File file, int dimension) throws IOException {
+        List<float[]> embeddings = new ArrayList<>();
+        byte[] data;
+        try (FileInputStream fis = new FileInputStream(file)) {
+            data = readAllBytesCompat(fis);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.remaining() >= dimension * 4) {
+            float[] emb = new float[dimension];
+            for (int i = 0; i < dimension; i++) emb[i] = buffer.getFloat();
+            embeddings.add(emb);
+        }
+        return embeddings;
+    }
+
+    // AttendanceActivity.loadEmbeddings: big-endian floats through a DataInputStream. The
+    // asset stream it read from buffers internally, hence the BufferedInputStream here.
+    private static List<float[]> loadActivityFormat(File file, int dimension) throws IOException {
+        List<float[]> embeddings = new ArrayList<>();
+        try (DataInputStream dis = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            while (dis.available() > 0) {
+                float[] embedding = new float[dimension];
+                for (int i = 0; i < dimension; i++) embedding[i] = dis.readFloat();
+                embeddings.add(embedding);
+            }
+        }
+        return embeddings;
+    }
+
+    private static byte[] readAllBytesCompat(InputStream is) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        byte[] data = new byte[4096];
+        int nRead;
+        while ((nRead = is.read(data)) != -1) buffer.write(data, 0, nRead);
+        return buffer.toByteArray();
+    }
+
+    // Utils.saveEmbeddings before the store: every row rewritten, one buffer per row
+    private static void writeLegacy(File file, List<float[]> embeddings, ByteOrder order) throws IOException {
+        try (FileOutputStream fos = new FileOutputStream(file)) {
+            for (float[] emb : embeddings) {
+                ByteBuffer buffer = ByteBuffer.allocate(emb.length * 4).order(order);
+                for (float v : emb) buffer.putFloat(v);
+                fos.write(buffer.array());
+            }
+        }
+    }
+
+    // The documented store layout, written directly so big-endian rows can be produced too
+    private static void writeStore(File file, List<float[]> embeddings, Layout layout) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(EmbeddingStore.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(EmbeddingStore.MAGIC);
+        header.putInt(EmbeddingStore.VERSION);
+        header.putInt(layout.dimension);
+        header.putInt(layout.order == ByteOrder.LITTLE_ENDIAN ? 0 : 1);
+        header.putInt(embeddings.size());
+        header.put(layout.modelId.getBytes(StandardCharsets.UTF_8));
+        header.clear();
+
+        ByteBuffer body = ByteBuffer.allocate(embeddings.size() * layout.dimension * 4).order(layout.order);
+        for (float[] row : embeddings) for (float v : row) body.putFloat(v);
+        body.flip();
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(0);
+            raf.getChannel().write(header, 0);
+            raf.getChannel().write(body, EmbeddingStore.HEADER_SIZE);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.attendancefacerecognition.Benchmarks;
+
+import com.example.attendancefacerecognition.Recognition.BlazeFaceDecoder;
+import com.example.attendancefacerecognition.Recognition.TensorArena;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Deterministic inputs shared by the benchmarks. Everything is derived from a fixed seed, so two
+ * runs (and the checked-in baseline) measure the same data.
+ */
+final class Fixtures {
+
+    static final long SEED = 20240601L;
+    static final int EMBEDDING_DIM = 512;
+    static final int ROWS_PER_IDENTITY = 5;
+    /** L2 distance under which a probe is accepted, as in the app. */
+    static final float THRESHOLD = 0.65f;
+
+    // Norm of the capture noise: same-identity rows sit ~0.4 apart, strangers ~1.4
+    private static final float NOISE = 0.3f;
+
+    private Fixtures() {}
+
+    /** {@code count} unit-length embeddings, {@link #ROWS_PER_IDENTITY} noisy rows per identity. */
+    static List<float[]> embeddings(int count, int dimension, Random random) {
+        List<float[]> rows = new ArrayList<>(count);
+        float[] centre = null;
+        for (int i = 0; i < count; i++) {
+            if (i % ROWS_PER_IDENTITY == 0) centre = unit(gaussian(dimension, random, 1f));
+            float[] row = gaussian(dimension, random, NOISE / (float) Math.sqrt(dimension));
+            for (int d = 0; d < dimension; d++) row[d] += centre[d];
+            rows.add(unit(row));
+        }
+        return rows;
+    }
+
+    static List<String> names(int count) {
+        List<String> names = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) names.add("person-" + (i / ROWS_PER_IDENTITY));
+        return names;
+    }
+
+    /** A fresh capture of the identity owning {@code row}: the row plus the same per-row noise. */
+    static float[] probe(float[] row, Random random) {
+        float[] query = gaussian(row.length, random, NOISE / (float) Math.sqrt(row.length));
+        for (int d = 0; d < row.length; d++) query[d] += row[d];
+        return unit(query);
+    }
+
+    static float[] gaussian(int dimension, Random random, float sigma) {
+        float[] v = new float[dimension];
+        for (int d = 0; d < dimension; d++) v[d] = (float) random.nextGaussian() * sigma;
+        return v;
+    }
+
+    static float[] unit(float[] v) {
+        return TensorArena.normalize(v);
+    }
+
+    /** Opaque ARGB pixels with some structure, like a face crop rather than white noise. */
+    static int[] argb(int count, Random random) {
+        int[] pixels = new int[count];
+        for (int i = 0; i < count; i++) {
+            int base = 96 + (i * 37 % 64);
+            int r = clamp(base + random.nextInt(48));
+            int g = clamp(base - 16 + random.nextInt(48));
+            int b = clamp(base - 32 + random.nextInt(48));
+            pixels[i] = 0xFF000000 | (r << 16) | (g << 8) | b;
+        }
+        return pixels;
+    }
+
+    private static int clamp(int v) {
+        return Math.max(0, Math.min(255, v));
+    }
+
+    /**
+     * Raw BlazeFace outputs for a frame with {@code faces} faces: background anchors carry low
+     * logits, and a cluster of anchors around each face centre fires with the box and keypoints
+     * regressed onto that face, so the decoder does its usual threshold, sort and NMS work.
+     *
+     * @return {@code {regressors[1][896][16], scores[1][896][1]}}
+     */
+    static float[][][][] detectorOutputs(int faces, Random random) {
+        int anchors = BlazeFaceDecoder.ANCHORS;
+        int size = BlazeFaceDecoder.INPUT_SIZE;
+        float[][][] regressors = new float[1][anchors][BlazeFaceDecoder.VALUES];
+        float[][][] scores = new float[1][anchors][1];
+
+        float[] cx = new float[faces];
+        float[] cy = new float[faces];
+        float[] extent = new float[faces];
+        for (int f = 0; f < faces; f++) {
+            cx[f] = 0.15f + 0.7f * random.nextFloat();
+            cy[f] = 0.15f + 0.7f * random.nextFloat();
+            extent[f] = 0.12f + 0.12f * random.nextFloat();
+        }
+
+        for (int i = 0; i < anchors; i++) {
+            float ax = BlazeFaceDecoder.anchorX(i);
+            float ay = BlazeFaceDecoder.anchorY(i);
+            float logit = -8f + 4f * random.nextFloat();
+            float[] raw = regressors[0][i];
+            for (int v = 0; v < raw.length; v++) raw[v] = (float) random.nextGaussian() * 4f;
+
+            for (int f = 0; f < faces; f++) {
+                float dx = cx[f] - ax;
+                float dy = cy[f] - ay;
+                if (dx * dx + dy * dy > extent[f] * extent[f] / 4f) continue;
+                logit = 6f - 40f * (float) Math.sqrt(dx * dx + dy * dy) + (float) random.nextGaussian();
+                float w = extent[f] * size;
+                raw[0] = dx * size + (float) random.nextGaussian();
+                raw[1] = dy * size + (float) random.nextGaussian();
+                raw[2] = w;
+                raw[3] = w * 1.1f;
+                for (int k = 0; k < 6; k++) {
+                    raw[4 + k * 2] = raw[0] + (k - 2.5f) * w / 6f;
+                    raw[5 + k * 2] = raw[1] + (k % 3 - 1) * w / 5f;
+                }
+            }
+            scores[0][i][0] = logit;
+        }
+        return new float[][][][] {regressors, scores};
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.attendancefacerecognition.Benchmarks;
+
+import com.example.attendancefacerecognition.Recognition.TensorArena;
+import com.example.attendancefacerecognition.Recognition.TensorFormat;
+import com.example.attendancefacerecognition.Recognition.YuvConverter;
+import com.example.attendancefacerecognition.Recognition.YuvFrame;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Packing pixels into model input tensors. {@link #convertBitmapToBuffer} is the original
+ * per-crop loop (allocation included, {@code getPixels} excluded); {@link #putRgb} is the
+ * {@link TensorArena} helper that replaced it, into a reused buffer of the given element type;
+ * {@link #yuvToRgb} samples the detector input straight from a 640x480 camera frame.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PixelPackingBenchmark {
+
+    private static final int FACE_SIZE = 160;
+    private static final int DETECTOR_SIZE = 128;
+    private static final int FRAME_WIDTH = 640;
+    private static final int FRAME_HEIGHT = 480;
+
+    @Param({"FLOAT32", "UINT8", "INT8"})
+    public TensorFormat.Type type;
+
+    private int[] pixels;
+    private TensorFormat format;
+    private ByteBuffer faceInput;
+    private ByteBuffer detectorInput;
+    private YuvFrame frame;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(Fixtures.SEED);
+        pixels = Fixtures.argb(FACE_SIZE * FACE_SIZE, random);
+        switch (type) {
+            case UINT8: format = TensorFormat.of(type, 1f / 255f, 0); break;
+            case INT8: format = TensorFormat.of(type, 1f / 255f, -128); break;
+            default: format = TensorFormat.FLOAT32;
+        }
+        faceInput = ByteBuffer.allocateDirect(format.bytes(FACE_SIZE * FACE_SIZE * 3)).order(ByteOrder.nativeOrder());
+        detectorInput = ByteBuffer.allocateDirect(format.bytes(DETECTOR_SIZE * DETECTOR_SIZE * 3)).order(ByteOrder.nativeOrder());
+        frame = yuv420(FRAME_WIDTH, FRAME_HEIGHT, random);
+    }
+
+    @Benchmark
+    public ByteBuffer convertBitmapToBuffer() {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(1 * FACE_SIZE * FACE_SIZE * 3 * 4);
+        buffer.order(ByteOrder.nativeOrder());
+        for (int pixel : pixels) {
+            buffer.putFloat(((pixel >> 16) & 0xFF) / 255.f);
+            buffer.putFloat(((pixel >> 8) & 0xFF) / 255.f);
+            buffer.putFloat((pixel & 0xFF) / 255.f);
+        }
+        buffer.rewind();
+        return buffer;
+    }
+
+    @Benchmark
+    public ByteBuffer putRgb() {
+        TensorArena.putRgb(pixels, pixels.length, format, faceInput);
+        return faceInput;
+    }
+
+    @Benchmark
+    public ByteBuffer yuvToRgb() {
+        // Square centre crop, as the detector sees the frame
+        int side = Math.min(FRAME_WIDTH, FRAME_HEIGHT);
+        YuvConverter.toRgb(frame, (FRAME_WIDTH - side) / 2, 0, side, side,
+                DETECTOR_SIZE, DETECTOR_SIZE, format, detectorInput);
+        return detectorInput;
+    }
+
+    // Planar YUV_420_888 with CameraX's usual strides: a full-resolution luma plane and
+    // interleaved half-resolution chroma (pixel stride 2)
+    private static YuvFrame yuv420(int width, int height, Random random) {
+        ByteBuffer y = ByteBuffer.allocateDirect(width * height);
+        ByteBuffer uv = ByteBuffer.allocateDirect(width * height / 2);
+        for (int i = 0; i < width * height; i++) y.put((byte) (64 + random.nextInt(128)));
+        for (int i = 0; i < width * height / 2; i++) uv.put((byte) (112 + random.nextInt(32)));
+        y.clear();
+        uv.clear();
+        ByteBuffer u = uv.duplicate();
+        ByteBuffer v = uv.duplicate();
+        v.position(1);
+        return new YuvFrame().set(y, width, u, v.slice(), width, 2, width, height, 0, 0L);
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.attendancefacerecognition.Benchmarks;
+
+import com.example.attendancefacerecognition.Recognition.EmbeddingGallery;
+import com.example.attendancefacerecognition.Recognition.FaceRecognizer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One probe against the whole gallery, per frame and per face: the array-of-rows scan behind
+ * {@code Utils.recognizeFace(float[], float[][], ...)}, its {@link FaceRecognizer#l2Distance}
+ * kernel alone, and the flat {@link EmbeddingGallery} scan the app matches with today.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RecognizeBenchmark {
+
+    @Param({"100", "1000", "10000", "100000"})
+    public int gallerySize;
+
+    private float[][] rows;
+    private List<String> names;
+    private EmbeddingGallery gallery;
+    private float[] probe;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(Fixtures.SEED);
+        List<float[]> embeddings = Fixtures.embeddings(gallerySize, Fixtures.EMBEDDING_DIM, random);
+        rows = embeddings.toArray(new float[0][]);
+        names = Fixtures.names(gallerySize);
+        gallery = EmbeddingGallery.fromRows(embeddings, names);
+        // Someone enrolled half way through the gallery, so the scan cannot stop early
+        probe = Fixtures.probe(rows[gallerySize / 2], random);
+    }
+
+    @Benchmark
+    public String recognizeArrays() {
+        return FaceRecognizer.recognize(probe, rows, names, Fixtures.THRESHOLD);
+    }
+
+    @Benchmark
+    public float l2DistanceScan() {
+        float min = Float.MAX_VALUE;
+        for (float[] row : rows) min = Math.min(min, FaceRecognizer.l2Distance(probe, row));
+        return min;
+    }
+
+    @Benchmark
+    public String recognizeGallery() {
+        return FaceRecognizer.recognize(probe, gallery, Fixtures.THRESHOLD);
+    }
+}
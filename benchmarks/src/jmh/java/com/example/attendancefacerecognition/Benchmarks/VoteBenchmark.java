@@ -0,0 +1,83 @@
+package com.example.attendancefacerecognition.Benchmarks;
+
+import com.example.attendancefacerecognition.Recognition.AttendanceVoter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deciding attendance from a run of per-face recognitions. {@link #mostFrequent} is the quadratic
+ * count the activity used to run over every name seen in five seconds; {@link #voter} feeds the
+ * same names, in frame order, to the {@link AttendanceVoter} that replaced it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class VoteBenchmark {
+
+    private static final int CLASS_SIZE = 30;
+    private static final long FRAME_NANOS = TimeUnit.MILLISECONDS.toNanos(33);
+    private static final long WINDOW_NANOS = TimeUnit.SECONDS.toNanos(3);
+    private static final long COOLDOWN_NANOS = TimeUnit.MINUTES.toNanos(5);
+
+    @Param({"100", "1000", "10000"})
+    public int recognitions;
+
+    private List<String> names;
+    private long[] timestamps;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(Fixtures.SEED);
+        names = new ArrayList<>(recognitions);
+        timestamps = new long[recognitions];
+        // About four faces per frame; one student lingers in front of the camera
+        for (int i = 0; i < recognitions; i++) {
+            String name = random.nextInt(3) == 0 ? "Unknown" : "person-" + random.nextInt(CLASS_SIZE);
+            names.add(random.nextInt(4) == 0 ? "person-0" : name);
+            timestamps[i] = (i / 4) * FRAME_NANOS;
+        }
+    }
+
+    @Benchmark
+    public String mostFrequent() {
+        return getMostFrequent(names);
+    }
+
+    @Benchmark
+    public long voter() {
+        AttendanceVoter voter = new AttendanceVoter(WINDOW_NANOS, 6, 12f, COOLDOWN_NANOS, null);
+        for (int i = 0; i < recognitions; i++) {
+            String name = names.get(i);
+            if (!"Unknown".equals(name)) voter.vote(name, 1f, timestamps[i]);
+        }
+        return voter.confirmations();
+    }
+
+    // The activity's pre-voter aggregation, kept verbatim as the reference point
+    private static String getMostFrequent(List<String> list) {
+        if (list.isEmpty()) return "Unknown";
+        String most = null;
+        int maxCount = 0;
+        for (String s : list) {
+            int count = 0;
+            for (String t : list) if (t.equals(s)) count++;
+            if (count > maxCount) {
+                maxCount = count;
+                most = s;
+            }
+        }
+        return most;
+    }
+}
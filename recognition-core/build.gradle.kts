@@ -0,0 +1,29 @@
+// Android-free face recognition engine: embedding storage, gallery and matching, BlazeFace
+// post-processing, vote aggregation, pixel packing over int[]/ByteBuffer, the frame pipeline
+// and the attendance journal. Plain Java, so it is tested and benchmarked on any JVM; the app
+// only adapts CameraX, Bitmaps and TFLite to it.
+plugins {
+    `java-library`
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_17
+    targetCompatibility = JavaVersion.VERSION_17
+}
+
+dependencies {
+    implementation("com.google.code.gson:gson:2.10.1")
+
+    testImplementation(libs.junit)
+}
+
+// Headless replay of a frame recording, e.g.
+// ./gradlew :recognition-core:replay -Preplay.args="capture.yuvr --detect-ms 8 --embed-ms 40"
+tasks.register<JavaExec>("replay") {
+    group = "application"
+    description = "Replays a frame recording through the attendance pipeline with stub models"
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass.set("com.example.attendancefacerecognition.Replay.ReplayMain")
+    workingDir = rootDir
+    args = (findProperty("replay.args") as String? ?: "").split(" ").filter { it.isNotBlank() }
+}
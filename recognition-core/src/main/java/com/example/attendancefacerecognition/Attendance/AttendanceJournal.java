@@ -0,0 +1,646 @@
+package com.example.attendancefacerecognition.Attendance;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only, crash-safe log of {@link AttendanceRecord}s in fixed-size records.
+ *
+ * <pre>
+ * segment header (64 bytes)          record (64 bytes)
+ * offset  size  field                offset  size  field
+ * 0       4     magic "FATT"         0       8     sequence
+ * 4       4     format version       8       8     timestamp, ms since the epoch
+ * 8       4     record size          16      4     score (float)
+ * 12      4     local epoch day      20      4     identity length in bytes
+ * 16      8     first sequence       24      36    identity, UTF-8, zero padded
+ * 24      32    device id, UTF-8     60      4     CRC32 of bytes 0-59
+ * 56      8     reserved
+ * </pre>
+ *
+ * All fields are little-endian. The device id is constant for a device, so it is kept once per
+ * segment header rather than in every record; a change of device id starts a new segment. Ids
+ * longer than {@link #MAX_DEVICE_ID_BYTES} are refused rather than cut, so an id always reads
+ * back as it was written.
+ *
+ * {@link #append} only queues the record and returns its sequence; the caller never touches the
+ * disk. A single writer thread drains whatever has queued up, writes it with one write and makes
+ * it durable with one {@code force} (group commit), so the cost of an fsync is shared by every
+ * record that arrived while the previous one ran. {@link #awaitDurable} waits for a given record.
+ *
+ * A write or {@code force} that fails does not lose the batch or stop the writer: the active
+ * segment is reopened and cut back to its last durable record, and the batch is retried with
+ * backoff while new records keep queueing in memory. {@link #failure()} reports the error until
+ * a retry succeeds.
+ *
+ * Sequences start at 1 in a new journal directory. {@link #journalId()} is a random id drawn
+ * when the directory is created and kept in {@code journal.id}, so (device, journal id,
+ * sequence) names a record for good, even after a reinstall restarts the sequences.
+ *
+ * Segments are named after their first sequence and roll when they reach
+ * {@code maxSegmentBytes} or the local day changes. On {@link #open}, the last segment is scanned
+ * and truncated at the first record that is incomplete, fails its CRC or is out of sequence,
+ * which is what a crash mid-write leaves behind. Uploaded segments are removed with
+ * {@link #deleteSegmentsBefore}.
+ */
+public final class AttendanceJournal implements Closeable {
+
+    public static final int MAGIC = 0x54544146; // "FATT" read little-endian
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 64;
+    public static final int RECORD_SIZE = 64;
+    public static final int MAX_IDENTITY_BYTES = 36;
+    public static final int MAX_DEVICE_ID_BYTES = 32;
+    public static final long DEFAULT_MAX_SEGMENT_BYTES = 1 << 20;
+
+    private static final String PREFIX = "attendance-";
+    private static final String SUFFIX = ".log";
+    private static final String ID_FILE = "journal.id";
+    private static final int CRC_OFFSET = 60;
+    private static final long DAY_MILLIS = TimeUnit.DAYS.toMillis(1);
+    private static final int MAX_BATCH = 512;
+    private static final long RETRY_BASE_MILLIS = 50;
+    private static final long RETRY_MAX_MILLIS = 5_000;
+    private static final int RETRIES_AFTER_CLOSE = 3;
+    private static final AttendanceRecord CLOSE = new AttendanceRecord(-1, "", 0, "", 0f);
+
+    private final File dir;
+    private final String journalId;
+    private final long maxSegmentBytes;
+    private final TimeZone zone;
+    private final ConcurrentSkipListMap<Long, File> segments = new ConcurrentSkipListMap<>();
+    private final LinkedBlockingQueue<AttendanceRecord> queue = new LinkedBlockingQueue<>();
+    private final Object appendLock = new Object();
+    private final Object durableLock = new Object();
+    private final Thread writer;
+
+    // Appenders
+    private long nextSequence;
+    private boolean closed;
+
+    // Writer thread only
+    private RandomAccessFile active;
+    private long activeBytes;
+    private long activeDurableBytes;
+    private long writtenSequence;
+    private int activeDay;
+    private String activeDeviceId;
+
+    private volatile long durableSequence;
+    private volatile IOException failure;
+    private volatile boolean writerStopped;
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong appended = new AtomicLong();
+
+    /** Test hook, called before each group commit's {@code force}. */
+    interface CommitHook {
+        void beforeForce() throws IOException;
+    }
+
+    volatile CommitHook commitHook;
+
+    private AttendanceJournal(File dir, String journalId, long maxSegmentBytes, TimeZone zone) {
+        this.dir = dir;
+        this.journalId = journalId;
+        this.maxSegmentBytes = maxSegmentBytes;
+        this.zone = zone;
+        this.writer = new Thread(this::writeLoop, "attendance-journal");
+    }
+
+    // ========================================
+    // Open / recover
+    // ========================================
+
+    public static AttendanceJournal open(File dir) throws IOException {
+        return open(dir, DEFAULT_MAX_SEGMENT_BYTES, TimeZone.getDefault());
+    }
+
+    /** Opens or creates the journal in {@code dir}, truncating a torn tail left by a crash. */
+    public static AttendanceJournal open(File dir, long maxSegmentBytes, TimeZone zone) throws IOException {
+        if (maxSegmentBytes < HEADER_SIZE + RECORD_SIZE) throw new IllegalArgumentException("Segments must hold a record");
+        if (!dir.isDirectory() && !dir.mkdirs()) throw new IOException("Cannot create " + dir);
+
+        AttendanceJournal journal = new AttendanceJournal(dir, loadOrCreateId(dir), maxSegmentBytes, zone);
+        File[] files = dir.listFiles((d, name) -> name.startsWith(PREFIX) && name.endsWith(SUFFIX));
+        if (files != null) {
+            for (File f : files) {
+                long first = firstSequenceOf(f);
+                if (first > 0) journal.segments.put(first, f);
+            }
+        }
+        journal.nextSequence = journal.recover();
+        journal.durableSequence = journal.nextSequence - 1;
+        journal.writtenSequence = journal.durableSequence;
+        journal.writer.start();
+        return journal;
+    }
+
+    private static String loadOrCreateId(File dir) throws IOException {
+        File file = new File(dir, ID_FILE);
+        if (file.exists()) {
+            try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+                byte[] bytes = new byte[(int) Math.min(64, raf.length())];
+                raf.readFully(bytes);
+                String id = new String(bytes, StandardCharsets.UTF_8).trim();
+                if (!id.isEmpty()) return id;
+            }
+        }
+        String id = UUID.randomUUID().toString().replace("-", "");
+        File tmp = new File(dir, ID_FILE + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tmp)) {
+            out.write(id.getBytes(StandardCharsets.UTF_8));
+            out.getFD().sync();
+        }
+        if (!tmp.renameTo(file)) throw new IOException("Cannot create " + file);
+        return id;
+    }
+
+    // Validates the last segment, dropping it if even its header is torn; returns the next sequence.
+    // A dropped segment held no records, but its name still says where the sequence had got to,
+    // so the journal never restarts below it (the segments before it may be uploaded and gone).
+    private long recover() throws IOException {
+        long next = 1;
+        while (!segments.isEmpty()) {
+            Map.Entry<Long, File> last = segments.lastEntry();
+            File file = last.getValue();
+            RandomAccessFile raf = new RandomAccessFile(file, "rw");
+            try {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+                if (raf.getChannel().read(header, 0) < HEADER_SIZE || header.getInt(0) != MAGIC
+                        || header.getLong(16) != last.getKey()) {
+                    raf.close();
+                    raf = null;
+                    segments.remove(last.getKey());
+                    if (!file.delete()) throw new IOException("Cannot delete torn segment " + file);
+                    next = Math.max(next, last.getKey());
+                    continue;
+                }
+                if (header.getInt(4) != VERSION || header.getInt(8) != RECORD_SIZE) {
+                    throw new IOException("Unsupported journal segment " + file);
+                }
+
+                long expected = last.getKey();
+                long position = HEADER_SIZE;
+                ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+                FileChannel channel = raf.getChannel();
+                while (true) {
+                    record.clear();
+                    if (channel.read(record, position) < RECORD_SIZE) break;
+                    if (!validRecord(record, expected)) break;
+                    expected++;
+                    position += RECORD_SIZE;
+                }
+                if (channel.size() != position) {
+                    channel.truncate(position);
+                    channel.force(true);
+                }
+                channel.position(position);
+                if (expected < next) return next; // the writer starts a new segment there
+
+                active = raf;
+                raf = null;
+                activeBytes = position;
+                activeDurableBytes = position;
+                activeDay = header.getInt(12);
+                activeDeviceId = readString(header, 24, MAX_DEVICE_ID_BYTES);
+                return expected;
+            } finally {
+                if (raf != null) raf.close();
+            }
+        }
+        return next;
+    }
+
+    // ========================================
+    // Append
+    // ========================================
+
+    /**
+     * Queues a record and returns its sequence without waiting for the disk. Identities longer
+     * than {@link #MAX_IDENTITY_BYTES} in UTF-8 are truncated. Records are still queued while
+     * {@link #failure()} reports an error; they are written once the disk recovers.
+     *
+     * @throws IllegalArgumentException if the device id is longer than {@link #MAX_DEVICE_ID_BYTES}
+     * @throws IllegalStateException if the journal is closed
+     */
+    public long append(String identity, long timestampMillis, String deviceId, float score) {
+        if (!fitsDeviceId(deviceId)) {
+            throw new IllegalArgumentException("Device id longer than " + MAX_DEVICE_ID_BYTES + " bytes: " + deviceId);
+        }
+        synchronized (appendLock) {
+            if (closed) throw new IllegalStateException("Attendance journal is closed");
+            long sequence = nextSequence++;
+            queue.add(new AttendanceRecord(sequence, identity, timestampMillis, deviceId, score));
+            return sequence;
+        }
+    }
+
+    /** Whether {@code deviceId} can be stored as it is: at most {@link #MAX_DEVICE_ID_BYTES} in UTF-8. */
+    public static boolean fitsDeviceId(String deviceId) {
+        return deviceId.getBytes(StandardCharsets.UTF_8).length <= MAX_DEVICE_ID_BYTES;
+    }
+
+    /**
+     * Waits until {@code sequence} is on disk; false on timeout, or if the writer has stopped
+     * without writing it (a failure it could not retry past before {@link #close}).
+     */
+    public boolean awaitDurable(long sequence, long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        synchronized (durableLock) {
+            while (durableSequence < sequence) {
+                if (writerStopped) return false;
+                long left = deadline - System.nanoTime();
+                if (left <= 0) return false;
+                TimeUnit.NANOSECONDS.timedWait(durableLock, left);
+            }
+            return true;
+        }
+    }
+
+    /** Random id of this journal directory, fixed for its lifetime. */
+    public String journalId() { return journalId; }
+
+    /** Highest sequence known to be on disk; 0 if none. */
+    public long durableSequence() { return durableSequence; }
+
+    /** The error the writer is retrying past, or null while writes succeed. */
+    public IOException failure() { return failure; }
+
+    // ========================================
+    // Read
+    // ========================================
+
+    /** Up to {@code max} durable records starting at {@code fromSequence}, in order. */
+    public List<AttendanceRecord> read(long fromSequence, int max) throws IOException {
+        long durable = durableSequence;
+        if (max <= 0 || fromSequence > durable) return Collections.emptyList();
+        List<AttendanceRecord> out = new ArrayList<>(Math.min(max, (int) Math.min(Integer.MAX_VALUE, durable - fromSequence + 1)));
+        Long key = segments.floorKey(Math.max(1, fromSequence));
+        if (key == null) key = segments.isEmpty() ? null : segments.firstKey();
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        long sequence = fromSequence;
+        while (key != null && out.size() < max && sequence <= durable) {
+            File file = segments.get(key);
+            if (file != null) {
+                try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+                    FileChannel channel = raf.getChannel();
+                    header.clear();
+                    channel.read(header, 0);
+                    String deviceId = readString(header, 24, MAX_DEVICE_ID_BYTES);
+                    long position = HEADER_SIZE + Math.max(0, sequence - key) * RECORD_SIZE;
+                    while (out.size() < max && sequence <= durable) {
+                        record.clear();
+                        if (channel.read(record, position) < RECORD_SIZE) break;
+                        long s = record.getLong(0);
+                        if (s >= sequence) {
+                            out.add(decode(record, deviceId));
+                            sequence = s + 1;
+                        }
+                        position += RECORD_SIZE;
+                    }
+                }
+            }
+            key = segments.higherKey(key);
+        }
+        return out;
+    }
+
+    /**
+     * Deletes segments whose records all precede {@code sequence}, e.g. once they are uploaded.
+     * The segment being written to is always kept. Returns the number of files deleted.
+     */
+    public int deleteSegmentsBefore(long sequence) {
+        int deleted = 0;
+        for (Map.Entry<Long, File> e : segments.entrySet()) {
+            Long next = segments.higherKey(e.getKey());
+            if (next == null || next > sequence) break;
+            if (e.getValue().delete() || !e.getValue().exists()) {
+                segments.remove(e.getKey());
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+
+    /** Group commits (one write and one {@code force} each) so far. */
+    public long commits() { return batches.get(); }
+
+    /** Segment files, oldest first. */
+    public List<File> segments() { return new ArrayList<>(segments.values()); }
+
+    public String stats() {
+        long n = batches.get();
+        return String.format(Locale.US, "journal: %d records in %d segments, %d commits (%.1f records/commit), durable #%d",
+                appended.get(), segments.size(), n, n == 0 ? 0.0 : appended.get() / (double) n, durableSequence);
+    }
+
+    /**
+     * Makes everything appended so far durable, then stops the writer. Idempotent. If the
+     * writer is failing, it gets a few more retries and the last error is thrown.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (appendLock) {
+            if (closed) return;
+            closed = true;
+            queue.add(CLOSE);
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (active != null) active.close();
+        IOException failed = failure;
+        if (failed != null) throw failed;
+    }
+
+    // ========================================
+    // Writer thread
+    // ========================================
+
+    private void writeLoop() {
+        List<AttendanceRecord> batch = new ArrayList<>(MAX_BATCH);
+        ByteBuffer out = ByteBuffer.allocateDirect(MAX_BATCH * RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        ByteBuffer scratch = ByteBuffer.allocate(RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        CRC32 crc = new CRC32();
+        boolean reopen = false;
+        int failures = 0;
+        int failuresAfterClose = 0;
+        while (true) {
+            // A failed batch is kept and retried as it is, so records stay in order
+            if (batch.isEmpty()) {
+                try {
+                    batch.add(queue.take());
+                } catch (InterruptedException e) {
+                    continue; // only close() stops the writer, so queued records are never lost
+                }
+                queue.drainTo(batch, MAX_BATCH - 1);
+            }
+            try {
+                if (reopen) {
+                    reopen();
+                    reopen = false;
+                }
+                boolean stop = write(batch, out, scratch, crc);
+                batch.clear();
+                if (failures > 0) {
+                    failures = 0;
+                    synchronized (durableLock) {
+                        failure = null;
+                    }
+                }
+                if (stop) return;
+            } catch (IOException e) {
+                synchronized (durableLock) {
+                    failure = e;
+                    durableLock.notifyAll();
+                }
+                reopen = true;
+                failures++;
+                if (closing() && ++failuresAfterClose > RETRIES_AFTER_CLOSE) {
+                    synchronized (durableLock) {
+                        writerStopped = true;
+                        durableLock.notifyAll();
+                    }
+                    return;
+                }
+                sleepQuietly(Math.min(RETRY_MAX_MILLIS, RETRY_BASE_MILLIS << Math.min(failures - 1, 16)));
+            }
+        }
+    }
+
+    private boolean closing() {
+        synchronized (appendLock) {
+            return closed;
+        }
+    }
+
+    // Writes and commits the batch, skipping records a failed attempt already made durable; true at CLOSE
+    private boolean write(List<AttendanceRecord> batch, ByteBuffer out, ByteBuffer scratch, CRC32 crc) throws IOException {
+        out.clear();
+        long last = -1;
+        boolean stop = false;
+        for (AttendanceRecord r : batch) {
+            if (r == CLOSE) {
+                stop = true;
+                break;
+            }
+            if (r.sequence <= durableSequence) continue;
+            int day = epochDay(r.timestampMillis);
+            if (active == null || activeBytes + out.position() + RECORD_SIZE > maxSegmentBytes
+                    || day != activeDay || !r.deviceId.equals(activeDeviceId)) {
+                flush(out, last);
+                roll(r.sequence, day, r.deviceId);
+            }
+            encode(r, scratch, crc);
+            out.put(scratch.array(), 0, RECORD_SIZE);
+            last = r.sequence;
+        }
+        flush(out, last);
+        if (last >= 0) {
+            CommitHook hook = commitHook;
+            if (hook != null) hook.beforeForce();
+            active.getChannel().force(false);
+            activeDurableBytes = activeBytes;
+            batches.incrementAndGet();
+            markDurable(last);
+        }
+        return stop;
+    }
+
+    private void markDurable(long sequence) {
+        if (sequence <= durableSequence) return;
+        appended.addAndGet(sequence - durableSequence);
+        synchronized (durableLock) {
+            durableSequence = sequence;
+            durableLock.notifyAll();
+        }
+    }
+
+    // After a failure: cuts the active segment back to its last durable record, or drops it if it
+    // has none (the next write starts it again under the same name)
+    private void reopen() throws IOException {
+        if (active != null) {
+            try {
+                active.close();
+            } catch (IOException ignored) {
+                // the handle is abandoned either way
+            }
+            active = null;
+        }
+        Map.Entry<Long, File> last = segments.lastEntry();
+        if (last == null) return;
+        File file = last.getValue();
+        if (activeDurableBytes <= HEADER_SIZE) {
+            if (!file.delete() && file.exists()) throw new IOException("Cannot delete " + file);
+            segments.remove(last.getKey());
+            return;
+        }
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.getChannel().truncate(activeDurableBytes);
+            raf.getChannel().position(activeDurableBytes);
+        } catch (IOException e) {
+            raf.close();
+            throw e;
+        }
+        active = raf;
+        activeBytes = activeDurableBytes;
+        writtenSequence = durableSequence;
+    }
+
+    private static void sleepQuietly(long millis) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+        long left;
+        while ((left = deadline - System.nanoTime()) > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(left);
+            } catch (InterruptedException e) {
+                // only close() stops the writer
+            }
+        }
+    }
+
+    private void flush(ByteBuffer out, long lastSequence) throws IOException {
+        if (out.position() == 0) return;
+        out.flip();
+        FileChannel channel = active.getChannel();
+        while (out.hasRemaining()) activeBytes += channel.write(out);
+        out.clear();
+        writtenSequence = lastSequence;
+    }
+
+    // Closes the full (or stale) segment, durable first, and starts one beginning at `sequence`.
+    // The new header is forced before it is used, so recovery can always read where it starts.
+    private void roll(long sequence, int day, String deviceId) throws IOException {
+        if (active != null) {
+            active.getChannel().force(false);
+            activeDurableBytes = activeBytes;
+            markDurable(writtenSequence);
+            active.close();
+            active = null;
+        }
+        File file = new File(dir, String.format(Locale.US, "%s%020d%s", PREFIX, sequence, SUFFIX));
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            writeHeader(raf, sequence, day, deviceId);
+            raf.getChannel().force(true);
+        } catch (IOException e) {
+            raf.close();
+            throw e;
+        }
+
+        active = raf;
+        activeBytes = HEADER_SIZE;
+        activeDurableBytes = HEADER_SIZE;
+        activeDay = day;
+        activeDeviceId = deviceId;
+        segments.put(sequence, file);
+    }
+
+    private static void writeHeader(RandomAccessFile raf, long sequence, int day, String deviceId) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(0, MAGIC);
+        header.putInt(4, VERSION);
+        header.putInt(8, RECORD_SIZE);
+        header.putInt(12, day);
+        header.putLong(16, sequence);
+        writeString(header, 24, MAX_DEVICE_ID_BYTES, deviceId);
+        raf.setLength(0);
+        raf.getChannel().write(header, 0);
+        raf.getChannel().position(HEADER_SIZE);
+    }
+
+    private int epochDay(long millis) {
+        return (int) Math.floorDiv(millis + zone.getOffset(millis), DAY_MILLIS);
+    }
+
+    // ========================================
+    // Record encoding
+    // ========================================
+
+    // Into a heap buffer, as CRC32.update(ByteBuffer) needs API 26
+    private static void encode(AttendanceRecord r, ByteBuffer record, CRC32 crc) {
+        record.clear();
+        record.putLong(r.sequence);
+        record.putLong(r.timestampMillis);
+        record.putFloat(r.score);
+        byte[] identity = truncatedUtf8(r.identity, MAX_IDENTITY_BYTES);
+        record.putInt(identity.length);
+        record.put(identity);
+        for (int i = identity.length; i < MAX_IDENTITY_BYTES; i++) record.put((byte) 0);
+        crc.reset();
+        crc.update(record.array(), record.arrayOffset(), CRC_OFFSET);
+        record.putInt((int) crc.getValue());
+    }
+
+    private static boolean validRecord(ByteBuffer record, long expectedSequence) {
+        if (record.getLong(0) != expectedSequence) return false;
+        int length = record.getInt(20);
+        if (length < 0 || length > MAX_IDENTITY_BYTES) return false;
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), record.arrayOffset(), CRC_OFFSET);
+        return (int) crc.getValue() == record.getInt(CRC_OFFSET);
+    }
+
+    private static AttendanceRecord decode(ByteBuffer record, String deviceId) {
+        int length = Math.max(0, Math.min(MAX_IDENTITY_BYTES, record.getInt(20)));
+        String identity = new String(record.array(), record.arrayOffset() + 24, length, StandardCharsets.UTF_8);
+        return new AttendanceRecord(record.getLong(0), identity, record.getLong(8), deviceId, record.getFloat(16));
+    }
+
+    // Longest prefix of whole code points that fits in `max` bytes
+    private static byte[] truncatedUtf8(String s, int max) {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length <= max) return bytes;
+        int end = max;
+        while (end > 0 && (bytes[end] & 0xC0) == 0x80) end--;
+        byte[] out = new byte[end];
+        System.arraycopy(bytes, 0, out, 0, end);
+        return out;
+    }
+
+    private static void writeString(ByteBuffer buffer, int offset, int length, String s) {
+        byte[] bytes = truncatedUtf8(s, length);
+        for (int i = 0; i < length; i++) buffer.put(offset + i, i < bytes.length ? bytes[i] : 0);
+    }
+
+    private static String readString(ByteBuffer buffer, int offset, int length) {
+        int n = 0;
+        while (n < length && buffer.get(offset + n) != 0) n++;
+        byte[] bytes = new byte[n];
+        for (int i = 0; i < n; i++) bytes[i] = buffer.get(offset + i);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static long firstSequenceOf(File file) {
+        String name = file.getName();
+        try {
+            return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.attendancefacerecognition.Attendance;
+
+import java.util.Locale;
+
+/**
+ * One confirmed attendance: who, when, on which device and how strongly.
+ *
+ * {@link #sequence} is assigned by the {@link AttendanceJournal} on append and increases by one
+ * per record across segments, so it doubles as an upload cursor.
+ */
+public final class AttendanceRecord {
+
+    public final long sequence;
+    public final String identity;
+    public final long timestampMillis;
+    public final String deviceId;
+    public final float score;
+
+    public AttendanceRecord(long sequence, String identity, long timestampMillis, String deviceId, float score) {
+        this.sequence = sequence;
+        this.identity = identity;
+        this.timestampMillis = timestampMillis;
+        this.deviceId = deviceId;
+        this.score = score;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof AttendanceRecord)) return false;
+        AttendanceRecord other = (AttendanceRecord) o;
+        return sequence == other.sequence && timestampMillis == other.timestampMillis
+                && Float.compare(score, other.score) == 0
+                && identity.equals(other.identity) && deviceId.equals(other.deviceId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(sequence) * 31 + identity.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "#%d %s at %d on %s (%.2f)", sequence, identity, timestampMillis, deviceId, score);
+    }
+}
@@ -0,0 +1,481 @@
+package com.example.attendancefacerecognition.Attendance;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Drains an {@link AttendanceJournal} to the attendance server in the background.
+ *
+ * A dispatcher thread cuts batches of durable records, starting after the persisted
+ * {@link Cursor}: a batch is sent once it has {@code maxRecords} records, or when the oldest
+ * waiting record is {@code maxDelay} old. Each batch is one gzipped JSON POST. Every record in
+ * it carries its own idempotency key, device id, {@link AttendanceJournal#journalId() journal id}
+ * and sequence, which the server deduplicates on. Batch boundaries depend on timing and change
+ * between runs, so they are kept out of the key: a record re-sent in a different batch after a
+ * lost response or a restart is still recognised. Up to {@code maxInFlight} batches are sent
+ * concurrently.
+ *
+ * An I/O error, a 5xx, 408 (timeout) or 429 (rate limited) is retried with exponential backoff and
+ * jitter, indefinitely, since dropping attendance is worse than sending it late. Any other 4xx
+ * means the server will never take the batch as it is, so it is written to the dead-letter
+ * directory (gzipped JSON, named after its sequence range and status) and the upload moves on.
+ * Batches may finish out of order; the cursor only advances over a contiguous run of finished
+ * batches, and journal segments behind it are deleted.
+ */
+public final class AttendanceUploader implements Closeable {
+
+    /**
+     * Where the last uploaded sequence is kept across restarts. Sequences only mean something
+     * within one journal, so the cursor is stored with its journal id, and {@code load} returns 0
+     * for any other journal (e.g. one recreated after its directory was cleared).
+     */
+    public interface Cursor {
+        long load(String journalId);
+
+        void store(String journalId, long uploadedThrough);
+    }
+
+    private static final int CONNECT_TIMEOUT_MS = 10_000;
+    private static final int READ_TIMEOUT_MS = 20_000;
+
+    private final AttendanceJournal journal;
+    private final URL endpoint;
+    private final String deviceId;
+    private final String keyPrefix;
+    private final String authorization;
+    private final File deadLetterDir;
+    private final Cursor cursor;
+    private final int maxRecords;
+    private final long maxDelayNanos;
+    private final long baseBackoffMillis;
+    private final long maxBackoffMillis;
+    private final Semaphore inFlight;
+    private final ExecutorService senders;
+    private final Thread dispatcher;
+    private final Object progressLock = new Object();
+    private final TreeMap<Long, Long> finished = new TreeMap<>(); // first -> last, beyond the cursor
+
+    private volatile boolean closed;
+    private volatile long uploadedThrough;
+    private volatile String lastError;
+    private final AtomicLong batchesSent = new AtomicLong();
+    private final AtomicLong deadLettered = new AtomicLong();
+    private final AtomicLong recordsSent = new AtomicLong();
+    private final AtomicLong attempts = new AtomicLong();
+    private final AtomicLong rawBytes = new AtomicLong();
+    private final AtomicLong gzippedBytes = new AtomicLong();
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger peakInFlight = new AtomicInteger();
+
+    private AttendanceUploader(Builder b) {
+        this.journal = b.journal;
+        this.endpoint = b.endpoint;
+        this.deviceId = b.deviceId;
+        this.keyPrefix = b.deviceId + "-" + b.journal.journalId() + "-";
+        this.deadLetterDir = b.deadLetterDir;
+        this.authorization = b.password == null ? null
+                : "Basic " + base64((b.deviceId + ":" + b.password).getBytes(StandardCharsets.UTF_8));
+        this.cursor = b.cursor;
+        this.maxRecords = b.maxRecords;
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(b.maxDelayMillis);
+        this.baseBackoffMillis = b.baseBackoffMillis;
+        this.maxBackoffMillis = b.maxBackoffMillis;
+        this.inFlight = new Semaphore(b.maxInFlight);
+        this.uploadedThrough = Math.max(0, cursor.load(b.journal.journalId()));
+        this.senders = Executors.newFixedThreadPool(b.maxInFlight, r -> {
+            Thread t = new Thread(r, "attendance-upload");
+            t.setDaemon(true);
+            return t;
+        });
+        this.dispatcher = new Thread(this::dispatchLoop, "attendance-upload-dispatch");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+    }
+
+    public static Builder builder(AttendanceJournal journal, URL endpoint) {
+        return new Builder(journal, endpoint);
+    }
+
+    /** Highest sequence the server has acknowledged, with everything before it. */
+    public long uploadedThrough() { return uploadedThrough; }
+
+    /** Waits until every record through {@code sequence} is uploaded; false on timeout. */
+    public boolean awaitUploaded(long sequence, long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        synchronized (progressLock) {
+            while (uploadedThrough < sequence) {
+                long left = deadline - System.nanoTime();
+                if (left <= 0) return false;
+                TimeUnit.NANOSECONDS.timedWait(progressLock, left);
+            }
+            return true;
+        }
+    }
+
+    public long batchesSent() { return batchesSent.get(); }
+
+    /** Batches the server refused for good, now in the dead-letter directory. */
+    public long deadLettered() { return deadLettered.get(); }
+
+    /** Idempotency key of a record: stable whichever batch it is sent in. */
+    public String keyOf(AttendanceRecord record) { return keyPrefix + record.sequence; }
+
+    /** HTTP attempts, including retries. */
+    public long attempts() { return attempts.get(); }
+
+    /** Most batches that were being sent at the same time. */
+    public int peakInFlight() { return peakInFlight.get(); }
+
+    public String lastError() { return lastError; }
+
+    public String stats() {
+        long raw = rawBytes.get();
+        return String.format(Locale.US,
+                "upload: through #%d, %d records in %d batches, %d attempts, %d dead-lettered, %d -> %d bytes (%.0f%%), peak %d in flight",
+                uploadedThrough, recordsSent.get(), batchesSent.get(), attempts.get(), deadLettered.get(), raw,
+                gzippedBytes.get(), raw == 0 ? 0.0 : 100.0 * gzippedBytes.get() / raw, peakInFlight.get());
+    }
+
+    /** Stops cutting batches and abandons ones still retrying; their records are sent next time. */
+    @Override
+    public void close() {
+        closed = true;
+        dispatcher.interrupt();
+        senders.shutdownNow();
+        try {
+            dispatcher.join(TimeUnit.SECONDS.toMillis(5));
+            senders.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ========================================
+    // Dispatcher
+    // ========================================
+
+    private void dispatchLoop() {
+        long next = uploadedThrough + 1;
+        long waitingSince = -1;
+        try {
+            while (!closed) {
+                long available = journal.durableSequence() - next + 1;
+                if (available <= 0) {
+                    waitingSince = -1;
+                    journal.awaitDurable(next, 1, TimeUnit.SECONDS);
+                    continue;
+                }
+                long now = System.nanoTime();
+                if (waitingSince < 0) waitingSince = now;
+                long waited = now - waitingSince;
+                if (available < maxRecords && waited < maxDelayNanos) {
+                    // Wake for the record that completes the batch, or when the delay runs out
+                    journal.awaitDurable(next + maxRecords - 1, maxDelayNanos - waited, TimeUnit.NANOSECONDS);
+                    continue;
+                }
+
+                List<AttendanceRecord> batch = journal.read(next, maxRecords);
+                if (batch.isEmpty()) {
+                    // Only if segment files were removed behind the journal's back; nothing to send
+                    long tail = journal.durableSequence();
+                    lastError = "records " + next + "-" + tail + " missing from the journal";
+                    finished(next, tail);
+                    next = tail + 1;
+                    continue;
+                }
+                inFlight.acquire();
+                next = batch.get(batch.size() - 1).sequence + 1;
+                waitingSince = -1;
+                senders.execute(() -> {
+                    try {
+                        send(batch);
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+        } catch (InterruptedException | RejectedExecutionException e) {
+            // closing
+        } catch (IOException e) {
+            lastError = "journal read failed: " + e.getMessage();
+        }
+    }
+
+    // ========================================
+    // Sending
+    // ========================================
+
+    private void send(List<AttendanceRecord> batch) {
+        long first = batch.get(0).sequence;
+        long last = batch.get(batch.size() - 1).sequence;
+        byte[] json = toJson(batch);
+        byte[] body = gzip(json);
+
+        int concurrent = active.incrementAndGet();
+        peakInFlight.accumulateAndGet(concurrent, Math::max);
+        boolean delivered = false;
+        try {
+            long backoff = baseBackoffMillis;
+            while (!closed) {
+                attempts.incrementAndGet();
+                try {
+                    int status = post(body);
+                    if (status >= 200 && status < 300) {
+                        delivered = true;
+                        break;
+                    }
+                    lastError = "HTTP " + status + " for batch " + first + "-" + last;
+                    // If even the dead letter cannot be written, keep retrying rather than lose it
+                    if (isPermanent(status) && deadLetter(body, first, last, status)) break;
+                } catch (IOException e) {
+                    lastError = e.getClass().getSimpleName() + ": " + e.getMessage();
+                }
+                Thread.sleep(backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1));
+                backoff = Math.min(maxBackoffMillis, backoff * 2);
+            }
+            if (closed) return;
+        } catch (InterruptedException e) {
+            return;
+        } finally {
+            active.decrementAndGet();
+        }
+
+        if (delivered) {
+            batchesSent.incrementAndGet();
+            recordsSent.addAndGet(batch.size());
+            rawBytes.addAndGet(json.length);
+            gzippedBytes.addAndGet(body.length);
+        }
+        finished(first, last);
+    }
+
+    // Client errors other than timeout and rate limiting: sending the same batch again cannot help
+    private static boolean isPermanent(int status) {
+        return status >= 400 && status < 500 && status != 408 && status != 429;
+    }
+
+    private boolean deadLetter(byte[] body, long first, long last, int status) {
+        File file = new File(deadLetterDir, String.format(Locale.US, "attendance-%020d-%020d-http%d.json.gz", first, last, status));
+        File tmp = new File(deadLetterDir, file.getName() + ".tmp");
+        try {
+            if (!deadLetterDir.isDirectory() && !deadLetterDir.mkdirs()) throw new IOException("Cannot create " + deadLetterDir);
+            try (FileOutputStream out = new FileOutputStream(tmp)) {
+                out.write(body);
+                out.getFD().sync();
+            }
+            if (!tmp.renameTo(file)) throw new IOException("Cannot rename " + tmp);
+        } catch (IOException e) {
+            lastError = "HTTP " + status + " for batch " + first + "-" + last + ", dead letter not written: " + e.getMessage();
+            return false;
+        }
+        deadLettered.incrementAndGet();
+        return true;
+    }
+
+    private int post(byte[] body) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) endpoint.openConnection();
+        try {
+            connection.setRequestMethod("POST");
+            connection.setConnectTimeout(CONNECT_TIMEOUT_MS);
+            connection.setReadTimeout(READ_TIMEOUT_MS);
+            connection.setDoOutput(true);
+            connection.setFixedLengthStreamingMode(body.length);
+            connection.setRequestProperty("Content-Type", "application/json; charset=utf-8");
+            connection.setRequestProperty("Content-Encoding", "gzip");
+            if (authorization != null) connection.setRequestProperty("Authorization", authorization);
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(body);
+            }
+            int status = connection.getResponseCode();
+            // Drain the response so the connection can be kept alive for the next batch
+            InputStream in = status >= 400 ? connection.getErrorStream() : connection.getInputStream();
+            if (in != null) {
+                try (InputStream response = in) {
+                    byte[] buffer = new byte[512];
+                    while (response.read(buffer) >= 0) { }
+                }
+            }
+            return status;
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    // Advances the cursor over the contiguous run of finished batches and drops uploaded segments,
+    // before waiters in awaitUploaded see the new position
+    private void finished(long first, long last) {
+        synchronized (progressLock) {
+            finished.put(first, last);
+            long cursorAt = uploadedThrough;
+            Map.Entry<Long, Long> head;
+            while ((head = finished.firstEntry()) != null && head.getKey() == cursorAt + 1) {
+                cursorAt = head.getValue();
+                finished.pollFirstEntry();
+            }
+            if (cursorAt == uploadedThrough) return;
+            cursor.store(journal.journalId(), cursorAt);
+            journal.deleteSegmentsBefore(cursorAt + 1);
+            uploadedThrough = cursorAt;
+            progressLock.notifyAll();
+        }
+    }
+
+    // ========================================
+    // Payload
+    // ========================================
+
+    private byte[] toJson(List<AttendanceRecord> batch) {
+        StringBuilder sb = new StringBuilder(64 + batch.size() * 160);
+        sb.append("{\"deviceId\":");
+        quote(sb, deviceId);
+        sb.append(",\"journalId\":");
+        quote(sb, journal.journalId());
+        sb.append(",\"records\":[");
+        for (int i = 0; i < batch.size(); i++) {
+            AttendanceRecord r = batch.get(i);
+            if (i > 0) sb.append(',');
+            sb.append("{\"idempotencyKey\":");
+            quote(sb, keyOf(r));
+            sb.append(",\"sequence\":").append(r.sequence).append(",\"identity\":");
+            quote(sb, r.identity);
+            sb.append(",\"timestamp\":").append(r.timestampMillis);
+            sb.append(",\"deviceId\":");
+            quote(sb, r.deviceId);
+            sb.append(",\"score\":").append(Float.isFinite(r.score) ? r.score : 0f).append('}');
+        }
+        return sb.append("]}").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void quote(StringBuilder sb, String s) {
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"':  sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if (c < 0x20) sb.append(String.format(Locale.US, "\\u%04x", (int) c));
+                    else sb.append(c);
+            }
+        }
+        sb.append('"');
+    }
+
+    private static byte[] gzip(byte[] data) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(data.length / 4 + 64);
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(data);
+        } catch (IOException e) {
+            throw new IllegalStateException("gzip to memory failed", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    // java.util.Base64 needs API 26
+    private static String base64(byte[] data) {
+        final String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+        StringBuilder sb = new StringBuilder((data.length + 2) / 3 * 4);
+        for (int i = 0; i < data.length; i += 3) {
+            int n = (data[i] & 0xFF) << 16;
+            if (i + 1 < data.length) n |= (data[i + 1] & 0xFF) << 8;
+            if (i + 2 < data.length) n |= data[i + 2] & 0xFF;
+            sb.append(alphabet.charAt((n >> 18) & 63)).append(alphabet.charAt((n >> 12) & 63));
+            sb.append(i + 1 < data.length ? alphabet.charAt((n >> 6) & 63) : '=');
+            sb.append(i + 2 < data.length ? alphabet.charAt(n & 63) : '=');
+        }
+        return sb.toString();
+    }
+
+    // ========================================
+    // Builder
+    // ========================================
+
+    public static final class Builder {
+        private final AttendanceJournal journal;
+        private final URL endpoint;
+        private String deviceId = "";
+        private String password;
+        private Cursor cursor;
+        private File deadLetterDir;
+        private int maxRecords = 200;
+        private long maxDelayMillis = 10_000;
+        private int maxInFlight = 2;
+        private long baseBackoffMillis = 1_000;
+        private long maxBackoffMillis = 5 * 60_000;
+
+        private Builder(AttendanceJournal journal, URL endpoint) {
+            this.journal = journal;
+            this.endpoint = endpoint;
+        }
+
+        /** Device id and password from device login, sent as HTTP Basic credentials. */
+        public Builder credentials(String deviceId, String password) {
+            this.deviceId = deviceId;
+            this.password = password == null || password.isEmpty() ? null : password;
+            return this;
+        }
+
+        public Builder cursor(Cursor cursor) {
+            this.cursor = cursor;
+            return this;
+        }
+
+        /** Where batches the server refuses for good (4xx other than 408 and 429) are kept. */
+        public Builder deadLetters(File dir) {
+            this.deadLetterDir = dir;
+            return this;
+        }
+
+        /** A batch goes out at {@code maxRecords} records, or {@code maxDelayMillis} after its first record. */
+        public Builder batch(int maxRecords, long maxDelayMillis) {
+            if (maxRecords < 1 || maxDelayMillis < 0) throw new IllegalArgumentException("Invalid batch bounds");
+            this.maxRecords = maxRecords;
+            this.maxDelayMillis = maxDelayMillis;
+            return this;
+        }
+
+        public Builder maxInFlight(int maxInFlight) {
+            if (maxInFlight < 1) throw new IllegalArgumentException("maxInFlight must be >= 1");
+            this.maxInFlight = maxInFlight;
+            return this;
+        }
+
+        /** Retry delays start at {@code baseMillis} and double up to {@code maxMillis}, with jitter. */
+        public Builder backoff(long baseMillis, long maxMillis) {
+            if (baseMillis < 1 || maxMillis < baseMillis) throw new IllegalArgumentException("Invalid backoff");
+            this.baseBackoffMillis = baseMillis;
+            this.maxBackoffMillis = maxMillis;
+            return this;
+        }
+
+        public AttendanceUploader start() {
+            if (cursor == null) throw new IllegalStateException("An upload cursor is required");
+            if (deadLetterDir == null) throw new IllegalStateException("A dead-letter directory is required");
+            return new AttendanceUploader(this);
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.example.attendancefacerecognition.Metrics;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Where frame time goes: a {@link LatencyHistogram} per hot-path {@link Stage} and a few
+ * {@link Counter}s, exported as a JSON {@link Snapshot}.
+ *
+ * Timing a stage is a pair of calls on the thread doing the work:
+ *
+ * <pre>
+ * long start = metrics.start();
+ * ...
+ * metrics.stop(FrameMetrics.Stage.DETECT, start);
+ * </pre>
+ *
+ * Both are allocation-free and lock-free. While disabled, {@link #start} skips the clock and
+ * {@link #stop} and the counters return at once, so the calls can stay in the code.
+ */
+public final class FrameMetrics {
+
+    /** Hot-path stages, in frame order. */
+    public enum Stage {
+        /** Camera planes into the detector's input tensor; part of DETECT. */
+        YUV_CONVERT("yuv_convert"),
+        /** The detector call (conversion and decoding included), or box propagation between detections. */
+        DETECT("detect"),
+        /** Face crops into FaceNet input slots; part of EMBED. */
+        CROP("crop"),
+        /** The embedder call over one frame's faces to embed, crops included. */
+        EMBED("embed"),
+        /** Gallery lookups of one frame's new embeddings. */
+        MATCH("match"),
+        /** Boxes scaled to the preview and handed to the UI thread. */
+        OVERLAY_POST("overlay_post");
+
+        public final String key;
+
+        Stage(String key) {
+            this.key = key;
+        }
+    }
+
+    public enum Counter {
+        FRAMES_RECEIVED("frames_received"),
+        /** Frames skipped because the pipeline was full, or evicted from one of its queues. */
+        FRAMES_DROPPED("frames_dropped"),
+        FACES_DETECTED("faces_detected"),
+        UNKNOWN_MATCHES("unknown_matches");
+
+        public final String key;
+
+        Counter(String key) {
+            this.key = key;
+        }
+    }
+
+    private static final long NOT_TIMED = Long.MIN_VALUE;
+    private static final Stage[] STAGES = Stage.values();
+    private static final Counter[] COUNTERS = Counter.values();
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+    private static final String[] PERCENTILE_KEYS = {"p50_ms", "p90_ms", "p99_ms", "p999_ms"};
+
+    private final LatencyHistogram[] histograms = new LatencyHistogram[STAGES.length];
+    private final AtomicLongArray counters = new AtomicLongArray(COUNTERS.length);
+    private volatile boolean enabled;
+    private volatile long sinceNanos = System.nanoTime();
+
+    public FrameMetrics(boolean enabled) {
+        for (int i = 0; i < histograms.length; i++) histograms[i] = new LatencyHistogram();
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() { return enabled; }
+
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    // ========================================
+    // Recording
+    // ========================================
+
+    /** Start time to pass to {@link #stop}; no clock read while disabled. */
+    public long start() {
+        return enabled ? System.nanoTime() : NOT_TIMED;
+    }
+
+    /** Records the time since {@code start} against {@code stage}. */
+    public void stop(Stage stage, long start) {
+        if (start == NOT_TIMED || !enabled) return;
+        histograms[stage.ordinal()].record(System.nanoTime() - start);
+    }
+
+    public void increment(Counter counter) {
+        if (enabled) counters.incrementAndGet(counter.ordinal());
+    }
+
+    public void add(Counter counter, long delta) {
+        if (enabled && delta != 0) counters.addAndGet(counter.ordinal(), delta);
+    }
+
+    /** Clears every histogram and counter and restarts the snapshot clock. */
+    public void reset() {
+        for (LatencyHistogram histogram : histograms) histogram.reset();
+        for (int i = 0; i < COUNTERS.length; i++) counters.set(i, 0);
+        sinceNanos = System.nanoTime();
+    }
+
+    // ========================================
+    // Export
+    // ========================================
+
+    public Snapshot snapshot() {
+        LatencyHistogram.Snapshot[] stages = new LatencyHistogram.Snapshot[STAGES.length];
+        for (int i = 0; i < stages.length; i++) stages[i] = histograms[i].snapshot();
+        long[] counts = new long[COUNTERS.length];
+        for (int i = 0; i < counts.length; i++) counts[i] = counters.get(i);
+        return new Snapshot(System.nanoTime() - sinceNanos, stages, counts);
+    }
+
+    /** Writes {@link #snapshot()} as JSON to {@code file}, replacing it in one rename. */
+    public void writeJson(File file) throws IOException {
+        String json = snapshot().toJson();
+        File tmp = new File(file.getPath() + ".tmp");
+        try (Writer out = new OutputStreamWriter(new FileOutputStream(tmp), StandardCharsets.UTF_8)) {
+            out.write(json);
+        }
+        if (!tmp.renameTo(file)) throw new IOException("Failed to replace " + file);
+    }
+
+    /** Histograms and counters at one point in time. */
+    public static final class Snapshot {
+        private final long elapsedNanos;
+        private final LatencyHistogram.Snapshot[] stages;
+        private final long[] counters;
+
+        Snapshot(long elapsedNanos, LatencyHistogram.Snapshot[] stages, long[] counters) {
+            this.elapsedNanos = elapsedNanos;
+            this.stages = stages;
+            this.counters = counters;
+        }
+
+        /** Time covered, since construction or the last {@link FrameMetrics#reset}. */
+        public long elapsedNanos() { return elapsedNanos; }
+
+        public LatencyHistogram.Snapshot stage(Stage stage) { return stages[stage.ordinal()]; }
+
+        public long counter(Counter counter) { return counters[counter.ordinal()]; }
+
+        /**
+         * <pre>
+         * {"elapsed_s":60.0,
+         *  "counters":{"frames_received":1800,...},
+         *  "stages":{"detect":{"count":600,"mean_ms":7.9,"p50_ms":7.6,...,"max_ms":21.3},...}}
+         * </pre>
+         */
+        public String toJson() {
+            StringBuilder json = new StringBuilder(1024);
+            json.append(String.format(Locale.US, "{\"elapsed_s\":%.3f,\"counters\":{", elapsedNanos / 1e9));
+            for (int i = 0; i < COUNTERS.length; i++) {
+                if (i > 0) json.append(',');
+                json.append('"').append(COUNTERS[i].key).append("\":").append(counters[i]);
+            }
+            json.append("},\"stages\":{");
+            for (int i = 0; i < STAGES.length; i++) {
+                LatencyHistogram.Snapshot s = stages[i];
+                if (i > 0) json.append(',');
+                json.append('"').append(STAGES[i].key).append("\":{\"count\":").append(s.count());
+                json.append(String.format(Locale.US, ",\"mean_ms\":%.3f", s.meanNanos() / 1e6));
+                for (int p = 0; p < PERCENTILES.length; p++) {
+                    json.append(String.format(Locale.US, ",\"%s\":%.3f",
+                            PERCENTILE_KEYS[p], s.valueAtPercentile(PERCENTILES[p]) / 1e6));
+                }
+                json.append(String.format(Locale.US, ",\"max_ms\":%.3f}", s.maxNanos() / 1e6));
+            }
+            return json.append("}}").toString();
+        }
+
+        /** One line per stage with samples, for the log. */
+        @Override
+        public String toString() {
+            StringBuilder out = new StringBuilder();
+            out.append(String.format(Locale.US, "%.0f s:", elapsedNanos / 1e9));
+            for (int i = 0; i < COUNTERS.length; i++) {
+                out.append(' ').append(COUNTERS[i].key).append('=').append(counters[i]);
+            }
+            for (int i = 0; i < STAGES.length; i++) {
+                LatencyHistogram.Snapshot s = stages[i];
+                if (s.count() == 0) continue;
+                out.append(String.format(Locale.US, "\n  %s: %d, p50 %.2f ms, p99 %.2f ms, max %.2f ms",
+                        STAGES[i].key, s.count(), s.valueAtPercentile(50) / 1e6,
+                        s.valueAtPercentile(99) / 1e6, s.maxNanos() / 1e6));
+            }
+            return out.toString();
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.attendancefacerecognition.Metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free latency histogram with HDR-style log-linear buckets.
+ *
+ * Values up to {@code 2^(SUB_BITS + 1)} ns get a bucket each; above that every power of two is
+ * split into {@code 2^SUB_BITS} equal buckets, so any recorded value is known to within
+ * {@code 1 / 2^SUB_BITS} (1.6%) of itself. Values beyond {@link #MAX_TRACKABLE_NANOS} land in
+ * the last bucket. The whole range fits in a fixed array of counters allocated up front.
+ *
+ * {@link #record} is allocation-free and takes no lock: one atomic increment on the bucket plus
+ * updates of the running sum and maximum, so any number of threads may record concurrently.
+ * Snapshots copy the counters and may include part of a concurrent recording.
+ */
+public final class LatencyHistogram {
+
+    /** Sub-bucket bits: 64 buckets per power of two. */
+    static final int SUB_BITS = 6;
+    /** Largest value told apart from the ones below it (about 68.7 s). */
+    public static final long MAX_TRACKABLE_NANOS = (1L << 36) - 1;
+
+    private static final int HALF = 1 << SUB_BITS;
+    private static final int LINEAR = HALF << 1;
+    private static final int BUCKETS = index(MAX_TRACKABLE_NANOS) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /** Adds one sample of {@code nanos}; negative values count as zero. */
+    public void record(long nanos) {
+        long v = nanos < 0 ? 0 : Math.min(nanos, MAX_TRACKABLE_NANOS);
+        counts.incrementAndGet(index(v));
+        total.addAndGet(v);
+        long m;
+        while (v > (m = max.get()) && !max.compareAndSet(m, v)) { }
+    }
+
+    /** Forgets every sample. Samples recorded during the reset may survive it. */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) counts.set(i, 0);
+        total.set(0);
+        max.set(0);
+    }
+
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = counts.get(i);
+            count += copy[i];
+        }
+        return new Snapshot(copy, count, total.get(), max.get());
+    }
+
+    // Bucket of a value in [0, MAX_TRACKABLE_NANOS]
+    static int index(long v) {
+        if (v < LINEAR) return (int) v;
+        int shift = 63 - Long.numberOfLeadingZeros(v) - SUB_BITS;
+        return LINEAR + (shift - 1) * HALF + (int) ((v >>> shift) - HALF);
+    }
+
+    // Largest value that falls in bucket i
+    static long highestValue(int i) {
+        if (i < LINEAR) return i;
+        int shift = (i - LINEAR) / HALF + 1;
+        long sub = (i - LINEAR) % HALF + HALF;
+        return ((sub + 1) << shift) - 1;
+    }
+
+    /** Counters of a histogram at one point in time. */
+    public static final class Snapshot {
+        private final long[] counts;
+        private final long count;
+        private final long totalNanos;
+        private final long maxNanos;
+
+        Snapshot(long[] counts, long count, long totalNanos, long maxNanos) {
+            this.counts = counts;
+            this.count = count;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+        }
+
+        public long count() { return count; }
+
+        public long maxNanos() { return maxNanos; }
+
+        public double meanNanos() { return count == 0 ? 0 : totalNanos / (double) count; }
+
+        /**
+         * Value at or below which {@code percentile} percent of the samples fall, reported as the
+         * top of its bucket (never above the largest sample); 0 when empty.
+         */
+        public long valueAtPercentile(double percentile) {
+            if (count == 0) return 0;
+            double p = Math.max(0, Math.min(100, percentile));
+            long rank = Math.max(1, (long) Math.ceil(p / 100 * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) return Math.min(highestValue(i), maxNanos);
+            }
+            return maxNanos;
+        }
+    }
+}
@@ -0,0 +1,350 @@
+package com.example.attendancefacerecognition.Pipeline;
+
+import com.example.attendancefacerecognition.Metrics.FrameMetrics;
+import com.example.attendancefacerecognition.Recognition.AttendanceVoter;
+import com.example.attendancefacerecognition.Recognition.BoxPropagator;
+import com.example.attendancefacerecognition.Recognition.DetectionScheduler;
+import com.example.attendancefacerecognition.Recognition.EmbeddingGallery;
+import com.example.attendancefacerecognition.Recognition.FaceModels;
+import com.example.attendancefacerecognition.Recognition.FaceTracker;
+import com.example.attendancefacerecognition.Recognition.GalleryState;
+import com.example.attendancefacerecognition.Recognition.MatchResult;
+import com.example.attendancefacerecognition.Recognition.TensorArena;
+import com.example.attendancefacerecognition.Recognition.YuvFrame;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The attendance screen's frame pipeline, run by the app on camera frames and by the replay
+ * driver on recordings: detect (or propagate) and track, embed the faces whose track needs it,
+ * match them against the current {@link GalleryState}, then vote, on a {@link FramePipeline}
+ * of pooled {@link FrameJob}s.
+ *
+ * Detection of frame N+1 overlaps embedding of frame N. The camera-facing queues follow the
+ * builder's {@link Backpressure}: on the device they keep only the newest frame, a replay can
+ * block so every frame is processed. Matching is cheap, so its queue blocks rather than discard
+ * embeddings.
+ *
+ * A caller takes a free job ({@link #poll} or {@link #take}), copies a frame into it and
+ * {@link #submit}s it; the job returns to the pool once the {@link FrameListener} has seen it,
+ * or when it is dropped. {@link #setGallery} swaps the gallery at any time; the lookups of one
+ * frame all see the same state.
+ *
+ * Stage latencies go to the builder's {@link FrameMetrics}: DETECT covers the whole detector call
+ * (or box propagation), EMBED the whole embedder call, MATCH the gallery lookups.
+ */
+public final class AttendancePipeline implements Closeable {
+
+    // Attendance screen defaults
+    public static final float MATCH_THRESHOLD = 0.65f;    // L2 distance between normalized embeddings
+    public static final int MATCH_TOP_K = 1;              // no margin rule yet, so only the best identity
+    public static final float CONFIDENT_DISTANCE = 0.55f; // closer than this: no re-embed until the interval
+    public static final int RERANK_K = 10;                // quantized candidates re-scored in float
+    public static final int FRAME_JOBS = 4;               // the camera drops frames when all are in flight
+
+    // The detector runs every 2..10 frames, stretched on slow devices to keep the detect stage at 15 fps
+    public static final float DETECT_TARGET_FPS = 15f;
+    public static final int MIN_DETECT_INTERVAL = 2;
+    public static final int MAX_DETECT_INTERVAL = 10;
+
+    // Each embedding matched to a known name is one vote; frames that only carry a track's name
+    // forward do not vote. Attendance is confirmed once a name collects VOTES_TO_CONFIRM (two
+    // confident matches, reembedInterval frames apart, or five tentative ones) within a sliding
+    // VOTE_WINDOW_NANOS of frame time, then not again for CONFIRM_COOLDOWN_NANOS
+    public static final long VOTE_WINDOW_NANOS = TimeUnit.SECONDS.toNanos(3);
+    public static final int VOTE_BUCKETS = 6;
+    public static final float VOTES_TO_CONFIRM = 2f;
+    public static final long CONFIRM_COOLDOWN_NANOS = TimeUnit.MINUTES.toNanos(5);
+    public static final float CONFIDENT_VOTE = 1f;
+    public static final float TENTATIVE_VOTE = 0.4f;      // known name, but not close enough to skip re-embedding
+
+    /** Receives each processed frame, in order, on the pipeline's last thread. */
+    public interface FrameListener {
+        /** {@code job} returns to the pool when this returns; copy out anything kept. */
+        void onFrame(FrameJob job);
+    }
+
+    /** One frame on its way through the pipeline, with its faces and their names. */
+    public static final class FrameJob {
+        final YuvFrame frame = new YuvFrame();
+        final float[] boxes = new float[TensorArena.MAX_DETECTIONS * 4];
+        int count;
+        final FaceTracker.Track[] tracks = new FaceTracker.Track[TensorArena.MAX_DETECTIONS];
+        final float[] toEmbed = new float[TensorArena.MAX_DETECTIONS * 4];
+        final FaceTracker.Track[] toEmbedTracks = new FaceTracker.Track[TensorArena.MAX_DETECTIONS];
+        int toEmbedCount;
+        final float[][] embeddings;
+        final String[] matched = new String[TensorArena.MAX_DETECTIONS];     // per embedding
+        final boolean[] confident = new boolean[TensorArena.MAX_DETECTIONS];
+        final String[] names = new String[TensorArena.MAX_DETECTIONS];
+
+        FrameJob(int dimension) {
+            this.embeddings = new float[TensorArena.MAX_DETECTIONS][dimension];
+        }
+
+        /** The job's own copy of the frame; fill it before {@link AttendancePipeline#submit}. */
+        public YuvFrame frame() { return frame; }
+
+        public int count() { return count; }
+
+        /** (left, top, right, bottom) per face, in upright frame pixels. */
+        public float[] boxes() { return boxes; }
+
+        /** Name per face, {@link EmbeddingGallery#UNKNOWN} for strangers. */
+        public String[] names() { return names; }
+
+        public FaceTracker.Track track(int i) { return tracks[i]; }
+
+        /** Faces embedded for this frame; the others kept their track's name. */
+        public int embeddedCount() { return toEmbedCount; }
+    }
+
+    private final FaceModels.Detector detector;
+    private final FaceModels.Embedder embedder;
+    private final FrameMetrics metrics;
+    private final FrameListener listener;
+    private final AttendanceVoter voter;
+    private final ArrayBlockingQueue<FrameJob> freeJobs;
+    private final FramePipeline<FrameJob> pipeline;
+    private volatile GalleryState gallery;
+
+    // Detect stage only
+    private final DetectionScheduler scheduler;
+    private final BoxPropagator propagator = new BoxPropagator(TensorArena.MAX_DETECTIONS);
+    private final FaceTracker tracker = new FaceTracker();
+    private final float[] detectorBoxes = new float[TensorArena.MAX_DETECTIONS * 4];
+
+    // Match stage only
+    private final MatchResult matchResult = new MatchResult(MATCH_TOP_K);
+
+    private AttendancePipeline(Builder builder) {
+        this.detector = builder.detector;
+        this.embedder = builder.embedder;
+        this.metrics = builder.metrics;
+        this.listener = builder.listener;
+        this.gallery = checkDimension(builder.gallery != null ? builder.gallery : GalleryState.empty(embedder.dimension()));
+        this.scheduler = builder.detectEvery > 0
+                ? new DetectionScheduler(DETECT_TARGET_FPS, builder.detectEvery, builder.detectEvery)
+                : new DetectionScheduler(DETECT_TARGET_FPS, MIN_DETECT_INTERVAL, MAX_DETECT_INTERVAL);
+        AttendanceVoter.Listener confirmed = builder.onConfirmed != null ? builder.onConfirmed : (name, weight, at) -> { };
+        this.voter = new AttendanceVoter(VOTE_WINDOW_NANOS, VOTE_BUCKETS, VOTES_TO_CONFIRM, CONFIRM_COOLDOWN_NANOS, confirmed);
+
+        this.freeJobs = new ArrayBlockingQueue<>(FRAME_JOBS);
+        for (int i = 0; i < FRAME_JOBS; i++) freeJobs.add(new FrameJob(embedder.dimension()));
+        this.pipeline = FramePipeline.<FrameJob>builder(builder.name)
+                .stage("detect", 1, builder.cameraPolicy, this::detect)
+                .stage("embed", 1, builder.cameraPolicy, this::embed)
+                .stage("match", 2, Backpressure.BLOCK, this::match)
+                .onDrop(job -> {
+                    metrics.increment(FrameMetrics.Counter.FRAMES_DROPPED);
+                    freeJobs.offer((FrameJob) job);
+                })
+                .start(this::publish);
+    }
+
+    public static Builder builder(FaceModels.Detector detector, FaceModels.Embedder embedder) {
+        return new Builder(detector, embedder);
+    }
+
+    /** A free job, or null when every job is in flight (the frame should be skipped). */
+    public FrameJob poll() { return freeJobs.poll(); }
+
+    /** Waits for a free job. */
+    public FrameJob take() throws InterruptedException { return freeJobs.take(); }
+
+    /** Hands a job filled with a frame to the detect stage; false if it was dropped instead. */
+    public boolean submit(FrameJob job) { return pipeline.submit(job); }
+
+    public GalleryState gallery() { return gallery; }
+
+    /** Matches later frames against {@code state}; frames already matching finish on the old one. */
+    public void setGallery(GalleryState state) {
+        this.gallery = checkDimension(state);
+    }
+
+    /** Waits until every submitted frame has been published or dropped; false on timeout. */
+    public boolean awaitIdle(long timeout, TimeUnit unit) throws InterruptedException {
+        return pipeline.awaitIdle(timeout, unit);
+    }
+
+    public List<StageStats> stats() { return pipeline.stats(); }
+
+    /** See {@link FramePipeline#close()}. */
+    @Override
+    public void close() { pipeline.close(); }
+
+    /** See {@link FramePipeline#close(long, TimeUnit)}: false while a model call is still running. */
+    public boolean close(long timeout, TimeUnit unit) { return pipeline.close(timeout, unit); }
+
+    private GalleryState checkDimension(GalleryState state) {
+        if (state.gallery.dimension() != embedder.dimension()) {
+            throw new IllegalArgumentException("Embedder gives " + embedder.dimension()
+                    + "-d embeddings, gallery holds " + state.gallery.dimension());
+        }
+        return state;
+    }
+
+    // Detect thread: detect or propagate, clamp, drop empty boxes, track, and pick the faces
+    // whose track needs a fresh embedding; the others reuse their track's identity
+    private FrameJob detect(FrameJob job) throws Exception {
+        YuvFrame frame = job.frame;
+        long start = metrics.start();
+        long began = System.nanoTime();
+        int found;
+        if (scheduler.shouldDetect()) {
+            found = Math.min(detector.detect(frame, detectorBoxes), TensorArena.MAX_DETECTIONS);
+            propagator.capture(frame, detectorBoxes, found);
+            scheduler.detected(System.nanoTime() - began);
+        } else {
+            if (!propagator.propagate(frame, detectorBoxes)) scheduler.invalidate();
+            found = propagator.count();
+            scheduler.propagated(System.nanoTime() - began);
+        }
+        metrics.stop(FrameMetrics.Stage.DETECT, start);
+
+        int width = frame.uprightWidth();
+        int height = frame.uprightHeight();
+        int n = 0;
+        for (int i = 0; i < found; i++) {
+            int left = Math.max(0, Math.round(detectorBoxes[i * 4]));
+            int top = Math.max(0, Math.round(detectorBoxes[i * 4 + 1]));
+            int right = Math.min(width, Math.round(detectorBoxes[i * 4 + 2]));
+            int bottom = Math.min(height, Math.round(detectorBoxes[i * 4 + 3]));
+            if (right <= left || bottom <= top) continue;
+            job.boxes[n * 4] = left;
+            job.boxes[n * 4 + 1] = top;
+            job.boxes[n * 4 + 2] = right;
+            job.boxes[n * 4 + 3] = bottom;
+            n++;
+        }
+        job.count = n;
+        tracker.update(job.boxes, n);
+
+        job.toEmbedCount = 0;
+        for (int i = 0; i < n; i++) {
+            FaceTracker.Track track = tracker.track(i);
+            job.tracks[i] = track;
+            if (track.needsEmbedding()) {
+                track.markEmbedding();
+                System.arraycopy(job.boxes, i * 4, job.toEmbed, job.toEmbedCount * 4, 4);
+                job.toEmbedTracks[job.toEmbedCount++] = track;
+            }
+        }
+        metrics.add(FrameMetrics.Counter.FACES_DETECTED, n);
+        return job;
+    }
+
+    // Embed thread
+    private FrameJob embed(FrameJob job) throws Exception {
+        if (job.toEmbedCount == 0) return job;
+        long start = metrics.start();
+        embedder.embed(job.frame, job.toEmbed, job.toEmbedCount, job.embeddings);
+        metrics.stop(FrameMetrics.Stage.EMBED, start);
+        return job;
+    }
+
+    // Match thread: identify the freshly embedded tracks, then name every face by its track
+    private FrameJob match(FrameJob job) {
+        long start = metrics.start();
+        GalleryState state = gallery;
+        for (int i = 0; i < job.toEmbedCount; i++) {
+            String name = state.recognize(job.embeddings[i], MATCH_THRESHOLD, RERANK_K, matchResult);
+            boolean confident = state.isConfident(name, CONFIDENT_DISTANCE, matchResult);
+            job.toEmbedTracks[i].identify(name, confident);
+            job.matched[i] = name;
+            job.confident[i] = confident;
+            if (EmbeddingGallery.UNKNOWN.equals(name)) metrics.increment(FrameMetrics.Counter.UNKNOWN_MATCHES);
+        }
+        metrics.stop(FrameMetrics.Stage.MATCH, start);
+
+        for (int i = 0; i < job.count; i++) {
+            String name = job.tracks[i].name();
+            job.names[i] = name == null ? EmbeddingGallery.UNKNOWN : name;
+        }
+        return job;
+    }
+
+    // Last stage's thread: vote this frame's matches in frame order, hand the frame to the
+    // listener, recycle the job
+    private void publish(FrameJob job) {
+        try {
+            for (int i = 0; i < job.toEmbedCount; i++) {
+                String name = job.matched[i];
+                if (EmbeddingGallery.UNKNOWN.equals(name)) continue;
+                voter.vote(name, job.confident[i] ? CONFIDENT_VOTE : TENTATIVE_VOTE, job.frame.timestampNanos());
+            }
+            if (listener != null) listener.onFrame(job);
+        } finally {
+            freeJobs.offer(job);
+        }
+    }
+
+    public static final class Builder {
+        private final FaceModels.Detector detector;
+        private final FaceModels.Embedder embedder;
+        private String name = "attendance";
+        private GalleryState gallery;
+        private int detectEvery;
+        private Backpressure cameraPolicy = Backpressure.DROP_OLDEST;
+        private FrameMetrics metrics = new FrameMetrics(false);
+        private FrameListener listener;
+        private AttendanceVoter.Listener onConfirmed;
+
+        private Builder(FaceModels.Detector detector, FaceModels.Embedder embedder) {
+            this.detector = detector;
+            this.embedder = embedder;
+        }
+
+        /** Thread name prefix of the stages. */
+        public Builder name(String name) {
+            this.name = name;
+            return this;
+        }
+
+        /** Gallery to match against until {@link AttendancePipeline#setGallery}; empty by default. */
+        public Builder gallery(GalleryState gallery) {
+            this.gallery = gallery;
+            return this;
+        }
+
+        /**
+         * Runs the detector every {@code frames} frames (and when a box is lost); 0, the default,
+         * lets the scheduler choose the interval from measured latencies, as on the device.
+         */
+        public Builder detectEvery(int frames) {
+            if (frames < 0) throw new IllegalArgumentException("frames must be >= 0");
+            this.detectEvery = frames;
+            return this;
+        }
+
+        /** Policy of the detect and embed queues; DROP_OLDEST by default, as the camera needs. */
+        public Builder cameraPolicy(Backpressure policy) {
+            this.cameraPolicy = policy;
+            return this;
+        }
+
+        public Builder metrics(FrameMetrics metrics) {
+            this.metrics = metrics;
+            return this;
+        }
+
+        public Builder onFrame(FrameListener listener) {
+            this.listener = listener;
+            return this;
+        }
+
+        /** Receives each attendance confirmation on the pipeline's last thread. */
+        public Builder onConfirmed(AttendanceVoter.Listener listener) {
+            this.onConfirmed = listener;
+            return this;
+        }
+
+        /** Starts the stage threads. */
+        public AttendancePipeline start() {
+            return new AttendancePipeline(this);
+        }
+    }
+}
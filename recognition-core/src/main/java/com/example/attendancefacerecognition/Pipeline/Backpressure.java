@@ -0,0 +1,11 @@
+package com.example.attendancefacerecognition.Pipeline;
+
+/** What a stage's input queue does when it is full. */
+public enum Backpressure {
+
+    /** Evict the oldest queued item to make room; the producer never waits. */
+    DROP_OLDEST,
+
+    /** Make the producer wait for room, slowing the upstream stage down. */
+    BLOCK
+}
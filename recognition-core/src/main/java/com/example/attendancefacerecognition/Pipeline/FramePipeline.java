@@ -0,0 +1,309 @@
+package com.example.attendancefacerecognition.Pipeline;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Chain of {@link Stage}s, each on its own worker thread, joined by bounded hand-off queues.
+ *
+ * While a slow stage (embedding) works on frame N, the stages before it are already on frame
+ * N+1, so throughput is set by the slowest stage rather than the sum of all of them. Every
+ * queue has its own {@link Backpressure} policy: camera-facing queues drop the oldest item so
+ * the freshest frame wins, cheap downstream queues block so nothing computed is thrown away.
+ *
+ * Items evicted from a queue, still queued at {@link #close}, or whose stage threw, go to the
+ * drop handler so pooled buffers and camera images can be released. Failures are logged and
+ * counted in {@link StageStats#failed}. The sink runs on the last stage's thread and owns what
+ * it is given, including when it throws.
+ */
+public final class FramePipeline<I> implements Closeable {
+
+    private static final Logger LOG = Logger.getLogger(FramePipeline.class.getName());
+    private static final long CLOSE_TIMEOUT_MILLIS = 2000;
+
+    private final String name;
+    private final List<Worker> workers;
+    private final Consumer<Object> onDrop;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final long startNanos = System.nanoTime();
+    private volatile boolean closed;
+
+    private FramePipeline(String name, List<StageSpec> specs, Consumer<Object> onDrop, Consumer<Object> sink) {
+        this.name = name;
+        this.onDrop = onDrop;
+        List<Worker> chain = new ArrayList<>(specs.size());
+        Worker next = null;
+        for (int i = specs.size() - 1; i >= 0; i--) {
+            next = new Worker(specs.get(i), next, sink);
+            chain.add(0, next);
+        }
+        this.workers = Collections.unmodifiableList(chain);
+        for (Worker worker : workers) worker.thread.start();
+    }
+
+    public static <T> Builder<T, T> builder(String name) {
+        return new Builder<>(name, new ArrayList<StageSpec>(), item -> { });
+    }
+
+    public String name() { return name; }
+
+    /**
+     * Hands an item to the first stage under its backpressure policy. Returns false, after
+     * passing the item to the drop handler, if the pipeline is closed or the wait was interrupted.
+     */
+    public boolean submit(I item) {
+        if (closed) {
+            onDrop.accept(item);
+            return false;
+        }
+        inFlight.incrementAndGet();
+        return workers.get(0).enqueue(item);
+    }
+
+    /** Items submitted but not yet delivered to the sink, dropped or filtered out. */
+    public int inFlight() { return inFlight.get(); }
+
+    /** Waits until every submitted item has left the pipeline; false on timeout. */
+    public boolean awaitIdle(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (inFlight.get() > 0) {
+            if (System.nanoTime() > deadline) return false;
+            Thread.sleep(1);
+        }
+        return true;
+    }
+
+    public List<StageStats> stats() {
+        double seconds = Math.max(1e-9, (System.nanoTime() - startNanos) / 1e9);
+        List<StageStats> stats = new ArrayList<>(workers.size());
+        for (Worker worker : workers) stats.add(worker.snapshot(seconds));
+        return Collections.unmodifiableList(stats);
+    }
+
+    /** {@link #close(long, TimeUnit)} with a two-second wait for the workers. */
+    @Override
+    public void close() {
+        close(CLOSE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the workers and hands every queued item to the drop handler. Returns whether every
+     * worker thread exited within {@code timeout}; if one did not (a stage stuck in a model
+     * call), it may still be using its stage's resources, so the caller must not release them.
+     * Whatever such a stage outputs later is dropped, not delivered.
+     */
+    public boolean close(long timeout, TimeUnit unit) {
+        if (!closed) {
+            closed = true;
+            for (Worker worker : workers) worker.thread.interrupt();
+        }
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        boolean stopped = true;
+        for (Worker worker : workers) {
+            try {
+                long millis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (millis > 0) worker.thread.join(millis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            stopped &= !worker.thread.isAlive();
+        }
+        // A stage that finished while the queues were drained may have enqueued once more
+        for (Worker worker : workers) worker.drain();
+        return stopped;
+    }
+
+    /** Whether every worker thread has exited; false until {@link #close} has been called. */
+    public boolean isTerminated() {
+        if (!closed) return false;
+        for (Worker worker : workers) if (worker.thread.isAlive()) return false;
+        return true;
+    }
+
+    private void discard(Object item) {
+        try {
+            onDrop.accept(item);
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    private final class Worker implements Runnable {
+        final String stageName;
+        final Stage<Object, Object> stage;
+        final Backpressure policy;
+        final ArrayBlockingQueue<Object> queue;
+        final Worker next;
+        final Consumer<Object> sink;
+        final Thread thread;
+
+        final AtomicLong processed = new AtomicLong();
+        final AtomicLong dropped = new AtomicLong();
+        final AtomicLong failed = new AtomicLong();
+        final AtomicLong totalNanos = new AtomicLong();
+        final AtomicLong maxNanos = new AtomicLong();
+
+        Worker(StageSpec spec, Worker next, Consumer<Object> sink) {
+            this.stageName = spec.name;
+            this.stage = spec.stage;
+            this.policy = spec.policy;
+            this.queue = new ArrayBlockingQueue<>(spec.capacity);
+            this.next = next;
+            this.sink = sink;
+            this.thread = new Thread(this, name + "-" + spec.name);
+            thread.setDaemon(true);
+        }
+
+        boolean enqueue(Object item) {
+            if (closed) {
+                discard(item);
+                return false;
+            }
+            if (policy == Backpressure.BLOCK) {
+                try {
+                    queue.put(item);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    discard(item);
+                    return false;
+                }
+            } else {
+                while (!queue.offer(item)) {
+                    Object oldest = queue.poll();
+                    if (oldest != null) {
+                        dropped.incrementAndGet();
+                        discard(oldest);
+                    }
+                }
+            }
+            // Raced with close(): it may already have drained this queue
+            if (closed) {
+                drain();
+                return false;
+            }
+            return true;
+        }
+
+        void drain() {
+            Object item;
+            while ((item = queue.poll()) != null) discard(item);
+        }
+
+        @Override
+        public void run() {
+            while (!closed) {
+                Object item;
+                try {
+                    item = queue.take();
+                } catch (InterruptedException e) {
+                    return;
+                }
+
+                long start = System.nanoTime();
+                Object out;
+                try {
+                    out = stage.process(item);
+                } catch (Exception e) {
+                    discard(item);
+                    if (closed && e instanceof InterruptedException) return;
+                    failed.incrementAndGet();
+                    LOG.log(Level.WARNING, thread.getName() + " failed", e);
+                    continue;
+                }
+                record(System.nanoTime() - start);
+
+                if (out == null) {
+                    inFlight.decrementAndGet();
+                } else if (next != null) {
+                    next.enqueue(out);
+                } else if (closed) {
+                    discard(out);
+                } else {
+                    try {
+                        sink.accept(out);
+                    } catch (RuntimeException e) {
+                        failed.incrementAndGet();
+                        LOG.log(Level.WARNING, name + " sink failed", e);
+                    } finally {
+                        inFlight.decrementAndGet();
+                    }
+                }
+            }
+        }
+
+        private void record(long nanos) {
+            processed.incrementAndGet();
+            totalNanos.addAndGet(nanos);
+            long max;
+            while (nanos > (max = maxNanos.get()) && !maxNanos.compareAndSet(max, nanos)) { }
+        }
+
+        StageStats snapshot(double seconds) {
+            long done = processed.get();
+            return new StageStats(stageName, done, dropped.get(), failed.get(), queue.size(),
+                    done == 0 ? 0 : totalNanos.get() / 1e6 / done,
+                    maxNanos.get() / 1e6,
+                    done / seconds);
+        }
+    }
+
+    private static final class StageSpec {
+        final String name;
+        final int capacity;
+        final Backpressure policy;
+        final Stage<Object, Object> stage;
+
+        @SuppressWarnings("unchecked")
+        StageSpec(String name, int capacity, Backpressure policy, Stage<?, ?> stage) {
+            this.name = name;
+            this.capacity = capacity;
+            this.policy = policy;
+            this.stage = (Stage<Object, Object>) stage;
+        }
+    }
+
+    /** Typed chain of stages; {@code O} is the output type of the last stage added. */
+    public static final class Builder<I, O> {
+        private final String name;
+        private final List<StageSpec> specs;
+        private final Consumer<Object> onDrop;
+
+        private Builder(String name, List<StageSpec> specs, Consumer<Object> onDrop) {
+            this.name = name;
+            this.specs = specs;
+            this.onDrop = onDrop;
+        }
+
+        /** Adds a stage fed by a queue of {@code capacity} items under {@code policy}. */
+        public <N> Builder<I, N> stage(String stageName, int capacity, Backpressure policy,
+                                       Stage<? super O, ? extends N> stage) {
+            if (capacity < 1) throw new IllegalArgumentException("Queue capacity must be >= 1");
+            specs.add(new StageSpec(stageName, capacity, policy, stage));
+            return new Builder<>(name, specs, onDrop);
+        }
+
+        /**
+         * Receives items evicted from a queue, left over at close, or whose stage threw, to
+         * release resources.
+         */
+        public Builder<I, O> onDrop(Consumer<Object> handler) {
+            return new Builder<>(name, specs, handler);
+        }
+
+        /** Starts one worker per stage; {@code sink} gets every item that leaves the last stage. */
+        @SuppressWarnings("unchecked")
+        public FramePipeline<I> start(Consumer<? super O> sink) {
+            if (specs.isEmpty()) throw new IllegalStateException("Pipeline " + name + " has no stages");
+            return new FramePipeline<>(name, new ArrayList<>(specs), onDrop, (Consumer<Object>) sink);
+        }
+    }
+}
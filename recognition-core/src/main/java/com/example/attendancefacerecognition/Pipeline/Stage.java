@@ -0,0 +1,14 @@
+package com.example.attendancefacerecognition.Pipeline;
+
+/**
+ * One step of a {@link FramePipeline}, run on that stage's own worker thread.
+ *
+ * Returning {@code null} ends the item's trip through the pipeline (nothing to pass on).
+ * A stage that passes on something other than its input, or takes ownership of a resource such
+ * as a camera image, must release what it no longer hands on itself. Items dropped by a queue,
+ * and the input of a stage that throws, are released through the pipeline's drop handler.
+ */
+public interface Stage<I, O> {
+
+    O process(I item) throws Exception;
+}
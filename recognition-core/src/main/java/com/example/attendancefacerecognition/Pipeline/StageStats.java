@@ -0,0 +1,34 @@
+package com.example.attendancefacerecognition.Pipeline;
+
+import java.util.Locale;
+
+/** Point-in-time counters of one pipeline stage. Latencies cover {@link Stage#process} only. */
+public final class StageStats {
+
+    public final String name;
+    public final long processed;
+    public final long dropped;
+    public final long failed;
+    public final int queued;
+    public final double meanLatencyMillis;
+    public final double maxLatencyMillis;
+    public final double throughputPerSecond;
+
+    StageStats(String name, long processed, long dropped, long failed, int queued,
+               double meanLatencyMillis, double maxLatencyMillis, double throughputPerSecond) {
+        this.name = name;
+        this.processed = processed;
+        this.dropped = dropped;
+        this.failed = failed;
+        this.queued = queued;
+        this.meanLatencyMillis = meanLatencyMillis;
+        this.maxLatencyMillis = maxLatencyMillis;
+        this.throughputPerSecond = throughputPerSecond;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "%s: %d done, %d dropped, %d failed, %d queued, %.1f ms avg, %.1f ms max, %.1f/s",
+                name, processed, dropped, failed, queued, meanLatencyMillis, maxLatencyMillis, throughputPerSecond);
+    }
+}
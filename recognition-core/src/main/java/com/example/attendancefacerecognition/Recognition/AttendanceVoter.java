@@ -0,0 +1,155 @@
+package com.example.attendancefacerecognition.Recognition;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Turns per-frame recognitions into one "attendance confirmed" event per identity.
+ *
+ * Each vote carries a weight (the caller's confidence in the match) and the timestamp of the
+ * frame it came from. Per identity, the votes of the last {@code window} are kept in a ring of
+ * {@code buckets} time buckets, so the window slides with frame time rather than with wall
+ * clock or callback timers, and old votes drop out without a reset. Once an identity's weight in
+ * the window reaches {@code minWeight}, the {@link Listener} is told once; the identity is then
+ * muted for {@code cooldown}, however long the face stays in view.
+ *
+ * Lock-free and safe to call from several threads: each bucket is one {@code long} packing the
+ * bucket number with its weight (in thousandths), updated by compare-and-set, and the cooldown is
+ * claimed by a compare-and-set on the identity's last confirmation time, so concurrent voters
+ * never emit the same confirmation twice. A vote costs O(buckets).
+ */
+public final class AttendanceVoter {
+
+    /** Receives confirmations on the voting thread. */
+    public interface Listener {
+        void onConfirmed(String identity, float weight, long timestampNanos);
+    }
+
+    private static final int WEIGHT_BITS = 24;
+    private static final long WEIGHT_MASK = (1L << WEIGHT_BITS) - 1;
+    private static final float WEIGHT_UNIT = 1000f;
+    private static final long NEVER = Long.MIN_VALUE;
+
+    private final long bucketNanos;
+    private final int buckets;
+    private final long minWeight;
+    private final long cooldownNanos;
+    private final Listener listener;
+    private final ConcurrentHashMap<String, Tally> tallies = new ConcurrentHashMap<>();
+    private final AtomicLong confirmations = new AtomicLong();
+
+    /**
+     * @param windowNanos   span of the sliding window
+     * @param buckets       time buckets the window is divided into; more buckets slide more smoothly
+     * @param minWeight     summed vote weight within the window that confirms an identity
+     * @param cooldownNanos time after a confirmation during which the identity is not confirmed again
+     */
+    public AttendanceVoter(long windowNanos, int buckets, float minWeight, long cooldownNanos, Listener listener) {
+        if (buckets < 1 || windowNanos < buckets) throw new IllegalArgumentException("Need a window of at least one bucket");
+        if (!(minWeight > 0f)) throw new IllegalArgumentException("minWeight must be positive");
+        if (cooldownNanos < 0) throw new IllegalArgumentException("cooldown must be >= 0");
+        this.bucketNanos = windowNanos / buckets;
+        this.buckets = buckets;
+        this.minWeight = Math.round(minWeight * WEIGHT_UNIT);
+        this.cooldownNanos = cooldownNanos;
+        this.listener = listener;
+    }
+
+    /**
+     * Counts one recognition of {@code identity} with {@code weight} (e.g. 1 for a confident
+     * match) in the frame taken at {@code timestampNanos}. Null identities and non-positive weights
+     * are ignored. Returns whether this vote confirmed the identity.
+     */
+    public boolean vote(String identity, float weight, long timestampNanos) {
+        if (identity == null || !(weight > 0f) || timestampNanos < 0) return false;
+        Tally tally = tallies.get(identity);
+        if (tally == null) {
+            Tally created = new Tally(buckets);
+            tally = tallies.putIfAbsent(identity, created);
+            if (tally == null) tally = created;
+        }
+
+        long bucket = timestampNanos / bucketNanos;
+        if (!tally.add(bucket, Math.min(WEIGHT_MASK, Math.max(1, Math.round(weight * WEIGHT_UNIT))))) return false;
+        long total = tally.sum(bucket);
+        if (total < minWeight) return false;
+
+        long last = tally.lastConfirmed.get();
+        if (last != NEVER && timestampNanos - last < cooldownNanos) return false;
+        if (!tally.lastConfirmed.compareAndSet(last, timestampNanos)) return false;
+
+        confirmations.incrementAndGet();
+        if (listener != null) listener.onConfirmed(identity, total / WEIGHT_UNIT, timestampNanos);
+        return true;
+    }
+
+    /** Weight of {@code identity} in the window ending at {@code timestampNanos}. */
+    public float weight(String identity, long timestampNanos) {
+        Tally tally = tallies.get(identity);
+        return tally == null ? 0f : tally.sum(timestampNanos / bucketNanos) / WEIGHT_UNIT;
+    }
+
+    /** Confirmations emitted since construction or {@link #reset()}. */
+    public long confirmations() { return confirmations.get(); }
+
+    /** Identities seen so far. */
+    public int identities() { return tallies.size(); }
+
+    /** Forgets all votes and cooldowns. */
+    public void reset() {
+        tallies.clear();
+        confirmations.set(0);
+    }
+
+    // Per-identity ring of (bucket number, weight) cells and the time of the last confirmation
+    private final class Tally {
+        final AtomicLongArray cells;
+        final AtomicLong lastConfirmed = new AtomicLong(NEVER);
+
+        Tally(int buckets) {
+            cells = new AtomicLongArray(buckets);
+            for (int i = 0; i < buckets; i++) cells.set(i, pack(-1, 0));
+        }
+
+        // False if the vote's bucket has already been recycled by newer votes
+        boolean add(long bucket, long weight) {
+            int slot = (int) (bucket % buckets);
+            while (true) {
+                long cell = cells.get(slot);
+                long cellBucket = bucketOf(cell);
+                long next;
+                if (cellBucket == bucket) {
+                    next = pack(bucket, Math.min(WEIGHT_MASK, weightOf(cell) + weight));
+                } else if (cellBucket < bucket) {
+                    next = pack(bucket, weight);
+                } else {
+                    return false;
+                }
+                if (cells.compareAndSet(slot, cell, next)) return true;
+            }
+        }
+
+        long sum(long bucket) {
+            long total = 0;
+            for (int i = 0; i < buckets; i++) {
+                long cell = cells.get(i);
+                long age = bucket - bucketOf(cell);
+                if (age >= 0 && age < buckets) total += weightOf(cell);
+            }
+            return total;
+        }
+    }
+
+    private static long pack(long bucket, long weight) {
+        return (bucket << WEIGHT_BITS) | weight;
+    }
+
+    private static long bucketOf(long cell) {
+        return cell >> WEIGHT_BITS;
+    }
+
+    private static long weightOf(long cell) {
+        return cell & WEIGHT_MASK;
+    }
+}
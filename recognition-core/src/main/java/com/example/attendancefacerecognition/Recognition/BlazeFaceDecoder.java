@@ -0,0 +1,206 @@
+package com.example.attendancefacerecognition.Recognition;
+
+/**
+ * SSD post-processing for the BlazeFace short-range model: anchor decoding of the
+ * {@code [1][896][16]} regressors, sigmoid of the {@code [1][896][1]} logits and weighted
+ * non-maximum suppression, following MediaPipe's face detection graph.
+ *
+ * Each regressor row is (dx, dy, w, h) followed by six keypoint (x, y) offsets, all in input
+ * pixels relative to the anchor centre. Weighted NMS merges every box overlapping the current
+ * best above the IoU threshold into a score-weighted average, so a face that fires a dozen
+ * neighbouring anchors comes out as one stable box instead of a dozen.
+ *
+ * The decoder is immutable and can be shared; per-call scratch is kept per thread.
+ */
+public final class BlazeFaceDecoder {
+
+    public static final int INPUT_SIZE = 128;
+    public static final int ANCHORS = 896;
+    public static final int VALUES = 4 + FaceDetections.KEYPOINTS * 2;
+
+    public static final float DEFAULT_MIN_SCORE = 0.5f;
+    public static final float DEFAULT_IOU_THRESHOLD = 0.3f;
+
+    // Short-range model: one 16x16 layer and three merged 8x8 layers, two anchors per layer
+    private static final int[] STRIDES = {8, 16, 16, 16};
+    private static final int ANCHORS_PER_LAYER = 2;
+    private static final float[] ANCHOR_CENTERS = generateAnchors(INPUT_SIZE, STRIDES, ANCHORS_PER_LAYER);
+
+    private final float minScore;
+    private final float minLogit;
+    private final float iouThreshold;
+    private final ThreadLocal<Scratch> scratch = new ThreadLocal<>();
+
+    public BlazeFaceDecoder() {
+        this(DEFAULT_MIN_SCORE, DEFAULT_IOU_THRESHOLD);
+    }
+
+    public BlazeFaceDecoder(float minScore, float iouThreshold) {
+        if (minScore <= 0f || minScore >= 1f) throw new IllegalArgumentException("minScore must be in (0, 1)");
+        this.minScore = minScore;
+        this.minLogit = (float) Math.log(minScore / (1.0 - minScore));
+        this.iouThreshold = iouThreshold;
+    }
+
+    public float minScore() { return minScore; }
+
+    public float iouThreshold() { return iouThreshold; }
+
+    /** Anchor centre x of anchor {@code i}, normalized. */
+    public static float anchorX(int i) { return ANCHOR_CENTERS[i * 2]; }
+
+    /** Anchor centre y of anchor {@code i}, normalized. */
+    public static float anchorY(int i) { return ANCHOR_CENTERS[i * 2 + 1]; }
+
+    /**
+     * Decodes one frame into {@code out} (cleared first), best detection first. Detections
+     * beyond {@code out.capacity()} are dropped.
+     */
+    public FaceDetections decode(float[][][] regressors, float[][][] scores, FaceDetections out) {
+        out.clear();
+        Scratch s = scratch();
+        float[][] raw = regressors[0];
+        float[][] logits = scores[0];
+
+        // Threshold on the logit so only candidates pay for the sigmoid and the box decode
+        int n = 0;
+        for (int i = 0; i < ANCHORS; i++) {
+            float logit = logits[i][0];
+            if (logit <= minLogit) continue;
+            s.score[n] = sigmoid(logit);
+            decodeBox(raw[i], i, s.boxes, n * VALUES);
+            s.order[n] = n;
+            n++;
+        }
+        if (n == 0) return out;
+
+        sortByScore(s.order, s.score, n);
+        weightedNms(s, n, out);
+        return out;
+    }
+
+    private void weightedNms(Scratch s, int n, FaceDetections out) {
+        boolean[] merged = s.merged;
+        for (int i = 0; i < n; i++) merged[i] = false;
+
+        float[] acc = s.accumulator;
+        for (int a = 0; a < n; a++) {
+            int best = s.order[a];
+            if (merged[best]) continue;
+
+            for (int v = 0; v < VALUES; v++) acc[v] = 0f;
+            float total = 0f;
+            for (int b = a; b < n; b++) {
+                int other = s.order[b];
+                if (merged[other] || iou(s.boxes, best * VALUES, other * VALUES) <= iouThreshold) continue;
+                merged[other] = true;
+                float w = s.score[other];
+                total += w;
+                for (int v = 0; v < VALUES; v++) acc[v] += w * s.boxes[other * VALUES + v];
+            }
+            for (int v = 0; v < VALUES; v++) acc[v] /= total;
+            for (int k = 0; k < FaceDetections.KEYPOINTS * 2; k++) s.keypoints[k] = acc[4 + k];
+
+            // The merged box keeps the score of the strongest member
+            if (!out.add(acc[0], acc[1], acc[2], acc[3], s.score[best], s.keypoints)) return;
+        }
+    }
+
+    // Writes (xMin, yMin, xMax, yMax, kx0, ky0, ...) normalized to the input
+    private static void decodeBox(float[] raw, int anchor, float[] boxes, int offset) {
+        float ax = ANCHOR_CENTERS[anchor * 2];
+        float ay = ANCHOR_CENTERS[anchor * 2 + 1];
+        float cx = raw[0] / INPUT_SIZE + ax;
+        float cy = raw[1] / INPUT_SIZE + ay;
+        float halfW = raw[2] / INPUT_SIZE / 2f;
+        float halfH = raw[3] / INPUT_SIZE / 2f;
+        boxes[offset] = cx - halfW;
+        boxes[offset + 1] = cy - halfH;
+        boxes[offset + 2] = cx + halfW;
+        boxes[offset + 3] = cy + halfH;
+        for (int k = 0; k < FaceDetections.KEYPOINTS; k++) {
+            boxes[offset + 4 + k * 2] = raw[4 + k * 2] / INPUT_SIZE + ax;
+            boxes[offset + 5 + k * 2] = raw[5 + k * 2] / INPUT_SIZE + ay;
+        }
+    }
+
+    static float iou(float[] boxes, int a, int b) {
+        float ix = Math.min(boxes[a + 2], boxes[b + 2]) - Math.max(boxes[a], boxes[b]);
+        float iy = Math.min(boxes[a + 3], boxes[b + 3]) - Math.max(boxes[a + 1], boxes[b + 1]);
+        if (ix <= 0f || iy <= 0f) return 0f;
+        float inter = ix * iy;
+        float areaA = (boxes[a + 2] - boxes[a]) * (boxes[a + 3] - boxes[a + 1]);
+        float areaB = (boxes[b + 2] - boxes[b]) * (boxes[b + 3] - boxes[b + 1]);
+        return inter / (areaA + areaB - inter);
+    }
+
+    static float sigmoid(float logit) {
+        float x = Math.max(-100f, Math.min(100f, logit));
+        return (float) (1.0 / (1.0 + Math.exp(-x)));
+    }
+
+    // Insertion sort, descending by score; candidates per frame are few and nearly grouped
+    private static void sortByScore(int[] order, float[] score, int n) {
+        for (int i = 1; i < n; i++) {
+            int idx = order[i];
+            float key = score[idx];
+            int j = i - 1;
+            while (j >= 0 && score[order[j]] < key) {
+                order[j + 1] = order[j];
+                j--;
+            }
+            order[j + 1] = idx;
+        }
+    }
+
+    // SSD anchor centres (MediaPipe SsdAnchorsCalculator with fixed anchor size), (x, y) pairs
+    static float[] generateAnchors(int inputSize, int[] strides, int anchorsPerLayer) {
+        int total = 0;
+        for (int stride : strides) {
+            int grid = (inputSize + stride - 1) / stride;
+            total += grid * grid * anchorsPerLayer;
+        }
+        float[] centers = new float[total * 2];
+
+        int i = 0;
+        int layer = 0;
+        while (layer < strides.length) {
+            // Consecutive layers with the same stride share one grid
+            int perCell = 0;
+            int next = layer;
+            while (next < strides.length && strides[next] == strides[layer]) {
+                perCell += anchorsPerLayer;
+                next++;
+            }
+            int grid = (inputSize + strides[layer] - 1) / strides[layer];
+            for (int y = 0; y < grid; y++) {
+                for (int x = 0; x < grid; x++) {
+                    for (int a = 0; a < perCell; a++) {
+                        centers[i++] = (x + 0.5f) / grid;
+                        centers[i++] = (y + 0.5f) / grid;
+                    }
+                }
+            }
+            layer = next;
+        }
+        return centers;
+    }
+
+    private Scratch scratch() {
+        Scratch s = scratch.get();
+        if (s == null) {
+            s = new Scratch();
+            scratch.set(s);
+        }
+        return s;
+    }
+
+    private static final class Scratch {
+        final float[] score = new float[ANCHORS];
+        final int[] order = new int[ANCHORS];
+        final boolean[] merged = new boolean[ANCHORS];
+        final float[] boxes = new float[ANCHORS * VALUES];
+        final float[] accumulator = new float[VALUES];
+        final float[] keypoints = new float[FaceDetections.KEYPOINTS * 2];
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.attendancefacerecognition.Recognition;
+
+/**
+ * Carries face boxes from one frame to the next without running the detector.
+ *
+ * On a detector frame, {@link #capture} samples each box into a small luma template
+ * ({@code size x size}, straight from the Y plane). On the frames in between,
+ * {@link #propagate} samples a window around each box, slides the template over it by up to
+ * {@code radius} template cells in each direction, and moves the box by the shift with the
+ * lowest mean absolute difference. Means are removed first, so exposure changes do not count
+ * as motion. A box whose best difference exceeds {@code maxDifference} has lost its face (it
+ * turned away, left, or was occluded): the boxes are then stale and the detector should run.
+ *
+ * Templates are kept from the detector frame rather than refreshed after every shift, so
+ * errors do not accumulate between detections. Not thread-safe; one instance per stage.
+ */
+public final class BoxPropagator {
+
+    public static final int DEFAULT_TEMPLATE_SIZE = 16;
+    public static final int DEFAULT_SEARCH_RADIUS = 4;
+    public static final float DEFAULT_MAX_DIFFERENCE = 20f;
+
+    private final int size;
+    private final int radius;
+    private final float maxDifference;
+
+    private final int[][] templates;   // [box][size * size], mean removed
+    private final int[] window;        // (size + 2 * radius)^2 luma samples
+    private final float[] differences; // best difference of each box at the last propagate
+    private int count;
+
+    public BoxPropagator(int capacity) {
+        this(capacity, DEFAULT_TEMPLATE_SIZE, DEFAULT_SEARCH_RADIUS, DEFAULT_MAX_DIFFERENCE);
+    }
+
+    public BoxPropagator(int capacity, int size, int radius, float maxDifference) {
+        if (size < 2 || radius < 1) throw new IllegalArgumentException("Template size must be >= 2 and radius >= 1");
+        this.size = size;
+        this.radius = radius;
+        this.maxDifference = maxDifference;
+        this.templates = new int[capacity][size * size];
+        this.window = new int[(size + 2 * radius) * (size + 2 * radius)];
+        this.differences = new float[capacity];
+    }
+
+    /** Boxes captured by the last {@link #capture}. */
+    public int count() { return count; }
+
+    /** Mean absolute luma difference of box {@code i} at the last {@link #propagate}. */
+    public float difference(int i) { return differences[i]; }
+
+    /**
+     * Stores templates for {@code count} boxes, (left, top, right, bottom) in upright frame
+     * pixels. Boxes beyond the capacity are not tracked.
+     */
+    public void capture(YuvFrame frame, float[] boxes, int count) {
+        this.count = Math.min(count, templates.length);
+        for (int i = 0; i < this.count; i++) {
+            int o = i * 4;
+            int w = Math.max(1, Math.round(boxes[o + 2] - boxes[o]));
+            int h = Math.max(1, Math.round(boxes[o + 3] - boxes[o + 1]));
+            int[] t = templates[i];
+            YuvConverter.toLuma(frame, Math.round(boxes[o]), Math.round(boxes[o + 1]), w, h, size, size, t);
+            removeMean(t, t.length);
+            differences[i] = 0f;
+        }
+    }
+
+    /**
+     * Moves the first {@link #count()} boxes in place to where their templates match best in
+     * {@code frame}. Returns false if any box no longer matches, i.e. the boxes are stale.
+     */
+    public boolean propagate(YuvFrame frame, float[] boxes) {
+        boolean fresh = true;
+        int span = size + 2 * radius;
+        for (int i = 0; i < count; i++) {
+            int o = i * 4;
+            float boxW = boxes[o + 2] - boxes[o];
+            float boxH = boxes[o + 3] - boxes[o + 1];
+            float cellW = boxW / size;
+            float cellH = boxH / size;
+            int left = Math.round(boxes[o] - radius * cellW);
+            int top = Math.round(boxes[o + 1] - radius * cellH);
+            int w = Math.max(1, Math.round(boxW + 2 * radius * cellW));
+            int h = Math.max(1, Math.round(boxH + 2 * radius * cellH));
+            YuvConverter.toLuma(frame, left, top, w, h, span, span, window);
+
+            int[] t = templates[i];
+            long best = Long.MAX_VALUE;
+            int bestDx = 0;
+            int bestDy = 0;
+            for (int dy = -radius; dy <= radius; dy++) {
+                for (int dx = -radius; dx <= radius; dx++) {
+                    long sad = sad(t, dx + radius, dy + radius, span, best);
+                    // Ties go to the smaller shift, so a static face stays put
+                    if (sad < best || (sad == best && dx * dx + dy * dy < bestDx * bestDx + bestDy * bestDy)) {
+                        best = sad;
+                        bestDx = dx;
+                        bestDy = dy;
+                    }
+                }
+            }
+
+            differences[i] = best / (float) (size * size);
+            if (differences[i] > maxDifference) fresh = false;
+            boxes[o] += bestDx * cellW;
+            boxes[o + 2] += bestDx * cellW;
+            boxes[o + 1] += bestDy * cellH;
+            boxes[o + 3] += bestDy * cellH;
+        }
+        return fresh;
+    }
+
+    // Zero-mean SAD of the template against the window patch at (x0, y0); gives up past limit
+    private long sad(int[] t, int x0, int y0, int span, long limit) {
+        long sum = 0;
+        for (int y = 0; y < size; y++) {
+            int row = (y0 + y) * span + x0;
+            for (int x = 0; x < size; x++) sum += window[row + x];
+        }
+        int mean = (int) (sum / (size * size));
+
+        long sad = 0;
+        for (int y = 0; y < size; y++) {
+            int row = (y0 + y) * span + x0;
+            int trow = y * size;
+            for (int x = 0; x < size; x++) sad += Math.abs(window[row + x] - mean - t[trow + x]);
+            if (sad > limit) return sad;
+        }
+        return sad;
+    }
+
+    private static void removeMean(int[] values, int n) {
+        long sum = 0;
+        for (int i = 0; i < n; i++) sum += values[i];
+        int mean = (int) (sum / n);
+        for (int i = 0; i < n; i++) values[i] -= mean;
+    }
+}
@@ -0,0 +1,163 @@
+package com.example.attendancefacerecognition.Recognition;
+
+import java.util.Arrays;
+
+/**
+ * Two-stage matcher for galleries with several samples per identity.
+ *
+ * Stage one scores the query against one normalized centroid per identity and keeps the best
+ * {@code shortlist} identities; stage two scores only the individual rows of those identities.
+ * A query therefore costs about {@code identities + shortlist * samplesPerIdentity} dot products
+ * instead of one per row.
+ */
+public final class CentroidMatcher implements GalleryMatcher {
+
+    public static final int DEFAULT_SHORTLIST = 3;
+
+    private final EmbeddingGallery gallery;
+    private final int dimension;
+    private final int identities;
+    private final int shortlist;
+
+    private final float[] sums;       // [identity][dim], unnormalized, kept for extend()
+    private final int[] counts;       // rows per identity
+    private final float[] centroids;  // [identity][dim], unit length
+    private final int[] rowStart;     // rows of identity i are rowIndex[rowStart[i] .. rowStart[i + 1])
+    private final int[] rowIndex;
+
+    private final ThreadLocal<Shortlist> scratch = new ThreadLocal<>();
+
+    public CentroidMatcher(EmbeddingGallery gallery) {
+        this(gallery, DEFAULT_SHORTLIST);
+    }
+
+    public CentroidMatcher(EmbeddingGallery gallery, int shortlist) {
+        this(gallery, shortlist, new float[gallery.identityCount() * gallery.dimension()], new int[gallery.identityCount()], 0);
+    }
+
+    private CentroidMatcher(EmbeddingGallery gallery, int shortlist, float[] sums, int[] counts, int firstNewRow) {
+        this.gallery = gallery;
+        this.dimension = gallery.dimension();
+        this.identities = gallery.identityCount();
+        this.shortlist = Math.max(1, shortlist);
+        this.sums = sums;
+        this.counts = counts;
+
+        float[] data = gallery.rawData();
+        for (int row = firstNewRow; row < gallery.size(); row++) {
+            int id = gallery.identityOf(row);
+            int base = id * dimension;
+            int offset = gallery.offsetOf(row);
+            for (int i = 0; i < dimension; i++) sums[base + i] += data[offset + i];
+            counts[id]++;
+        }
+
+        this.centroids = new float[identities * dimension];
+        for (int id = 0; id < identities; id++) normalizeInto(id);
+
+        this.rowStart = new int[identities + 1];
+        for (int id = 0; id < identities; id++) rowStart[id + 1] = rowStart[id] + counts[id];
+        this.rowIndex = new int[gallery.size()];
+        int[] fill = Arrays.copyOf(rowStart, identities);
+        for (int row = 0; row < gallery.size(); row++) rowIndex[fill[gallery.identityOf(row)]++] = row;
+    }
+
+    /**
+     * Matcher over {@code newer}, a gallery whose leading rows are this matcher's gallery (as
+     * after an enrolment, see {@link GalleryStore.Snapshot#isAppendOf}). Identity sums are carried over, so only the new rows
+     * are accumulated; centroids are renormalized once per identity.
+     */
+    public CentroidMatcher extend(EmbeddingGallery newer) {
+        if (newer.dimension() != dimension || newer.size() < gallery.size() || newer.identityCount() < identities) {
+            return new CentroidMatcher(newer, shortlist);
+        }
+        float[] newSums = Arrays.copyOf(sums, newer.identityCount() * dimension);
+        int[] newCounts = Arrays.copyOf(counts, newer.identityCount());
+        return new CentroidMatcher(newer, shortlist, newSums, newCounts, gallery.size());
+    }
+
+    private void normalizeInto(int id) {
+        int base = id * dimension;
+        float norm = 0f;
+        for (int i = 0; i < dimension; i++) norm += sums[base + i] * sums[base + i];
+        norm = (float) Math.sqrt(norm);
+        if (norm == 0f) return;
+        for (int i = 0; i < dimension; i++) centroids[base + i] = sums[base + i] / norm;
+    }
+
+    @Override
+    public EmbeddingGallery gallery() { return gallery; }
+
+    public int shortlist() { return shortlist; }
+
+    /** Unit-length mean of the rows enrolled for {@code identity}; callers must not modify it. */
+    public float[] centroids() { return centroids; }
+
+    /** Dot products one {@link #match} call will compute for {@code query}. */
+    public int comparisons(float[] query) {
+        Shortlist top = selectIdentities(query);
+        int total = identities;
+        for (int i = 0; i < top.size; i++) total += counts[top.ids[i]];
+        return total;
+    }
+
+    @Override
+    public MatchResult match(float[] query, MatchResult out) {
+        out.reset();
+        if (query.length != dimension) return out;
+
+        Shortlist top = selectIdentities(query);
+        float[] data = gallery.rawData();
+        for (int s = 0; s < top.size; s++) {
+            int id = top.ids[s];
+            String name = gallery.identityName(id);
+            for (int r = rowStart[id]; r < rowStart[id + 1]; r++) {
+                int row = rowIndex[r];
+                out.offer(id, name, row, dot(query, data, gallery.offsetOf(row)));
+            }
+        }
+        return out;
+    }
+
+    private Shortlist selectIdentities(float[] query) {
+        Shortlist top = scratch.get();
+        if (top == null) {
+            top = new Shortlist(shortlist);
+            scratch.set(top);
+        }
+        top.size = 0;
+        int k = Math.min(shortlist, identities);
+        for (int id = 0; id < identities; id++) {
+            if (counts[id] == 0) continue;
+            float score = dot(query, centroids, id * dimension);
+            if (top.size == k && score <= top.scores[k - 1]) continue;
+
+            int i = (top.size < k) ? top.size++ : k - 1;
+            while (i > 0 && top.scores[i - 1] < score) {
+                top.ids[i] = top.ids[i - 1];
+                top.scores[i] = top.scores[i - 1];
+                i--;
+            }
+            top.ids[i] = id;
+            top.scores[i] = score;
+        }
+        return top;
+    }
+
+    private float dot(float[] query, float[] data, int offset) {
+        float sum = 0f;
+        for (int i = 0; i < dimension; i++) sum += query[i] * data[offset + i];
+        return sum;
+    }
+
+    private static final class Shortlist {
+        final int[] ids;
+        final float[] scores;
+        int size;
+
+        Shortlist(int capacity) {
+            ids = new int[capacity];
+            scores = new float[capacity];
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.attendancefacerecognition.Recognition;
+
+/**
+ * Decides on which frames the face detector runs; on the others boxes are propagated
+ * cheaply (see {@link BoxPropagator}).
+ *
+ * The detector runs once every {@link #interval()} frames, or on the next frame after
+ * {@link #invalidate()} (boxes went stale, a capture needs a fresh detection). The interval is
+ * derived from smoothed detector and propagation latencies: with detection costing {@code D}
+ * and propagation {@code P}, one detection every {@code N} frames averages
+ * {@code (D + (N - 1) P) / N} per frame, so the smallest {@code N} that keeps this within the
+ * frame budget of {@code targetFps} is chosen, clamped to {@code [minInterval, maxInterval]}.
+ * Fast devices stay at {@code minInterval}; slow ones stretch the interval instead of the
+ * frame time. Not thread-safe; one instance per detector thread.
+ */
+public final class DetectionScheduler {
+
+    // Weight of the newest latency sample in the moving averages
+    private static final double SMOOTHING = 0.2;
+
+    private final long frameBudgetNanos;
+    private final int minInterval;
+    private final int maxInterval;
+
+    private double detectNanos = -1;
+    private double propagateNanos = -1;
+    private int interval;
+    private int sinceDetect;
+    private boolean forced = true;
+
+    public DetectionScheduler(float targetFps, int minInterval, int maxInterval) {
+        if (targetFps <= 0f) throw new IllegalArgumentException("targetFps must be positive");
+        if (minInterval < 1 || maxInterval < minInterval) {
+            throw new IllegalArgumentException("Need 1 <= minInterval <= maxInterval, got " + minInterval + ", " + maxInterval);
+        }
+        this.frameBudgetNanos = (long) (1e9 / targetFps);
+        this.minInterval = minInterval;
+        this.maxInterval = maxInterval;
+        this.interval = minInterval;
+    }
+
+    /** Frames per detector run under the current latencies. */
+    public int interval() { return interval; }
+
+    public double detectLatencyMillis() { return Math.max(0, detectNanos) / 1e6; }
+
+    public double propagateLatencyMillis() { return Math.max(0, propagateNanos) / 1e6; }
+
+    /** Whether the detector should run on the current frame. */
+    public boolean shouldDetect() {
+        return forced || sinceDetect >= interval;
+    }
+
+    /** Forces a detection on the next frame. */
+    public void invalidate() {
+        forced = true;
+    }
+
+    /** Records a detector run on this frame and how long it took. */
+    public void detected(long nanos) {
+        detectNanos = smooth(detectNanos, nanos);
+        sinceDetect = 1;
+        forced = false;
+        interval = computeInterval();
+    }
+
+    /** Records a propagated frame and how long it took. */
+    public void propagated(long nanos) {
+        propagateNanos = smooth(propagateNanos, nanos);
+        sinceDetect++;
+        interval = computeInterval();
+    }
+
+    private int computeInterval() {
+        if (detectNanos <= frameBudgetNanos) return minInterval;
+        double p = Math.max(0, propagateNanos);
+        if (p >= frameBudgetNanos) return maxInterval;
+        int n = (int) Math.ceil((detectNanos - p) / (frameBudgetNanos - p));
+        return Math.max(minInterval, Math.min(maxInterval, n));
+    }
+
+    private static double smooth(double average, long sample) {
+        return average < 0 ? sample : average + SMOOTHING * (sample - average);
+    }
+}
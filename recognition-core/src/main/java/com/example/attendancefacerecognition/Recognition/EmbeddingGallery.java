@@ -0,0 +1,205 @@
+package com.example.attendancefacerecognition.Recognition;
+
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable, flat gallery of enrolled embeddings.
+ *
+ * All rows live in one contiguous row-major {@code float[]} so matching walks memory linearly
+ * and never allocates per query. Each row maps to an identity index, and identity indices map
+ * to display names.
+ */
+public final class EmbeddingGallery {
+
+    public static final String UNKNOWN = "Unknown";
+
+    private final float[] data;
+    private final int dimension;
+    private final int size;
+    private final int[] rowIdentity;
+    private final String[] identities;
+
+    private EmbeddingGallery(float[] data, int dimension, int size, int[] rowIdentity, String[] identities) {
+        this.data = data;
+        this.dimension = dimension;
+        this.size = size;
+        this.rowIdentity = rowIdentity;
+        this.identities = identities;
+    }
+
+    // ========================================
+    // Build
+    // ========================================
+    public static EmbeddingGallery empty(int dimension) {
+        return new EmbeddingGallery(new float[0], dimension, 0, new int[0], new String[0]);
+    }
+
+    /**
+     * Copies {@code rows} into a flat gallery. Rows whose length differs from the first row, and
+     * rows without a matching name, are skipped.
+     */
+    public static EmbeddingGallery fromRows(List<float[]> rows, List<String> names) {
+        if (rows == null || rows.isEmpty() || names == null) return empty(0);
+
+        int dimension = rows.get(0).length;
+        int count = Math.min(rows.size(), names.size());
+
+        float[] data = new float[count * dimension];
+        int[] rowIdentity = new int[count];
+        Map<String, Integer> identityIndex = new HashMap<>();
+        List<String> identities = new ArrayList<>();
+
+        int size = 0;
+        for (int i = 0; i < count; i++) {
+            float[] row = rows.get(i);
+            if (row == null || row.length != dimension) continue; // safety
+            System.arraycopy(row, 0, data, size * dimension, dimension);
+
+            String name = names.get(i);
+            Integer id = identityIndex.get(name);
+            if (id == null) {
+                id = identities.size();
+                identityIndex.put(name, id);
+                identities.add(name);
+            }
+            rowIdentity[size++] = id;
+        }
+
+        if (size < count) {
+            float[] trimmed = new float[size * dimension];
+            System.arraycopy(data, 0, trimmed, 0, trimmed.length);
+            int[] trimmedIds = new int[size];
+            System.arraycopy(rowIdentity, 0, trimmedIds, 0, size);
+            data = trimmed;
+            rowIdentity = trimmedIds;
+        }
+        return new EmbeddingGallery(data, dimension, size, rowIdentity, identities.toArray(new String[0]));
+    }
+
+    /**
+     * Builds a gallery from {@code dimension}-float rows, typically the mapped view of an
+     * {@link EmbeddingStore}. The rows are pulled in with one bulk copy; rows without a matching
+     * name are dropped.
+     */
+    public static EmbeddingGallery fromBuffer(FloatBuffer rows, int dimension, List<String> names) {
+        if (rows == null || names == null || dimension <= 0) return empty(dimension);
+
+        FloatBuffer source = rows.duplicate();
+        int size = Math.min(source.remaining() / dimension, names.size());
+        float[] data = new float[size * dimension];
+        source.get(data);
+
+        int[] rowIdentity = new int[size];
+        Map<String, Integer> identityIndex = new HashMap<>();
+        List<String> identities = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            String name = names.get(i);
+            Integer id = identityIndex.get(name);
+            if (id == null) {
+                id = identities.size();
+                identityIndex.put(name, id);
+                identities.add(name);
+            }
+            rowIdentity[i] = id;
+        }
+        return new EmbeddingGallery(data, dimension, size, rowIdentity, identities.toArray(new String[0]));
+    }
+
+    /**
+     * Concatenates per-person blocks of row-major rows, as a {@link GalleryStore} snapshot keeps
+     * them: block {@code i} holds the rows enrolled under {@code names.get(i)}. Equal names map to
+     * one identity, as in {@link #fromRows}.
+     */
+    public static EmbeddingGallery fromBlocks(int dimension, List<String> names, List<float[]> blocks) {
+        int total = 0;
+        for (float[] block : blocks) {
+            if (block.length % dimension != 0) throw new IllegalArgumentException("Block is not whole rows of " + dimension);
+            total += block.length;
+        }
+        float[] data = new float[total];
+        int[] rowIdentity = new int[total / dimension];
+        Map<String, Integer> identityIndex = new HashMap<>();
+        List<String> identities = new ArrayList<>();
+
+        int offset = 0;
+        for (int b = 0; b < blocks.size(); b++) {
+            float[] block = blocks.get(b);
+            String name = names.get(b);
+            Integer id = identityIndex.get(name);
+            if (id == null) {
+                id = identities.size();
+                identityIndex.put(name, id);
+                identities.add(name);
+            }
+            System.arraycopy(block, 0, data, offset, block.length);
+            for (int row = offset / dimension, end = (offset + block.length) / dimension; row < end; row++) rowIdentity[row] = id;
+            offset += block.length;
+        }
+        return new EmbeddingGallery(data, dimension, rowIdentity.length, rowIdentity, identities.toArray(new String[0]));
+    }
+
+    // ========================================
+    // Accessors
+    // ========================================
+    public int size() { return size; }
+
+    public int dimension() { return dimension; }
+
+    public int identityCount() { return identities.length; }
+
+    public int identityOf(int row) { return rowIdentity[row]; }
+
+    public String identityName(int identity) { return identities[identity]; }
+
+    public String nameAt(int row) { return identities[rowIdentity[row]]; }
+
+    /** Offset of {@code row} in {@link #rawData()}. */
+    public int offsetOf(int row) { return row * dimension; }
+
+    /** Backing array; callers must treat it as read-only. */
+    public float[] rawData() { return data; }
+
+    /** Copy of a single row. Allocates, so keep it off the per-frame path. */
+    public float[] row(int row) {
+        float[] out = new float[dimension];
+        System.arraycopy(data, row * dimension, out, 0, dimension);
+        return out;
+    }
+
+    // ========================================
+    // Matching
+    // ========================================
+    public float squaredDistance(float[] query, int row) {
+        int offset = row * dimension;
+        float sum = 0f;
+        for (int i = 0; i < dimension; i++) {
+            float diff = query[i] - data[offset + i];
+            sum += diff * diff;
+        }
+        return sum;
+    }
+
+    /** Index of the row closest to {@code query} in L2, or -1 if the gallery is empty or the sizes differ. */
+    public int nearestRow(float[] query) {
+        if (query.length != dimension) return -1;
+
+        int best = -1;
+        float minDist = Float.MAX_VALUE;
+        for (int row = 0, offset = 0; row < size; row++, offset += dimension) {
+            float sum = 0f;
+            for (int i = 0; i < dimension; i++) {
+                float diff = query[i] - data[offset + i];
+                sum += diff * diff;
+            }
+            if (sum < minDist) {
+                minDist = sum;
+                best = row;
+            }
+        }
+        return best;
+    }
+}
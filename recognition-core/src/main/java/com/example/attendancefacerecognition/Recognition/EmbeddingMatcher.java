@@ -0,0 +1,104 @@
+package com.example.attendancefacerecognition.Recognition;
+
+/**
+ * Ranks gallery rows by dot product with the query. For L2-normalized embeddings (as produced by
+ * {@code Utils.getFaceEmbedding}) this is cosine similarity, and
+ * {@code |a - b|^2 = 2 - 2 * (a . b)}, so an L2 threshold converts once to a score threshold.
+ *
+ * Rows are scored in blocks. After each block the partial dot product plus a Cauchy-Schwarz
+ * bound on the remaining dimensions ({@code |q_rest| * |g_rest|}) is compared with the score
+ * the row would have to beat; once it cannot, the row is abandoned.
+ */
+public final class EmbeddingMatcher implements GalleryMatcher {
+
+    public static final int BLOCK = 64;
+
+    private final EmbeddingGallery gallery;
+    private final int dimension;
+    private final int blocks;
+    private final float[] rowTailNorms; // [row][block]: norm of the row from that block onwards
+
+    private final ThreadLocal<float[]> queryTailNorms = new ThreadLocal<>();
+
+    public EmbeddingMatcher(EmbeddingGallery gallery) {
+        this.gallery = gallery;
+        this.dimension = gallery.dimension();
+        this.blocks = (dimension + BLOCK - 1) / BLOCK;
+        this.rowTailNorms = new float[gallery.size() * blocks];
+
+        float[] data = gallery.rawData();
+        for (int row = 0; row < gallery.size(); row++) {
+            tailNorms(data, gallery.offsetOf(row), rowTailNorms, row * blocks);
+        }
+    }
+
+    @Override
+    public EmbeddingGallery gallery() { return gallery; }
+
+    /** Score equivalent of an L2 distance threshold between unit vectors. */
+    public static float scoreForDistance(float l2Threshold) {
+        return 1f - l2Threshold * l2Threshold / 2f;
+    }
+
+    /** L2 distance between unit vectors with dot product {@code score}. */
+    public static float distanceForScore(float score) {
+        return (float) Math.sqrt(Math.max(0f, 2f - 2f * score));
+    }
+
+    /**
+     * Fills {@code out} with the best {@link MatchResult#capacity()} identities for
+     * {@code query}. Does not allocate once the calling thread has matched a query before.
+     */
+    @Override
+    public MatchResult match(float[] query, MatchResult out) {
+        out.reset();
+        matchRange(query, 0, gallery.size(), out);
+        return out;
+    }
+
+    /**
+     * Offers rows {@code [from, to)} to {@code out} without clearing it first, so several
+     * ranges can be folded into one result.
+     */
+    public void matchRange(float[] query, int from, int to, MatchResult out) {
+        if (query.length != dimension) return;
+
+        float[] queryTails = queryTailNorms.get();
+        if (queryTails == null) {
+            queryTails = new float[blocks];
+            queryTailNorms.set(queryTails);
+        }
+        tailNorms(query, 0, queryTails, 0);
+
+        float[] data = gallery.rawData();
+        for (int row = from, offset = from * dimension; row < to; row++, offset += dimension) {
+            float floor = out.floor();
+            int tailBase = row * blocks;
+
+            float dot = 0f;
+            int b = 0;
+            for (int start = 0; start < dimension; start += BLOCK, b++) {
+                if (dot + queryTails[b] * rowTailNorms[tailBase + b] <= floor) break; // cannot win
+                int end = Math.min(start + BLOCK, dimension);
+                for (int i = start; i < end; i++) dot += query[i] * data[offset + i];
+            }
+            if (b < blocks) continue; // abandoned
+
+            if (dot > floor) {
+                int identity = gallery.identityOf(row);
+                out.offer(identity, gallery.identityName(identity), row, dot);
+            }
+        }
+    }
+
+    // out[outOffset + b] = norm of v[offset + b*BLOCK .. offset + dimension)
+    private void tailNorms(float[] v, int offset, float[] out, int outOffset) {
+        float sum = 0f;
+        for (int b = blocks - 1; b >= 0; b--) {
+            int start = b * BLOCK;
+            int end = Math.min(start + BLOCK, dimension);
+            for (int i = start; i < end; i++) sum += v[offset + i] * v[offset + i];
+            out[outOffset + b] = (float) Math.sqrt(sum);
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package com.example.attendancefacerecognition.Recognition;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Versioned, memory-mapped embedding file.
+ *
+ * <pre>
+ * offset  size  field
+ * 0       4     magic "FEMB"
+ * 4       4     format version
+ * 8       4     dimension
+ * 12      4     byte order of the rows (0 = little, 1 = big endian)
+ * 16      4     row count
+ * 20      32    model id, UTF-8, zero padded
+ * 52      12    reserved
+ * 64      ...   rows, dimension floats each
+ * </pre>
+ *
+ * The header is always little-endian. Appends write only the new rows, then bump the row count
+ * in place, so a crash mid-append leaves the previous rows intact. Files written before the
+ * header existed are migrated once on {@link #open}.
+ */
+public final class EmbeddingStore implements Closeable {
+
+    public static final int MAGIC = 0x424D4546; // "FEMB" read little-endian
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 64;
+
+    private static final int OFFSET_COUNT = 16;
+    private static final int MODEL_ID_LENGTH = 32;
+
+    private final File file;
+    private final RandomAccessFile raf;
+    private final FileChannel channel;
+    private final int dimension;
+    private final ByteOrder order;
+    private final String modelId;
+    private int rowCount;
+
+    private EmbeddingStore(File file, RandomAccessFile raf, int dimension, ByteOrder order, String modelId, int rowCount) {
+        this.file = file;
+        this.raf = raf;
+        this.channel = raf.getChannel();
+        this.dimension = dimension;
+        this.order = order;
+        this.modelId = modelId;
+        this.rowCount = rowCount;
+    }
+
+    // ========================================
+    // Open / create / migrate
+    // ========================================
+
+    /**
+     * Opens {@code file}, creating it if missing and migrating it if it predates the header.
+     *
+     * @throws IOException if the file belongs to a different dimension or model
+     */
+    public static EmbeddingStore open(File file, int dimension, String modelId) throws IOException {
+        if (!file.exists() || file.length() == 0) {
+            writeHeader(file, dimension, ByteOrder.LITTLE_ENDIAN, 0, modelId);
+        } else if (!hasHeader(file)) {
+            migrateLegacy(file, dimension, modelId);
+        }
+
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            raf.getChannel().read(header, 0);
+            header.flip();
+
+            int magic = header.getInt();
+            int version = header.getInt();
+            int dim = header.getInt();
+            ByteOrder order = header.getInt() == 0 ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN;
+            int count = header.getInt();
+            byte[] id = new byte[MODEL_ID_LENGTH];
+            header.get(id);
+            String storedModel = decodeModelId(id);
+
+            if (magic != MAGIC) throw new IOException("Not an embedding store: " + file);
+            if (version > VERSION) throw new IOException("Unsupported embedding store version " + version);
+            if (dim != dimension) throw new IOException("Embedding dimension mismatch: file " + dim + ", expected " + dimension);
+            if (!storedModel.equals(modelId)) throw new IOException("Embedding model mismatch: file " + storedModel + ", expected " + modelId);
+
+            // Drop a torn tail left by an append that never reached the header update.
+            long expected = HEADER_SIZE + (long) count * dim * 4;
+            if (raf.length() > expected) raf.setLength(expected);
+            if (raf.length() < expected) count = (int) ((raf.length() - HEADER_SIZE) / (dim * 4L));
+
+            return new EmbeddingStore(file, raf, dim, order, storedModel, count);
+        } catch (IOException e) {
+            raf.close();
+            throw e;
+        }
+    }
+
+    public static boolean hasHeader(File file) throws IOException {
+        if (file.length() < HEADER_SIZE) return false;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            ByteBuffer magic = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+            raf.getChannel().read(magic, 0);
+            magic.flip();
+            return magic.getInt() == MAGIC;
+        }
+    }
+
+    /**
+     * Rewrites a headerless file in the current format. Two legacy layouts are recognised: the
+     * bundled asset ({@code int32 count, int32 dimension} then little-endian rows) and the bare
+     * little-endian rows written by the old {@code Utils.saveEmbeddings}.
+     */
+    static void migrateLegacy(File file, int dimension, String modelId) throws IOException {
+        ByteBuffer data;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            data = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+        }
+        data.order(ByteOrder.LITTLE_ENDIAN);
+
+        int rowBytes = dimension * 4;
+        int offset = 0;
+        if (data.remaining() >= 8) {
+            long count = data.getInt(0) & 0xFFFFFFFFL;
+            long dim = data.getInt(4) & 0xFFFFFFFFL;
+            if (dim == dimension && 8 + count * rowBytes == data.remaining()) offset = 8;
+        }
+        int rows = (data.remaining() - offset) / rowBytes;
+
+        File tmp = new File(file.getPath() + ".tmp");
+        writeHeader(tmp, dimension, ByteOrder.LITTLE_ENDIAN, rows, modelId);
+        try (RandomAccessFile out = new RandomAccessFile(tmp, "rw")) {
+            data.position(offset);
+            data.limit(offset + rows * rowBytes);
+            out.getChannel().write(data, HEADER_SIZE);
+            out.getChannel().force(true);
+        }
+        if (!tmp.renameTo(file)) throw new IOException("Failed to replace " + file);
+    }
+
+    private static void writeHeader(File file, int dimension, ByteOrder order, int count, String modelId) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC);
+        header.putInt(VERSION);
+        header.putInt(dimension);
+        header.putInt(order == ByteOrder.LITTLE_ENDIAN ? 0 : 1);
+        header.putInt(count);
+        header.put(encodeModelId(modelId));
+        header.clear();
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(0);
+            raf.getChannel().write(header, 0);
+            raf.getChannel().force(true);
+        }
+    }
+
+    private static byte[] encodeModelId(String modelId) {
+        byte[] out = new byte[MODEL_ID_LENGTH];
+        byte[] raw = modelId.getBytes(StandardCharsets.UTF_8);
+        System.arraycopy(raw, 0, out, 0, Math.min(raw.length, MODEL_ID_LENGTH));
+        return out;
+    }
+
+    private static String decodeModelId(byte[] raw) {
+        int len = 0;
+        while (len < raw.length && raw[len] != 0) len++;
+        return new String(raw, 0, len, StandardCharsets.UTF_8);
+    }
+
+    // ========================================
+    // Accessors
+    // ========================================
+    public File file() { return file; }
+
+    public int dimension() { return dimension; }
+
+    public int rowCount() { return rowCount; }
+
+    public ByteOrder byteOrder() { return order; }
+
+    public String modelId() { return modelId; }
+
+    /**
+     * Read-only, zero-copy view over all rows. The mapping stays valid after {@link #close()},
+     * but does not grow with later appends; map again to see them.
+     */
+    public FloatBuffer rows() throws IOException {
+        long bytes = (long) rowCount * dimension * 4;
+        MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, bytes);
+        return mapped.order(order).asFloatBuffer();
+    }
+
+    /** Copies every row out of the mapping. Allocates one array per row. */
+    public List<float[]> readAll() throws IOException {
+        FloatBuffer rows = rows();
+        List<float[]> out = new ArrayList<>(rowCount);
+        for (int i = 0; i < rowCount; i++) {
+            float[] row = new float[dimension];
+            rows.get(row);
+            out.add(row);
+        }
+        return out;
+    }
+
+    // ========================================
+    // Append
+    // ========================================
+
+    /**
+     * Writes {@code newRows} after the existing rows, then updates the row count in the header.
+     * Rows of the wrong dimension are skipped. Cost is proportional to the new rows only.
+     *
+     * @return number of rows written
+     */
+    public int append(List<float[]> newRows) throws IOException {
+        int valid = 0;
+        for (float[] row : newRows) if (row != null && row.length == dimension) valid++;
+        if (valid == 0) return 0;
+
+        ByteBuffer buffer = ByteBuffer.allocate(valid * dimension * 4).order(order);
+        for (float[] row : newRows) {
+            if (row == null || row.length != dimension) continue; // safety check
+            for (float v : row) buffer.putFloat(v);
+        }
+        buffer.flip();
+
+        long position = HEADER_SIZE + (long) rowCount * dimension * 4;
+        while (buffer.hasRemaining()) position += channel.write(buffer, position);
+        channel.force(false);
+
+        ByteBuffer count = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+        count.putInt(0, rowCount + valid);
+        channel.write(count, OFFSET_COUNT);
+        channel.force(false);
+
+        rowCount += valid;
+        return valid;
+    }
+
+    @Override
+    public void close() throws IOException {
+        raf.close();
+    }
+}
@@ -0,0 +1,310 @@
+package com.example.attendancefacerecognition.Recognition;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.FloatBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The enrolled faces kept in one directory: a {@link GalleryStore} of identities under stable
+ * ids and, once the gallery is large enough to need one, a persisted {@link HnswIndex}.
+ *
+ * Galleries from before the store ({@link #EMBEDDINGS_FILE}, an {@link EmbeddingStore} of rows,
+ * and {@link #NAMES_FILE}, a JSON array of their names) are imported once, on first use, and
+ * then left in place untouched.
+ *
+ * A bundled gallery in the same legacy layout is merged in with {@link #mergeSeed}, once per
+ * seed version, so installs that already have enrolments still pick up faces added to the bundle.
+ *
+ * Only plain files, so the app (over its files dir), host tests and a server-side
+ * re-verification service read and write the same layout. One instance per directory owns the
+ * store; the app keeps a single one for the process.
+ */
+public final class FaceDatabase implements Closeable {
+
+    public static final String GALLERY_FILE = "gallery.log";
+    public static final String EMBEDDINGS_FILE = "embeddings.bin";
+    public static final String NAMES_FILE = "names.json";
+    public static final String INDEX_FILE = "embeddings.hnsw";
+    public static final String SEED_VERSION_FILE = "seed.version";
+
+    /**
+     * The persisted index is saved again once the rows inserted on load since it was saved reach
+     * this fraction of it (1/n), so catching up on enrolments rewrites the file O(log rows) times
+     * rather than on every enrolment.
+     */
+    static final int INDEX_RESAVE_DIVISOR = 8;
+
+    /** Rows the enrolment screen captures per person; legacy names files have one name for them all. */
+    static final int LEGACY_ROWS_PER_ENROLMENT = 5;
+
+    private static final Gson GSON = new Gson();
+
+    private final File dir;
+    private final int dimension;
+    private final String modelId;
+    private final int annMinRows;
+    private GalleryStore store; // opened on first use, under this
+
+    /**
+     * @param annMinRows gallery size from which matching goes through the ANN index; below it an
+     *                   exact scan is fast enough and no index is kept
+     */
+    public FaceDatabase(File dir, int dimension, String modelId, int annMinRows) {
+        this.dir = dir;
+        this.dimension = dimension;
+        this.modelId = modelId;
+        this.annMinRows = annMinRows;
+    }
+
+    public File dir() { return dir; }
+
+    public int dimension() { return dimension; }
+
+    public File galleryFile() { return new File(dir, GALLERY_FILE); }
+
+    public File embeddingsFile() { return new File(dir, EMBEDDINGS_FILE); }
+
+    public File namesFile() { return new File(dir, NAMES_FILE); }
+
+    public File indexFile() { return new File(dir, INDEX_FILE); }
+
+    public File seedVersionFile() { return new File(dir, SEED_VERSION_FILE); }
+
+    // ========================================
+    // Read
+    // ========================================
+
+    /** The gallery store, opened (and imported from the legacy files, if any) on first use. */
+    public synchronized GalleryStore store() throws IOException {
+        if (store == null) {
+            File log = galleryFile();
+            if (!log.exists() && embeddingsFile().exists()) importLegacy(log);
+            store = GalleryStore.open(log, dimension, modelId);
+        }
+        return store;
+    }
+
+    /** Gallery over the current identities. */
+    public EmbeddingGallery loadGallery() throws IOException {
+        return store().snapshot().gallery();
+    }
+
+    /** Read-only view of the gallery's rows, e.g. for re-ranking quantized matches. */
+    public FloatBuffer rows() throws IOException {
+        return FloatBuffer.wrap(loadGallery().rawData()).asReadOnlyBuffer();
+    }
+
+    /** The legacy names file as a mutable list; empty if it is missing or unreadable. */
+    public List<String> loadNames() {
+        return readNames(namesFile());
+    }
+
+    private static List<String> readNames(File file) {
+        if (!file.exists()) return new ArrayList<>();
+        try (Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+            String[] names = GSON.fromJson(reader, String[].class);
+            return names == null ? new ArrayList<>() : new ArrayList<>(Arrays.asList(names));
+        } catch (IOException | JsonParseException e) {
+            return new ArrayList<>();
+        }
+    }
+
+    // ========================================
+    // Write
+    // ========================================
+
+    /**
+     * Enrols {@code embeddings} as a new identity named {@code name} and returns its id. Only the
+     * new rows are written; the ANN index catches up on them in the next {@link #loadIndex}.
+     */
+    public int enrol(List<float[]> embeddings, String name) throws IOException {
+        return store().add(name, embeddings);
+    }
+
+    /**
+     * Replaces the rows of identity {@code id}, keeping its id and name.
+     *
+     * @throws IllegalArgumentException if there is no such identity
+     */
+    public synchronized void reenrol(int id, List<float[]> embeddings) throws IOException {
+        GalleryStore gallery = store();
+        GalleryStore.Identity identity = gallery.snapshot().find(id);
+        if (identity == null) throw new IllegalArgumentException("No identity " + id);
+        invalidateIndex();
+        gallery.replace(id, identity.name, embeddings);
+    }
+
+    /** Deletes identity {@code id}; false if there is no such identity. */
+    public synchronized boolean delete(int id) throws IOException {
+        GalleryStore gallery = store();
+        if (gallery.snapshot().find(id) == null) return false;
+        invalidateIndex();
+        return gallery.delete(id);
+    }
+
+    /** Version of the last bundled gallery merged by {@link #mergeSeed}; 0 if none was. */
+    public synchronized int seedVersion() {
+        File file = seedVersionFile();
+        if (!file.exists()) return 0;
+        try (Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+            Integer version = GSON.fromJson(reader, Integer.class);
+            return version == null ? 0 : version;
+        } catch (IOException | JsonParseException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Merges a bundled gallery, {@code embeddings} in a legacy layout (migrated in place, so pass a
+     * scratch copy) and its {@code names}, unless seed {@code version} or a later one was already
+     * merged. Bundled identities whose name is already enrolled are skipped, so the people of an
+     * older bundle, and anyone enrolled since, keep their rows.
+     *
+     * @return number of identities added
+     */
+    public synchronized int mergeSeed(File embeddings, File names, int version) throws IOException {
+        if (seedVersion() >= version) return 0;
+        GalleryStore gallery = store();
+        Set<String> enrolled = new HashSet<>();
+        for (GalleryStore.Identity identity : gallery.snapshot().identities()) enrolled.add(identity.name);
+
+        List<String> newNames = new ArrayList<>();
+        List<List<float[]>> newRows = new ArrayList<>();
+        for (Map.Entry<String, List<float[]>> e : groupByName(embeddings, readNames(names)).entrySet()) {
+            if (enrolled.contains(e.getKey())) continue;
+            newNames.add(e.getKey());
+            newRows.add(e.getValue());
+        }
+        int added = gallery.addAll(newNames, newRows).length;
+
+        File tmp = new File(seedVersionFile().getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tmp)) {
+            out.write(Integer.toString(version).getBytes(StandardCharsets.UTF_8));
+            out.getFD().sync();
+        }
+        if (!tmp.renameTo(seedVersionFile())) throw new IOException("Failed to replace " + seedVersionFile());
+        return added;
+    }
+
+    // Rows after a replaced or deleted identity move up, so the index, keyed by row, goes first
+    private void invalidateIndex() throws IOException {
+        File file = indexFile();
+        if (file.exists() && !file.delete()) throw new IOException("Cannot delete " + file);
+    }
+
+    // Writes the legacy rows to a new log, one identity per name in order of first appearance
+    private void importLegacy(File log) throws IOException {
+        Map<String, List<float[]>> byName = groupByName(embeddingsFile(), loadNames());
+        File tmp = new File(log.getPath() + ".tmp");
+        if (tmp.exists() && !tmp.delete()) throw new IOException("Cannot delete " + tmp);
+        try (GalleryStore imported = GalleryStore.open(tmp, dimension, modelId)) {
+            imported.addAll(new ArrayList<>(byName.keySet()), new ArrayList<>(byName.values()));
+        }
+        if (!tmp.renameTo(log)) throw new IOException("Failed to replace " + log);
+    }
+
+    // Rows of a legacy embeddings file grouped under their names, in order of first appearance
+    private Map<String, List<float[]>> groupByName(File embeddings, List<String> legacyNames) throws IOException {
+        List<float[]> rows;
+        try (EmbeddingStore legacy = EmbeddingStore.open(embeddings, dimension, modelId)) {
+            rows = legacy.readAll();
+        }
+        List<String> names = legacyRowNames(legacyNames, rows.size());
+        Map<String, List<float[]>> byName = new LinkedHashMap<>();
+        for (int i = 0; i < Math.min(rows.size(), names.size()); i++) {
+            List<float[]> identity = byName.get(names.get(i));
+            if (identity == null) {
+                identity = new ArrayList<>();
+                byName.put(names.get(i), identity);
+            }
+            identity.add(rows.get(i));
+        }
+        return byName;
+    }
+
+    /**
+     * One name per row for a legacy gallery of {@code rows} rows. The old enrolment appended all
+     * {@link #LEGACY_ROWS_PER_ENROLMENT} rows but a single name, so a names file that is short by
+     * a multiple of {@code LEGACY_ROWS_PER_ENROLMENT - 1} is read as aligned rows followed by such
+     * enrolments. Counts that fit no such history are returned as they are, and the rows without
+     * a name dropped.
+     */
+    static List<String> legacyRowNames(List<String> names, int rows) {
+        int surplus = rows - names.size();
+        int extraPerEnrolment = LEGACY_ROWS_PER_ENROLMENT - 1;
+        if (surplus <= 0 || surplus % extraPerEnrolment != 0 || surplus / extraPerEnrolment > names.size()) return names;
+
+        int aligned = names.size() - surplus / extraPerEnrolment;
+        List<String> out = new ArrayList<>(rows);
+        out.addAll(names.subList(0, aligned));
+        for (String name : names.subList(aligned, names.size())) {
+            for (int i = 0; i < LEGACY_ROWS_PER_ENROLMENT; i++) out.add(name);
+        }
+        return out;
+    }
+
+    // ========================================
+    // ANN index
+    // ========================================
+
+    /**
+     * ANN index over {@code gallery}, or null when the gallery is small enough for an exact scan.
+     * An unreadable or stale index file is rebuilt and saved. Rows missing from the persisted
+     * index (enrolled since it was saved) are inserted in memory; the file is only rewritten, as
+     * a whole, once they reach 1/{@link #INDEX_RESAVE_DIVISOR} of it, so until then each load
+     * inserts them again. Nothing is saved when {@code gallery} is an older snapshot than the
+     * store's (a replacement or deletion may since have moved its rows). An index that cannot be
+     * saved is still returned, and rebuilt on the next load.
+     */
+    public synchronized HnswIndex loadIndex(EmbeddingGallery gallery) {
+        if (gallery.size() < annMinRows) return null;
+
+        File file = indexFile();
+        HnswIndex index = null;
+        if (file.exists()) {
+            try {
+                index = HnswIndex.load(file);
+            } catch (IOException e) {
+                index = null; // unreadable, rebuilt below
+            }
+        }
+        if (index == null || index.dimension() != gallery.dimension() || index.size() > gallery.size()) {
+            index = new HnswIndex(gallery.dimension());
+        }
+
+        int persisted = index.size();
+        if (persisted < gallery.size()) {
+            index.addAll(gallery);
+            if ((gallery.size() - persisted) * INDEX_RESAVE_DIVISOR < persisted) return index;
+            if (store != null && store.snapshot().gallery() != gallery) return index;
+            try {
+                index.save(file);
+            } catch (IOException e) {
+                file.delete();
+            }
+        }
+        return index;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (store != null) store.close();
+        store = null;
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.attendancefacerecognition.Recognition;
+
+/**
+ * Reusable list of decoded face detections, stored as parallel arrays so decoding a frame
+ * allocates nothing. Boxes and keypoints are normalized to the detector input, i.e. [0, 1]
+ * across the whole (stretched) frame.
+ */
+public final class FaceDetections {
+
+    public static final int KEYPOINTS = 6; // eyes, nose tip, mouth, ear tragions
+
+    private final float[] xMin;
+    private final float[] yMin;
+    private final float[] xMax;
+    private final float[] yMax;
+    private final float[] score;
+    private final float[] keypoints; // KEYPOINTS (x, y) pairs per detection
+    private int count;
+
+    public FaceDetections(int capacity) {
+        this.xMin = new float[capacity];
+        this.yMin = new float[capacity];
+        this.xMax = new float[capacity];
+        this.yMax = new float[capacity];
+        this.score = new float[capacity];
+        this.keypoints = new float[capacity * KEYPOINTS * 2];
+    }
+
+    public int capacity() { return score.length; }
+
+    public int size() { return count; }
+
+    public void clear() { count = 0; }
+
+    public float xMin(int i) { return xMin[i]; }
+
+    public float yMin(int i) { return yMin[i]; }
+
+    public float xMax(int i) { return xMax[i]; }
+
+    public float yMax(int i) { return yMax[i]; }
+
+    public float score(int i) { return score[i]; }
+
+    public float keypointX(int i, int k) { return keypoints[(i * KEYPOINTS + k) * 2]; }
+
+    public float keypointY(int i, int k) { return keypoints[(i * KEYPOINTS + k) * 2 + 1]; }
+
+    /** Appends a detection; returns false when full. {@code kp} holds KEYPOINTS (x, y) pairs. */
+    boolean add(float x0, float y0, float x1, float y1, float s, float[] kp) {
+        if (count == score.length) return false;
+        xMin[count] = x0;
+        yMin[count] = y0;
+        xMax[count] = x1;
+        yMax[count] = y1;
+        score[count] = s;
+        System.arraycopy(kp, 0, keypoints, count * KEYPOINTS * 2, KEYPOINTS * 2);
+        count++;
+        return true;
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.attendancefacerecognition.Recognition;
+
+import com.example.attendancefacerecognition.Metrics.FrameMetrics;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+
+/**
+ * The two model stages of the attendance pipeline, and BlazeFace and FaceNet behind them.
+ *
+ * {@link #blazeFace} and {@link #faceNet} run the real models through a {@link TensorArena},
+ * sampling the model inputs straight from the camera planes and decoding BlazeFace's anchors,
+ * with nothing allocated per frame. The caller supplies the runtime as a
+ * {@link DetectorRunner} / {@link EmbedderRunner}: the app wraps its TFLite interpreters, a
+ * desktop replay can wrap a desktop TFLite runtime, and tests use plain lambdas.
+ */
+public final class FaceModels {
+
+    /** Detect stage: face boxes of one frame. Called on one thread. */
+    public interface Detector {
+        /**
+         * Writes (left, top, right, bottom) per face, in upright frame pixels, into {@code boxes}
+         * and returns the number of faces, at most {@code boxes.length / 4}.
+         */
+        int detect(YuvFrame frame, float[] boxes) throws Exception;
+    }
+
+    /** Embed stage: one normalized embedding per box. Called on one thread. */
+    public interface Embedder {
+        int dimension();
+
+        /** Fills {@code out[i]} for the first {@code count} boxes, laid out as for {@link Detector}. */
+        void embed(YuvFrame frame, float[] boxes, int count, float[][] out) throws Exception;
+    }
+
+    /** One BlazeFace invocation, in the shape of TFLite's {@code runForMultipleInputsOutputs}. */
+    public interface DetectorRunner {
+        void run(Object[] inputs, Map<Integer, Object> outputs) throws Exception;
+    }
+
+    /** One FaceNet invocation over a batch of {@code n}; resizes its input when {@code n} changes. */
+    public interface EmbedderRunner {
+        void run(ByteBuffer input, Object output, int n) throws Exception;
+    }
+
+    private FaceModels() {}
+
+    /** BlazeFace through {@code runner}, with tensors in the given formats. */
+    public static Detector blazeFace(DetectorRunner runner, TensorFormat input,
+                                     TensorFormat regressors, TensorFormat scores) {
+        return blazeFace(runner, input, regressors, scores, new FrameMetrics(false));
+    }
+
+    /** Same, timing the conversion of the camera planes into the input tensor as YUV_CONVERT. */
+    public static Detector blazeFace(DetectorRunner runner, TensorFormat input,
+                                     TensorFormat regressors, TensorFormat scores, FrameMetrics metrics) {
+        TensorArena arena = new TensorArena(BlazeFaceDecoder.INPUT_SIZE, 1, 1);
+        arena.bindDetector(runner, input, regressors, scores);
+        BlazeFaceDecoder decoder = new BlazeFaceDecoder();
+        return (frame, boxes) -> {
+            int width = frame.uprightWidth();
+            int height = frame.uprightHeight();
+            int size = arena.detectorInputSize();
+            long start = metrics.start();
+            YuvConverter.toRgb(frame, 0, 0, width, height, size, size, arena.detectorInputFormat(), arena.detectorInput());
+            metrics.stop(FrameMetrics.Stage.YUV_CONVERT, start);
+            runner.run(arena.detectorInputs(), arena.detectorOutputs());
+            arena.dequantizeDetectorOutputs();
+            FaceDetections detections = decoder.decode(arena.detectorOutput(), arena.detectorScores(), arena.detections());
+            int n = Math.min(detections.size(), boxes.length / 4);
+            for (int i = 0; i < n; i++) {
+                boxes[i * 4] = Math.max(0, detections.xMin(i) * width);
+                boxes[i * 4 + 1] = Math.max(0, detections.yMin(i) * height);
+                boxes[i * 4 + 2] = Math.min(width, detections.xMax(i) * width);
+                boxes[i * 4 + 3] = Math.min(height, detections.yMax(i) * height);
+            }
+            return n;
+        };
+    }
+
+    /**
+     * FaceNet through {@code runner}: {@code inputSize} square crops, {@code dimension}-d
+     * embeddings, up to {@code maxBatch} faces per invocation.
+     */
+    public static Embedder faceNet(EmbedderRunner runner, int inputSize, int dimension, int maxBatch,
+                                   TensorFormat input, TensorFormat output) {
+        return faceNet(runner, inputSize, dimension, maxBatch, input, output, new FrameMetrics(false));
+    }
+
+    /** Same, timing the crops into the input slots as CROP. */
+    public static Embedder faceNet(EmbedderRunner runner, int inputSize, int dimension, int maxBatch,
+                                   TensorFormat input, TensorFormat output, FrameMetrics metrics) {
+        TensorArena arena = new TensorArena(1, inputSize, dimension, maxBatch);
+        arena.bindEmbedder(runner, input, output);
+        return new Embedder() {
+            @Override
+            public int dimension() { return dimension; }
+
+            @Override
+            public void embed(YuvFrame frame, float[] boxes, int count, float[][] out) throws Exception {
+                for (int from = 0; from < count; from += maxBatch) {
+                    int n = Math.min(maxBatch, count - from);
+                    long start = metrics.start();
+                    for (int i = 0; i < n; i++) {
+                        int b = (from + i) * 4;
+                        int left = Math.round(boxes[b]);
+                        int top = Math.round(boxes[b + 1]);
+                        YuvConverter.toRgb(frame, left, top,
+                                Math.max(1, Math.round(boxes[b + 2]) - left), Math.max(1, Math.round(boxes[b + 3]) - top),
+                                inputSize, inputSize, arena.embedderInputFormat(), arena.embedderSlot(i));
+                    }
+                    metrics.stop(FrameMetrics.Stage.CROP, start);
+                    runner.run(arena.embedderInput(n), arena.embedderRunOutput(n), n);
+                    float[][] rows = arena.dequantizeEmbedderOutput(n);
+                    for (int i = 0; i < n; i++) {
+                        System.arraycopy(TensorArena.normalize(rows[i]), 0, out[from + i], 0, dimension);
+                    }
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.attendancefacerecognition.Recognition;
+
+import java.nio.FloatBuffer;
+import java.util.List;
+
+/**
+ * Threshold decisions over the gallery representations: the nearest stored embedding is the
+ * answer if it lies within {@code threshold} (L2 distance between normalized embeddings),
+ * otherwise {@link EmbeddingGallery#UNKNOWN}.
+ *
+ * Plain arrays and buffers only, so the same decisions run in the app, in host tests and in
+ * benchmarks.
+ */
+public final class FaceRecognizer {
+
+    private FaceRecognizer() {}
+
+    /** Linear scan over one array per row, comparing true distances. */
+    public static String recognize(float[] emb, float[][] knownEmbeddings, List<String> knownNames, float threshold) {
+        String bestName = EmbeddingGallery.UNKNOWN;
+        float minDist = Float.MAX_VALUE;
+
+        for (int i = 0; i < knownEmbeddings.length; i++) {
+            if (knownEmbeddings[i].length != emb.length) continue; // safety
+            float dist = l2Distance(emb, knownEmbeddings[i]);
+            if (dist < minDist) {
+                minDist = dist;
+                bestName = knownNames.get(i);
+            }
+        }
+
+        return (minDist < threshold) ? bestName : EmbeddingGallery.UNKNOWN;
+    }
+
+    /** Exact scan over the flat gallery, comparing squared distances. */
+    public static String recognize(float[] emb, EmbeddingGallery gallery, float threshold) {
+        int best = gallery.nearestRow(emb);
+        if (best < 0) return EmbeddingGallery.UNKNOWN;
+
+        float dist = gallery.squaredDistance(emb, best);
+        return (dist < threshold * threshold) ? gallery.nameAt(best) : EmbeddingGallery.UNKNOWN;
+    }
+
+    /** Quantized gallery; {@code exactRows} lets the top {@code rerankK} candidates be re-scored in float. */
+    public static String recognize(float[] emb, QuantizedGallery gallery, FloatBuffer exactRows, int rerankK, float threshold) {
+        int best = gallery.nearest(emb, rerankK, exactRows);
+        if (best < 0) return EmbeddingGallery.UNKNOWN;
+
+        float dist = (exactRows != null) ? gallery.exactDistance(emb, exactRows, best) : gallery.approximateDistance(emb, best);
+        return (dist < threshold * threshold) ? gallery.nameAt(best) : EmbeddingGallery.UNKNOWN;
+    }
+
+    /** Approximate search through {@code index}; an exact scan when there is no index. */
+    public static String recognize(float[] emb, EmbeddingGallery gallery, HnswIndex index, float threshold) {
+        if (index == null) return recognize(emb, gallery, threshold);
+
+        int best = index.nearest(gallery, emb);
+        if (best < 0) return EmbeddingGallery.UNKNOWN;
+
+        float dist = gallery.squaredDistance(emb, best);
+        return (dist < threshold * threshold) ? gallery.nameAt(best) : EmbeddingGallery.UNKNOWN;
+    }
+
+    public static float l2Distance(float[] a, float[] b) {
+        if (a.length != b.length) throw new IllegalArgumentException("Embedding size mismatch");
+        float sum = 0f;
+        for (int i = 0; i < a.length; i++) {
+            float diff = a[i] - b[i];
+            sum += diff * diff;
+        }
+        return (float) Math.sqrt(sum);
+    }
+}
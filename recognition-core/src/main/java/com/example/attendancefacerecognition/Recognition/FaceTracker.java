@@ -0,0 +1,231 @@
+package com.example.attendancefacerecognition.Recognition;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * SORT-style tracker that follows faces across frames so a person standing still is embedded
+ * once, not on every frame.
+ *
+ * Each {@link Track} carries a constant-velocity alpha-beta filter over its box centre and size.
+ * On {@link #update} every track is first moved to its predicted position, then detections are
+ * assigned greedily by IoU with the prediction, best pair first. A detection that overlaps no
+ * prediction may still join a track whose centre is within {@code maxCentreShift} box sizes, so
+ * fast motion between detector runs does not spawn a new identity. Unassigned detections start
+ * new tracks; tracks missed for more than {@code maxMisses} frames are dropped.
+ *
+ * The tracker itself belongs to one thread (the detector stage). {@link Track#identify} may be
+ * called from another thread, so a track's identity fields are volatile.
+ */
+public final class FaceTracker {
+
+    public static final float DEFAULT_MIN_IOU = 0.3f;
+    public static final float DEFAULT_MAX_CENTRE_SHIFT = 0.5f;
+    public static final int DEFAULT_MAX_MISSES = 5;
+    public static final int DEFAULT_REEMBED_INTERVAL = 15;
+
+    // Alpha-beta gains: how far the state follows a measurement, and how much of the
+    // residual feeds into the velocity
+    private static final float ALPHA = 0.85f;
+    private static final float BETA = 0.3f;
+
+    private final float minIou;
+    private final float maxCentreShift;
+    private final int maxMisses;
+    private final int reembedInterval;
+
+    private final List<Track> tracks = new ArrayList<>();
+    private Track[] assigned = new Track[0]; // track of detection i, from the last update
+    private int nextId = 1;
+
+    public FaceTracker() {
+        this(DEFAULT_MIN_IOU, DEFAULT_MAX_CENTRE_SHIFT, DEFAULT_MAX_MISSES, DEFAULT_REEMBED_INTERVAL);
+    }
+
+    public FaceTracker(float minIou, float maxCentreShift, int maxMisses, int reembedInterval) {
+        if (reembedInterval < 1) throw new IllegalArgumentException("reembedInterval must be >= 1");
+        this.minIou = minIou;
+        this.maxCentreShift = maxCentreShift;
+        this.maxMisses = maxMisses;
+        this.reembedInterval = reembedInterval;
+    }
+
+    /** Live tracks, including ones coasting on their prediction after a miss. */
+    public int trackCount() { return tracks.size(); }
+
+    /**
+     * Advances every track by one frame and associates {@code count} detections with them.
+     * {@code boxes} holds (left, top, right, bottom) per detection in frame pixels. Afterwards
+     * {@link #track(int)} gives the track of each detection, in the same order.
+     */
+    public void update(float[] boxes, int count) {
+        for (Track t : tracks) t.predict();
+
+        if (assigned.length < count) assigned = new Track[count];
+        for (int i = 0; i < count; i++) assigned[i] = null;
+
+        int trackCount = tracks.size();
+        boolean[] taken = new boolean[trackCount];
+        // Greedy assignment, best affinity first; n and m are a handful of faces
+        while (true) {
+            float best = 0f;
+            int bestDet = -1;
+            int bestTrack = -1;
+            for (int d = 0; d < count; d++) {
+                if (assigned[d] != null) continue;
+                for (int t = 0; t < trackCount; t++) {
+                    if (taken[t]) continue;
+                    float a = affinity(tracks.get(t), boxes, d * 4);
+                    if (a > best) {
+                        best = a;
+                        bestDet = d;
+                        bestTrack = t;
+                    }
+                }
+            }
+            if (bestDet < 0) break;
+            Track t = tracks.get(bestTrack);
+            t.correct(boxes, bestDet * 4);
+            assigned[bestDet] = t;
+            taken[bestTrack] = true;
+        }
+
+        for (int t = trackCount - 1; t >= 0; t--) {
+            if (!taken[t] && ++tracks.get(t).misses > maxMisses) tracks.remove(t);
+        }
+        for (int d = 0; d < count; d++) {
+            if (assigned[d] != null) continue;
+            Track t = new Track(nextId++, reembedInterval, boxes, d * 4);
+            tracks.add(t);
+            assigned[d] = t;
+        }
+    }
+
+    /** Track assigned to detection {@code i} by the last {@link #update}. */
+    public Track track(int i) { return assigned[i]; }
+
+    public void clear() {
+        tracks.clear();
+    }
+
+    // IoU with the prediction; below minIou, a smaller affinity for nearby centres
+    private float affinity(Track t, float[] boxes, int o) {
+        float l = boxes[o], top = boxes[o + 1], r = boxes[o + 2], b = boxes[o + 3];
+        float iou = iou(t.left(), t.top(), t.right(), t.bottom(), l, top, r, b);
+        if (iou >= minIou) return iou;
+
+        float dx = (l + r) * 0.5f - t.cx;
+        float dy = (top + b) * 0.5f - t.cy;
+        float size = Math.max(t.w, t.h);
+        if (size <= 0f) return 0f;
+        float shift = (float) Math.sqrt(dx * dx + dy * dy) / size;
+        return shift < maxCentreShift ? minIou * (1f - shift / maxCentreShift) : 0f;
+    }
+
+    static float iou(float l0, float t0, float r0, float b0, float l1, float t1, float r1, float b1) {
+        float w = Math.min(r0, r1) - Math.max(l0, l1);
+        float h = Math.min(b0, b1) - Math.max(t0, t1);
+        if (w <= 0f || h <= 0f) return 0f;
+        float inter = w * h;
+        float union = (r0 - l0) * (b0 - t0) + (r1 - l1) * (b1 - t1) - inter;
+        return union <= 0f ? 0f : inter / union;
+    }
+
+    /**
+     * One tracked face. Geometry is the filtered state and is only touched by the tracker's
+     * thread; the identity is set by whoever embedded and matched the face.
+     */
+    public static final class Track {
+
+        private final int id;
+        private final int reembedInterval;
+        float cx, cy, w, h;
+        private float vx, vy, vw, vh;
+        int misses;
+        private int age;
+
+        private volatile String name;
+        private volatile boolean confident;
+        private volatile boolean pending;
+        private volatile int sinceEmbed;
+
+        Track(int id, int reembedInterval, float[] boxes, int o) {
+            this.id = id;
+            this.reembedInterval = reembedInterval;
+            this.cx = (boxes[o] + boxes[o + 2]) * 0.5f;
+            this.cy = (boxes[o + 1] + boxes[o + 3]) * 0.5f;
+            this.w = boxes[o + 2] - boxes[o];
+            this.h = boxes[o + 3] - boxes[o + 1];
+        }
+
+        public int id() { return id; }
+
+        /** Frames since the track was created. */
+        public int age() { return age; }
+
+        public float left() { return cx - w * 0.5f; }
+
+        public float top() { return cy - h * 0.5f; }
+
+        public float right() { return cx + w * 0.5f; }
+
+        public float bottom() { return cy + h * 0.5f; }
+
+        public float velocityX() { return vx; }
+
+        public float velocityY() { return vy; }
+
+        /** Last identity matched for this track, or null before the first match. */
+        public String name() { return name; }
+
+        public boolean isConfident() { return confident; }
+
+        /**
+         * True when the face should go through FaceNet this frame: the track is new, its last
+         * match was not confident, or {@code reembedInterval} frames have passed. A result that
+         * never arrives (its frame was dropped) is retried after the same interval.
+         */
+        public boolean needsEmbedding() {
+            if (pending) return sinceEmbed >= reembedInterval;
+            return name == null || !confident || sinceEmbed >= reembedInterval;
+        }
+
+        /** Records that an embedding for this track has been scheduled. */
+        public void markEmbedding() {
+            pending = true;
+            sinceEmbed = 0;
+        }
+
+        /** Stores the identity matched for the latest embedding of this track. */
+        public void identify(String name, boolean confident) {
+            this.name = name;
+            this.confident = confident;
+            this.pending = false;
+        }
+
+        void predict() {
+            cx += vx;
+            cy += vy;
+            w = Math.max(1f, w + vw);
+            h = Math.max(1f, h + vh);
+            age++;
+            sinceEmbed++;
+        }
+
+        void correct(float[] boxes, int o) {
+            float rx = (boxes[o] + boxes[o + 2]) * 0.5f - cx;
+            float ry = (boxes[o + 1] + boxes[o + 3]) * 0.5f - cy;
+            float rw = (boxes[o + 2] - boxes[o]) - w;
+            float rh = (boxes[o + 3] - boxes[o + 1]) - h;
+            cx += ALPHA * rx;
+            cy += ALPHA * ry;
+            w += ALPHA * rw;
+            h += ALPHA * rh;
+            vx += BETA * rx;
+            vy += BETA * ry;
+            vw += BETA * rw;
+            vh += BETA * rh;
+            misses = 0;
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.attendancefacerecognition.Recognition;
+
+/**
+ * Scores a normalized query against an {@link EmbeddingGallery} by dot product.
+ */
+public interface GalleryMatcher {
+
+    EmbeddingGallery gallery();
+
+    /** Clears and fills {@code out} with the best identities for {@code query}. */
+    MatchResult match(float[] query, MatchResult out);
+}
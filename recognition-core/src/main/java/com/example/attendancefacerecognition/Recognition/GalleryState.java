@@ -0,0 +1,107 @@
+package com.example.attendancefacerecognition.Recognition;
+
+import java.nio.FloatBuffer;
+
+/**
+ * Everything matching needs for one gallery snapshot: an exact matcher, and optionally an ANN
+ * index or a quantized copy to search instead. Built off the camera path and never changed, so
+ * a frame matched during a swap sees either the old gallery or the new one.
+ *
+ * {@link #recognize} picks the path: the quantized gallery (re-ranked in float) if there is
+ * one, else the index, else the matcher. Only the matcher keeps scores, so only that path can
+ * tell a confident match from a merely known one.
+ */
+public final class GalleryState {
+
+    /** Snapshot the state was built from; null when it was not built from a store. */
+    public final GalleryStore.Snapshot snapshot;
+    public final EmbeddingGallery gallery;
+    public final GalleryMatcher matcher;
+    /** ANN index over {@link #gallery}, or null for the exact scan. */
+    public final HnswIndex index;
+    /** Compressed gallery, or null; {@link #exactRows} re-scores its top candidates in float. */
+    public final QuantizedGallery quantized;
+    public final FloatBuffer exactRows;
+
+    private GalleryState(GalleryStore.Snapshot snapshot, GalleryMatcher matcher, HnswIndex index,
+                         QuantizedGallery quantized, FloatBuffer exactRows) {
+        this.snapshot = snapshot;
+        this.gallery = matcher.gallery();
+        this.matcher = matcher;
+        this.index = index;
+        this.quantized = quantized;
+        this.exactRows = exactRows;
+    }
+
+    /** Exact scan through {@code matcher}. */
+    public static GalleryState of(GalleryMatcher matcher) {
+        return new GalleryState(null, matcher, null, null, null);
+    }
+
+    /** Exact scan over an empty gallery of {@code dimension}-d embeddings. */
+    public static GalleryState empty(int dimension) {
+        return of(new EmbeddingMatcher(EmbeddingGallery.empty(dimension)));
+    }
+
+    /**
+     * State for {@code gallery} (the rows of {@code snapshot}, which may be null). With a
+     * quantization {@code mode} other than NONE the quantized copy is searched; otherwise
+     * large galleries are sharded across cores, and below that the centroid pre-filter pays off
+     * once identities have several samples each. When the snapshot only adds identities to
+     * {@code previous}'s, the centroid sums catch up on the new rows; a sharded matcher keeps
+     * its predecessor's pool.
+     */
+    public static GalleryState build(GalleryStore.Snapshot snapshot, EmbeddingGallery gallery,
+                                     GalleryState previous, QuantizedGallery.Mode mode) {
+        if (mode != QuantizedGallery.Mode.NONE) {
+            return new GalleryState(snapshot, new EmbeddingMatcher(gallery), null, mode.build(gallery),
+                    FloatBuffer.wrap(gallery.rawData()).asReadOnlyBuffer());
+        }
+        boolean appended = previous != null && snapshot != null && previous.snapshot != null
+                && snapshot.isAppendOf(previous.snapshot);
+        GalleryMatcher matcher;
+        if (previous != null && previous.matcher instanceof ParallelMatcher) {
+            matcher = ((ParallelMatcher) previous.matcher).withGallery(gallery);
+        } else if (gallery.size() >= ParallelMatcher.DEFAULT_MIN_PARALLEL_ROWS) {
+            matcher = new ParallelMatcher(gallery);
+        } else if (gallery.size() >= 2 * gallery.identityCount()) {
+            matcher = appended && previous.matcher instanceof CentroidMatcher
+                    ? ((CentroidMatcher) previous.matcher).extend(gallery)
+                    : new CentroidMatcher(gallery);
+        } else {
+            matcher = new EmbeddingMatcher(gallery);
+        }
+        return new GalleryState(snapshot, matcher, null, null, null);
+    }
+
+    /** This state searching through {@code index} (built over {@link #gallery}); null for the exact scan. */
+    public GalleryState withIndex(HnswIndex index) {
+        return new GalleryState(snapshot, matcher, index, quantized, exactRows);
+    }
+
+    /**
+     * Name for {@code embedding}, or {@link EmbeddingGallery#UNKNOWN} beyond
+     * {@code threshold} (L2 distance). On the matcher path {@code out} holds the ranking.
+     */
+    public String recognize(float[] embedding, float threshold, int rerankK, MatchResult out) {
+        if (quantized != null) return FaceRecognizer.recognize(embedding, quantized, exactRows, rerankK, threshold);
+        if (index != null) return FaceRecognizer.recognize(embedding, gallery, index, threshold);
+        matcher.match(embedding, out);
+        return out.nameOrUnknown(EmbeddingMatcher.scoreForDistance(threshold));
+    }
+
+    /**
+     * Whether {@code name}, just returned by {@link #recognize} with {@code out}, lies within
+     * {@code confidentDistance}; known names from the index and quantized paths always count.
+     */
+    public boolean isConfident(String name, float confidentDistance, MatchResult out) {
+        if (EmbeddingGallery.UNKNOWN.equals(name)) return false;
+        if (quantized != null || index != null) return true;
+        return out.bestScore() >= EmbeddingMatcher.scoreForDistance(confidentDistance);
+    }
+
+    /** Shuts down a sharded matcher's pool, which its successors from {@link #build} share. */
+    public void close() {
+        if (matcher instanceof ParallelMatcher) ((ParallelMatcher) matcher).close();
+    }
+}
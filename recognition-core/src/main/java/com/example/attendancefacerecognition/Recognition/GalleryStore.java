@@ -0,0 +1,675 @@
+package com.example.attendancefacerecognition.Recognition;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Enrolled identities under stable ids, kept as an append-only change log.
+ *
+ * <pre>
+ * header (64 bytes)                    record
+ * offset  size  field                  offset  size  field
+ * 0       4     magic "FGAL"           0       4     body length n
+ * 4       4     format version         4       4     CRC32 of the body
+ * 8       4     dimension              8       1     op: 1 = put, 2 = delete
+ * 12      4     next identity id       9       4     identity id
+ * 16      32    model id, UTF-8        13      4     name length in bytes
+ * 48      16    reserved               17      4     row count
+ *                                      21      ...   name, UTF-8, then the rows
+ * </pre>
+ *
+ * All fields are little-endian. A put adds an identity or replaces its name and rows; a delete
+ * is a tombstone. Each change is one record written at the end of the file and made durable
+ * with one {@code force}, so an enrolment costs its own rows whatever the size of the gallery.
+ * On {@link #open} the log is replayed and truncated at the first record that is incomplete or
+ * fails its CRC, which is what a crash mid-write leaves behind. Ids are never reused.
+ *
+ * Replaced rows and tombstones stay in the file until it is compacted: once they outweigh the
+ * live records and {@code minGarbageBytes}, a background thread rewrites the live identities to
+ * a new file, copies over whatever was appended meanwhile and renames it into place.
+ *
+ * Readers work on an immutable {@link Snapshot}. Every change publishes a new one, copying the
+ * identity list but sharing the rows, and notifies the {@link Listener}s, so a running matcher
+ * can move to the new gallery without a restart. A file has one store, and so one writer.
+ */
+public final class GalleryStore implements Closeable {
+
+    public static final int MAGIC = 0x4C414746; // "FGAL" read little-endian
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 64;
+    public static final long DEFAULT_MIN_GARBAGE_BYTES = 256 * 1024;
+
+    private static final byte OP_PUT = 1;
+    private static final byte OP_DELETE = 2;
+    private static final int RECORD_HEADER = 8;
+    private static final int BODY_HEADER = 13;
+    private static final int OFFSET_NEXT_ID = 12;
+    private static final int OFFSET_MODEL_ID = 16;
+    private static final int MODEL_ID_LENGTH = 32;
+    private static final int FIRST_ID = 1;
+
+    /** Told about every change, in order. */
+    public interface Listener {
+        /**
+         * Called on the writing thread, under the store's lock, once the change is durable. Hand
+         * the snapshot off rather than doing slow work here, and never write back to the store.
+         */
+        void onGalleryChanged(Snapshot snapshot);
+    }
+
+    /** One enrolled person: a stable id, a display name and one or more rows. */
+    public static final class Identity {
+        public final int id;
+        public final String name;
+        private final float[] rows; // row-major, dimension floats each
+        private final int dimension;
+        private final int recordBytes;
+
+        Identity(int id, String name, float[] rows, int dimension, int recordBytes) {
+            this.id = id;
+            this.name = name;
+            this.rows = rows;
+            this.dimension = dimension;
+            this.recordBytes = recordBytes;
+        }
+
+        public int rowCount() { return rows.length / dimension; }
+
+        /** Copy of row {@code i}. */
+        public float[] row(int i) {
+            float[] out = new float[dimension];
+            System.arraycopy(rows, i * dimension, out, 0, dimension);
+            return out;
+        }
+    }
+
+    /** The identities as of one change. Immutable; safe to share between threads. */
+    public static final class Snapshot {
+        /** Changes applied since the store was opened. */
+        public final long version;
+
+        private final GalleryStore store;
+        private final long generation; // replacements and deletions since the store was opened
+        private final int dimension;
+        private final List<Identity> identities;
+        private final int rowCount;
+        private volatile EmbeddingGallery gallery;
+
+        Snapshot(GalleryStore store, long version, long generation, int dimension, List<Identity> identities) {
+            this.store = store;
+            this.version = version;
+            this.generation = generation;
+            this.dimension = dimension;
+            this.identities = Collections.unmodifiableList(identities);
+            int rows = 0;
+            for (Identity identity : identities) rows += identity.rowCount();
+            this.rowCount = rows;
+        }
+
+        /** Live identities in enrolment order. */
+        public List<Identity> identities() { return identities; }
+
+        public int rowCount() { return rowCount; }
+
+        /** The live identity with {@code id}, or null. */
+        public Identity find(int id) {
+            for (Identity identity : identities) if (identity.id == id) return identity;
+            return null;
+        }
+
+        /**
+         * Matching view: every row, identity after identity, with identities of the same name
+         * merged as {@link EmbeddingGallery#fromRows} merges them. Built on first use.
+         */
+        public EmbeddingGallery gallery() {
+            EmbeddingGallery built = gallery;
+            if (built == null) { // two threads may both build it; either copy is correct
+                List<String> names = new ArrayList<>(identities.size());
+                List<float[]> blocks = new ArrayList<>(identities.size());
+                for (Identity identity : identities) {
+                    names.add(identity.name);
+                    blocks.add(identity.rows);
+                }
+                built = EmbeddingGallery.fromBlocks(dimension, names, blocks);
+                gallery = built;
+            }
+            return built;
+        }
+
+        /**
+         * True if this snapshot only adds identities to {@code older}, so its gallery starts with
+         * every row of the older gallery in the same place and row-keyed structures
+         * ({@link CentroidMatcher#extend}, {@link HnswIndex#addAll}) can catch up incrementally.
+         */
+        public boolean isAppendOf(Snapshot older) {
+            return older != null && older.store == store && older.generation == generation && older.version <= version;
+        }
+    }
+
+    private final File file;
+    private final int dimension;
+    private final String modelId;
+    private final long minGarbageBytes;
+    private final Object lock = new Object();
+    private final Object compactLock = new Object();
+    private final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final ExecutorService compactor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "gallery-compactor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Under lock
+    private final LinkedHashMap<Integer, Identity> live = new LinkedHashMap<>();
+    private RandomAccessFile raf;
+    private long end;
+    private int nextId = FIRST_ID;
+    private long liveBytes;
+    private long garbageBytes;
+    private long version;
+    private long generation;
+    private long compactions;
+    private boolean compacting;
+    private boolean closed;
+
+    private volatile Snapshot snapshot;
+
+    /** Test hook: runs in {@link #compact} after the live identities are written, before the tail is copied. */
+    volatile Runnable compactHook;
+
+    private GalleryStore(File file, int dimension, String modelId, long minGarbageBytes) {
+        this.file = file;
+        this.dimension = dimension;
+        this.modelId = modelId;
+        this.minGarbageBytes = minGarbageBytes;
+    }
+
+    // ========================================
+    // Open / recover
+    // ========================================
+
+    public static GalleryStore open(File file, int dimension, String modelId) throws IOException {
+        return open(file, dimension, modelId, DEFAULT_MIN_GARBAGE_BYTES);
+    }
+
+    /**
+     * Opens or creates the log at {@code file} and replays it, truncating a torn tail.
+     *
+     * @param minGarbageBytes replaced and deleted bytes below which the log is never compacted
+     * @throws IOException if the file belongs to a different dimension or model
+     */
+    public static GalleryStore open(File file, int dimension, String modelId, long minGarbageBytes) throws IOException {
+        if (!file.exists() || file.length() < HEADER_SIZE) writeHeader(file, dimension, modelId, FIRST_ID);
+
+        GalleryStore store = new GalleryStore(file, dimension, modelId, minGarbageBytes);
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            store.replay(raf.getChannel());
+        } catch (IOException | RuntimeException e) {
+            raf.close();
+            store.compactor.shutdown();
+            throw e;
+        }
+        synchronized (store.lock) {
+            store.raf = raf;
+            store.snapshot = store.newSnapshot();
+        }
+        return store;
+    }
+
+    private void replay(FileChannel channel) throws IOException {
+        long size = channel.size();
+        MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        data.order(ByteOrder.LITTLE_ENDIAN);
+
+        int magic = data.getInt(0);
+        int fileVersion = data.getInt(4);
+        int dim = data.getInt(8);
+        byte[] id = new byte[MODEL_ID_LENGTH];
+        data.position(OFFSET_MODEL_ID);
+        data.get(id);
+        String storedModel = decodeModelId(id);
+
+        if (magic != MAGIC) throw new IOException("Not a gallery log: " + file);
+        if (fileVersion > VERSION) throw new IOException("Unsupported gallery log version " + fileVersion);
+        if (dim != dimension) throw new IOException("Embedding dimension mismatch: file " + dim + ", expected " + dimension);
+        if (!storedModel.equals(modelId)) throw new IOException("Embedding model mismatch: file " + storedModel + ", expected " + modelId);
+
+        synchronized (lock) {
+            nextId = Math.max(FIRST_ID, data.getInt(OFFSET_NEXT_ID));
+            long position = HEADER_SIZE;
+            CRC32 crc = new CRC32();
+            byte[] body = new byte[256];
+            while (size - position >= RECORD_HEADER) {
+                int length = data.getInt((int) position);
+                if (length < BODY_HEADER || length > size - position - RECORD_HEADER) break;
+                if (body.length < length) body = new byte[Math.max(length, body.length * 2)];
+                data.position((int) position + RECORD_HEADER);
+                data.get(body, 0, length);
+                crc.reset();
+                crc.update(body, 0, length);
+                if ((int) crc.getValue() != data.getInt((int) position + 4)) break;
+                if (!apply(ByteBuffer.wrap(body, 0, length).order(ByteOrder.LITTLE_ENDIAN), RECORD_HEADER + length)) break;
+                position += RECORD_HEADER + length;
+            }
+            if (size != position) {
+                channel.truncate(position);
+                channel.force(true);
+            }
+            end = position;
+        }
+    }
+
+    // Applies one replayed record; false if it is malformed, which ends the replay there
+    private boolean apply(ByteBuffer body, int recordBytes) {
+        byte op = body.get(0);
+        int id = body.getInt(1);
+        int nameLength = body.getInt(5);
+        int rowCount = body.getInt(9);
+        if (nameLength < 0 || rowCount < 0) return false;
+        if (BODY_HEADER + nameLength + (long) rowCount * dimension * 4 != body.limit()) return false;
+
+        if (op == OP_DELETE) {
+            applyDelete(id, recordBytes);
+            return true;
+        }
+        if (op != OP_PUT || rowCount == 0) return false;
+        String name = new String(body.array(), BODY_HEADER, nameLength, StandardCharsets.UTF_8);
+        float[] rows = new float[rowCount * dimension];
+        body.position(BODY_HEADER + nameLength);
+        body.asFloatBuffer().get(rows);
+        applyPut(new Identity(id, name, rows, dimension, recordBytes));
+        return true;
+    }
+
+    private static void writeHeader(File file, int dimension, String modelId, int nextId) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(0);
+            raf.getChannel().write(header(dimension, modelId, nextId), 0);
+            raf.getChannel().force(true);
+        }
+    }
+
+    private static ByteBuffer header(int dimension, String modelId, int nextId) {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(0, MAGIC);
+        header.putInt(4, VERSION);
+        header.putInt(8, dimension);
+        header.putInt(OFFSET_NEXT_ID, nextId);
+        byte[] raw = modelId.getBytes(StandardCharsets.UTF_8);
+        header.position(OFFSET_MODEL_ID);
+        header.put(raw, 0, Math.min(raw.length, MODEL_ID_LENGTH));
+        header.clear();
+        return header;
+    }
+
+    private static String decodeModelId(byte[] raw) {
+        int len = 0;
+        while (len < raw.length && raw[len] != 0) len++;
+        return new String(raw, 0, len, StandardCharsets.UTF_8);
+    }
+
+    // ========================================
+    // Accessors
+    // ========================================
+    public File file() { return file; }
+
+    public int dimension() { return dimension; }
+
+    public String modelId() { return modelId; }
+
+    /** The current identities; never null. */
+    public Snapshot snapshot() { return snapshot; }
+
+    public void addListener(Listener listener) { listeners.add(listener); }
+
+    public void removeListener(Listener listener) { listeners.remove(listener); }
+
+    /** Bytes of replaced and deleted records that compaction would reclaim. */
+    public long garbageBytes() {
+        synchronized (lock) {
+            return garbageBytes;
+        }
+    }
+
+    /** Compactions finished since the store was opened. */
+    public long compactions() {
+        synchronized (lock) {
+            return compactions;
+        }
+    }
+
+    public String stats() {
+        synchronized (lock) {
+            return String.format(Locale.US, "gallery: %d identities, %d rows, %d bytes live, %d garbage, %d compactions",
+                    live.size(), snapshot.rowCount(), liveBytes, garbageBytes, compactions);
+        }
+    }
+
+    // ========================================
+    // Change
+    // ========================================
+
+    /**
+     * Enrols {@code rows} under a new identity and returns its id. Rows of the wrong dimension
+     * are skipped.
+     *
+     * @throws IllegalArgumentException if no row has the store's dimension
+     */
+    public int add(String name, List<float[]> rows) throws IOException {
+        float[] flat = flatten(rows);
+        byte[] encodedName = encodeName(name);
+        synchronized (lock) {
+            checkOpen();
+            int id = nextId;
+            int bytes = append(OP_PUT, id, encodedName, flat);
+            applyPut(new Identity(id, name, flat, dimension, bytes));
+            publish();
+            return id;
+        }
+    }
+
+    /**
+     * Enrols each of {@code names} with the rows at the same index in {@code rows}, as
+     * {@link #add} would one by one, but made durable with a single {@code force} and published
+     * as one change. Returns the new ids in order; if the write fails, none of them is enrolled.
+     *
+     * @throws IllegalArgumentException if the lists differ in length or an identity has no row
+     *                                  of the store's dimension
+     */
+    public int[] addAll(List<String> names, List<List<float[]>> rows) throws IOException {
+        if (names.size() != rows.size()) {
+            throw new IllegalArgumentException(names.size() + " names for " + rows.size() + " identities");
+        }
+        float[][] flat = new float[rows.size()][];
+        byte[][] encodedNames = new byte[names.size()][];
+        for (int i = 0; i < flat.length; i++) {
+            flat[i] = flatten(rows.get(i));
+            encodedNames[i] = encodeName(names.get(i));
+        }
+        synchronized (lock) {
+            checkOpen();
+            int[] ids = new int[flat.length];
+            if (flat.length == 0) return ids;
+            ByteBuffer[] records = new ByteBuffer[flat.length];
+            for (int i = 0; i < flat.length; i++) {
+                ids[i] = nextId + i;
+                records[i] = encode(OP_PUT, ids[i], encodedNames[i], flat[i], flat[i].length / dimension);
+            }
+            int[] bytes = append(records);
+            for (int i = 0; i < flat.length; i++) {
+                applyPut(new Identity(ids[i], names.get(i), flat[i], dimension, bytes[i]));
+            }
+            publish();
+            return ids;
+        }
+    }
+
+    /**
+     * Re-enrols identity {@code id}: its name and rows are replaced, its id and place kept.
+     *
+     * @throws IllegalArgumentException if there is no such identity or no row fits
+     */
+    public void replace(int id, String name, List<float[]> rows) throws IOException {
+        float[] flat = flatten(rows);
+        byte[] encodedName = encodeName(name);
+        synchronized (lock) {
+            checkOpen();
+            if (!live.containsKey(id)) throw new IllegalArgumentException("No identity " + id);
+            int bytes = append(OP_PUT, id, encodedName, flat);
+            applyPut(new Identity(id, name, flat, dimension, bytes));
+            publish();
+        }
+    }
+
+    /** Deletes identity {@code id} with a tombstone; false if there is no such identity. */
+    public boolean delete(int id) throws IOException {
+        synchronized (lock) {
+            checkOpen();
+            if (!live.containsKey(id)) return false;
+            int bytes = append(OP_DELETE, id, new byte[0], new float[0]);
+            applyDelete(id, bytes);
+            publish();
+            return true;
+        }
+    }
+
+    private float[] flatten(List<float[]> rows) {
+        int valid = 0;
+        for (float[] row : rows) if (row != null && row.length == dimension) valid++;
+        if (valid == 0) throw new IllegalArgumentException("No rows of dimension " + dimension);
+
+        float[] flat = new float[valid * dimension];
+        int offset = 0;
+        for (float[] row : rows) {
+            if (row == null || row.length != dimension) continue;
+            System.arraycopy(row, 0, flat, offset, dimension);
+            offset += dimension;
+        }
+        return flat;
+    }
+
+    private static byte[] encodeName(String name) {
+        if (name == null) throw new IllegalArgumentException("No name");
+        return name.getBytes(StandardCharsets.UTF_8);
+    }
+
+    // Writes one record at the end of the log and makes it durable; returns its size
+    private int append(byte op, int id, byte[] name, float[] rows) throws IOException {
+        return append(encode(op, id, name, rows, rows.length / Math.max(1, dimension)))[0];
+    }
+
+    // Writes the records at the end of the log and makes them durable together; returns their sizes
+    private int[] append(ByteBuffer... records) throws IOException {
+        FileChannel channel = raf.getChannel();
+        try {
+            int[] sizes = new int[records.length];
+            long position = end;
+            for (int i = 0; i < records.length; i++) {
+                sizes[i] = (int) writeFully(channel, records[i], position);
+                position += sizes[i];
+            }
+            channel.force(false);
+            end = position;
+            return sizes;
+        } catch (IOException e) {
+            try {
+                channel.truncate(end);
+            } catch (IOException ignored) {
+                // replay drops the partial record
+            }
+            throw e;
+        }
+    }
+
+    private static ByteBuffer encode(byte op, int id, byte[] name, float[] rows, int rowCount) {
+        int length = BODY_HEADER + name.length + rows.length * 4;
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER + length).order(ByteOrder.LITTLE_ENDIAN);
+        record.putInt(length);
+        record.putInt(0); // CRC, filled in below
+        record.put(op);
+        record.putInt(id);
+        record.putInt(name.length);
+        record.putInt(rowCount);
+        record.put(name);
+        record.asFloatBuffer().put(rows);
+        record.position(record.position() + rows.length * 4);
+
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), RECORD_HEADER, length);
+        record.putInt(4, (int) crc.getValue());
+        record.flip();
+        return record;
+    }
+
+    private static long writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        long written = 0;
+        while (buffer.hasRemaining()) written += channel.write(buffer, position + written);
+        return written;
+    }
+
+    private void applyPut(Identity identity) {
+        Identity old = live.put(identity.id, identity);
+        if (old != null) {
+            liveBytes -= old.recordBytes;
+            garbageBytes += old.recordBytes;
+            generation++;
+        }
+        liveBytes += identity.recordBytes;
+        nextId = Math.max(nextId, identity.id + 1);
+        version++;
+    }
+
+    private void applyDelete(int id, int recordBytes) {
+        Identity old = live.remove(id);
+        if (old != null) {
+            liveBytes -= old.recordBytes;
+            garbageBytes += old.recordBytes;
+            generation++;
+        }
+        garbageBytes += recordBytes;
+        nextId = Math.max(nextId, id + 1);
+        version++;
+    }
+
+    private Snapshot newSnapshot() {
+        return new Snapshot(this, version, generation, dimension, new ArrayList<>(live.values()));
+    }
+
+    private void publish() {
+        Snapshot published = newSnapshot();
+        snapshot = published;
+        for (Listener listener : listeners) {
+            try {
+                listener.onGalleryChanged(published);
+            } catch (RuntimeException e) {
+                // the change is durable already; a failing listener must not report it as lost
+            }
+        }
+        maybeCompact();
+    }
+
+    private void maybeCompact() {
+        if (!compacting && garbageBytes >= minGarbageBytes && garbageBytes > liveBytes && !compactor.isShutdown()) {
+            compacting = true;
+            compactor.execute(this::compactInBackground);
+        }
+    }
+
+    private void checkOpen() {
+        if (closed) throw new IllegalStateException("Gallery store is closed");
+    }
+
+    // ========================================
+    // Compaction
+    // ========================================
+
+    /**
+     * Rewrites the log with only the live identities, in order, and returns the bytes reclaimed.
+     * Writers are held up only while the records they appended during the rewrite are copied
+     * over; snapshots are unaffected, since the live identities do not change.
+     */
+    public long compact() throws IOException {
+        synchronized (compactLock) {
+            Snapshot base;
+            long baseEnd;
+            long baseGarbage;
+            int baseNextId;
+            synchronized (lock) {
+                checkOpen();
+                base = snapshot;
+                baseEnd = end;
+                baseGarbage = garbageBytes;
+                baseNextId = nextId;
+            }
+
+            File tmp = new File(file.getPath() + ".tmp");
+            try {
+                try (RandomAccessFile out = new RandomAccessFile(tmp, "rw")) {
+                    FileChannel channel = out.getChannel();
+                    channel.truncate(0);
+                    long position = writeFully(channel, header(dimension, modelId, baseNextId), 0);
+                    for (Identity identity : base.identities) {
+                        position += writeFully(channel,
+                                encode(OP_PUT, identity.id, encodeName(identity.name), identity.rows, identity.rowCount()), position);
+                    }
+                    channel.force(false);
+                    Runnable hook = compactHook;
+                    if (hook != null) hook.run();
+
+                    synchronized (lock) {
+                        checkOpen();
+                        // Changes made during the rewrite follow as they are
+                        FileChannel log = raf.getChannel();
+                        long tail = end - baseEnd;
+                        channel.position(position);
+                        for (long copied = 0; copied < tail; ) {
+                            copied += log.transferTo(baseEnd + copied, tail - copied, channel);
+                        }
+                        channel.force(true);
+                        if (!tmp.renameTo(file)) throw new IOException("Failed to replace " + file);
+
+                        long before = end;
+                        raf.close();
+                        raf = new RandomAccessFile(file, "rw");
+                        end = position + tail;
+                        garbageBytes -= baseGarbage;
+                        compactions++;
+                        return before - end;
+                    }
+                }
+            } finally {
+                tmp.delete();
+            }
+        }
+    }
+
+    // A failed compaction leaves the log as it was; the next change tries again
+    private void compactInBackground() {
+        boolean compacted = false;
+        try {
+            compact();
+            compacted = true;
+        } catch (IOException | IllegalStateException e) {
+            // keep appending to the uncompacted log
+        } finally {
+            synchronized (lock) {
+                compacting = false;
+                if (compacted && !closed) maybeCompact(); // changes made meanwhile may be due already
+            }
+        }
+    }
+
+    /** Lets a running compaction finish, then closes the log. Idempotent. */
+    @Override
+    public void close() throws IOException {
+        compactor.shutdown();
+        try {
+            compactor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (lock) {
+            if (closed) return;
+            closed = true;
+            raf.close();
+        }
+    }
+}
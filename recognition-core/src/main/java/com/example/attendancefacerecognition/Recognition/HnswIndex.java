@@ -0,0 +1,462 @@
+package com.example.attendancefacerecognition.Recognition;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Hierarchical navigable small world graph over the rows of an {@link EmbeddingGallery}.
+ *
+ * The index stores only the graph; vectors are read from the gallery it was built over, so
+ * node {@code i} is always gallery row {@code i}. Rows are inserted in order, which lets the
+ * index catch up after an enrolment by inserting only the new rows; a re-enrolment or deletion
+ * moves rows, so {@link FaceDatabase} drops the persisted index first.
+ *
+ * {@code m} bounds the links per node (twice that on the bottom layer), {@code efConstruction}
+ * the candidate list while inserting and {@code efSearch} the candidate list while querying.
+ * Raising either ef trades latency for recall.
+ */
+public final class HnswIndex {
+
+    public static final int DEFAULT_M = 16;
+    public static final int DEFAULT_EF_CONSTRUCTION = 200;
+    public static final int DEFAULT_EF_SEARCH = 64;
+
+    private static final int MAGIC = 0x57534E48; // "HNSW" read little-endian
+    private static final int VERSION = 1;
+
+    private final int dimension;
+    private final int m;
+    private final int maxM0;
+    private final int efConstruction;
+    private final double levelMultiplier;
+    private final Random random;
+    private int efSearch = DEFAULT_EF_SEARCH;
+
+    // links[node][level] = {count, n0, n1, ...}
+    private int[][][] links = new int[16][][];
+    private int size;
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+
+    private final ThreadLocal<SearchState> searchState = new ThreadLocal<>();
+
+    public HnswIndex(int dimension) {
+        this(dimension, DEFAULT_M, DEFAULT_EF_CONSTRUCTION, 42L);
+    }
+
+    public HnswIndex(int dimension, int m, int efConstruction, long seed) {
+        if (m < 2) throw new IllegalArgumentException("m must be at least 2");
+        this.dimension = dimension;
+        this.m = m;
+        this.maxM0 = m * 2;
+        this.efConstruction = Math.max(efConstruction, m);
+        this.levelMultiplier = 1.0 / Math.log(m);
+        this.random = new Random(seed);
+    }
+
+    public int dimension() { return dimension; }
+
+    public int size() { return size; }
+
+    public int m() { return m; }
+
+    public int efConstruction() { return efConstruction; }
+
+    public int efSearch() { return efSearch; }
+
+    public void setEfSearch(int efSearch) { this.efSearch = Math.max(1, efSearch); }
+
+    // ========================================
+    // Insert
+    // ========================================
+
+    /** Inserts every gallery row the index has not seen yet. */
+    public void addAll(EmbeddingGallery gallery) {
+        checkGallery(gallery);
+        while (size < gallery.size()) add(gallery, size);
+    }
+
+    /** Inserts gallery row {@code row}, which must be the next row after the last one inserted. */
+    public void add(EmbeddingGallery gallery, int row) {
+        checkGallery(gallery);
+        if (row != size) throw new IllegalArgumentException("Rows must be inserted in order, expected " + size);
+
+        float[] data = gallery.rawData();
+        int offset = gallery.offsetOf(row);
+        int level = randomLevel();
+        ensureCapacity(row + 1);
+
+        int[][] nodeLinks = new int[level + 1][];
+        for (int l = 0; l <= level; l++) nodeLinks[l] = new int[1 + (l == 0 ? maxM0 : m)];
+        links[row] = nodeLinks;
+        size++;
+
+        if (entryPoint < 0) {
+            entryPoint = row;
+            maxLevel = level;
+            return;
+        }
+
+        SearchState state = state();
+        int ep = entryPoint;
+        for (int l = maxLevel; l > level; l--) ep = greedyClosest(data, offset, data, ep, l);
+
+        for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+            NodeHeap candidates = searchLayer(data, offset, data, ep, efConstruction, l, state);
+            int[] selected = selectNeighbors(data, candidates, m, state);
+            int[] own = nodeLinks[l];
+            for (int n : selected) {
+                own[++own[0]] = n;
+                connect(data, n, row, l);
+            }
+            ep = selected[0]; // closest first
+        }
+
+        if (level > maxLevel) {
+            maxLevel = level;
+            entryPoint = row;
+        }
+    }
+
+    private void connect(float[] data, int node, int newNeighbor, int level) {
+        int[] list = links[node][level];
+        int max = level == 0 ? maxM0 : m;
+        if (list[0] < max) {
+            list[++list[0]] = newNeighbor;
+            return;
+        }
+
+        // Full: re-select among the existing links plus the new one.
+        NodeHeap candidates = new NodeHeap(max + 1, false);
+        int base = node * dimension;
+        for (int i = 1; i <= list[0]; i++) candidates.push(distance(data, base, data, list[i] * dimension), list[i]);
+        candidates.push(distance(data, base, data, newNeighbor * dimension), newNeighbor);
+        int[] kept = selectNeighbors(data, candidates, max, state());
+        list[0] = kept.length;
+        System.arraycopy(kept, 0, list, 1, kept.length);
+    }
+
+    /**
+     * Neighbour selection heuristic from the HNSW paper: keep a candidate only if it is closer to
+     * the new node than to every neighbour already kept, so links spread across directions.
+     */
+    private int[] selectNeighbors(float[] data, NodeHeap candidates, int max, SearchState state) {
+        int n = candidates.size();
+        int[] ids = state.sortIds(n);
+        float[] dists = state.sortDists(n);
+        candidates.drainAscending(ids, dists);
+
+        int[] kept = new int[Math.min(max, n)];
+        int count = 0;
+        for (int i = 0; i < n && count < max; i++) {
+            int candidate = ids[i];
+            boolean good = true;
+            for (int j = 0; j < count; j++) {
+                if (distance(data, candidate * dimension, data, kept[j] * dimension) < dists[i]) {
+                    good = false;
+                    break;
+                }
+            }
+            if (good) kept[count++] = candidate;
+        }
+        return count == kept.length ? kept : Arrays.copyOf(kept, count);
+    }
+
+    private int randomLevel() {
+        double r = random.nextDouble();
+        return (int) (-Math.log(Math.max(r, 1e-12)) * levelMultiplier);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > links.length) links = Arrays.copyOf(links, Math.max(capacity, links.length * 2));
+    }
+
+    // ========================================
+    // Search
+    // ========================================
+
+    /** Closest gallery row to {@code query}, or -1 if the index is empty. */
+    public int nearest(EmbeddingGallery gallery, float[] query) {
+        int[] result = search(gallery, query, 1);
+        return result.length == 0 ? -1 : result[0];
+    }
+
+    /** Up to {@code k} gallery rows ordered by ascending L2 distance to {@code query}. */
+    public int[] search(EmbeddingGallery gallery, float[] query, int k) {
+        checkGallery(gallery);
+        if (entryPoint < 0 || query.length != dimension) return new int[0];
+
+        SearchState state = state();
+        float[] data = gallery.rawData();
+
+        int ep = entryPoint;
+        for (int l = maxLevel; l > 0; l--) ep = greedyClosest(query, 0, data, ep, l);
+
+        NodeHeap found = searchLayer(query, 0, data, ep, Math.max(efSearch, k), 0, state);
+        int n = found.size();
+        int[] ids = state.sortIds(n);
+        float[] dists = state.sortDists(n);
+        found.drainAscending(ids, dists);
+        return Arrays.copyOf(ids, Math.min(k, n));
+    }
+
+    private int greedyClosest(float[] query, int queryOffset, float[] data, int ep, int level) {
+        float best = distance(query, queryOffset, data, ep * dimension);
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            int[] list = links[ep][level];
+            for (int i = 1; i <= list[0]; i++) {
+                float d = distance(query, queryOffset, data, list[i] * dimension);
+                if (d < best) {
+                    best = d;
+                    ep = list[i];
+                    changed = true;
+                }
+            }
+        }
+        return ep;
+    }
+
+    /** Beam search on one layer. Returns a max-heap of the {@code ef} closest nodes found. */
+    private NodeHeap searchLayer(float[] query, int queryOffset, float[] data, int ep, int ef, int level, SearchState state) {
+        int stamp = state.nextStamp(size);
+        int[] visited = state.visited;
+
+        NodeHeap candidates = new NodeHeap(ef * 2, true);
+        NodeHeap results = new NodeHeap(ef + 1, false);
+
+        float d = distance(query, queryOffset, data, ep * dimension);
+        visited[ep] = stamp;
+        candidates.push(d, ep);
+        results.push(d, ep);
+
+        while (candidates.size() > 0) {
+            float cd = candidates.topDistance();
+            if (cd > results.topDistance() && results.size() >= ef) break;
+            int c = candidates.pop();
+
+            int[] list = links[c][level];
+            for (int i = 1; i <= list[0]; i++) {
+                int n = list[i];
+                if (visited[n] == stamp) continue;
+                visited[n] = stamp;
+
+                float nd = distance(query, queryOffset, data, n * dimension);
+                if (results.size() < ef || nd < results.topDistance()) {
+                    candidates.push(nd, n);
+                    results.push(nd, n);
+                    if (results.size() > ef) results.pop();
+                }
+            }
+        }
+        return results;
+    }
+
+    private float distance(float[] a, int aOffset, float[] b, int bOffset) {
+        float sum = 0f;
+        for (int i = 0; i < dimension; i++) {
+            float diff = a[aOffset + i] - b[bOffset + i];
+            sum += diff * diff;
+        }
+        return sum;
+    }
+
+    private void checkGallery(EmbeddingGallery gallery) {
+        if (gallery.dimension() != dimension) {
+            throw new IllegalArgumentException("Gallery dimension " + gallery.dimension() + " does not match index " + dimension);
+        }
+        if (gallery.size() < size) {
+            throw new IllegalArgumentException("Gallery has " + gallery.size() + " rows, index has " + size);
+        }
+    }
+
+    private SearchState state() {
+        SearchState s = searchState.get();
+        if (s == null) {
+            s = new SearchState();
+            searchState.set(s);
+        }
+        return s;
+    }
+
+    // ========================================
+    // Persistence
+    // ========================================
+    public void save(File file) throws IOException {
+        File tmp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(dimension);
+            out.writeInt(m);
+            out.writeInt(efConstruction);
+            out.writeInt(efSearch);
+            out.writeInt(size);
+            out.writeInt(entryPoint);
+            out.writeInt(maxLevel);
+            for (int node = 0; node < size; node++) {
+                int[][] nodeLinks = links[node];
+                out.writeByte(nodeLinks.length - 1);
+                for (int[] list : nodeLinks) {
+                    out.writeShort(list[0]);
+                    for (int i = 1; i <= list[0]; i++) out.writeInt(list[i]);
+                }
+            }
+        }
+        if (!tmp.renameTo(file)) throw new IOException("Failed to replace " + file);
+    }
+
+    public static HnswIndex load(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC) throw new IOException("Not an HNSW index: " + file);
+            int version = in.readInt();
+            if (version > VERSION) throw new IOException("Unsupported HNSW index version " + version);
+
+            int dimension = in.readInt();
+            int m = in.readInt();
+            int efConstruction = in.readInt();
+            int efSearch = in.readInt();
+            int size = in.readInt();
+
+            // Reseed from the size so later inserts do not replay the levels already drawn.
+            HnswIndex index = new HnswIndex(dimension, m, efConstruction, 42L + size);
+            index.efSearch = efSearch;
+            index.entryPoint = in.readInt();
+            index.maxLevel = in.readInt();
+            index.ensureCapacity(size);
+            for (int node = 0; node < size; node++) {
+                int levels = in.readUnsignedByte() + 1;
+                int[][] nodeLinks = new int[levels][];
+                for (int l = 0; l < levels; l++) {
+                    int[] list = new int[1 + (l == 0 ? index.maxM0 : m)];
+                    list[0] = in.readUnsignedShort();
+                    for (int i = 1; i <= list[0]; i++) list[i] = in.readInt();
+                    nodeLinks[l] = list;
+                }
+                index.links[node] = nodeLinks;
+            }
+            index.size = size;
+            return index;
+        }
+    }
+
+    // ========================================
+    // Helpers
+    // ========================================
+
+    /** Per-thread scratch space so concurrent searches do not share visited marks. */
+    private static final class SearchState {
+        int[] visited = new int[0];
+        int stamp;
+        int[] ids = new int[0];
+        float[] dists = new float[0];
+
+        int nextStamp(int size) {
+            if (visited.length < size) {
+                visited = new int[Math.max(size, visited.length * 2)];
+                stamp = 0;
+            }
+            if (++stamp == Integer.MAX_VALUE) {
+                Arrays.fill(visited, 0);
+                stamp = 1;
+            }
+            return stamp;
+        }
+
+        int[] sortIds(int n) {
+            if (ids.length < n) ids = new int[n];
+            return ids;
+        }
+
+        float[] sortDists(int n) {
+            if (dists.length < n) dists = new float[n];
+            return dists;
+        }
+    }
+
+    /** Binary heap of (distance, id) pairs; min-heap or max-heap by distance. */
+    private static final class NodeHeap {
+        private float[] dist;
+        private int[] ids;
+        private int size;
+        private final boolean min;
+
+        NodeHeap(int capacity, boolean min) {
+            this.dist = new float[Math.max(capacity, 4)];
+            this.ids = new int[dist.length];
+            this.min = min;
+        }
+
+        int size() { return size; }
+
+        float topDistance() { return dist[0]; }
+
+        void push(float d, int id) {
+            if (size == dist.length) {
+                dist = Arrays.copyOf(dist, size * 2);
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (!before(d, dist[parent])) break;
+                dist[i] = dist[parent];
+                ids[i] = ids[parent];
+                i = parent;
+            }
+            dist[i] = d;
+            ids[i] = id;
+        }
+
+        int pop() {
+            int top = ids[0];
+            size--;
+            if (size > 0) {
+                float d = dist[size];
+                int id = ids[size];
+                int i = 0;
+                while (true) {
+                    int child = 2 * i + 1;
+                    if (child >= size) break;
+                    if (child + 1 < size && before(dist[child + 1], dist[child])) child++;
+                    if (!before(dist[child], d)) break;
+                    dist[i] = dist[child];
+                    ids[i] = ids[child];
+                    i = child;
+                }
+                dist[i] = d;
+                ids[i] = id;
+            }
+            return top;
+        }
+
+        /** Empties the heap into {@code outIds}/{@code outDists}, closest first. */
+        void drainAscending(int[] outIds, float[] outDists) {
+            int n = size;
+            if (min) {
+                for (int i = 0; i < n; i++) {
+                    outDists[i] = dist[0];
+                    outIds[i] = pop();
+                }
+            } else {
+                for (int i = n - 1; i >= 0; i--) {
+                    outDists[i] = dist[0];
+                    outIds[i] = pop();
+                }
+            }
+        }
+
+        private boolean before(float a, float b) {
+            return min ? a < b : a > b;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.attendancefacerecognition.Recognition;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * CPU execution options for one model: interpreter thread count and the XNNPACK delegate.
+ *
+ * Immutable. {@link #encode()} and {@link #decode} give a compact string for preferences,
+ * e.g. {@code "threads=4;xnnpack=1"}. Strings stored by earlier versions also carry an
+ * {@code fp16} flag; it is accepted and ignored, as FP16 relaxation is no longer tuned.
+ */
+public final class InferenceConfig {
+
+    public static final InferenceConfig DEFAULT = new InferenceConfig(2, true);
+
+    private static final int[] CANDIDATE_THREADS = {1, 2, 4};
+
+    private final int threads;
+    private final boolean xnnpack;
+
+    public InferenceConfig(int threads, boolean xnnpack) {
+        if (threads < 1) throw new IllegalArgumentException("threads must be >= 1");
+        this.threads = threads;
+        this.xnnpack = xnnpack;
+    }
+
+    public int threads() { return threads; }
+
+    public boolean xnnpack() { return xnnpack; }
+
+    public InferenceConfig withThreads(int threads) { return new InferenceConfig(threads, xnnpack); }
+
+    public String encode() {
+        return "threads=" + threads + ";xnnpack=" + (xnnpack ? 1 : 0);
+    }
+
+    /** Parses {@link #encode()} output; returns null for null, empty or malformed input. */
+    public static InferenceConfig decode(String s) {
+        if (s == null || s.isEmpty()) return null;
+        int threads = -1;
+        Boolean xnnpack = null;
+        try {
+            for (String part : s.split(";")) {
+                int eq = part.indexOf('=');
+                if (eq < 0) return null;
+                String key = part.substring(0, eq).trim();
+                int value = Integer.parseInt(part.substring(eq + 1).trim());
+                switch (key) {
+                    case "threads": threads = value; break;
+                    case "xnnpack": xnnpack = value != 0; break;
+                    case "fp16":    break; // written by earlier versions
+                    default: return null;
+                }
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        if (threads < 1 || xnnpack == null) return null;
+        return new InferenceConfig(threads, xnnpack);
+    }
+
+    /**
+     * Configurations worth benchmarking on a device with {@code cores} CPUs: 1, 2 and 4
+     * threads (capped by the core count), each with and without XNNPACK.
+     */
+    public static List<InferenceConfig> candidates(int cores) {
+        List<InferenceConfig> out = new ArrayList<>();
+        for (int t : CANDIDATE_THREADS) {
+            if (t > Math.max(1, cores)) break;
+            out.add(new InferenceConfig(t, false));
+            out.add(new InferenceConfig(t, true));
+        }
+        return out;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof InferenceConfig)) return false;
+        InferenceConfig other = (InferenceConfig) o;
+        return threads == other.threads && xnnpack == other.xnnpack;
+    }
+
+    @Override
+    public int hashCode() {
+        return threads * 31 + (xnnpack ? 1 : 0);
+    }
+
+    @Override
+    public String toString() {
+        return threads + " thread" + (threads == 1 ? "" : "s") + (xnnpack ? ", XNNPACK" : "");
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.attendancefacerecognition.Recognition;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Picks the fastest {@link InferenceConfig} for a model on the device it runs on.
+ *
+ * Each candidate is handed to a {@link Benchmark}, which builds an interpreter with those
+ * options and reports a per-inference time (typically {@link #medianNanos} over a few runs after
+ * warm-up). The candidate with the lowest time wins; a candidate that fails to build, e.g.
+ * because the delegate is unavailable, is skipped. Which configuration is fastest depends on the
+ * core layout and thermal state, so the result is meant to be measured once per device and
+ * persisted, not hard-coded.
+ */
+public final class InferenceTuner {
+
+    /** Per-inference time of a model under one configuration, in nanoseconds. */
+    public interface Benchmark {
+        long nanosPerInference(InferenceConfig config) throws Exception;
+    }
+
+    /** One inference, for {@link #medianNanos}. */
+    public interface Inference {
+        void run() throws Exception;
+    }
+
+    private InferenceTuner() {}
+
+    /** Benchmarks every candidate; throws if none could be measured. */
+    public static Result tune(String model, List<InferenceConfig> candidates, Benchmark benchmark) {
+        List<InferenceConfig> measured = new ArrayList<>();
+        List<Long> nanos = new ArrayList<>();
+        InferenceConfig best = null;
+        long bestNanos = Long.MAX_VALUE;
+        for (InferenceConfig config : candidates) {
+            long t;
+            try {
+                t = benchmark.nanosPerInference(config);
+            } catch (Exception e) {
+                continue;
+            }
+            measured.add(config);
+            nanos.add(t);
+            if (t < bestNanos) {
+                bestNanos = t;
+                best = config;
+            }
+        }
+        if (best == null) throw new IllegalStateException("No configuration of " + model + " could be benchmarked");
+        return new Result(model, best, measured, nanos);
+    }
+
+    /** Runs {@code warmUp} untimed inferences, then the median of {@code runs} timed ones. */
+    public static long medianNanos(Inference inference, int warmUp, int runs) throws Exception {
+        if (runs < 1) throw new IllegalArgumentException("runs must be >= 1");
+        for (int i = 0; i < warmUp; i++) inference.run();
+        long[] times = new long[runs];
+        for (int i = 0; i < runs; i++) {
+            long start = System.nanoTime();
+            inference.run();
+            times[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(times);
+        return times[runs / 2];
+    }
+
+    /** Outcome of {@link #tune}: the winner and every candidate's time. */
+    public static final class Result {
+        public final String model;
+        public final InferenceConfig best;
+        private final List<InferenceConfig> configs;
+        private final List<Long> nanos;
+
+        Result(String model, InferenceConfig best, List<InferenceConfig> configs, List<Long> nanos) {
+            this.model = model;
+            this.best = best;
+            this.configs = Collections.unmodifiableList(configs);
+            this.nanos = Collections.unmodifiableList(nanos);
+        }
+
+        public List<InferenceConfig> configs() { return configs; }
+
+        public long nanos(int i) { return nanos.get(i); }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder(model).append(": best ").append(best);
+            for (int i = 0; i < configs.size(); i++) {
+                sb.append(String.format(Locale.US, "%s[%s] %.1f ms", i == 0 ? "; " : ", ", configs.get(i), nanos.get(i) / 1e6));
+            }
+            return sb.toString();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.attendancefacerecognition.Recognition;
+
+/**
+ * Best {@code k} identities for one query, highest score first, each with its best-scoring row.
+ * Instances are reusable: matchers {@link #reset()} and refill them, so the per-frame path does
+ * not allocate.
+ */
+public final class MatchResult {
+
+    private final int capacity;
+    private final int[] identities;
+    private final String[] names;
+    private final int[] rows;
+    private final float[] scores;
+    private int size;
+
+    public MatchResult(int k) {
+        if (k < 1) throw new IllegalArgumentException("k must be at least 1");
+        this.capacity = k;
+        this.identities = new int[k];
+        this.names = new String[k];
+        this.rows = new int[k];
+        this.scores = new float[k];
+    }
+
+    public int capacity() { return capacity; }
+
+    public int size() { return size; }
+
+    public String name(int rank) { return names[rank]; }
+
+    public int identity(int rank) { return identities[rank]; }
+
+    public int row(int rank) { return rows[rank]; }
+
+    public float score(int rank) { return scores[rank]; }
+
+    public boolean isEmpty() { return size == 0; }
+
+    public String bestName() { return size == 0 ? EmbeddingGallery.UNKNOWN : names[0]; }
+
+    public float bestScore() { return size == 0 ? Float.NEGATIVE_INFINITY : scores[0]; }
+
+    /** Score gap between the best and second-best identity; infinite with fewer than two. */
+    public float margin() {
+        if (size == 0) return 0f;
+        return size == 1 ? Float.POSITIVE_INFINITY : scores[0] - scores[1];
+    }
+
+    /** Best identity if it clears {@code minScore}, as the index and quantized paths decide. */
+    public String nameOrUnknown(float minScore) {
+        return nameOrUnknown(minScore, 0f);
+    }
+
+    /**
+     * Best identity if it clears {@code minScore} and leads the runner-up by {@code minMargin}.
+     * A margin rejects faces that sit between two enrolled people; it needs a result of capacity
+     * two or more, and a value measured on enrolment data before it is turned on.
+     */
+    public String nameOrUnknown(float minScore, float minMargin) {
+        if (size == 0 || scores[0] < minScore || margin() < minMargin) return EmbeddingGallery.UNKNOWN;
+        return names[0];
+    }
+
+    /** Score a candidate must beat to change the result. */
+    public float floor() {
+        return size < capacity ? Float.NEGATIVE_INFINITY : scores[size - 1];
+    }
+
+    public void reset() {
+        for (int i = 0; i < size; i++) names[i] = null;
+        size = 0;
+    }
+
+    /**
+     * Records {@code score} for {@code identity}, keeping one entry per identity (its best row)
+     * and at most {@link #capacity()} entries overall.
+     */
+    public void offer(int identity, String name, int row, float score) {
+        int existing = -1;
+        for (int i = 0; i < size; i++) {
+            if (identities[i] == identity) {
+                existing = i;
+                break;
+            }
+        }
+
+        int i;
+        if (existing >= 0) {
+            if (score <= scores[existing]) return;
+            i = existing;
+        } else if (size < capacity) {
+            i = size++;
+        } else {
+            if (score <= scores[size - 1]) return;
+            i = size - 1;
+        }
+
+        // Bubble towards the front; ties keep the earlier row in front.
+        while (i > 0 && scores[i - 1] < score) {
+            identities[i] = identities[i - 1];
+            names[i] = names[i - 1];
+            rows[i] = rows[i - 1];
+            scores[i] = scores[i - 1];
+            i--;
+        }
+        identities[i] = identity;
+        names[i] = name;
+        rows[i] = row;
+        scores[i] = score;
+    }
+}
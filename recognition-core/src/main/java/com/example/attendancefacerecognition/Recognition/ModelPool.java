@@ -0,0 +1,193 @@
+package com.example.attendancefacerecognition.Recognition;
+
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Bounded pool of instances of one model (TFLite interpreters in the app), shared by every
+ * screen so the model is built and warmed up once per process instead of once per activity.
+ *
+ * An instance is checked out by one owner at a time, since interpreters are not thread-safe,
+ * and returned with {@link #release}. At most {@code maxSize} instances exist; idle ones are
+ * handed out most-recently-used first, so a warmed instance is preferred. A new instance is
+ * created, and warmed up, on the acquiring thread only when none is idle and the bound allows.
+ * {@link #prestart} does the same ahead of time, typically on a background thread at startup.
+ *
+ * Creation and warm-up times are recorded for {@link #stats()}.
+ */
+public final class ModelPool<T extends AutoCloseable> implements Closeable {
+
+    private static final Logger LOG = Logger.getLogger(ModelPool.class.getName());
+
+    /** Builds one model instance. */
+    public interface Factory<T> {
+        T create() throws Exception;
+    }
+
+    /** Runs first inferences on a new instance, so their one-off cost is not paid on a frame. */
+    public interface WarmUp<T> {
+        void run(T model) throws Exception;
+    }
+
+    private final String name;
+    private final int maxSize;
+    private final Factory<T> factory;
+    private final WarmUp<T> warmUp;
+
+    private final ArrayDeque<T> idle = new ArrayDeque<>();
+    private final List<T> all = new ArrayList<>();
+    private int creating;
+    private boolean closed;
+
+    private long createdCount;
+    private long createNanos;
+    private long warmUpNanos;
+
+    public ModelPool(String name, int maxSize, Factory<T> factory, WarmUp<T> warmUp) {
+        if (maxSize < 1) throw new IllegalArgumentException("maxSize must be >= 1");
+        this.name = name;
+        this.maxSize = maxSize;
+        this.factory = factory;
+        this.warmUp = warmUp;
+    }
+
+    public String name() { return name; }
+
+    public int maxSize() { return maxSize; }
+
+    public synchronized int size() { return all.size(); }
+
+    public synchronized int idleCount() { return idle.size(); }
+
+    /**
+     * Checks out an instance, creating one if none is idle and fewer than {@code maxSize}
+     * exist, otherwise waiting for a release. Returns null if none became free in time.
+     *
+     * @throws IllegalStateException if the pool is closed
+     */
+    public T acquire(long timeout, TimeUnit unit) throws Exception {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        synchronized (this) {
+            while (true) {
+                if (closed) throw new IllegalStateException("Model pool " + name + " is closed");
+                if (!idle.isEmpty()) return idle.pop();
+                if (all.size() + creating < maxSize) {
+                    creating++;
+                    break;
+                }
+                long left = deadline - System.nanoTime();
+                if (left <= 0) return null;
+                TimeUnit.NANOSECONDS.timedWait(this, left);
+            }
+        }
+        return create(false);
+    }
+
+    /** Returns an instance checked out with {@link #acquire}; null is ignored. */
+    public void release(T model) {
+        if (model == null) return;
+        synchronized (this) {
+            if (!closed) {
+                idle.push(model);
+                notifyAll();
+                return;
+            }
+        }
+        closeQuietly(model);
+    }
+
+    /** Creates and warms up instances until {@code count} are idle or the pool is full. */
+    public void prestart(int count) throws Exception {
+        while (true) {
+            synchronized (this) {
+                if (closed || idle.size() + creating >= count || all.size() + creating >= maxSize) return;
+                creating++;
+            }
+            create(true);
+        }
+    }
+
+    /** Closes idle instances, e.g. when the system is short of memory. Checked-out ones stay. */
+    public void trim() {
+        List<T> trimmed;
+        synchronized (this) {
+            trimmed = new ArrayList<>(idle);
+            all.removeAll(trimmed);
+            idle.clear();
+        }
+        for (T model : trimmed) closeQuietly(model);
+    }
+
+    /** Closes every idle instance now and every checked-out one when it is released. */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+            notifyAll();
+        }
+        trim();
+    }
+
+    public synchronized String stats() {
+        return String.format(Locale.US, "%s: %d/%d instances (%d idle), %d created, %.1f ms avg load, %.1f ms avg warm-up",
+                name, all.size(), maxSize, idle.size(), createdCount,
+                createdCount == 0 ? 0 : createNanos / 1e6 / createdCount,
+                createdCount == 0 ? 0 : warmUpNanos / 1e6 / createdCount);
+    }
+
+    // Caller has reserved a slot through `creating`
+    private T create(boolean keepIdle) throws Exception {
+        long start = System.nanoTime();
+        T model;
+        try {
+            model = factory.create();
+        } catch (Exception e) {
+            abandonSlot();
+            throw e;
+        }
+        long created = System.nanoTime();
+        try {
+            if (warmUp != null) warmUp.run(model);
+        } catch (Exception e) {
+            abandonSlot();
+            closeQuietly(model);
+            throw e;
+        }
+        long warmed = System.nanoTime();
+
+        synchronized (this) {
+            creating--;
+            createdCount++;
+            createNanos += created - start;
+            warmUpNanos += warmed - created;
+            notifyAll();
+            if (!closed) {
+                all.add(model);
+                if (keepIdle) idle.push(model);
+                return model;
+            }
+        }
+        closeQuietly(model);
+        throw new IllegalStateException("Model pool " + name + " is closed");
+    }
+
+    private synchronized void abandonSlot() {
+        creating--;
+        notifyAll();
+    }
+
+    private void closeQuietly(AutoCloseable model) {
+        try {
+            model.close();
+        } catch (Exception e) {
+            LOG.log(Level.WARNING, "Failed to close a " + name + " instance", e);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.attendancefacerecognition.Recognition;
+
+import java.io.Closeable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Exact scan split into contiguous row shards on a dedicated {@link ForkJoinPool}.
+ *
+ * Each shard folds its rows into its own {@link MatchResult}, so workers never touch shared
+ * state; once all shards have joined, the caller merges them in row order. Because
+ * {@link MatchResult#offer} keeps the earlier entry on equal scores, ties resolve to the lowest
+ * row exactly as in the serial scan, and attendance logs stay reproducible.
+ *
+ * Galleries smaller than {@code minParallelRows} are scanned serially on the calling thread.
+ * {@link #match} is meant to be called from one thread at a time (the camera analyzer).
+ */
+public final class ParallelMatcher implements GalleryMatcher, Closeable {
+
+    public static final int DEFAULT_MIN_PARALLEL_ROWS = 4000;
+
+    private final EmbeddingMatcher serial;
+    private final int minParallelRows;
+    private final ForkJoinPool pool;
+    private final Shard[] shards;
+    private final ScanAll scanAll;
+
+    public ParallelMatcher(EmbeddingGallery gallery) {
+        this(gallery, DEFAULT_MIN_PARALLEL_ROWS, Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+    }
+
+    public ParallelMatcher(EmbeddingGallery gallery, int minParallelRows, int parallelism) {
+        this(gallery, minParallelRows, new ForkJoinPool(Math.max(1, parallelism)));
+    }
+
+    private ParallelMatcher(EmbeddingGallery gallery, int minParallelRows, ForkJoinPool pool) {
+        int parallelism = pool.getParallelism();
+        this.serial = new EmbeddingMatcher(gallery);
+        this.minParallelRows = minParallelRows;
+        this.pool = pool;
+
+        int shardCount = Math.max(1, Math.min(parallelism * 2, gallery.size() / 256));
+        this.shards = new Shard[shardCount];
+        int size = gallery.size();
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard(serial, (int) ((long) size * i / shardCount), (int) ((long) size * (i + 1) / shardCount));
+        }
+        this.scanAll = new ScanAll(shards);
+    }
+
+    /**
+     * Matcher over {@code newer} on this matcher's pool, for swapping galleries while this one
+     * may still be matching. Closing either matcher shuts the shared pool down.
+     */
+    public ParallelMatcher withGallery(EmbeddingGallery newer) {
+        return new ParallelMatcher(newer, minParallelRows, pool);
+    }
+
+    @Override
+    public EmbeddingGallery gallery() { return serial.gallery(); }
+
+    public int shardCount() { return shards.length; }
+
+    public int minParallelRows() { return minParallelRows; }
+
+    @Override
+    public MatchResult match(float[] query, MatchResult out) {
+        if (gallery().size() < minParallelRows || shards.length == 1) return serial.match(query, out);
+
+        for (Shard shard : shards) shard.prepare(query, out.capacity());
+        scanAll.reinitialize();
+        pool.invoke(scanAll);
+
+        out.reset();
+        for (Shard shard : shards) {
+            MatchResult part = shard.result;
+            for (int rank = 0; rank < part.size(); rank++) {
+                out.offer(part.identity(rank), part.name(rank), part.row(rank), part.score(rank));
+            }
+        }
+        return out;
+    }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    private static final class ScanAll extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Shard[] shards;
+
+        ScanAll(Shard[] shards) {
+            this.shards = shards;
+        }
+
+        @Override
+        protected void compute() {
+            for (Shard shard : shards) shard.reinitialize();
+            invokeAll(shards);
+        }
+    }
+
+    private static final class Shard extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final EmbeddingMatcher matcher;
+        private final int from;
+        private final int to;
+        private float[] query;
+        MatchResult result = new MatchResult(1);
+
+        Shard(EmbeddingMatcher matcher, int from, int to) {
+            this.matcher = matcher;
+            this.from = from;
+            this.to = to;
+        }
+
+        void prepare(float[] query, int k) {
+            this.query = query;
+            if (result.capacity() != k) result = new MatchResult(k);
+            result.reset();
+        }
+
+        @Override
+        protected void compute() {
+            matcher.matchRange(query, from, to, result);
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.example.attendancefacerecognition.Recognition;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Product quantization: each row is split into {@code subspaces} slices and every slice is
+ * replaced by the index of its nearest codebook centroid, one byte per slice.
+ *
+ * A query first fills a lookup table with its squared distance to every centroid of every
+ * subspace; the distance to a row is then {@code subspaces} table lookups.
+ */
+public final class ProductQuantizedGallery extends QuantizedGallery {
+
+    public static final int DEFAULT_SUBSPACE_DIM = 4;
+    public static final int MAX_CENTROIDS = 256;
+
+    private static final int TRAIN_ITERATIONS = 12;
+    private static final int MAX_TRAIN_ROWS = MAX_CENTROIDS * 8;
+
+    private final int subspaces;
+    private final int subDim;
+    private final int centroids;
+    private final float[] codebooks; // [subspace][centroid][subDim]
+    private final byte[] codes;      // [row][subspace], unsigned
+
+    private final ThreadLocal<float[]> lookup = new ThreadLocal<>();
+
+    private ProductQuantizedGallery(EmbeddingGallery source, int subspaces, int centroids, float[] codebooks, byte[] codes) {
+        super(source);
+        this.subspaces = subspaces;
+        this.subDim = source.dimension() / subspaces;
+        this.centroids = centroids;
+        this.codebooks = codebooks;
+        this.codes = codes;
+    }
+
+    public static ProductQuantizedGallery build(EmbeddingGallery gallery) {
+        int dim = gallery.dimension();
+        int subspaces = (dim % DEFAULT_SUBSPACE_DIM == 0) ? dim / DEFAULT_SUBSPACE_DIM : dim;
+        return build(gallery, subspaces, 42L);
+    }
+
+    /**
+     * Trains one k-means codebook per subspace on (up to {@link #MAX_TRAIN_ROWS}) gallery rows
+     * and encodes every row. Small galleries get fewer centroids so each one sees several rows.
+     */
+    public static ProductQuantizedGallery build(EmbeddingGallery gallery, int subspaces, long seed) {
+        int size = gallery.size();
+        int dim = gallery.dimension();
+        if (subspaces <= 0 || dim % subspaces != 0) {
+            throw new IllegalArgumentException("Dimension " + dim + " is not divisible into " + subspaces + " subspaces");
+        }
+        int subDim = dim / subspaces;
+        int centroids = Math.max(1, Math.min(MAX_CENTROIDS, size / 4));
+        float[] data = gallery.rawData();
+        Random random = new Random(seed);
+
+        int[] train = sample(size, Math.min(size, MAX_TRAIN_ROWS), random);
+        float[] codebooks = new float[subspaces * centroids * subDim];
+        byte[] codes = new byte[size * subspaces];
+
+        float[] sums = new float[centroids * subDim];
+        int[] counts = new int[centroids];
+        for (int s = 0; s < subspaces; s++) {
+            int bookOffset = s * centroids * subDim;
+            int sliceOffset = s * subDim;
+
+            // Seed with distinct training rows, then Lloyd iterations.
+            for (int c = 0; c < centroids && c < train.length; c++) {
+                System.arraycopy(data, train[c] * dim + sliceOffset, codebooks, bookOffset + c * subDim, subDim);
+            }
+            for (int iter = 0; iter < TRAIN_ITERATIONS; iter++) {
+                Arrays.fill(sums, 0f);
+                Arrays.fill(counts, 0);
+                for (int row : train) {
+                    int offset = row * dim + sliceOffset;
+                    int c = closestCentroid(data, offset, codebooks, bookOffset, centroids, subDim);
+                    counts[c]++;
+                    for (int i = 0; i < subDim; i++) sums[c * subDim + i] += data[offset + i];
+                }
+                for (int c = 0; c < centroids; c++) {
+                    if (counts[c] == 0) continue; // keep the previous centroid
+                    for (int i = 0; i < subDim; i++) codebooks[bookOffset + c * subDim + i] = sums[c * subDim + i] / counts[c];
+                }
+            }
+
+            for (int row = 0; row < size; row++) {
+                int c = closestCentroid(data, row * dim + sliceOffset, codebooks, bookOffset, centroids, subDim);
+                codes[row * subspaces + s] = (byte) c;
+            }
+        }
+        return new ProductQuantizedGallery(gallery, subspaces, centroids, codebooks, codes);
+    }
+
+    private static int closestCentroid(float[] data, int offset, float[] codebooks, int bookOffset, int centroids, int subDim) {
+        int best = 0;
+        float minDist = Float.MAX_VALUE;
+        for (int c = 0; c < centroids; c++) {
+            int base = bookOffset + c * subDim;
+            float sum = 0f;
+            for (int i = 0; i < subDim; i++) {
+                float diff = data[offset + i] - codebooks[base + i];
+                sum += diff * diff;
+            }
+            if (sum < minDist) {
+                minDist = sum;
+                best = c;
+            }
+        }
+        return best;
+    }
+
+    private static int[] sample(int size, int count, Random random) {
+        int[] all = new int[size];
+        for (int i = 0; i < size; i++) all[i] = i;
+        for (int i = 0; i < count; i++) {
+            int j = i + random.nextInt(size - i);
+            int t = all[i];
+            all[i] = all[j];
+            all[j] = t;
+        }
+        int[] out = new int[count];
+        System.arraycopy(all, 0, out, 0, count);
+        return out;
+    }
+
+    public int subspaces() { return subspaces; }
+
+    public int centroids() { return centroids; }
+
+    @Override
+    public long memoryBytes() {
+        return codes.length + (long) codebooks.length * 4 + identityBytes();
+    }
+
+    @Override
+    public float approximateDistance(float[] query, int row) {
+        float dist = 0f;
+        for (int s = 0; s < subspaces; s++) {
+            int base = s * centroids * subDim + (codes[row * subspaces + s] & 0xFF) * subDim;
+            int sliceOffset = s * subDim;
+            for (int i = 0; i < subDim; i++) {
+                float diff = query[sliceOffset + i] - codebooks[base + i];
+                dist += diff * diff;
+            }
+        }
+        return dist;
+    }
+
+    @Override
+    public int topK(float[] query, int k, int[] outRows, float[] outDists) {
+        if (query.length != dimension || k <= 0) return 0;
+
+        float[] table = lookupTable(query);
+        int count = 0;
+        for (int row = 0, offset = 0; row < size; row++, offset += subspaces) {
+            float dist = 0f;
+            for (int s = 0; s < subspaces; s++) dist += table[s * centroids + (codes[offset + s] & 0xFF)];
+            count = offer(row, dist, count, k, outRows, outDists);
+        }
+        return count;
+    }
+
+    private float[] lookupTable(float[] query) {
+        float[] table = lookup.get();
+        if (table == null) {
+            table = new float[subspaces * centroids];
+            lookup.set(table);
+        }
+        for (int s = 0; s < subspaces; s++) {
+            int sliceOffset = s * subDim;
+            int bookOffset = s * centroids * subDim;
+            for (int c = 0; c < centroids; c++) {
+                int base = bookOffset + c * subDim;
+                float sum = 0f;
+                for (int i = 0; i < subDim; i++) {
+                    float diff = query[sliceOffset + i] - codebooks[base + i];
+                    sum += diff * diff;
+                }
+                table[s * centroids + c] = sum;
+            }
+        }
+        return table;
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.attendancefacerecognition.Recognition;
+
+import java.nio.FloatBuffer;
+
+/**
+ * Compressed copy of an {@link EmbeddingGallery}, searched with a float query against quantized
+ * rows (asymmetric distance). Subclasses only keep codes and the row-to-identity mapping; exact
+ * floats for re-ranking are read from an external buffer such as {@link EmbeddingStore#rows()}.
+ */
+public abstract class QuantizedGallery {
+
+    public enum Mode {
+        NONE, INT8, PRODUCT;
+
+        /** Quantized copy of {@code gallery}, or null for {@link #NONE}. */
+        public QuantizedGallery build(EmbeddingGallery gallery) {
+            switch (this) {
+                case INT8: return ScalarQuantizedGallery.build(gallery);
+                case PRODUCT: return ProductQuantizedGallery.build(gallery);
+                default: return null;
+            }
+        }
+    }
+
+    protected final int size;
+    protected final int dimension;
+    private final int[] rowIdentity;
+    private final String[] identities;
+
+    private final ThreadLocal<TopK> scratch = new ThreadLocal<>();
+
+    protected QuantizedGallery(EmbeddingGallery source) {
+        this.size = source.size();
+        this.dimension = source.dimension();
+        this.rowIdentity = new int[size];
+        for (int i = 0; i < size; i++) rowIdentity[i] = source.identityOf(i);
+        this.identities = new String[source.identityCount()];
+        for (int i = 0; i < identities.length; i++) identities[i] = source.identityName(i);
+    }
+
+    public int size() { return size; }
+
+    public int dimension() { return dimension; }
+
+    public String nameAt(int row) { return identities[rowIdentity[row]]; }
+
+    /** Heap bytes held by codes, scales, codebooks and the identity mapping. */
+    public abstract long memoryBytes();
+
+    /** Bytes the same rows take as float32. */
+    public long floatBytes() { return (long) size * dimension * 4; }
+
+    /** Approximate squared L2 distance from {@code query} to a single row. */
+    public abstract float approximateDistance(float[] query, int row);
+
+    /**
+     * Writes the {@code k} rows with the smallest approximate squared L2 distance to
+     * {@code outRows}/{@code outDists}, closest first.
+     *
+     * @return number of rows written
+     */
+    public abstract int topK(float[] query, int k, int[] outRows, float[] outDists);
+
+    /**
+     * Closest row to {@code query}. With {@code exactRows} and {@code rerankK > 1}, the top
+     * {@code rerankK} approximate candidates are re-scored with exact float distances.
+     *
+     * @return row index, or -1 if the gallery is empty
+     */
+    public int nearest(float[] query, int rerankK, FloatBuffer exactRows) {
+        if (query.length != dimension) return -1;
+
+        int k = (exactRows == null) ? 1 : Math.max(1, rerankK);
+        TopK top = topK(k);
+        int n = topK(query, k, top.rows, top.dists);
+        if (n == 0) return -1;
+        if (exactRows == null || n == 1) return top.rows[0];
+
+        int best = -1;
+        float minDist = Float.MAX_VALUE;
+        for (int i = 0; i < n; i++) {
+            int row = top.rows[i];
+            float dist = exactDistance(query, exactRows, row);
+            if (dist < minDist) {
+                minDist = dist;
+                best = row;
+            }
+        }
+        return best;
+    }
+
+    public float exactDistance(float[] query, FloatBuffer exactRows, int row) {
+        int offset = row * dimension;
+        float sum = 0f;
+        for (int i = 0; i < dimension; i++) {
+            float diff = query[i] - exactRows.get(offset + i);
+            sum += diff * diff;
+        }
+        return sum;
+    }
+
+    /** Keeps the running {@code k} best in ascending order; returns the new count. */
+    protected static int offer(int row, float dist, int count, int k, int[] rows, float[] dists) {
+        if (count == k && dist >= dists[k - 1]) return count;
+        int i = (count < k) ? count++ : k - 1;
+        while (i > 0 && dists[i - 1] > dist) {
+            rows[i] = rows[i - 1];
+            dists[i] = dists[i - 1];
+            i--;
+        }
+        rows[i] = row;
+        dists[i] = dist;
+        return count;
+    }
+
+    protected long identityBytes() {
+        return (long) rowIdentity.length * 4;
+    }
+
+    private TopK topK(int k) {
+        TopK top = scratch.get();
+        if (top == null || top.rows.length < k) {
+            top = new TopK(k);
+            scratch.set(top);
+        }
+        return top;
+    }
+
+    private static final class TopK {
+        final int[] rows;
+        final float[] dists;
+
+        TopK(int k) {
+            rows = new int[k];
+            dists = new float[k];
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.attendancefacerecognition.Recognition;
+
+/**
+ * Per-row symmetric int8 quantization: each row keeps one scale and {@code dimension} signed
+ * bytes, a quarter of its float32 size.
+ *
+ * The asymmetric distance expands to {@code |q|^2 - 2*scale*(q.c) + scale^2*|c|^2}; the last term
+ * is precomputed per row, so a query costs one float-by-byte dot product per row.
+ */
+public final class ScalarQuantizedGallery extends QuantizedGallery {
+
+    private final byte[] codes;
+    private final float[] scales;
+    private final float[] codeNorms; // scale^2 * |c|^2
+
+    private ScalarQuantizedGallery(EmbeddingGallery source, byte[] codes, float[] scales, float[] codeNorms) {
+        super(source);
+        this.codes = codes;
+        this.scales = scales;
+        this.codeNorms = codeNorms;
+    }
+
+    public static ScalarQuantizedGallery build(EmbeddingGallery gallery) {
+        int size = gallery.size();
+        int dim = gallery.dimension();
+        float[] data = gallery.rawData();
+
+        byte[] codes = new byte[size * dim];
+        float[] scales = new float[size];
+        float[] codeNorms = new float[size];
+
+        for (int row = 0; row < size; row++) {
+            int offset = row * dim;
+            float maxAbs = 0f;
+            for (int i = 0; i < dim; i++) maxAbs = Math.max(maxAbs, Math.abs(data[offset + i]));
+            float scale = maxAbs > 0f ? maxAbs / 127f : 1f;
+
+            float norm = 0f;
+            for (int i = 0; i < dim; i++) {
+                int q = Math.round(data[offset + i] / scale);
+                q = Math.max(-127, Math.min(127, q));
+                codes[offset + i] = (byte) q;
+                norm += q * q;
+            }
+            scales[row] = scale;
+            codeNorms[row] = scale * scale * norm;
+        }
+        return new ScalarQuantizedGallery(gallery, codes, scales, codeNorms);
+    }
+
+    @Override
+    public long memoryBytes() {
+        return codes.length + (long) scales.length * 4 + (long) codeNorms.length * 4 + identityBytes();
+    }
+
+    @Override
+    public float approximateDistance(float[] query, int row) {
+        float queryNorm = 0f;
+        for (float v : query) queryNorm += v * v;
+        return approximateDistance(query, queryNorm, row);
+    }
+
+    private float approximateDistance(float[] query, float queryNorm, int row) {
+        int offset = row * dimension;
+        float dot = 0f;
+        for (int i = 0; i < dimension; i++) dot += query[i] * codes[offset + i];
+        return queryNorm - 2f * scales[row] * dot + codeNorms[row];
+    }
+
+    @Override
+    public int topK(float[] query, int k, int[] outRows, float[] outDists) {
+        if (query.length != dimension || k <= 0) return 0;
+
+        float queryNorm = 0f;
+        for (float v : query) queryNorm += v * v;
+
+        int count = 0;
+        for (int row = 0; row < size; row++) {
+            count = offer(row, approximateDistance(query, queryNorm, row), count, k, outRows, outDists);
+        }
+        return count;
+    }
+}
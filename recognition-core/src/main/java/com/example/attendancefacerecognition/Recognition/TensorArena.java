@@ -0,0 +1,315 @@
+package com.example.attendancefacerecognition.Recognition;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Preallocated input and output tensors for the detector (BlazeFace) and the embedder (FaceNet).
+ *
+ * Direct buffers are costly to allocate and are only released by a GC finalizer pass, so
+ * allocating them per frame or per face caused visible stutter. One arena is owned by one
+ * thread (the camera analyzer) and every buffer is overwritten on the next call, so anything
+ * that must outlive a frame, such as an embedding being registered, has to be copied out.
+ *
+ * The embedder side holds room for {@code maxBatch} faces. {@link #embedderInput(int)} and
+ * {@link #embedderOutput(int)} are views sized for an {@code [n, size, size, 3]} batch, built
+ * once, since TFLite requires buffers and output arrays to match the resized tensor exactly.
+ *
+ * Tensors start out as float32. {@link #bindDetector} and {@link #bindEmbedder} take the
+ * {@link TensorFormat}s of the loaded model and re-lay the buffers only when they differ, so an
+ * int8 or uint8 model gets one-byte inputs and its outputs are dequantized into the same float
+ * arrays ({@link #dequantizeDetectorOutputs}, {@link #dequantizeEmbedderOutput}).
+ */
+public final class TensorArena {
+
+    public static final int DETECTOR_ANCHORS = 896;
+    public static final int DETECTOR_VALUES = 16;
+    public static final int MAX_DETECTIONS = 16;
+
+    private final int detectorInputSize;
+    private final int embedderInputSize;
+    private final int embeddingDim;
+
+    private TensorFormat detectorInputFormat = TensorFormat.FLOAT32;
+    private TensorFormat regressorFormat = TensorFormat.FLOAT32;
+    private TensorFormat scoreFormat = TensorFormat.FLOAT32;
+    private Object detectorModel;
+    private ByteBuffer detectorInput;
+    private ByteBuffer regressorBytes;          // quantized regressors; null for float32
+    private ByteBuffer scoreBytes;              // quantized scores; null for float32
+    private final int[] detectorPixels;
+    private final float[][][] detectorOutput;
+    private final float[][][] detectorScores;
+    private final Object[] detectorInputs = new Object[1];
+    private final Map<Integer, Object> detectorOutputs = new HashMap<>();
+    private final FaceDetections detections;
+
+    private TensorFormat embedderInputFormat = TensorFormat.FLOAT32;
+    private TensorFormat embeddingFormat = TensorFormat.FLOAT32;
+    private Object embedderModel;
+    private final int maxBatch;
+    private ByteBuffer[] embedderSlots;         // [i] = face i of a batch
+    private ByteBuffer[] embedderInputs;        // [n] = first n slots as one tensor
+    private ByteBuffer[] embeddingBytes;        // [n] = quantized [n, dim] output; null for float32
+    private final float[][][] embedderOutputs;  // [n] = float[n][dim]
+    private final int[] embedderPixels;
+
+    public TensorArena(int detectorInputSize, int embedderInputSize, int embeddingDim) {
+        this(detectorInputSize, embedderInputSize, embeddingDim, 1);
+    }
+
+    public TensorArena(int detectorInputSize, int embedderInputSize, int embeddingDim, int maxBatch) {
+        if (maxBatch < 1) throw new IllegalArgumentException("maxBatch must be >= 1");
+        this.detectorInputSize = detectorInputSize;
+        this.embedderInputSize = embedderInputSize;
+        this.embeddingDim = embeddingDim;
+
+        this.detectorPixels = new int[detectorInputSize * detectorInputSize];
+        this.detectorOutput = new float[1][DETECTOR_ANCHORS][DETECTOR_VALUES];
+        this.detectorScores = new float[1][DETECTOR_ANCHORS][1];
+        this.detections = new FaceDetections(MAX_DETECTIONS);
+        layOutDetector();
+
+        this.maxBatch = maxBatch;
+        this.embedderOutputs = new float[maxBatch + 1][][];
+        for (int n = 1; n <= maxBatch; n++) embedderOutputs[n] = new float[n][embeddingDim];
+        this.embedderPixels = new int[embedderInputSize * embedderInputSize];
+        layOutEmbedder();
+    }
+
+    public int detectorInputSize() { return detectorInputSize; }
+
+    public int embedderInputSize() { return embedderInputSize; }
+
+    public int maxBatch() { return maxBatch; }
+
+    // ========================================
+    // Model formats
+    // ========================================
+
+    /** Whether the detector tensors were last laid out for {@code model}. */
+    public boolean isDetectorBound(Object model) { return model != null && model == detectorModel; }
+
+    /**
+     * Lays the detector tensors out for {@code model}'s input and its two outputs (regressors,
+     * scores). Buffers are reallocated only when a format changes.
+     */
+    public void bindDetector(Object model, TensorFormat input, TensorFormat regressors, TensorFormat scores) {
+        detectorModel = model;
+        if (input.equals(detectorInputFormat) && regressors.equals(regressorFormat) && scores.equals(scoreFormat)) return;
+        detectorInputFormat = input;
+        regressorFormat = regressors;
+        scoreFormat = scores;
+        layOutDetector();
+    }
+
+    /** Whether the embedder tensors were last laid out for {@code model}. */
+    public boolean isEmbedderBound(Object model) { return model != null && model == embedderModel; }
+
+    /** Lays the embedder tensors out for {@code model}'s input and embedding output formats. */
+    public void bindEmbedder(Object model, TensorFormat input, TensorFormat output) {
+        embedderModel = model;
+        if (input.equals(embedderInputFormat) && output.equals(embeddingFormat)) return;
+        embedderInputFormat = input;
+        embeddingFormat = output;
+        layOutEmbedder();
+    }
+
+    public TensorFormat detectorInputFormat() { return detectorInputFormat; }
+
+    public TensorFormat embedderInputFormat() { return embedderInputFormat; }
+
+    // ========================================
+    // Detector
+    // ========================================
+
+    /** Direct, native-order [1, size, size, 3] input in the detector's format, rewound. */
+    public ByteBuffer detectorInput() {
+        detectorInput.rewind();
+        return detectorInput;
+    }
+
+    public int[] detectorPixels() { return detectorPixels; }
+
+    /** [1][896][16] BlazeFace box and keypoint regressors. */
+    public float[][][] detectorOutput() { return detectorOutput; }
+
+    /** [1][896][1] BlazeFace score logits. */
+    public float[][][] detectorScores() { return detectorScores; }
+
+    /** Inputs for {@code runForMultipleInputsOutputs}: the detector input buffer. */
+    public Object[] detectorInputs() {
+        detectorInput.rewind();
+        return detectorInputs;
+    }
+
+    /**
+     * Outputs for {@code runForMultipleInputsOutputs}: 0 = regressors, 1 = scores. These are
+     * {@link #detectorOutput()} and {@link #detectorScores()} themselves for float32 outputs, and
+     * byte buffers for quantized ones.
+     */
+    public Map<Integer, Object> detectorOutputs() {
+        if (regressorBytes != null) regressorBytes.rewind();
+        if (scoreBytes != null) scoreBytes.rewind();
+        return detectorOutputs;
+    }
+
+    /** Fills {@link #detectorOutput()} and {@link #detectorScores()} from quantized outputs; no-op for float32. */
+    public void dequantizeDetectorOutputs() {
+        if (regressorBytes != null) {
+            float[][] rows = detectorOutput[0];
+            for (int a = 0; a < DETECTOR_ANCHORS; a++) regressorFormat.dequantize(regressorBytes, a * DETECTOR_VALUES, rows[a]);
+        }
+        if (scoreBytes != null) {
+            float[][] rows = detectorScores[0];
+            for (int a = 0; a < DETECTOR_ANCHORS; a++) rows[a][0] = scoreFormat.dequantize(scoreBytes, a);
+        }
+    }
+
+    /** Decoded detections of the last frame. */
+    public FaceDetections detections() { return detections; }
+
+    // ========================================
+    // Embedder
+    // ========================================
+
+    /** Single-face input, i.e. {@code embedderInput(1)}. */
+    public ByteBuffer embedderInput() { return embedderInput(1); }
+
+    /** Direct, native-order [n, size, size, 3] input over the first n slots, rewound. */
+    public ByteBuffer embedderInput(int n) {
+        ByteBuffer input = embedderInputs[checkBatch(n)];
+        input.rewind();
+        return input;
+    }
+
+    /** The part of the batch input holding face {@code index}, rewound. */
+    public ByteBuffer embedderSlot(int index) {
+        ByteBuffer slot = embedderSlots[index];
+        slot.rewind();
+        return slot;
+    }
+
+    public int[] embedderPixels() { return embedderPixels; }
+
+    /** Single-face output, i.e. {@code embedderOutput(1)}. */
+    public float[][] embedderOutput() { return embedderOutputs[1]; }
+
+    /** [n][dim] FaceNet output for a batch of n. */
+    public float[][] embedderOutput(int n) { return embedderOutputs[checkBatch(n)]; }
+
+    public float[] embedding() { return embedderOutputs[1][0]; }
+
+    /**
+     * What to pass as the interpreter output for a batch of n: {@link #embedderOutput(int)} for a
+     * float32 model, otherwise a rewound byte buffer to go through {@link #dequantizeEmbedderOutput}.
+     */
+    public Object embedderRunOutput(int n) {
+        checkBatch(n);
+        if (embeddingBytes == null) return embedderOutputs[n];
+        ByteBuffer out = embeddingBytes[n];
+        out.rewind();
+        return out;
+    }
+
+    /** {@link #embedderOutput(int)}, first filled from the quantized output if the model has one. */
+    public float[][] dequantizeEmbedderOutput(int n) {
+        float[][] rows = embedderOutputs[checkBatch(n)];
+        if (embeddingBytes != null) {
+            for (int i = 0; i < n; i++) embeddingFormat.dequantize(embeddingBytes[n], i * embeddingDim, rows[i]);
+        }
+        return rows;
+    }
+
+    /** Bytes held in direct buffers and heap arrays. */
+    public long memoryBytes() {
+        long outputs = 0;
+        for (int n = 1; n <= maxBatch; n++) outputs += 4L * n * embeddingDim;
+        long quantizedOutputs = (regressorBytes == null ? 0 : regressorBytes.capacity())
+                + (scoreBytes == null ? 0 : scoreBytes.capacity())
+                + (embeddingBytes == null ? 0 : embeddingBytes[maxBatch].capacity());
+        return detectorInput.capacity() + (long) maxBatch * embedderSlots[0].capacity()
+                + 4L * (detectorPixels.length + embedderPixels.length)
+                + 4L * DETECTOR_ANCHORS * (DETECTOR_VALUES + 1)
+                + outputs + quantizedOutputs;
+    }
+
+    private void layOutDetector() {
+        detectorInput = direct(detectorInputFormat.bytes(detectorInputSize * detectorInputSize * 3));
+        regressorBytes = regressorFormat.isQuantized() ? direct(DETECTOR_ANCHORS * DETECTOR_VALUES) : null;
+        scoreBytes = scoreFormat.isQuantized() ? direct(DETECTOR_ANCHORS) : null;
+        detectorInputs[0] = detectorInput;
+        detectorOutputs.put(0, regressorBytes != null ? regressorBytes : detectorOutput);
+        detectorOutputs.put(1, scoreBytes != null ? scoreBytes : detectorScores);
+    }
+
+    private void layOutEmbedder() {
+        int faceBytes = embedderInputFormat.bytes(embedderInputSize * embedderInputSize * 3);
+        ByteBuffer backing = direct(faceBytes * maxBatch);
+        embedderSlots = new ByteBuffer[maxBatch];
+        embedderInputs = new ByteBuffer[maxBatch + 1];
+        for (int i = 0; i < maxBatch; i++) {
+            embedderSlots[i] = view(backing, i * faceBytes, faceBytes);
+            embedderInputs[i + 1] = view(backing, 0, (i + 1) * faceBytes);
+        }
+
+        embeddingBytes = null;
+        if (embeddingFormat.isQuantized()) {
+            ByteBuffer out = direct(maxBatch * embeddingDim);
+            embeddingBytes = new ByteBuffer[maxBatch + 1];
+            for (int n = 1; n <= maxBatch; n++) embeddingBytes[n] = view(out, 0, n * embeddingDim);
+        }
+    }
+
+    private int checkBatch(int n) {
+        if (n < 1 || n > maxBatch) throw new IllegalArgumentException("Batch of " + n + " outside 1.." + maxBatch);
+        return n;
+    }
+
+    // ========================================
+    // Helpers shared by the Bitmap and YUV paths
+    // ========================================
+
+    /** Writes ARGB pixels as interleaved float RGB in [0, 1] and rewinds {@code out}. */
+    public static void putRgbFloats(int[] pixels, int count, ByteBuffer out) {
+        putRgb(pixels, count, TensorFormat.FLOAT32, out);
+    }
+
+    /** Writes ARGB pixels as interleaved RGB in {@code format} and rewinds {@code out}. */
+    public static void putRgb(int[] pixels, int count, TensorFormat format, ByteBuffer out) {
+        out.rewind();
+        for (int i = 0; i < count; i++) {
+            int pixel = pixels[i];
+            format.putRgb(out, (pixel >> 16) & 0xFF, (pixel >> 8) & 0xFF, pixel & 0xFF);
+        }
+        out.rewind();
+    }
+
+    /** Scales {@code v} to unit length in place; a zero vector is left as is. */
+    public static float[] normalize(float[] v) {
+        float norm = 0f;
+        for (float x : v) norm += x * x;
+        if (norm <= 0f) return v;
+        float inv = (float) (1.0 / Math.sqrt(norm));
+        for (int i = 0; i < v.length; i++) v[i] *= inv;
+        return v;
+    }
+
+    // Slices reset byte order to big-endian, so native order is set again on each view
+    private static ByteBuffer view(ByteBuffer backing, int offset, int length) {
+        ByteBuffer dup = backing.duplicate();
+        dup.position(offset);
+        dup.limit(offset + length);
+        ByteBuffer view = dup.slice();
+        view.order(ByteOrder.nativeOrder());
+        return view;
+    }
+
+    private static ByteBuffer direct(int bytes) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes);
+        buffer.order(ByteOrder.nativeOrder());
+        return buffer;
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.attendancefacerecognition.Recognition;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Element type and affine quantization of one model tensor: {@code real = scale * (q - zeroPoint)}.
+ *
+ * Pixels are fed to the models as RGB in [0, 1]. For a quantized input the code of each of the
+ * 256 channel values is computed once, so a pixel is written as three table lookups with no
+ * float arithmetic; a float input is written as before. Quantized outputs are turned back into
+ * floats with {@link #dequantize}, so the decoder and matchers see the same values whichever
+ * variant of a model is loaded.
+ *
+ * Immutable; the formats of a loaded model come from its interpreter's tensors.
+ */
+public final class TensorFormat {
+
+    public enum Type {
+        FLOAT32(4), UINT8(1), INT8(1);
+
+        final int bytes;
+
+        Type(int bytes) {
+            this.bytes = bytes;
+        }
+    }
+
+    public static final TensorFormat FLOAT32 = new TensorFormat(Type.FLOAT32, 0f, 0);
+
+    private final Type type;
+    private final float scale;
+    private final int zeroPoint;
+    private final byte[] channelCodes; // [c] = code of c / 255; null for float
+
+    private TensorFormat(Type type, float scale, int zeroPoint) {
+        this.type = type;
+        this.scale = scale;
+        this.zeroPoint = zeroPoint;
+        if (type == Type.FLOAT32) {
+            channelCodes = null;
+        } else {
+            int min = type == Type.UINT8 ? 0 : -128;
+            int max = type == Type.UINT8 ? 255 : 127;
+            channelCodes = new byte[256];
+            for (int c = 0; c < 256; c++) {
+                long q = Math.round(c / 255.0 / scale) + zeroPoint;
+                channelCodes[c] = (byte) Math.max(min, Math.min(max, q));
+            }
+        }
+    }
+
+    /** A quantized format; {@code scale} must be positive. {@link Type#FLOAT32} ignores both parameters. */
+    public static TensorFormat of(Type type, float scale, int zeroPoint) {
+        if (type == Type.FLOAT32) return FLOAT32;
+        if (!(scale > 0f)) throw new IllegalArgumentException(type + " tensor without a quantization scale");
+        int min = type == Type.UINT8 ? 0 : -128;
+        if (zeroPoint < min || zeroPoint > min + 255) {
+            throw new IllegalArgumentException("Zero point " + zeroPoint + " outside the " + type + " range");
+        }
+        return new TensorFormat(type, scale, zeroPoint);
+    }
+
+    public Type type() { return type; }
+
+    public float scale() { return scale; }
+
+    public int zeroPoint() { return zeroPoint; }
+
+    public int bytesPerElement() { return type.bytes; }
+
+    public boolean isQuantized() { return type != Type.FLOAT32; }
+
+    /** Bytes of a tensor of {@code elements} values in this format. */
+    public int bytes(int elements) { return elements * type.bytes; }
+
+    /** Appends one pixel (channels 0-255) as the model's RGB in [0, 1]. */
+    public void putRgb(ByteBuffer out, int r, int g, int b) {
+        if (channelCodes == null) {
+            out.putFloat(r / 255.f);
+            out.putFloat(g / 255.f);
+            out.putFloat(b / 255.f);
+        } else {
+            out.put(channelCodes[r]);
+            out.put(channelCodes[g]);
+            out.put(channelCodes[b]);
+        }
+    }
+
+    /** Real value of element {@code index} of {@code buffer} (absolute, position untouched). */
+    public float dequantize(ByteBuffer buffer, int index) {
+        switch (type) {
+            case UINT8: return scale * ((buffer.get(index) & 0xFF) - zeroPoint);
+            case INT8:  return scale * (buffer.get(index) - zeroPoint);
+            default:    return buffer.getFloat(index * 4);
+        }
+    }
+
+    /** Real values of elements {@code offset .. offset + out.length - 1} of {@code buffer} into {@code out}. */
+    public void dequantize(ByteBuffer buffer, int offset, float[] out) {
+        for (int i = 0; i < out.length; i++) out[i] = dequantize(buffer, offset + i);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof TensorFormat)) return false;
+        TensorFormat other = (TensorFormat) o;
+        return type == other.type && Float.compare(scale, other.scale) == 0 && zeroPoint == other.zeroPoint;
+    }
+
+    @Override
+    public int hashCode() {
+        return (type.hashCode() * 31 + Float.floatToIntBits(scale)) * 31 + zeroPoint;
+    }
+
+    @Override
+    public String toString() {
+        return isQuantized() ? type + "(scale=" + scale + ", zeroPoint=" + zeroPoint + ")" : type.toString();
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.attendancefacerecognition.Recognition;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Converts a region of a {@link YuvFrame} straight to ARGB pixels or to the RGB layout the
+ * models take (float, or quantized per {@link TensorFormat}), in a single pass over the output.
+ *
+ * Each output pixel is mapped back through scale, crop and rotation to one sensor pixel
+ * (nearest neighbour), whose Y and subsampled U/V are read honouring row and pixel strides. This
+ * replaces the NV21 copy, JPEG encode/decode and rotated {@code Bitmap} copies per frame.
+ *
+ * Colour conversion is full-range BT.601 in 16.16 fixed point, matching what
+ * {@code YuvImage.compressToJpeg} produced before.
+ */
+public final class YuvConverter {
+
+    private YuvConverter() {}
+
+    /** Whole upright frame into {@code out} at its own size. */
+    public static void toArgb(YuvFrame frame, int[] out) {
+        int w = frame.uprightWidth();
+        int h = frame.uprightHeight();
+        toArgb(frame, 0, 0, w, h, w, h, out);
+    }
+
+    /**
+     * Samples the upright region {@code (left, top, cropWidth, cropHeight)} into an
+     * {@code outWidth x outHeight} ARGB array, row-major.
+     */
+    public static void toArgb(YuvFrame frame, int left, int top, int cropWidth, int cropHeight,
+                              int outWidth, int outHeight, int[] out) {
+        convert(frame, left, top, cropWidth, cropHeight, outWidth, outHeight, out, null, null);
+    }
+
+    /**
+     * Same sampling as {@link #toArgb}, written as interleaved float RGB in [0, 1] to
+     * {@code out} (which must use native order for TFLite). The buffer is rewound.
+     */
+    public static void toRgbFloats(YuvFrame frame, int left, int top, int cropWidth, int cropHeight,
+                                   int outWidth, int outHeight, ByteBuffer out) {
+        toRgb(frame, left, top, cropWidth, cropHeight, outWidth, outHeight, TensorFormat.FLOAT32, out);
+    }
+
+    /**
+     * Same sampling, written as interleaved RGB in {@code format}: floats in [0, 1], or their
+     * int8/uint8 codes for a quantized model input. The buffer is rewound.
+     */
+    public static void toRgb(YuvFrame frame, int left, int top, int cropWidth, int cropHeight,
+                             int outWidth, int outHeight, TensorFormat format, ByteBuffer out) {
+        out.rewind();
+        convert(frame, left, top, cropWidth, cropHeight, outWidth, outHeight, null, format, out);
+        out.rewind();
+    }
+
+    /**
+     * Same sampling, luma only: the upright region into an {@code outWidth x outHeight} array of
+     * Y values (0-255), row-major. The region may extend past the frame; edge pixels repeat.
+     */
+    public static void toLuma(YuvFrame frame, int left, int top, int cropWidth, int cropHeight,
+                              int outWidth, int outHeight, int[] out) {
+        if (cropWidth <= 0 || cropHeight <= 0) throw new IllegalArgumentException("Empty crop");
+
+        ByteBuffer yPlane = frame.y();
+        int yRowStride = frame.yRowStride();
+        int sensorW = frame.width();
+        int sensorH = frame.height();
+        int rotation = frame.rotationDegrees();
+        int uprightW = frame.uprightWidth();
+        int uprightH = frame.uprightHeight();
+
+        int i = 0;
+        for (int oy = 0; oy < outHeight; oy++) {
+            int uy = clamp(top + (int) (((long) oy * cropHeight + cropHeight / 2) / outHeight), uprightH);
+            for (int ox = 0; ox < outWidth; ox++) {
+                int ux = clamp(left + (int) (((long) ox * cropWidth + cropWidth / 2) / outWidth), uprightW);
+
+                int sx;
+                int sy;
+                switch (rotation) {
+                    case 90:  sx = uy;               sy = sensorH - 1 - ux; break;
+                    case 180: sx = sensorW - 1 - ux; sy = sensorH - 1 - uy; break;
+                    case 270: sx = sensorW - 1 - uy; sy = ux;               break;
+                    default:  sx = ux;               sy = uy;               break;
+                }
+                out[i++] = yPlane.get(sy * yRowStride + sx) & 0xFF;
+            }
+        }
+    }
+
+    private static void convert(YuvFrame frame, int left, int top, int cropWidth, int cropHeight,
+                                int outWidth, int outHeight, int[] argb, TensorFormat format, ByteBuffer tensor) {
+        if (cropWidth <= 0 || cropHeight <= 0) throw new IllegalArgumentException("Empty crop");
+
+        ByteBuffer yPlane = frame.y();
+        ByteBuffer uPlane = frame.u();
+        ByteBuffer vPlane = frame.v();
+        int yRowStride = frame.yRowStride();
+        int uvRowStride = frame.uvRowStride();
+        int uvPixelStride = frame.uvPixelStride();
+        int sensorW = frame.width();
+        int sensorH = frame.height();
+        int rotation = frame.rotationDegrees();
+        int uprightW = frame.uprightWidth();
+        int uprightH = frame.uprightHeight();
+
+        int i = 0;
+        for (int oy = 0; oy < outHeight; oy++) {
+            int uy = clamp(top + (int) (((long) oy * cropHeight + cropHeight / 2) / outHeight), uprightH);
+            for (int ox = 0; ox < outWidth; ox++) {
+                int ux = clamp(left + (int) (((long) ox * cropWidth + cropWidth / 2) / outWidth), uprightW);
+
+                int sx;
+                int sy;
+                switch (rotation) {
+                    case 90:  sx = uy;               sy = sensorH - 1 - ux; break;
+                    case 180: sx = sensorW - 1 - ux; sy = sensorH - 1 - uy; break;
+                    case 270: sx = sensorW - 1 - uy; sy = ux;               break;
+                    default:  sx = ux;               sy = uy;               break;
+                }
+
+                int yy = yPlane.get(sy * yRowStride + sx) & 0xFF;
+                int uvIndex = (sy >> 1) * uvRowStride + (sx >> 1) * uvPixelStride;
+                int cb = (uPlane.get(uvIndex) & 0xFF) - 128;
+                int cr = (vPlane.get(uvIndex) & 0xFF) - 128;
+
+                int r = yy + ((91881 * cr) >> 16);
+                int g = yy - ((22554 * cb + 46802 * cr) >> 16);
+                int b = yy + ((116130 * cb) >> 16);
+                r = r < 0 ? 0 : (r > 255 ? 255 : r);
+                g = g < 0 ? 0 : (g > 255 ? 255 : g);
+                b = b < 0 ? 0 : (b > 255 ? 255 : b);
+
+                if (argb != null) {
+                    argb[i++] = 0xFF000000 | (r << 16) | (g << 8) | b;
+                } else {
+                    format.putRgb(tensor, r, g, b);
+                }
+            }
+        }
+    }
+
+    private static int clamp(int v, int size) {
+        return v < 0 ? 0 : (v >= size ? size - 1 : v);
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.attendancefacerecognition.Recognition;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Plane buffers and layout of one YUV_420_888 camera frame, decoupled from {@code ImageProxy}
+ * so conversion can run (and be tested) on a plain JVM. Instances are meant to be reused across
+ * frames via {@link #set}.
+ *
+ * Coordinates handed to {@link YuvConverter} are "upright": the frame after applying
+ * {@link #rotationDegrees()}, which is what the user sees and what detections refer to.
+ *
+ * {@link #set} only points at the caller's planes; {@link #copyFrom} copies them into buffers
+ * owned by this frame, so the frame can outlive the camera image it came from.
+ */
+public final class YuvFrame {
+
+    private ByteBuffer y;
+    private ByteBuffer u;
+    private ByteBuffer v;
+    private int yRowStride;
+    private int uvRowStride;
+    private int uvPixelStride;
+    private int width;
+    private int height;
+    private int rotationDegrees;
+    private long timestampNanos;
+
+    private ByteBuffer ownY;
+    private ByteBuffer ownU;
+    private ByteBuffer ownV;
+
+    public YuvFrame set(ByteBuffer y, int yRowStride,
+                        ByteBuffer u, ByteBuffer v, int uvRowStride, int uvPixelStride,
+                        int width, int height, int rotationDegrees, long timestampNanos) {
+        if (rotationDegrees % 90 != 0) throw new IllegalArgumentException("Rotation must be a multiple of 90: " + rotationDegrees);
+        this.y = y;
+        this.u = u;
+        this.v = v;
+        this.yRowStride = yRowStride;
+        this.uvRowStride = uvRowStride;
+        this.uvPixelStride = uvPixelStride;
+        this.width = width;
+        this.height = height;
+        this.rotationDegrees = ((rotationDegrees % 360) + 360) % 360;
+        this.timestampNanos = timestampNanos;
+        return this;
+    }
+
+    /**
+     * Copies the planes and layout of {@code src} into buffers owned by this frame. Strides are
+     * kept as they are, so conversion reads the copy exactly like the original. The buffers are
+     * reused across calls and only grow when a plane does not fit.
+     */
+    public YuvFrame copyFrom(YuvFrame src) {
+        ownY = copy(src.y, ownY);
+        ownU = copy(src.u, ownU);
+        ownV = copy(src.v, ownV);
+        return set(ownY, src.yRowStride, ownU, ownV, src.uvRowStride, src.uvPixelStride,
+                src.width, src.height, src.rotationDegrees, src.timestampNanos);
+    }
+
+    private static ByteBuffer copy(ByteBuffer plane, ByteBuffer into) {
+        ByteBuffer source = plane.duplicate();
+        source.rewind();
+        if (into == null || into.capacity() < source.remaining()) into = ByteBuffer.allocate(source.remaining());
+        into.clear();
+        into.put(source);
+        into.flip();
+        return into;
+    }
+
+    public ByteBuffer y() { return y; }
+
+    public ByteBuffer u() { return u; }
+
+    public ByteBuffer v() { return v; }
+
+    public int yRowStride() { return yRowStride; }
+
+    public int uvRowStride() { return uvRowStride; }
+
+    public int uvPixelStride() { return uvPixelStride; }
+
+    /** Sensor width, before rotation. */
+    public int width() { return width; }
+
+    /** Sensor height, before rotation. */
+    public int height() { return height; }
+
+    public int rotationDegrees() { return rotationDegrees; }
+
+    public long timestampNanos() { return timestampNanos; }
+
+    public int uprightWidth() { return (rotationDegrees == 90 || rotationDegrees == 270) ? height : width; }
+
+    public int uprightHeight() { return (rotationDegrees == 90 || rotationDegrees == 270) ? width : height; }
+}
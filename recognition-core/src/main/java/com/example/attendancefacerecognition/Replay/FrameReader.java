@@ -0,0 +1,87 @@
+package com.example.attendancefacerecognition.Replay;
+
+import com.example.attendancefacerecognition.Recognition.YuvFrame;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Plays back a {@link FrameRecorder} file one frame at a time.
+ *
+ * {@link #next} points the caller's {@link YuvFrame} at planes owned by this reader, which are
+ * overwritten by the following call; use {@link YuvFrame#copyFrom} to keep a frame. A recording
+ * cut short mid-frame (the app was killed while capturing) ends at the last whole frame.
+ */
+public final class FrameReader implements Closeable {
+
+    private final DataInputStream in;
+    private ByteBuffer y = ByteBuffer.allocate(0);
+    private ByteBuffer u = ByteBuffer.allocate(0);
+    private ByteBuffer v = ByteBuffer.allocate(0);
+    private int frames;
+
+    public FrameReader(File file) throws IOException {
+        this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16));
+        try {
+            int magic = in.readInt();
+            int version = in.readInt();
+            if (magic != FrameRecorder.MAGIC) throw new IOException(file + " is not a frame recording");
+            if (version != FrameRecorder.VERSION) throw new IOException("Unsupported recording version " + version);
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    /** Frames returned so far. */
+    public int frames() { return frames; }
+
+    /** Loads the next frame into {@code frame}; false at the end of the recording. */
+    public boolean next(YuvFrame frame) throws IOException {
+        int width;
+        try {
+            width = in.readInt();
+        } catch (EOFException e) {
+            return false;
+        }
+        try {
+            int height = in.readInt();
+            int rotation = in.readInt();
+            int yRowStride = in.readInt();
+            int uvRowStride = in.readInt();
+            int uvPixelStride = in.readInt();
+            long timestampNanos = in.readLong();
+            int yLength = in.readInt();
+            int uLength = in.readInt();
+            int vLength = in.readInt();
+            y = readPlane(y, yLength);
+            u = readPlane(u, uLength);
+            v = readPlane(v, vLength);
+            frame.set(y, yRowStride, u, v, uvRowStride, uvPixelStride, width, height, rotation, timestampNanos);
+        } catch (EOFException e) {
+            return false;
+        }
+        frames++;
+        return true;
+    }
+
+    private ByteBuffer readPlane(ByteBuffer into, int length) throws IOException {
+        if (length < 0) throw new IOException("Corrupt recording: plane of " + length + " bytes");
+        if (into.capacity() < length) into = ByteBuffer.allocate(length);
+        in.readFully(into.array(), 0, length);
+        into.clear();
+        into.limit(length);
+        return into;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.attendancefacerecognition.Replay;
+
+import com.example.attendancefacerecognition.Recognition.YuvFrame;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Writes camera frames to a recording that {@link FrameReader} plays back on any JVM.
+ *
+ * The file is a header ({@link #MAGIC}, {@link #VERSION}) followed by one record per frame:
+ *
+ * <pre>
+ * int width, height, rotationDegrees, yRowStride, uvRowStride, uvPixelStride
+ * long timestampNanos
+ * int yLength, uLength, vLength, then the three planes' bytes
+ * </pre>
+ *
+ * all big-endian. Planes are stored exactly as the camera laid them out, strides and row padding
+ * included, so a replayed frame is read by {@code YuvConverter} the same way the live one was.
+ * Only the bytes the layout addresses are kept, without the trailing slack some devices leave
+ * at the end of a plane.
+ *
+ * Not thread-safe; one thread records. {@link #write} allocates nothing once the scratch buffer
+ * has grown to the largest plane.
+ */
+public final class FrameRecorder implements Closeable {
+
+    public static final int MAGIC = 0x59555652; // "YUVR"
+    public static final int VERSION = 1;
+
+    private final DataOutputStream out;
+    private byte[] scratch = new byte[0];
+    private int frames;
+
+    public FrameRecorder(File file) throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+    }
+
+    /** Frames written so far. */
+    public int frames() { return frames; }
+
+    public void write(YuvFrame frame) throws IOException {
+        int chromaWidth = (frame.width() + 1) / 2;
+        int chromaHeight = (frame.height() + 1) / 2;
+        int yLength = planeLength(frame.y(), frame.height(), frame.yRowStride(), frame.width(), 1);
+        int uLength = planeLength(frame.u(), chromaHeight, frame.uvRowStride(), chromaWidth, frame.uvPixelStride());
+        int vLength = planeLength(frame.v(), chromaHeight, frame.uvRowStride(), chromaWidth, frame.uvPixelStride());
+
+        out.writeInt(frame.width());
+        out.writeInt(frame.height());
+        out.writeInt(frame.rotationDegrees());
+        out.writeInt(frame.yRowStride());
+        out.writeInt(frame.uvRowStride());
+        out.writeInt(frame.uvPixelStride());
+        out.writeLong(frame.timestampNanos());
+        out.writeInt(yLength);
+        out.writeInt(uLength);
+        out.writeInt(vLength);
+        writePlane(frame.y(), yLength);
+        writePlane(frame.u(), uLength);
+        writePlane(frame.v(), vLength);
+        frames++;
+    }
+
+    // Last addressed byte + 1: full rows up to the last one, which only needs its pixels
+    private static int planeLength(ByteBuffer plane, int rows, int rowStride, int pixels, int pixelStride) {
+        int addressed = (rows - 1) * rowStride + (pixels - 1) * pixelStride + 1;
+        int available = plane.limit();
+        if (available < addressed) throw new IllegalArgumentException("Plane of " + available + " bytes, layout needs " + addressed);
+        return addressed;
+    }
+
+    private void writePlane(ByteBuffer plane, int length) throws IOException {
+        if (scratch.length < length) scratch = new byte[length];
+        ByteBuffer source = plane.duplicate();
+        source.rewind();
+        source.get(scratch, 0, length);
+        out.write(scratch, 0, length);
+    }
+
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
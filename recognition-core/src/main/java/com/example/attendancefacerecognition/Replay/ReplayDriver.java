@@ -0,0 +1,208 @@
+package com.example.attendancefacerecognition.Replay;
+
+import com.example.attendancefacerecognition.Metrics.FrameMetrics;
+import com.example.attendancefacerecognition.Pipeline.AttendancePipeline;
+import com.example.attendancefacerecognition.Pipeline.Backpressure;
+import com.example.attendancefacerecognition.Recognition.FaceModels;
+import com.example.attendancefacerecognition.Recognition.GalleryMatcher;
+import com.example.attendancefacerecognition.Recognition.GalleryState;
+import com.example.attendancefacerecognition.Recognition.YuvFrame;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Feeds a recording through the attendance screen's own {@link AttendancePipeline} off the
+ * device: the same tracker, scheduler, matching paths (exact, index or quantized) and voter. The
+ * model stages are {@link FaceModels.Detector} and {@link FaceModels.Embedder}, so a run can use
+ * the stubs in {@link ReplayModels} or the real models on a desktop runtime.
+ *
+ * By default every frame is processed in order (blocking queues) and the detector runs on a
+ * fixed interval, so with deterministic models two runs over one recording produce the same
+ * recognitions and only the timings differ. {@link Builder#realtime} instead paces frames by
+ * their timestamps and drops them when the pipeline is busy, as the camera does;
+ * {@link Builder#adaptiveDetection} lets the scheduler stretch the interval from measured
+ * latencies, as on the device. {@link Builder#swapGallery} replays an enrolment landing
+ * mid-recording.
+ *
+ * A run whose pipeline does not drain within the drain timeout is reported with
+ * {@link ReplayReport#complete} false. One run at a time.
+ */
+public final class ReplayDriver {
+
+    private static final Logger LOG = Logger.getLogger(ReplayDriver.class.getName());
+
+    /** Receives each processed frame's faces and names, in order, on the pipeline's last thread. */
+    public interface FrameListener {
+        void onFrame(long timestampNanos, float[] boxes, int count, String[] names);
+    }
+
+    private final FaceModels.Detector detector;
+    private final FaceModels.Embedder embedder;
+    private final GalleryState gallery;
+    private final Map<Integer, GalleryState> swaps;
+    private final int detectEvery;
+    private final boolean realtime;
+    private final long drainNanos;
+    private final FrameListener listener;
+
+    private final FrameMetrics metrics = new FrameMetrics(true);
+
+    private ReplayDriver(Builder builder) {
+        this.detector = builder.detector;
+        this.embedder = builder.embedder;
+        this.gallery = builder.gallery;
+        this.swaps = new TreeMap<>(builder.swaps);
+        this.detectEvery = builder.detectEvery;
+        this.realtime = builder.realtime;
+        this.drainNanos = builder.drainNanos;
+        this.listener = builder.listener;
+        checkDimension(gallery);
+        for (GalleryState state : swaps.values()) checkDimension(state);
+    }
+
+    /** Replay matching by an exact scan through {@code matcher}. */
+    public static Builder builder(FaceModels.Detector detector, FaceModels.Embedder embedder, GalleryMatcher matcher) {
+        return new Builder(detector, embedder, GalleryState.of(matcher));
+    }
+
+    /** Replay matching through {@code gallery}'s path: its index or quantized copy if it has one. */
+    public static Builder builder(FaceModels.Detector detector, FaceModels.Embedder embedder, GalleryState gallery) {
+        return new Builder(detector, embedder, gallery);
+    }
+
+    /** Plays {@code reader} to its end and reports on the run. */
+    public ReplayReport run(FrameReader reader) throws IOException, InterruptedException {
+        metrics.reset();
+        Map<String, Long> recognitions = new TreeMap<>(); // last stage only
+        List<ReplayReport.Confirmation> confirmations = Collections.synchronizedList(new ArrayList<>());
+        AttendancePipeline pipeline = AttendancePipeline.builder(detector, embedder)
+                .name("replay")
+                .gallery(gallery)
+                .detectEvery(detectEvery)
+                .cameraPolicy(realtime ? Backpressure.DROP_OLDEST : Backpressure.BLOCK)
+                .metrics(metrics)
+                .onConfirmed((name, weight, timestampNanos) ->
+                        confirmations.add(new ReplayReport.Confirmation(name, weight, timestampNanos)))
+                .onFrame(job -> {
+                    for (int i = 0; i < job.count(); i++) recognitions.merge(job.names()[i], 1L, Long::sum);
+                    if (listener != null) {
+                        listener.onFrame(job.frame().timestampNanos(), job.boxes(), job.count(), job.names());
+                    }
+                })
+                .start();
+
+        YuvFrame frame = new YuvFrame();
+        long firstTimestamp = 0;
+        long startNanos = System.nanoTime();
+        boolean complete;
+        try {
+            while (reader.next(frame)) {
+                metrics.increment(FrameMetrics.Counter.FRAMES_RECEIVED);
+                if (reader.frames() == 1) firstTimestamp = frame.timestampNanos();
+                GalleryState swap = swaps.get(reader.frames() - 1);
+                if (swap != null) {
+                    // In order, the frames before the swap finish on the old gallery first
+                    if (!realtime) pipeline.awaitIdle(drainNanos, TimeUnit.NANOSECONDS);
+                    pipeline.setGallery(swap);
+                }
+                AttendancePipeline.FrameJob job;
+                if (realtime) {
+                    long due = startNanos + (frame.timestampNanos() - firstTimestamp);
+                    long wait = due - System.nanoTime();
+                    if (wait > 0) TimeUnit.NANOSECONDS.sleep(wait);
+                    job = pipeline.poll();
+                    if (job == null) {
+                        metrics.increment(FrameMetrics.Counter.FRAMES_DROPPED);
+                        continue;
+                    }
+                } else {
+                    job = pipeline.take();
+                }
+                job.frame().copyFrom(frame);
+                pipeline.submit(job);
+            }
+            complete = pipeline.awaitIdle(drainNanos, TimeUnit.NANOSECONDS);
+            if (!complete) LOG.warning("Replay timed out with frames still in the pipeline");
+        } finally {
+            pipeline.close();
+        }
+        long wallNanos = System.nanoTime() - startNanos;
+        return new ReplayReport(reader.frames(), complete, wallNanos, firstTimestamp, metrics.snapshot(), pipeline.stats(),
+                new ArrayList<>(confirmations), new TreeMap<>(recognitions));
+    }
+
+    private void checkDimension(GalleryState state) {
+        if (embedder.dimension() != state.gallery.dimension()) {
+            throw new IllegalArgumentException("Embedder gives " + embedder.dimension()
+                    + "-d embeddings, gallery holds " + state.gallery.dimension());
+        }
+    }
+
+    public static final class Builder {
+        private final FaceModels.Detector detector;
+        private final FaceModels.Embedder embedder;
+        private final GalleryState gallery;
+        private final Map<Integer, GalleryState> swaps = new TreeMap<>();
+        private int detectEvery = AttendancePipeline.MIN_DETECT_INTERVAL;
+        private boolean realtime;
+        private long drainNanos = TimeUnit.MINUTES.toNanos(1);
+        private FrameListener listener;
+
+        private Builder(FaceModels.Detector detector, FaceModels.Embedder embedder, GalleryState gallery) {
+            this.detector = detector;
+            this.embedder = embedder;
+            this.gallery = gallery;
+        }
+
+        /** Runs the detector every {@code frames} frames (and when a box is lost). */
+        public Builder detectEvery(int frames) {
+            if (frames < 1) throw new IllegalArgumentException("frames must be >= 1");
+            this.detectEvery = frames;
+            return this;
+        }
+
+        /** Interval chosen from measured latencies, as on the device; not reproducible across runs. */
+        public Builder adaptiveDetection() {
+            this.detectEvery = 0;
+            return this;
+        }
+
+        /** Paces frames by their timestamps and drops the ones the pipeline has no room for. */
+        public Builder realtime(boolean realtime) {
+            this.realtime = realtime;
+            return this;
+        }
+
+        /**
+         * Matches frames from the {@code frame}-th (counting from 0) on against {@code state}, as
+         * when an enrolment lands while the screen is open.
+         */
+        public Builder swapGallery(int frame, GalleryState state) {
+            if (frame < 0) throw new IllegalArgumentException("frame must be >= 0");
+            swaps.put(frame, state);
+            return this;
+        }
+
+        /** How long the end of the run waits for the pipeline to drain; a minute by default. */
+        public Builder drainTimeout(long timeout, TimeUnit unit) {
+            this.drainNanos = unit.toNanos(timeout);
+            return this;
+        }
+
+        public Builder onFrame(FrameListener listener) {
+            this.listener = listener;
+            return this;
+        }
+
+        public ReplayDriver build() {
+            return new ReplayDriver(this);
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.example.attendancefacerecognition.Replay;
+
+import com.example.attendancefacerecognition.Pipeline.AttendancePipeline;
+import com.example.attendancefacerecognition.Recognition.EmbeddingGallery;
+import com.example.attendancefacerecognition.Recognition.FaceDatabase;
+import com.example.attendancefacerecognition.Recognition.FaceModels;
+import com.example.attendancefacerecognition.Recognition.GalleryState;
+import com.example.attendancefacerecognition.Recognition.HnswIndex;
+import com.example.attendancefacerecognition.Recognition.QuantizedGallery;
+import com.example.attendancefacerecognition.Recognition.TensorArena;
+import com.example.attendancefacerecognition.Recognition.YuvFrame;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Locale;
+
+/**
+ * Command-line replay of a frame recording with stub models:
+ *
+ * <pre>
+ * ./gradlew :recognition-core:replay -Preplay.args="capture.yuvr --detect-ms 8 --embed-ms 40"
+ *
+ * recording              file written by the app's capture mode
+ * --gallery DIR          gallery.log (or legacy embeddings.bin + names.json) pulled from the device
+ * --dim N                embedding size (default 512)
+ * --model-id ID          embedding model of the gallery (default facenet-512)
+ * --enrol-first NAME     gallery of one: the first frame's face under NAME (instead of --gallery)
+ * --index                match through an HNSW index over the gallery, as on the device past 20000 rows
+ * --quantize MODE        match through a quantized gallery: INT8 or PRODUCT
+ * --face FRACTION        stub detector's centred box, as a fraction of the short side (default 0.5)
+ * --detect-ms MS         simulated detector cost per call
+ * --embed-ms MS          simulated embedder cost per batch
+ * --detect-every N       detector interval in frames (default 2); 0 = adaptive, as on the device
+ * --realtime             pace by frame timestamps and drop frames like the camera
+ * --metrics FILE         write the stage percentiles as JSON
+ * --frames FILE          write one line per frame: timestamp, then name and box per face
+ * </pre>
+ *
+ * Exits with status 1 if the run timed out with frames still in the pipeline.
+ *
+ * Real models plug in through {@link FaceModels#blazeFace} and {@link FaceModels#faceNet}
+ * from code that has a desktop TFLite runtime on its classpath; this module does not.
+ */
+public final class ReplayMain {
+
+    private ReplayMain() {}
+
+    public static void main(String[] args) throws Exception {
+        File recording = null;
+        File galleryDir = null;
+        int dimension = 512;
+        String modelId = "facenet-512";
+        String enrolName = null;
+        boolean index = false;
+        QuantizedGallery.Mode quantization = QuantizedGallery.Mode.NONE;
+        float face = 0.5f;
+        double detectMillis = 0;
+        double embedMillis = 0;
+        int detectEvery = AttendancePipeline.MIN_DETECT_INTERVAL;
+        boolean realtime = false;
+        File metricsFile = null;
+        File framesFile = null;
+
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            switch (arg) {
+                case "--gallery": galleryDir = new File(value(args, ++i, arg)); break;
+                case "--dim": dimension = Integer.parseInt(value(args, ++i, arg)); break;
+                case "--model-id": modelId = value(args, ++i, arg); break;
+                case "--enrol-first": enrolName = value(args, ++i, arg); break;
+                case "--index": index = true; break;
+                case "--quantize": quantization = QuantizedGallery.Mode.valueOf(value(args, ++i, arg)); break;
+                case "--face": face = Float.parseFloat(value(args, ++i, arg)); break;
+                case "--detect-ms": detectMillis = Double.parseDouble(value(args, ++i, arg)); break;
+                case "--embed-ms": embedMillis = Double.parseDouble(value(args, ++i, arg)); break;
+                case "--detect-every": detectEvery = Integer.parseInt(value(args, ++i, arg)); break;
+                case "--realtime": realtime = true; break;
+                case "--metrics": metricsFile = new File(value(args, ++i, arg)); break;
+                case "--frames": framesFile = new File(value(args, ++i, arg)); break;
+                default:
+                    if (arg.startsWith("--") || recording != null) usage("Unexpected argument " + arg);
+                    recording = new File(arg);
+            }
+        }
+        if (recording == null) usage("No recording given");
+
+        FaceModels.Detector detector = ReplayModels.centreBox(face);
+        FaceModels.Embedder embedder = ReplayModels.lumaEmbedder(dimension);
+
+        EmbeddingGallery gallery = EmbeddingGallery.empty(dimension);
+        if (galleryDir != null) {
+            try (FaceDatabase db = new FaceDatabase(galleryDir, dimension, modelId, Integer.MAX_VALUE)) {
+                gallery = db.loadGallery();
+            }
+        }
+        if (enrolName != null) gallery = enrolFirst(recording, detector, embedder, enrolName);
+        GalleryState state = GalleryState.build(null, gallery, null, quantization);
+        if (index) {
+            HnswIndex hnsw = new HnswIndex(dimension);
+            hnsw.addAll(gallery);
+            state = state.withIndex(hnsw);
+        }
+
+        ReplayDriver.Builder builder = ReplayDriver.builder(
+                ReplayModels.withLatency(detector, Math.round(detectMillis * 1000)),
+                ReplayModels.withLatency(embedder, Math.round(embedMillis * 1000)),
+                state);
+        if (detectEvery > 0) builder.detectEvery(detectEvery); else builder.adaptiveDetection();
+        builder.realtime(realtime);
+
+        PrintWriter frames = framesFile == null ? null
+                : new PrintWriter(new OutputStreamWriter(new FileOutputStream(framesFile), StandardCharsets.UTF_8));
+        if (frames != null) builder.onFrame((timestampNanos, boxes, count, names) -> {
+            frames.print(timestampNanos);
+            for (int i = 0; i < count; i++) {
+                frames.printf(Locale.US, "\t%s %.0f,%.0f,%.0f,%.0f",
+                        names[i], boxes[i * 4], boxes[i * 4 + 1], boxes[i * 4 + 2], boxes[i * 4 + 3]);
+            }
+            frames.println();
+        });
+
+        ReplayReport report;
+        try (FrameReader reader = new FrameReader(recording)) {
+            report = builder.build().run(reader);
+        } finally {
+            if (frames != null) frames.close();
+            state.close();
+        }
+        System.out.print(report);
+        if (metricsFile != null) {
+            try (PrintWriter out = new PrintWriter(metricsFile, "UTF-8")) {
+                out.print(report.metrics.toJson());
+            }
+        }
+        if (!report.complete) System.exit(1);
+    }
+
+    // Gallery of one identity: the stub embedding of the first frame's first face
+    private static EmbeddingGallery enrolFirst(File recording, FaceModels.Detector detector,
+                                               FaceModels.Embedder embedder, String name) throws Exception {
+        try (FrameReader reader = new FrameReader(recording)) {
+            YuvFrame frame = new YuvFrame();
+            if (!reader.next(frame)) throw new IOException(recording + " has no frames");
+            float[] boxes = new float[TensorArena.MAX_DETECTIONS * 4];
+            if (detector.detect(frame, boxes) == 0) throw new IOException("No face in the first frame");
+            float[][] embedding = new float[1][embedder.dimension()];
+            embedder.embed(frame, boxes, 1, embedding);
+            return EmbeddingGallery.fromRows(Collections.singletonList(embedding[0]), Collections.singletonList(name));
+        }
+    }
+
+    private static String value(String[] args, int i, String option) {
+        if (i >= args.length) usage(option + " needs a value");
+        return args[i];
+    }
+
+    private static void usage(String problem) {
+        System.err.println(problem);
+        System.err.println("Usage: replay <recording> [--gallery DIR] [--dim N] [--model-id ID] [--enrol-first NAME]"
+                + " [--index] [--quantize MODE] [--face FRACTION] [--detect-ms MS] [--embed-ms MS] [--detect-every N] [--realtime]"
+                + " [--metrics FILE] [--frames FILE]");
+        System.exit(2);
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.attendancefacerecognition.Replay;
+
+import com.example.attendancefacerecognition.Recognition.FaceModels;
+import com.example.attendancefacerecognition.Recognition.TensorArena;
+import com.example.attendancefacerecognition.Recognition.YuvConverter;
+import com.example.attendancefacerecognition.Recognition.YuvFrame;
+
+/**
+ * Stub model stages for a {@link ReplayDriver}, where no model is available: {@link #fixedBoxes}
+ * and {@link #centreBox} detectors, and a {@link #lumaEmbedder} that derives a deterministic
+ * embedding from the crop's pixels. {@link #withLatency} adds a model's cost to a stub so stage
+ * overlap behaves as on a device.
+ *
+ * The real models are {@link FaceModels#blazeFace} and {@link FaceModels#faceNet}, the same
+ * code the app runs, given a desktop runtime.
+ */
+public final class ReplayModels {
+
+    private ReplayModels() {}
+
+    /** Reports the same boxes, (left, top, right, bottom) in upright pixels, on every frame. */
+    public static FaceModels.Detector fixedBoxes(float... boxes) {
+        if (boxes.length % 4 != 0) throw new IllegalArgumentException("Boxes come in fours: " + boxes.length);
+        float[] copy = boxes.clone();
+        return (frame, out) -> {
+            int n = Math.min(copy.length, out.length) / 4;
+            System.arraycopy(copy, 0, out, 0, n * 4);
+            return n;
+        };
+    }
+
+    /** One centred square face spanning {@code fraction} of the frame's shorter side. */
+    public static FaceModels.Detector centreBox(float fraction) {
+        return (frame, out) -> {
+            int w = frame.uprightWidth();
+            int h = frame.uprightHeight();
+            float half = Math.min(w, h) * fraction / 2;
+            out[0] = w / 2f - half;
+            out[1] = h / 2f - half;
+            out[2] = w / 2f + half;
+            out[3] = h / 2f + half;
+            return 1;
+        };
+    }
+
+    /**
+     * Normalized, mean-removed luma thumbnail of each crop, {@code dimension} values. Identical
+     * crops give identical embeddings, so replays of a recording are reproducible and a gallery
+     * built with this embedder recognizes the faces it was built from.
+     */
+    public static FaceModels.Embedder lumaEmbedder(int dimension) {
+        int gridWidth = 1;
+        for (int d = 1; d * d <= dimension; d++) if (dimension % d == 0) gridWidth = d;
+        int columns = gridWidth;
+        int rows = dimension / gridWidth;
+        int[] luma = new int[dimension];
+        return new FaceModels.Embedder() {
+            @Override
+            public int dimension() { return dimension; }
+
+            @Override
+            public void embed(YuvFrame frame, float[] boxes, int count, float[][] out) {
+                for (int i = 0; i < count; i++) {
+                    int left = Math.round(boxes[i * 4]);
+                    int top = Math.round(boxes[i * 4 + 1]);
+                    int width = Math.max(1, Math.round(boxes[i * 4 + 2]) - left);
+                    int height = Math.max(1, Math.round(boxes[i * 4 + 3]) - top);
+                    YuvConverter.toLuma(frame, left, top, width, height, columns, rows, luma);
+                    float mean = 0f;
+                    for (int v : luma) mean += v;
+                    mean /= dimension;
+                    float[] row = out[i];
+                    for (int j = 0; j < dimension; j++) row[j] = luma[j] - mean;
+                    TensorArena.normalize(row);
+                }
+            }
+        };
+    }
+
+    /** {@code detector} plus {@code micros} of busy work per frame, like a model on the device. */
+    public static FaceModels.Detector withLatency(FaceModels.Detector detector, long micros) {
+        if (micros <= 0) return detector;
+        return (frame, boxes) -> {
+            spin(micros);
+            return detector.detect(frame, boxes);
+        };
+    }
+
+    /** {@code embedder} plus {@code micros} of busy work per batch. */
+    public static FaceModels.Embedder withLatency(FaceModels.Embedder embedder, long micros) {
+        if (micros <= 0) return embedder;
+        return new FaceModels.Embedder() {
+            @Override
+            public int dimension() { return embedder.dimension(); }
+
+            @Override
+            public void embed(YuvFrame frame, float[] boxes, int count, float[][] out) throws Exception {
+                spin(micros);
+                embedder.embed(frame, boxes, count, out);
+            }
+        };
+    }
+
+    // Busy rather than sleeping: a model holds its core, and sleep granularity is too coarse
+    private static void spin(long micros) {
+        long end = System.nanoTime() + micros * 1000;
+        while (System.nanoTime() < end) { }
+    }
+}
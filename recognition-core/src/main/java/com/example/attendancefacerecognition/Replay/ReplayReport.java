@@ -0,0 +1,86 @@
+package com.example.attendancefacerecognition.Replay;
+
+import com.example.attendancefacerecognition.Metrics.FrameMetrics;
+import com.example.attendancefacerecognition.Pipeline.StageStats;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/** Outcome of one {@link ReplayDriver} run: throughput, stage latencies and recognitions. */
+public final class ReplayReport {
+
+    /** One attendance confirmation, at the timestamp of the frame that triggered it. */
+    public static final class Confirmation {
+        public final String name;
+        public final float weight;
+        public final long timestampNanos;
+
+        Confirmation(String name, float weight, long timestampNanos) {
+            this.name = name;
+            this.weight = weight;
+            this.timestampNanos = timestampNanos;
+        }
+    }
+
+    public final int frames;
+    /**
+     * Whether every frame had left the pipeline when the run ended. An incomplete run timed out
+     * waiting for a stage, so its counts stop short and it must not be compared with others.
+     */
+    public final boolean complete;
+    /** Frames that reached the end of the pipeline. */
+    public final long framesProcessed;
+    public final long wallNanos;
+    /** Timestamp of the recording's first frame; confirmations are reported relative to it. */
+    public final long firstTimestampNanos;
+    public final FrameMetrics.Snapshot metrics;
+    public final List<StageStats> stages;
+    public final List<Confirmation> confirmations;
+    /** Faces named per frame, by name, Unknown included. */
+    public final Map<String, Long> recognitions;
+
+    ReplayReport(int frames, boolean complete, long wallNanos, long firstTimestampNanos, FrameMetrics.Snapshot metrics,
+                 List<StageStats> stages, List<Confirmation> confirmations, Map<String, Long> recognitions) {
+        this.frames = frames;
+        this.complete = complete;
+        this.framesProcessed = stages.isEmpty() ? 0 : stages.get(stages.size() - 1).processed;
+        this.wallNanos = wallNanos;
+        this.firstTimestampNanos = firstTimestampNanos;
+        this.metrics = metrics;
+        this.stages = stages;
+        this.confirmations = Collections.unmodifiableList(confirmations);
+        this.recognitions = Collections.unmodifiableMap(recognitions);
+    }
+
+    /** End-to-end throughput: processed frames per wall-clock second. */
+    public double framesPerSecond() {
+        return wallNanos <= 0 ? 0 : framesProcessed / (wallNanos / 1e9);
+    }
+
+    /** Confirmations and recognitions only, without timings: equal for two complete runs that agree. */
+    public String recognitionOutput() {
+        StringBuilder out = new StringBuilder();
+        if (!complete) out.append(String.format("INCOMPLETE: timed out with frames still in the pipeline%n"));
+        for (Confirmation c : confirmations) {
+            out.append(String.format(Locale.US, "confirmed %s at %.3f s (%.1f votes)%n",
+                    c.name, (c.timestampNanos - firstTimestampNanos) / 1e9, c.weight));
+        }
+        for (Map.Entry<String, Long> e : recognitions.entrySet()) {
+            out.append(String.format(Locale.US, "recognized %s on %d face-frames%n", e.getKey(), e.getValue()));
+        }
+        return out.toString();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format(Locale.US, "%d frames read, %d processed in %.2f s: %.1f frames/s%n",
+                frames, framesProcessed, wallNanos / 1e9, framesPerSecond()));
+        for (StageStats stats : stages) out.append(stats).append(System.lineSeparator());
+        out.append(metrics).append(System.lineSeparator());
+        out.append(recognitionOutput());
+        return out.toString();
+    }
+}
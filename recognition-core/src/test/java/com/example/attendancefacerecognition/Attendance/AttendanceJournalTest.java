@@ -0,0 +1,245 @@
+package com.example.attendancefacerecognition.Attendance;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link AttendanceJournal}: read-back across reopen and segments, recovery from a torn tail
+ * or a torn segment header, retry after a failed commit, device ids kept whole, and records
+ * appended during a commit sharing the next one.
+ */
+public class AttendanceJournalTest {
+
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+    private static final long T0 = 1_700_000_000_000L; // 2023-11-14T22:13:20Z
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void recordsSurviveReopen() throws Exception {
+        File dir = tmp.newFolder("journal");
+        AttendanceJournal journal = AttendanceJournal.open(dir);
+        for (int i = 0; i < 5; i++) assertEquals(i + 1, journal.append("student-" + i, T0 + i, "gate-1", 0.5f + i));
+        journal.close();
+
+        journal = AttendanceJournal.open(dir);
+        assertEquals(5, journal.durableSequence());
+        List<AttendanceRecord> records = journal.read(1, 100);
+        assertEquals(5, records.size());
+        assertEquals(new AttendanceRecord(3, "student-2", T0 + 2, "gate-1", 2.5f), records.get(2));
+        assertEquals(2, journal.read(4, 100).size());
+        assertEquals(6, journal.append("late", T0 + 10, "gate-1", 1f));
+        journal.close();
+    }
+
+    @Test
+    public void tornTailIsTruncatedOnOpen() throws Exception {
+        File dir = tmp.newFolder("journal");
+        AttendanceJournal journal = AttendanceJournal.open(dir);
+        for (int i = 0; i < 10; i++) journal.append("student-" + i, T0 + i, "gate-1", 1f);
+        journal.close();
+        File segment = journal.segments().get(0);
+
+        // Crash mid-write: the last record is half on disk, and the one before has a flipped bit
+        try (RandomAccessFile raf = new RandomAccessFile(segment, "rw")) {
+            long end = raf.length();
+            raf.seek(end);
+            raf.write(new byte[AttendanceJournal.RECORD_SIZE / 2]);
+            long ninth = AttendanceJournal.HEADER_SIZE + 9L * AttendanceJournal.RECORD_SIZE;
+            raf.seek(ninth + 30);
+            raf.write(raf.read() ^ 0x04);
+        }
+
+        journal = AttendanceJournal.open(dir);
+        assertEquals(9, journal.durableSequence());
+        assertEquals(AttendanceJournal.HEADER_SIZE + 9L * AttendanceJournal.RECORD_SIZE, segment.length());
+        long next = journal.append("after-crash", T0 + 20, "gate-1", 1f);
+        assertEquals(10, next);
+        assertTrue(journal.awaitDurable(next, 5, TimeUnit.SECONDS));
+        assertEquals("after-crash", journal.read(10, 1).get(0).identity);
+        journal.close();
+    }
+
+    @Test
+    public void tornSegmentHeaderDoesNotRestartSequences() throws Exception {
+        File dir = tmp.newFolder("journal");
+        long fourRecords = AttendanceJournal.HEADER_SIZE + 4L * AttendanceJournal.RECORD_SIZE;
+        AttendanceJournal journal = AttendanceJournal.open(dir, fourRecords, UTC);
+        for (int i = 0; i < 10; i++) journal.append("a", T0 + i, "gate-1", 1f);
+        journal.close();
+
+        // Everything is uploaded and deleted, then a crash tears the header of the next segment
+        for (File segment : journal.segments()) assertTrue(segment.delete());
+        File torn = new File(dir, String.format(Locale.US, "attendance-%020d.log", 11));
+        try (RandomAccessFile raf = new RandomAccessFile(torn, "rw")) {
+            raf.write(new byte[AttendanceJournal.HEADER_SIZE / 4]);
+        }
+
+        journal = AttendanceJournal.open(dir, fourRecords, UTC);
+        long next = journal.append("after-crash", T0 + 20, "gate-1", 1f);
+        assertEquals(11, next);
+        assertTrue(journal.awaitDurable(next, 5, TimeUnit.SECONDS));
+        assertEquals("after-crash", journal.read(11, 1).get(0).identity);
+        journal.close();
+    }
+
+    @Test
+    public void segmentsRollBySizeDayAndDevice() throws Exception {
+        File dir = tmp.newFolder("journal");
+        long fourRecords = AttendanceJournal.HEADER_SIZE + 4L * AttendanceJournal.RECORD_SIZE;
+        AttendanceJournal journal = AttendanceJournal.open(dir, fourRecords, UTC);
+        for (int i = 0; i < 10; i++) journal.append("a", T0 + i, "gate-1", 1f);     // 4 + 4 + 2
+        long nextDay = T0 + TimeUnit.HOURS.toMillis(2);                              // past midnight UTC
+        journal.append("b", nextDay, "gate-1", 1f);
+        long last = journal.append("c", nextDay + 1, "gate-2", 1f);
+        assertTrue(journal.awaitDurable(last, 5, TimeUnit.SECONDS));
+
+        assertEquals(5, journal.segments().size());
+        List<AttendanceRecord> records = journal.read(3, 100);
+        assertEquals(10, records.size());
+        assertEquals(3, records.get(0).sequence);
+        assertEquals("gate-2", records.get(9).deviceId);
+        journal.close();
+
+        journal = AttendanceJournal.open(dir, fourRecords, UTC);
+        assertEquals(12, journal.read(1, 100).size());
+        journal.close();
+    }
+
+    @Test
+    public void longIdentitiesAreCutAtACharacterBoundary() throws Exception {
+        AttendanceJournal journal = AttendanceJournal.open(tmp.newFolder("journal"));
+        // 35 bytes of one- and two-byte characters, then a two-byte one straddling the limit
+        String name = "Zo\u00eb \u00c7elik-\u00d1\u00fa\u00f1ez Anderson-Lunde\u00d8vergaard";
+        long seq = journal.append(name, T0, "gate-1", 1f);
+        assertTrue(journal.awaitDurable(seq, 5, TimeUnit.SECONDS));
+        String stored = journal.read(seq, 1).get(0).identity;
+        assertEquals("Zo\u00eb \u00c7elik-\u00d1\u00fa\u00f1ez Anderson-Lunde", stored);
+        assertEquals(35, stored.getBytes("UTF-8").length);
+        journal.close();
+    }
+
+    @Test
+    public void failedCommitsAreRetriedWithoutLosingOrRepeatingRecords() throws Exception {
+        File dir = tmp.newFolder("journal");
+        AttendanceJournal journal = AttendanceJournal.open(dir);
+        long first = journal.append("before", T0, "gate-1", 1f);
+        assertTrue(journal.awaitDurable(first, 5, TimeUnit.SECONDS));
+
+        // The disk refuses to sync: records are written but never made durable
+        AtomicInteger attempts = new AtomicInteger();
+        journal.commitHook = () -> {
+            attempts.incrementAndGet();
+            throw new IOException("disk full");
+        };
+        long failing = journal.append("during-1", T0 + 1, "gate-1", 1f);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (attempts.get() < 3 && System.nanoTime() < deadline) Thread.sleep(5);
+        assertTrue(attempts.get() >= 3);
+        assertNotNull(journal.failure());
+        assertEquals("disk full", journal.failure().getMessage());
+        assertFalse(journal.awaitDurable(failing, 50, TimeUnit.MILLISECONDS));
+        journal.append("during-2", T0 + 2, "gate-1", 1f);
+
+        journal.commitHook = null;
+        long last = journal.append("after", T0 + 3, "gate-1", 1f);
+        assertTrue(journal.awaitDurable(last, 10, TimeUnit.SECONDS));
+        assertNull(journal.failure());
+        journal.close();
+
+        // Each retry cut the segment back first, so nothing is stored twice
+        journal = AttendanceJournal.open(dir);
+        List<AttendanceRecord> records = journal.read(1, 100);
+        assertEquals(4, records.size());
+        String[] names = {"before", "during-1", "during-2", "after"};
+        for (int i = 0; i < 4; i++) {
+            assertEquals(i + 1, records.get(i).sequence);
+            assertEquals(names[i], records.get(i).identity);
+        }
+        assertEquals(AttendanceJournal.HEADER_SIZE + 4L * AttendanceJournal.RECORD_SIZE, journal.segments().get(0).length());
+        journal.close();
+    }
+
+    @Test
+    public void deviceIdsAreStoredWholeOrRefused() throws Exception {
+        File dir = tmp.newFolder("journal");
+        String longest = "gate-0123456789-abcdefghijklmn\u00e9"; // 30 bytes + a two-byte character
+        assertEquals(AttendanceJournal.MAX_DEVICE_ID_BYTES, longest.getBytes("UTF-8").length);
+        AttendanceJournal journal = AttendanceJournal.open(dir);
+        try {
+            journal.append("a", T0, longest + "x", 1f);
+            fail("over-long device id accepted");
+        } catch (IllegalArgumentException expected) {
+            // nothing queued
+        }
+        journal.append("a", T0, longest, 1f);
+        journal.close();
+
+        // The id reads back as written, so a restart keeps appending to the same segment
+        journal = AttendanceJournal.open(dir);
+        long seq = journal.append("b", T0 + 1, longest, 1f);
+        assertEquals(2, seq);
+        assertTrue(journal.awaitDurable(seq, 5, TimeUnit.SECONDS));
+        assertEquals(1, journal.segments().size());
+        assertEquals(longest, journal.read(1, 1).get(0).deviceId);
+        journal.close();
+    }
+
+    @Test
+    public void appendsShareCommits() throws Exception {
+        AttendanceJournal journal = AttendanceJournal.open(tmp.newFolder("journal"));
+        CountDownLatch committing = new CountDownLatch(1);
+        CountDownLatch proceed = new CountDownLatch(1);
+        journal.commitHook = () -> {
+            committing.countDown();
+            try {
+                proceed.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        journal.append("first", T0, "gate-1", 1f);
+        assertTrue(committing.await(5, TimeUnit.SECONDS));
+
+        // Appends return while the first commit is still syncing, and queue up behind it
+        int threads = 4;
+        int each = 100;
+        List<Thread> appenders = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < each; i++) journal.append("g", T0 + i, "gate-1", 1f);
+            });
+            thread.start();
+            appenders.add(thread);
+        }
+        for (Thread thread : appenders) thread.join();
+        assertEquals(0, journal.durableSequence());
+        proceed.countDown();
+
+        long last = 1 + threads * each;
+        assertTrue(journal.awaitDurable(last, 5, TimeUnit.SECONDS));
+        assertEquals(2, journal.commits());
+        assertEquals(last, journal.read(1, Integer.MAX_VALUE).size());
+        journal.close();
+    }
+}
@@ -0,0 +1,331 @@
+package com.example.attendancefacerecognition.Attendance;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * {@link AttendanceUploader} against an in-process HTTP stub: concurrent batches, gzip,
+ * per-record idempotency keys, retry with backoff, dead letters for permanent refusals, and the
+ * persisted cursor.
+ */
+public class AttendanceUploaderTest {
+
+    private static final long T0 = 1_700_000_000_000L;
+    private static final Pattern SEQUENCE = Pattern.compile("\"sequence\":(\\d+)");
+    private static final Pattern KEY = Pattern.compile("\"idempotencyKey\":\"([^\"]+)\"");
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private HttpServer server;
+    private URL endpoint;
+    private final Set<Long> received = ConcurrentHashMap.newKeySet();
+    private final Set<String> keys = ConcurrentHashMap.newKeySet();
+    private final Map<Long, AtomicInteger> attemptsByBatch = new ConcurrentHashMap<>(); // by first sequence
+    private final AtomicInteger duplicates = new AtomicInteger();
+    private final AtomicInteger concurrent = new AtomicInteger();
+    private final AtomicInteger peakConcurrent = new AtomicInteger();
+    private final AtomicLong wireBytes = new AtomicLong();
+    private volatile int failuresPerBatch;
+    private volatile int failureStatus = 503;
+    private volatile long refusedBatch = -1; // first sequence of a batch answered with 422
+    private volatile long latencyMillis;
+    private volatile String authorization;
+
+    @Before
+    public void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/attendance", exchange -> {
+            int now = concurrent.incrementAndGet();
+            peakConcurrent.accumulateAndGet(now, Math::max);
+            try {
+                authorization = exchange.getRequestHeaders().getFirst("Authorization");
+                byte[] body = readAll(exchange.getRequestBody());
+                wireBytes.addAndGet(body.length);
+                String json = new String(readAll(new GZIPInputStream(new ByteArrayInputStream(body))),
+                        StandardCharsets.UTF_8);
+                Matcher m = SEQUENCE.matcher(json);
+                m.find();
+                long first = Long.parseLong(m.group(1));
+                int attempt = attemptsByBatch.computeIfAbsent(first, k -> new AtomicInteger()).incrementAndGet();
+                if (latencyMillis > 0) Thread.sleep(latencyMillis);
+                if (attempt <= failuresPerBatch) {
+                    exchange.sendResponseHeaders(failureStatus, -1);
+                    return;
+                }
+                if (first == refusedBatch) {
+                    exchange.sendResponseHeaders(422, -1);
+                    return;
+                }
+                m.reset();
+                while (m.find()) {
+                    if (!received.add(Long.parseLong(m.group(1)))) duplicates.incrementAndGet();
+                }
+                Matcher k = KEY.matcher(json);
+                while (k.find()) keys.add(k.group(1));
+                exchange.sendResponseHeaders(200, -1);
+            } catch (InterruptedException e) {
+                exchange.sendResponseHeaders(500, -1);
+            } finally {
+                concurrent.decrementAndGet();
+                exchange.close();
+            }
+        });
+        server.setExecutor(Executors.newFixedThreadPool(8));
+        server.start();
+        endpoint = new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/attendance");
+    }
+
+    @After
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    public void drainsTheJournalInConcurrentCompressedBatches() throws Exception {
+        latencyMillis = 40;
+        int records = 5000;
+        drain("sequential", records, 1);
+        assertEquals(1, peakConcurrent.get());
+        received.clear();
+        peakConcurrent.set(0);
+        wireBytes.set(0);
+        drain("concurrent", records, 4);
+
+        // Every batch waits 40 ms at the server, long enough for all four senders to be in it
+        assertEquals(records, received.size());
+        assertEquals(0, duplicates.get());
+        assertEquals(4, peakConcurrent.get());
+        assertTrue("gzip saved nothing", wireBytes.get() * 4 < records * 90L);
+        assertEquals("Basic Z2F0ZS0xOnNlY3JldA==", authorization);
+    }
+
+    // Uploads `records` fresh records with up to `inFlight` batches at a time, one round trip each
+    private void drain(String name, int records, int inFlight) throws Exception {
+        AttendanceJournal journal = AttendanceJournal.open(tmp.newFolder(name), 64 * 1024, TimeZone.getTimeZone("UTC"));
+        long last = 0;
+        for (int i = 0; i < records; i++) last = journal.append("student-" + (i % 40), T0 + i * 1000L, "gate-1", 0.9f);
+        assertTrue(journal.awaitDurable(last, 5, TimeUnit.SECONDS)); // so batches are cut at full size
+
+        MemoryCursor cursor = new MemoryCursor();
+        AttendanceUploader uploader = AttendanceUploader.builder(journal, endpoint)
+                .credentials("gate-1", "secret")
+                .cursor(cursor)
+                .deadLetters(tmp.newFolder(name + "-dead"))
+                .batch(250, 50)
+                .maxInFlight(inFlight)
+                .backoff(10, 100)
+                .start();
+        assertTrue(uploader.awaitUploaded(last, 30, TimeUnit.SECONDS));
+
+        assertEquals(records / 250, uploader.batchesSent());
+        assertEquals(records / 250, uploader.attempts());
+        assertEquals(inFlight, uploader.peakInFlight());
+        assertEquals(last, cursor.stored);
+        // Everything but the segment being written to has been uploaded and removed
+        assertEquals(1, journal.segments().size());
+        uploader.close();
+        journal.close();
+    }
+
+    @Test
+    public void failedBatchesAreRetriedWithTheSameKey() throws Exception {
+        failuresPerBatch = 2;
+        AttendanceJournal journal = AttendanceJournal.open(tmp.newFolder("journal"));
+        long last = 0;
+        for (int i = 0; i < 30; i++) last = journal.append("student-" + i, T0 + i, "gate-1", 1f);
+        assertTrue(journal.awaitDurable(last, 5, TimeUnit.SECONDS));
+
+        MemoryCursor cursor = new MemoryCursor();
+        long start = System.nanoTime();
+        AttendanceUploader uploader = AttendanceUploader.builder(journal, endpoint)
+                .cursor(cursor).deadLetters(tmp.newFolder("dead")).batch(10, 0).maxInFlight(3).backoff(40, 1000).start();
+        assertTrue(uploader.awaitUploaded(last, 30, TimeUnit.SECONDS));
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertEquals(3, attemptsByBatch.size());
+        for (AtomicInteger attempts : attemptsByBatch.values()) assertEquals(3, attempts.get());
+        assertEquals(9, uploader.attempts());
+        assertEquals(30, received.size());
+        assertEquals(0, duplicates.get());
+        // Two backoffs per batch, jittered down to at most half of 40 and 80 ms: 60 ms or more
+        assertTrue("retried after " + millis + " ms", millis >= 60);
+        assertTrue(uploader.lastError().startsWith("HTTP 503"));
+        uploader.close();
+        journal.close();
+    }
+
+    @Test
+    public void resumesAfterThePersistedCursor() throws Exception {
+        AttendanceJournal journal = AttendanceJournal.open(tmp.newFolder("journal"));
+        long last = 0;
+        for (int i = 0; i < 12; i++) last = journal.append("student-" + i, T0 + i, "gate-1", 1f);
+
+        AttendanceUploader uploader = AttendanceUploader.builder(journal, endpoint)
+                .cursor(new MemoryCursor(journal.journalId(), 8)).deadLetters(tmp.newFolder("dead")).batch(100, 0).start();
+        assertTrue(uploader.awaitUploaded(last, 30, TimeUnit.SECONDS));
+        assertEquals(4, received.size());
+        assertTrue(received.contains(9L) && received.contains(12L));
+
+        // A record appended later goes out once the batch delay has passed
+        long late = journal.append("late", T0 + 100, "gate-1", 1f);
+        assertTrue(uploader.awaitUploaded(late, 30, TimeUnit.SECONDS));
+        assertTrue(received.contains(late));
+        uploader.close();
+        journal.close();
+    }
+
+    @Test
+    public void cursorOfAnotherJournalIsIgnored() throws Exception {
+        AttendanceJournal journal = AttendanceJournal.open(tmp.newFolder("journal"));
+        long last = 0;
+        for (int i = 0; i < 12; i++) last = journal.append("student-" + i, T0 + i, "gate-1", 1f);
+
+        // Left behind by a journal whose directory was cleared: its sequences restarted at 1
+        MemoryCursor cursor = new MemoryCursor("cleared-journal", 8);
+        AttendanceUploader uploader = AttendanceUploader.builder(journal, endpoint)
+                .cursor(cursor).deadLetters(tmp.newFolder("dead")).batch(100, 0).start();
+        assertTrue(uploader.awaitUploaded(last, 30, TimeUnit.SECONDS));
+        assertEquals(12, received.size());
+        assertEquals(journal.journalId(), cursor.journalId);
+        assertEquals(last, cursor.stored);
+        uploader.close();
+        journal.close();
+    }
+
+    @Test
+    public void permanentlyRefusedBatchesAreDeadLetteredAndSkipped() throws Exception {
+        failuresPerBatch = 1;
+        failureStatus = 429; // rate limited: retried like a server error
+        refusedBatch = 11;
+        AttendanceJournal journal = AttendanceJournal.open(tmp.newFolder("journal"));
+        long last = 0;
+        for (int i = 0; i < 30; i++) last = journal.append("student-" + i, T0 + i, "gate-1", 1f);
+        assertTrue(journal.awaitDurable(last, 5, TimeUnit.SECONDS));
+
+        File dead = tmp.newFolder("dead");
+        MemoryCursor cursor = new MemoryCursor();
+        AttendanceUploader uploader = AttendanceUploader.builder(journal, endpoint)
+                .cursor(cursor).deadLetters(dead).batch(10, 0).maxInFlight(1).backoff(1, 10).start();
+        assertTrue(uploader.awaitUploaded(last, 30, TimeUnit.SECONDS));
+        assertEquals(last, cursor.stored);
+
+        assertEquals(6, uploader.attempts());
+        assertEquals(2, uploader.batchesSent());
+        assertEquals(1, uploader.deadLettered());
+        assertEquals(20, received.size());
+        assertFalse(received.contains(11L) || received.contains(20L));
+
+        File[] letters = dead.listFiles();
+        assertEquals(1, letters.length);
+        assertEquals(String.format(Locale.US, "attendance-%020d-%020d-http422.json.gz", 11, 20), letters[0].getName());
+        String json = new String(readAll(new GZIPInputStream(new FileInputStream(letters[0]))), StandardCharsets.UTF_8);
+        Matcher m = SEQUENCE.matcher(json);
+        for (long seq = 11; seq <= 20; seq++) {
+            assertTrue(m.find());
+            assertEquals(seq, Long.parseLong(m.group(1)));
+        }
+        assertFalse(m.find());
+        uploader.close();
+        journal.close();
+    }
+
+    @Test
+    public void recordKeysDoNotDependOnBatchBoundaries() throws Exception {
+        File dir = tmp.newFolder("journal");
+        AttendanceJournal journal = AttendanceJournal.open(dir);
+        long last = 0;
+        for (int i = 0; i < 30; i++) last = journal.append("student-" + i, T0 + i, "gate-1", 1f);
+        assertTrue(journal.awaitDurable(last, 5, TimeUnit.SECONDS));
+
+        AttendanceUploader tens = AttendanceUploader.builder(journal, endpoint).credentials("gate-1", null)
+                .cursor(new MemoryCursor()).deadLetters(tmp.newFolder("dead")).batch(10, 0).start();
+        assertTrue(tens.awaitUploaded(last, 30, TimeUnit.SECONDS));
+        tens.close();
+        Set<String> first = new HashSet<>(keys);
+        assertEquals(30, first.size());
+        assertTrue(first.contains("gate-1-" + journal.journalId() + "-17"));
+
+        // The cursor was lost, so everything goes again, cut differently: the keys repeat exactly
+        keys.clear();
+        AttendanceUploader sevens = AttendanceUploader.builder(journal, endpoint).credentials("gate-1", null)
+                .cursor(new MemoryCursor()).deadLetters(tmp.newFolder("dead-2")).batch(7, 0).start();
+        assertTrue(sevens.awaitUploaded(last, 30, TimeUnit.SECONDS));
+        sevens.close();
+        assertEquals(first, keys);
+        assertEquals(30, duplicates.get());
+        journal.close();
+
+        // A new journal directory, e.g. after a reinstall, restarts the sequences under a new id
+        AttendanceJournal fresh = AttendanceJournal.open(tmp.newFolder("reinstalled"));
+        assertEquals(journal.journalId().length(), fresh.journalId().length());
+        assertFalse(journal.journalId().equals(fresh.journalId()));
+        fresh.close();
+        AttendanceJournal reopened = AttendanceJournal.open(dir);
+        assertEquals(journal.journalId(), reopened.journalId());
+        reopened.close();
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = in.read(buffer)) >= 0) out.write(buffer, 0, n);
+        return out.toByteArray();
+    }
+
+    private static final class MemoryCursor implements AttendanceUploader.Cursor {
+        volatile String journalId;
+        volatile long stored;
+
+        MemoryCursor() {
+            this(null, 0);
+        }
+
+        MemoryCursor(String journalId, long stored) {
+            this.journalId = journalId;
+            this.stored = stored;
+        }
+
+        @Override
+        public long load(String journalId) { return journalId.equals(this.journalId) ? stored : 0; }
+
+        @Override
+        public void store(String journalId, long uploadedThrough) {
+            this.journalId = journalId;
+            stored = uploadedThrough;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.attendancefacerecognition.Metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * {@link FrameMetrics}: stage timing and counters, the JSON export, and the cost of leaving the
+ * instrumentation on against a frame's worth of work.
+ */
+public class FrameMetricsTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void recordsStagesAndCountersWhileEnabled() throws Exception {
+        FrameMetrics metrics = new FrameMetrics(true);
+        for (int i = 0; i < 3; i++) {
+            long start = metrics.start();
+            Thread.sleep(2);
+            metrics.stop(FrameMetrics.Stage.DETECT, start);
+        }
+        metrics.increment(FrameMetrics.Counter.FRAMES_RECEIVED);
+        metrics.add(FrameMetrics.Counter.FACES_DETECTED, 5);
+
+        FrameMetrics.Snapshot s = metrics.snapshot();
+        assertEquals(3, s.stage(FrameMetrics.Stage.DETECT).count());
+        assertTrue(s.stage(FrameMetrics.Stage.DETECT).valueAtPercentile(50) >= 2_000_000);
+        assertEquals(0, s.stage(FrameMetrics.Stage.EMBED).count());
+        assertEquals(1, s.counter(FrameMetrics.Counter.FRAMES_RECEIVED));
+        assertEquals(5, s.counter(FrameMetrics.Counter.FACES_DETECTED));
+
+        metrics.reset();
+        assertEquals(0, metrics.snapshot().stage(FrameMetrics.Stage.DETECT).count());
+        assertEquals(0, metrics.snapshot().counter(FrameMetrics.Counter.FACES_DETECTED));
+    }
+
+    @Test
+    public void disabledMetricsRecordNothing() {
+        FrameMetrics metrics = new FrameMetrics(false);
+        long start = metrics.start();
+        metrics.stop(FrameMetrics.Stage.MATCH, start);
+        metrics.increment(FrameMetrics.Counter.UNKNOWN_MATCHES);
+
+        // A stage that started while disabled is not recorded after enabling
+        metrics.setEnabled(true);
+        metrics.stop(FrameMetrics.Stage.MATCH, start);
+        assertEquals(0, metrics.snapshot().stage(FrameMetrics.Stage.MATCH).count());
+        assertEquals(0, metrics.snapshot().counter(FrameMetrics.Counter.UNKNOWN_MATCHES));
+    }
+
+    @Test
+    public void exportsPercentilesAsJson() throws Exception {
+        FrameMetrics metrics = new FrameMetrics(true);
+        metrics.increment(FrameMetrics.Counter.FRAMES_RECEIVED);
+        metrics.increment(FrameMetrics.Counter.FRAMES_DROPPED);
+        metrics.stop(FrameMetrics.Stage.EMBED, System.nanoTime() - 40_000_000L);
+
+        File file = new File(tmp.getRoot(), "frame-metrics.json");
+        metrics.writeJson(file);
+        String json = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+
+        assertTrue(json, json.startsWith("{\"elapsed_s\":"));
+        assertTrue(json, json.contains("\"counters\":{\"frames_received\":1,\"frames_dropped\":1,"
+                + "\"faces_detected\":0,\"unknown_matches\":0}"));
+        assertTrue(json, json.contains("\"yuv_convert\":{\"count\":0,\"mean_ms\":0.000,\"p50_ms\":0.000"));
+        assertTrue(json, json.matches(".*\"embed\":\\{\"count\":1,\"mean_ms\":4\\d\\.\\d{3},\"p50_ms\":4\\d\\.\\d{3},"
+                + "\"p90_ms\":4\\d\\.\\d{3},\"p99_ms\":4\\d\\.\\d{3},\"p999_ms\":4\\d\\.\\d{3},\"max_ms\":4\\d\\.\\d{3}}.*"));
+        assertTrue(json, json.endsWith("}}"));
+        assertFalse(new File(file.getPath() + ".tmp").exists());
+    }
+
+    @Test
+    public void instrumentationCostsUnderOnePercentOfAFrame() {
+        FrameMetrics metrics = new FrameMetrics(true);
+        FrameMetrics.Stage[] stages = FrameMetrics.Stage.values();
+        // Warm up, then time what one frame records: every stage once and every counter once
+        for (int i = 0; i < 100_000; i++) recordFrame(metrics, stages);
+        int frames = 200_000;
+        long start = System.nanoTime();
+        for (int i = 0; i < frames; i++) recordFrame(metrics, stages);
+        double perFrameNanos = (System.nanoTime() - start) / (double) frames;
+
+        // A frame takes tens of milliseconds end to end; 1% of a 33 ms frame budget is 330 us
+        assertTrue(perFrameNanos + " ns per frame", perFrameNanos < 33e6 * 0.01);
+        assertEquals(300_000, metrics.snapshot().stage(FrameMetrics.Stage.CROP).count());
+    }
+
+    private static void recordFrame(FrameMetrics metrics, FrameMetrics.Stage[] stages) {
+        for (FrameMetrics.Stage stage : stages) metrics.stop(stage, metrics.start());
+        metrics.increment(FrameMetrics.Counter.FRAMES_RECEIVED);
+        metrics.add(FrameMetrics.Counter.FACES_DETECTED, 2);
+        metrics.increment(FrameMetrics.Counter.UNKNOWN_MATCHES);
+        metrics.increment(FrameMetrics.Counter.FRAMES_DROPPED);
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.attendancefacerecognition.Metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * {@link LatencyHistogram}: bucket precision across the range, percentiles, concurrent
+ * recording and allocation-free recording.
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    public void everyValueIsKnownToWithinTwoPercent() {
+        Random random = new Random(1);
+        int previous = -1;
+        for (long v = 0; v < 4096; v++) {
+            int index = LatencyHistogram.index(v);
+            assertTrue("index must not decrease at " + v, index >= previous);
+            previous = index;
+        }
+        for (int i = 0; i < 100_000; i++) {
+            long v = (long) Math.exp(random.nextDouble() * Math.log(LatencyHistogram.MAX_TRACKABLE_NANOS));
+            long top = LatencyHistogram.highestValue(LatencyHistogram.index(v));
+            assertTrue(v + " reported as " + top, top >= v);
+            assertTrue(v + " reported as " + top, top - v <= Math.max(1, v / 64));
+        }
+        long max = LatencyHistogram.MAX_TRACKABLE_NANOS;
+        assertEquals(max, LatencyHistogram.highestValue(LatencyHistogram.index(max)));
+    }
+
+    @Test
+    public void percentilesOfAUniformSpread() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int us = 1; us <= 100_000; us++) histogram.record(us * 1000L);
+        histogram.record(-5);  // clock went backwards: counts as zero
+        LatencyHistogram.Snapshot s = histogram.snapshot();
+
+        assertEquals(100_001, s.count());
+        assertEquals(100_000_000L, s.maxNanos());
+        assertEquals(50_000_500.0 * 100_000 / 100_001, s.meanNanos(), 1.0);
+        assertEquals(50e6, s.valueAtPercentile(50), 50e6 / 64);
+        assertEquals(99e6, s.valueAtPercentile(99), 99e6 / 64);
+        assertEquals(100_000_000L, s.valueAtPercentile(100));
+        assertEquals(0, s.valueAtPercentile(0));
+
+        histogram.reset();
+        assertEquals(0, histogram.snapshot().count());
+        assertEquals(0, histogram.snapshot().valueAtPercentile(99));
+    }
+
+    @Test
+    public void concurrentRecordingLosesNothing() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        int threads = 4;
+        int each = 200_000;
+        List<Thread> recorders = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            final long base = (t + 1) * 1_000_000L;
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < each; i++) histogram.record(base + i % 1000);
+            });
+            thread.start();
+            recorders.add(thread);
+        }
+        for (Thread thread : recorders) thread.join();
+
+        LatencyHistogram.Snapshot s = histogram.snapshot();
+        assertEquals((long) threads * each, s.count());
+        assertEquals(4_000_999L, s.maxNanos());
+    }
+
+    @Test
+    public void recordingDoesNotAllocate() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 200_000; i++) histogram.record(i * 37L);   // warm up the JIT
+
+        long thread = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < 1_000_000; i++) histogram.record(i * 37L);
+        long allocated = threads.getThreadAllocatedBytes(thread) - before;
+
+        // A few hundred bytes of measurement noise at most; one object per call would be 16 MB
+        assertTrue(allocated + " bytes allocated", allocated < 4096);
+    }
+}
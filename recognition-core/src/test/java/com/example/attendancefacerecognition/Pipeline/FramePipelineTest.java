@@ -0,0 +1,270 @@
+package com.example.attendancefacerecognition.Pipeline;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link FramePipeline} driven by a fake frame source: stages that wait on latches or sleep
+ * stand in for detection, embedding and matching.
+ */
+public class FramePipelineTest {
+
+    @Test
+    public void blockingStagesDeliverEverythingInOrder() throws Exception {
+        List<Integer> out = Collections.synchronizedList(new ArrayList<Integer>());
+        try (FramePipeline<Integer> pipeline = FramePipeline.<Integer>builder("order")
+                .stage("detect", 2, Backpressure.BLOCK, (Integer f) -> f * 10)
+                .stage("embed", 2, Backpressure.BLOCK, (Integer f) -> f + 1)
+                .start(out::add)) {
+            for (int i = 0; i < 100; i++) assertTrue(pipeline.submit(i));
+            assertTrue(pipeline.awaitIdle(5, TimeUnit.SECONDS));
+        }
+        assertEquals(100, out.size());
+        for (int i = 0; i < 100; i++) assertEquals(Integer.valueOf(i * 10 + 1), out.get(i));
+    }
+
+    @Test
+    public void stagesOverlapAcrossFrames() throws Exception {
+        // Match on frame 0, embed on frame 1 and detect on frame 2 each wait until all three
+        // are in their stage: run one frame at a time, they would time out instead
+        int frames = 30;
+        CountDownLatch allBusy = new CountDownLatch(3);
+        AtomicInteger met = new AtomicInteger();
+        AtomicInteger delivered = new AtomicInteger();
+        try (FramePipeline<Integer> pipeline = FramePipeline.<Integer>builder("overlap")
+                .stage("detect", 1, Backpressure.BLOCK, meeting(2, allBusy, met))
+                .stage("embed", 1, Backpressure.BLOCK, meeting(1, allBusy, met))
+                .stage("match", 1, Backpressure.BLOCK, meeting(0, allBusy, met))
+                .start(f -> delivered.incrementAndGet())) {
+            for (int i = 0; i < frames; i++) pipeline.submit(i);
+            assertTrue(pipeline.awaitIdle(10, TimeUnit.SECONDS));
+        }
+        assertEquals(3, met.get());
+        assertEquals(frames, delivered.get());
+    }
+
+    @Test
+    public void dropOldestKeepsLatestFrameAndReleasesTheRest() throws Exception {
+        List<Integer> released = Collections.synchronizedList(new ArrayList<Integer>());
+        List<Integer> out = Collections.synchronizedList(new ArrayList<Integer>());
+        CountDownLatch firstStarted = new CountDownLatch(1);
+        CountDownLatch proceed = new CountDownLatch(1);
+
+        FramePipeline<Integer> pipeline = FramePipeline.<Integer>builder("latest")
+                .stage("embed", 1, Backpressure.DROP_OLDEST, (Integer f) -> {
+                    firstStarted.countDown();
+                    proceed.await();
+                    return f;
+                })
+                .onDrop(item -> released.add((Integer) item))
+                .start(out::add);
+        try {
+            pipeline.submit(0);
+            assertTrue(firstStarted.await(5, TimeUnit.SECONDS));
+            // Camera keeps producing while the stage is busy: only the newest survives
+            for (int i = 1; i <= 20; i++) assertTrue(pipeline.submit(i));
+            proceed.countDown();
+            assertTrue(pipeline.awaitIdle(5, TimeUnit.SECONDS));
+
+            StageStats stats = pipeline.stats().get(0);
+            assertEquals(2, stats.processed);
+            assertEquals(19, stats.dropped);
+            assertEquals(19, released.size());
+            assertEquals(Integer.valueOf(20), out.get(out.size() - 1));
+            assertEquals(21, out.size() + released.size());
+        } finally {
+            pipeline.close();
+        }
+    }
+
+    @Test
+    public void blockingQueueSlowsTheProducer() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch proceed = new CountDownLatch(1);
+        FramePipeline<Integer> pipeline = FramePipeline.<Integer>builder("block")
+                .stage("match", 1, Backpressure.BLOCK, (Integer f) -> {
+                    started.countDown();
+                    proceed.await();
+                    return f;
+                })
+                .start(f -> { });
+        try {
+            pipeline.submit(0);
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            pipeline.submit(1); // fills the queue
+            Thread producer = new Thread(() -> pipeline.submit(2));
+            producer.start();
+            producer.join(100);
+            assertTrue("producer should wait for room", producer.isAlive());
+            proceed.countDown();
+            producer.join(5000);
+            assertFalse(producer.isAlive());
+            assertTrue(pipeline.awaitIdle(5, TimeUnit.SECONDS));
+            assertEquals(3, pipeline.stats().get(0).processed);
+        } finally {
+            pipeline.close();
+        }
+    }
+
+    @Test
+    public void statsReportLatencyPerStage() throws Exception {
+        try (FramePipeline<Integer> pipeline = FramePipeline.<Integer>builder("stats")
+                .stage("detect", 4, Backpressure.BLOCK, sleeping(2))
+                .stage("embed", 4, Backpressure.BLOCK, sleeping(8))
+                .start(f -> { })) {
+            for (int i = 0; i < 10; i++) pipeline.submit(i);
+            assertTrue(pipeline.awaitIdle(5, TimeUnit.SECONDS));
+
+            List<StageStats> stats = pipeline.stats();
+            assertEquals("detect", stats.get(0).name);
+            assertEquals("embed", stats.get(1).name);
+            assertEquals(10, stats.get(0).processed);
+            assertEquals(10, stats.get(1).processed);
+            assertTrue(stats.get(0).meanLatencyMillis >= 2);
+            assertTrue(stats.get(1).meanLatencyMillis >= 8);
+            assertTrue(stats.get(1).maxLatencyMillis >= stats.get(1).meanLatencyMillis);
+            assertTrue(stats.get(1).throughputPerSecond > 0);
+        }
+    }
+
+    @Test
+    public void failuresAndFilteredItemsLeaveThePipeline() throws Exception {
+        AtomicInteger delivered = new AtomicInteger();
+        List<Object> released = Collections.synchronizedList(new ArrayList<>());
+        try (FramePipeline<Integer> pipeline = FramePipeline.<Integer>builder("errors")
+                .stage("detect", 4, Backpressure.BLOCK, (Integer f) -> {
+                    if (f % 3 == 0) throw new IllegalStateException("bad frame " + f);
+                    return f % 3 == 1 ? f : null; // no faces
+                })
+                .onDrop(released::add)
+                .start(f -> delivered.incrementAndGet())) {
+            for (int i = 0; i < 9; i++) pipeline.submit(i);
+            assertTrue(pipeline.awaitIdle(5, TimeUnit.SECONDS));
+            assertEquals(3, pipeline.stats().get(0).failed);
+            assertEquals(0, pipeline.stats().get(0).dropped);
+            assertEquals(0, pipeline.inFlight());
+        }
+        assertEquals(3, delivered.get());
+        // The input of a stage that threw goes back through the drop handler
+        assertEquals(Arrays.<Object>asList(0, 3, 6), released);
+    }
+
+    @Test
+    public void failingStagesDoNotStarveAPool() throws Exception {
+        ArrayBlockingQueue<int[]> pool = new ArrayBlockingQueue<>(2);
+        pool.add(new int[1]);
+        pool.add(new int[1]);
+        AtomicInteger delivered = new AtomicInteger();
+        try (FramePipeline<int[]> pipeline = FramePipeline.<int[]>builder("pool")
+                .stage("embed", 2, Backpressure.BLOCK, (int[] job) -> {
+                    if (job[0] % 2 == 0) throw new IllegalStateException("model crashed");
+                    return job;
+                })
+                .onDrop(job -> pool.offer((int[]) job))
+                .start(job -> {
+                    delivered.incrementAndGet();
+                    pool.offer(job);
+                })) {
+            for (int i = 0; i < 20; i++) {
+                int[] job = pool.poll(5, TimeUnit.SECONDS);
+                assertTrue("pool starved at frame " + i, job != null);
+                job[0] = i;
+                pipeline.submit(job);
+            }
+            assertTrue(pipeline.awaitIdle(5, TimeUnit.SECONDS));
+            assertEquals(10, pipeline.stats().get(0).failed);
+        }
+        assertEquals(10, delivered.get());
+        assertEquals(2, pool.size());
+    }
+
+    @Test
+    public void closeReleasesQueuedItems() throws Exception {
+        List<Object> released = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch started = new CountDownLatch(1);
+        FramePipeline<Integer> pipeline = FramePipeline.<Integer>builder("close")
+                .stage("embed", 4, Backpressure.BLOCK, (Integer f) -> {
+                    started.countDown();
+                    Thread.sleep(10_000);
+                    return f;
+                })
+                .onDrop(released::add)
+                .start(f -> { });
+        pipeline.submit(0);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        pipeline.submit(1);
+        pipeline.submit(2);
+        assertTrue(pipeline.close(5, TimeUnit.SECONDS));
+
+        // The two queued, and the one whose stage was interrupted mid-call
+        assertEquals(3, released.size());
+        assertFalse(pipeline.submit(3));
+        assertEquals(4, released.size());
+    }
+
+    @Test
+    public void closeReportsAStuckStageAndDropsWhatItFinishesLater() throws Exception {
+        List<Object> released = Collections.synchronizedList(new ArrayList<>());
+        List<Object> delivered = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch unstick = new CountDownLatch(1);
+        FramePipeline<Integer> pipeline = FramePipeline.<Integer>builder("stuck")
+                .stage("embed", 2, Backpressure.BLOCK, (Integer f) -> {
+                    started.countDown();
+                    // A model call that ignores interrupts
+                    while (true) {
+                        try {
+                            if (unstick.await(10, TimeUnit.SECONDS)) break;
+                        } catch (InterruptedException ignored) {
+                            // keep going, like native code would
+                        }
+                    }
+                    return f;
+                })
+                .stage("match", 2, Backpressure.BLOCK, (Integer f) -> f)
+                .onDrop(released::add)
+                .start(delivered::add);
+        pipeline.submit(7);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        assertFalse(pipeline.close(100, TimeUnit.MILLISECONDS));
+        assertFalse(pipeline.isTerminated());
+
+        unstick.countDown();
+        assertTrue(pipeline.close(5, TimeUnit.SECONDS));
+        assertTrue(pipeline.isTerminated());
+        assertTrue(delivered.isEmpty());
+        assertEquals(Collections.<Object>singletonList(7), released);
+        assertEquals(0, pipeline.inFlight());
+    }
+
+    // On its frame, waits until every stage has reached its own
+    private static Stage<Integer, Integer> meeting(int frame, CountDownLatch allBusy, AtomicInteger met) {
+        return f -> {
+            if (f == frame) {
+                allBusy.countDown();
+                if (allBusy.await(5, TimeUnit.SECONDS)) met.incrementAndGet();
+            }
+            return f;
+        };
+    }
+
+    private static Stage<Integer, Integer> sleeping(long millis) {
+        return f -> {
+            Thread.sleep(millis);
+            return f;
+        };
+    }
+}
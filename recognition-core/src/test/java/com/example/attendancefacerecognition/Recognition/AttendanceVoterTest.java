@@ -0,0 +1,106 @@
+package com.example.attendancefacerecognition.Recognition;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link AttendanceVoter} on synthetic 15 fps recognition streams: one confirmation per
+ * identity and cooldown, confidence weighting, the sliding window, and concurrent voters.
+ */
+public class AttendanceVoterTest {
+
+    private static final long FRAME = TimeUnit.SECONDS.toNanos(1) / 15;
+    private static final long WINDOW = TimeUnit.SECONDS.toNanos(3);
+    private static final long COOLDOWN = TimeUnit.MINUTES.toNanos(5);
+    private static final long START = TimeUnit.HOURS.toNanos(7); // arbitrary sensor clock offset
+
+    private final List<String> confirmed = Collections.synchronizedList(new ArrayList<String>());
+    private final AttendanceVoter voter = new AttendanceVoter(WINDOW, 6, 12f, COOLDOWN,
+            (identity, weight, timestamp) -> confirmed.add(identity));
+
+    @Test
+    public void faceInViewIsConfirmedOnce() {
+        // A minute in front of the camera, with a second person passing by for half a second
+        for (int f = 0; f < 15 * 60; f++) {
+            long t = START + f * FRAME;
+            voter.vote("alice", 1f, t);
+            if (f >= 100 && f < 108) voter.vote("bob", 1f, t);
+        }
+        assertEquals(Collections.singletonList("alice"), confirmed);
+        assertEquals(1, voter.confirmations());
+        assertEquals(2, voter.identities());
+    }
+
+    @Test
+    public void confirmationNeedsTheVotesOfTheWindow() {
+        for (int f = 0; f < 11; f++) assertFalse(voter.vote("alice", 1f, START + f * FRAME));
+        assertTrue(voter.vote("alice", 1f, START + 11 * FRAME));
+        assertEquals(12f, voter.weight("alice", START + 11 * FRAME), 1e-3f);
+    }
+
+    @Test
+    public void tentativeVotesCountLess() {
+        int frames = 0;
+        while (!voter.vote("alice", 0.4f, START + frames * FRAME)) frames++;
+        assertEquals(29, frames);
+        assertEquals(1, confirmed.size());
+    }
+
+    @Test
+    public void sparseVotesFallOutOfTheWindow() {
+        // One vote every half second never reaches 12 within 3 seconds
+        for (int i = 0; i < 200; i++) voter.vote("alice", 1f, START + i * TimeUnit.MILLISECONDS.toNanos(500));
+        assertTrue(confirmed.isEmpty());
+        assertTrue(voter.weight("alice", START + 199 * TimeUnit.MILLISECONDS.toNanos(500)) <= 7f);
+        assertEquals(0f, voter.weight("alice", START + TimeUnit.HOURS.toNanos(1)), 0f);
+    }
+
+    @Test
+    public void identityIsConfirmedAgainAfterTheCooldown() {
+        for (int f = 0; f < 30; f++) voter.vote("alice", 1f, START + f * FRAME);
+        long later = START + COOLDOWN + TimeUnit.SECONDS.toNanos(1);
+        for (int f = 0; f < 30; f++) voter.vote("alice", 1f, later + f * FRAME);
+        assertEquals(2, confirmed.size());
+    }
+
+    @Test
+    public void lateVotesForRecycledBucketsAreDropped() {
+        voter.vote("alice", 1f, START + WINDOW * 2);
+        voter.vote("alice", 5f, START);
+        assertEquals(1f, voter.weight("alice", START + WINDOW * 2), 1e-3f);
+        assertFalse(voter.vote(null, 1f, START));
+        assertFalse(voter.vote("alice", 0f, START));
+    }
+
+    @Test
+    public void concurrentVotersEmitOneConfirmation() throws Exception {
+        int threads = 4;
+        CountDownLatch go = new CountDownLatch(1);
+        List<Thread> voters = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            int offset = i;
+            Thread thread = new Thread(() -> {
+                try {
+                    go.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int f = 0; f < 2000; f++) voter.vote("alice", 1f, START + (f * threads + offset) * (FRAME / threads));
+            });
+            thread.start();
+            voters.add(thread);
+        }
+        go.countDown();
+        for (Thread thread : voters) thread.join(5000);
+        assertEquals(1, confirmed.size());
+    }
+}
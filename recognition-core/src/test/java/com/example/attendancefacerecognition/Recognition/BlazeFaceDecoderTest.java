@@ -0,0 +1,146 @@
+package com.example.attendancefacerecognition.Recognition;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * {@link BlazeFaceDecoder} on raw [1][896][16] / [1][896][1] tensors laid out the way the
+ * short-range model emits them: a face fires a cluster of neighbouring anchors with slightly
+ * different boxes, every other anchor carries a strongly negative logit.
+ */
+public class BlazeFaceDecoderTest {
+
+    private static final int SIZE = BlazeFaceDecoder.INPUT_SIZE;
+
+    @Test
+    public void anchorTableMatchesShortRangeLayout() {
+        assertEquals(BlazeFaceDecoder.ANCHORS * 2,
+                BlazeFaceDecoder.generateAnchors(SIZE, new int[]{8, 16, 16, 16}, 2).length);
+        // 16x16 grid, two anchors per cell
+        assertEquals(0.5f / 16, BlazeFaceDecoder.anchorX(0), 1e-6f);
+        assertEquals(0.5f / 16, BlazeFaceDecoder.anchorX(1), 1e-6f);
+        assertEquals(1.5f / 16, BlazeFaceDecoder.anchorX(2), 1e-6f);
+        assertEquals(15.5f / 16, BlazeFaceDecoder.anchorY(511), 1e-6f);
+        // then 8x8 grid, six anchors per cell
+        assertEquals(0.5f / 8, BlazeFaceDecoder.anchorX(512), 1e-6f);
+        assertEquals(0.5f / 8, BlazeFaceDecoder.anchorX(517), 1e-6f);
+        assertEquals(1.5f / 8, BlazeFaceDecoder.anchorX(518), 1e-6f);
+        assertEquals(7.5f / 8, BlazeFaceDecoder.anchorX(895), 1e-6f);
+        assertEquals(7.5f / 8, BlazeFaceDecoder.anchorY(895), 1e-6f);
+    }
+
+    @Test
+    public void clusterOfAnchorsCollapsesToOneFace() {
+        Tensors t = new Tensors();
+        int hits = t.face(0.40f, 0.45f, 0.30f, 0.36f, 4f, new Random(1));
+
+        FaceDetections out = new BlazeFaceDecoder().decode(t.regressors, t.scores, new FaceDetections(8));
+
+        assertTrue("cluster should fire several anchors, got " + hits, hits >= 8);
+        assertEquals(1, out.size());
+        assertEquals(0.40f - 0.15f, out.xMin(0), 0.01f);
+        assertEquals(0.45f - 0.18f, out.yMin(0), 0.01f);
+        assertEquals(0.40f + 0.15f, out.xMax(0), 0.01f);
+        assertEquals(0.45f + 0.18f, out.yMax(0), 0.01f);
+        // The merged box keeps the score of the anchor nearest the centre
+        float best = -Float.MAX_VALUE;
+        for (int i = 0; i < BlazeFaceDecoder.ANCHORS; i++) best = Math.max(best, t.scores[0][i][0]);
+        assertEquals(BlazeFaceDecoder.sigmoid(best), out.score(0), 1e-6f);
+        // Right eye keypoint sits left of and above the centre
+        assertEquals(0.40f - 0.06f, out.keypointX(0, 0), 0.01f);
+        assertEquals(0.45f - 0.05f, out.keypointY(0, 0), 0.01f);
+    }
+
+    @Test
+    public void separateFacesAreKeptBestFirst() {
+        Tensors t = new Tensors();
+        t.face(0.25f, 0.30f, 0.20f, 0.24f, 2f, new Random(2));
+        t.face(0.75f, 0.60f, 0.22f, 0.26f, 5f, new Random(3));
+
+        FaceDetections out = new BlazeFaceDecoder().decode(t.regressors, t.scores, new FaceDetections(8));
+
+        assertEquals(2, out.size());
+        assertEquals(0.75f, (out.xMin(0) + out.xMax(0)) / 2, 0.01f);
+        assertEquals(0.25f, (out.xMin(1) + out.xMax(1)) / 2, 0.01f);
+        assertTrue(out.score(0) > out.score(1));
+    }
+
+    @Test
+    public void lowLogitsProduceNothing() {
+        Tensors t = new Tensors();
+        t.face(0.5f, 0.5f, 0.3f, 0.3f, -0.5f, new Random(4));
+        assertEquals(0, new BlazeFaceDecoder().decode(t.regressors, t.scores, new FaceDetections(8)).size());
+        // ...but pass a lower score threshold
+        assertEquals(1, new BlazeFaceDecoder(0.3f, 0.3f).decode(t.regressors, t.scores, new FaceDetections(8)).size());
+    }
+
+    @Test
+    public void iouThresholdControlsMerging() {
+        Tensors t = new Tensors();
+        int hits = t.face(0.5f, 0.5f, 0.3f, 0.3f, 3f, new Random(5));
+        FaceDetections strict = new BlazeFaceDecoder(0.5f, 0.999f).decode(t.regressors, t.scores, new FaceDetections(64));
+        assertEquals(hits, strict.size());
+    }
+
+    @Test
+    public void outputStopsAtCapacity() {
+        Tensors t = new Tensors();
+        t.face(0.2f, 0.2f, 0.1f, 0.1f, 3f, new Random(6));
+        t.face(0.5f, 0.5f, 0.1f, 0.1f, 3f, new Random(7));
+        t.face(0.8f, 0.8f, 0.1f, 0.1f, 3f, new Random(8));
+        assertEquals(2, new BlazeFaceDecoder().decode(t.regressors, t.scores, new FaceDetections(2)).size());
+    }
+
+    @Test
+    public void iouOfBoxes() {
+        float[] boxes = {0f, 0f, 2f, 2f, 1f, 1f, 3f, 3f, 5f, 5f, 6f, 6f};
+        assertEquals(1f / 7f, BlazeFaceDecoder.iou(boxes, 0, 4), 1e-6f);
+        assertEquals(0f, BlazeFaceDecoder.iou(boxes, 0, 8), 0f);
+        assertEquals(1f, BlazeFaceDecoder.iou(boxes, 0, 0), 1e-6f);
+    }
+
+    private static final class Tensors {
+        final float[][][] regressors = new float[1][BlazeFaceDecoder.ANCHORS][BlazeFaceDecoder.VALUES];
+        final float[][][] scores = new float[1][BlazeFaceDecoder.ANCHORS][1];
+
+        Tensors() {
+            for (int i = 0; i < BlazeFaceDecoder.ANCHORS; i++) scores[0][i][0] = -8f;
+        }
+
+        // Encodes a face on every anchor whose centre lies inside the middle of the box, with
+        // up to 1.5 px of jitter per value; the anchor nearest the centre gets the top logit.
+        int face(float cx, float cy, float w, float h, float logit, Random jitter) {
+            int hits = 0;
+            for (int i = 0; i < BlazeFaceDecoder.ANCHORS; i++) {
+                float ax = BlazeFaceDecoder.anchorX(i);
+                float ay = BlazeFaceDecoder.anchorY(i);
+                float dx = Math.abs(ax - cx);
+                float dy = Math.abs(ay - cy);
+                if (dx > w / 4 || dy > h / 4) continue;
+
+                float[] raw = regressors[0][i];
+                raw[0] = (cx - ax) * SIZE + noise(jitter);
+                raw[1] = (cy - ay) * SIZE + noise(jitter);
+                raw[2] = w * SIZE + noise(jitter);
+                raw[3] = h * SIZE + noise(jitter);
+                float[] kx = {-0.06f, 0.06f, 0f, 0f, -0.14f, 0.14f};
+                float[] ky = {-0.05f, -0.05f, 0.02f, 0.09f, -0.02f, -0.02f};
+                for (int k = 0; k < FaceDetections.KEYPOINTS; k++) {
+                    raw[4 + k * 2] = (cx + kx[k] - ax) * SIZE + noise(jitter);
+                    raw[5 + k * 2] = (cy + ky[k] - ay) * SIZE + noise(jitter);
+                }
+                scores[0][i][0] = logit - 4f * (dx + dy);
+                hits++;
+            }
+            return hits;
+        }
+
+        private static float noise(Random r) {
+            return (r.nextFloat() - 0.5f) * 3f;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.attendancefacerecognition.Recognition;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+/**
+ * {@link BoxPropagator} on synthetic luma: a textured "face" patch on a smooth background,
+ * moved, brightened, rotated or removed between frames.
+ */
+public class BoxPropagatorTest {
+
+    private static final int W = 320;
+    private static final int H = 240;
+    private static final int FACE = 64;
+
+    @Test
+    public void followsAFaceAcrossFrames() {
+        BoxPropagator propagator = new BoxPropagator(4);
+        float[] box = {100, 80, 100 + FACE, 80 + FACE};
+        propagator.capture(frame(100, 80, 0, 0), box, 1);
+
+        // 5 px right and 3 px down per frame: about one template cell
+        for (int f = 1; f <= 8; f++) {
+            assertTrue("frame " + f, propagator.propagate(frame(100 + 5 * f, 80 + 3 * f, 0, 0), box));
+            float cell = FACE / (float) BoxPropagator.DEFAULT_TEMPLATE_SIZE;
+            assertEquals(100 + 5 * f, box[0], cell);
+            assertEquals(80 + 3 * f, box[1], cell);
+            assertEquals(FACE, box[2] - box[0], 1e-3f);
+        }
+    }
+
+    @Test
+    public void staticFaceStaysPut() {
+        BoxPropagator propagator = new BoxPropagator(4);
+        float[] box = {100, 80, 100 + FACE, 80 + FACE};
+        propagator.capture(frame(100, 80, 0, 0), box, 1);
+        assertTrue(propagator.propagate(frame(100, 80, 0, 0), box));
+        assertEquals(100f, box[0], 0f);
+        assertEquals(80f, box[1], 0f);
+        assertEquals(0f, propagator.difference(0), 0f);
+    }
+
+    @Test
+    public void exposureChangeIsNotMotion() {
+        BoxPropagator propagator = new BoxPropagator(4);
+        float[] box = {100, 80, 100 + FACE, 80 + FACE};
+        propagator.capture(frame(100, 80, 0, 0), box, 1);
+        assertTrue(propagator.propagate(frame(100, 80, 40, 0), box));
+        assertEquals(100f, box[0], 0f);
+    }
+
+    @Test
+    public void faceLeavingMakesBoxesStale() {
+        BoxPropagator propagator = new BoxPropagator(4);
+        float[] box = {100, 80, 100 + FACE, 80 + FACE};
+        propagator.capture(frame(100, 80, 0, 0), box, 1);
+        assertFalse(propagator.propagate(frame(-1, -1, 0, 0), box));
+        assertTrue(propagator.difference(0) > BoxPropagator.DEFAULT_MAX_DIFFERENCE);
+    }
+
+    @Test
+    public void worksInUprightCoordinatesOfRotatedFrames() {
+        BoxPropagator propagator = new BoxPropagator(4);
+        // Sensor patch at (100, 80) in a 90 degree frame sits at upright (H - 80 - FACE, 100)
+        float ux = H - 80 - FACE;
+        float[] box = {ux, 100, ux + FACE, 100 + FACE};
+        propagator.capture(frame(100, 80, 0, 90), box, 1);
+        // Moving down the sensor y axis moves left in the upright frame
+        assertTrue(propagator.propagate(frame(100, 88, 0, 90), box));
+        assertEquals(ux - 8, box[0], FACE / (float) BoxPropagator.DEFAULT_TEMPLATE_SIZE);
+        assertEquals(100f, box[1], FACE / (float) BoxPropagator.DEFAULT_TEMPLATE_SIZE);
+    }
+
+    // Gradient background; the face at sensor (faceX, faceY) is smooth structure at a few cells
+    // per period, like eyes, nose and mouth, rather than per-pixel noise
+    private static YuvFrame frame(int faceX, int faceY, int brighten, int rotation) {
+        ByteBuffer y = ByteBuffer.allocate(W * H);
+        for (int row = 0; row < H; row++) {
+            for (int x = 0; x < W; x++) y.put(row * W + x, (byte) clamp(60 + x / 8 + row / 8 + brighten));
+        }
+        if (faceX >= 0) {
+            for (int row = 0; row < FACE; row++) {
+                for (int x = 0; x < FACE; x++) {
+                    double v = 128 + 45 * Math.sin(x / 5.0) * Math.cos(row / 7.0)
+                            + 35 * Math.sin((x + 2 * row) / 11.0) + brighten;
+                    y.put((faceY + row) * W + faceX + x, (byte) clamp((int) v));
+                }
+            }
+        }
+        ByteBuffer chroma = ByteBuffer.allocate(W * H / 4);
+        for (int i = 0; i < chroma.capacity(); i++) chroma.put(i, (byte) 128);
+        return new YuvFrame().set(y, W, chroma, chroma, W / 2, 1, W, H, rotation, 0L);
+    }
+
+    private static int clamp(int v) {
+        return v < 0 ? 0 : (v > 255 ? 255 : v);
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.attendancefacerecognition.Recognition;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Two-stage {@link CentroidMatcher} against the full {@link EmbeddingMatcher} scan: same answer,
+ * far fewer comparisons.
+ */
+public class CentroidMatcherTest {
+
+    private static final int DIM = 512;
+
+    @Test
+    public void agreesWithFullScanOnFewerComparisons() {
+        Random random = new Random(3);
+        List<float[]> rows = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        List<float[]> centres = clustered(random, 500, 20, rows, names);
+        EmbeddingGallery gallery = EmbeddingGallery.fromRows(rows, names);
+
+        EmbeddingMatcher full = new EmbeddingMatcher(gallery);
+        CentroidMatcher twoStage = new CentroidMatcher(gallery);
+        MatchResult expected = new MatchResult(2);
+        MatchResult actual = new MatchResult(2);
+
+        List<float[]> queries = new ArrayList<>();
+        for (int i = 0; i < 300; i++) queries.add(noisy(centres.get(random.nextInt(centres.size())), random, 0.6f));
+
+        int same = 0;
+        long comparisons = 0;
+        for (float[] q : queries) {
+            full.match(q, expected);
+            twoStage.match(q, actual);
+            if (expected.bestName().equals(actual.bestName())) same++;
+            comparisons += twoStage.comparisons(q);
+        }
+        double agreement = same / (double) queries.size();
+        double perQuery = comparisons / (double) queries.size();
+
+        assertTrue("agreement " + agreement, agreement >= 0.99);
+        assertTrue(perQuery < gallery.size() / 10.0);
+    }
+
+    @Test
+    public void extendMatchesFreshBuild() {
+        Random random = new Random(9);
+        List<float[]> rows = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        clustered(random, 50, 5, rows, names);
+        EmbeddingGallery before = EmbeddingGallery.fromRows(rows, names);
+
+        // A new person plus extra samples for an existing one.
+        List<float[]> centres = clustered(random, 2, 5, rows, names);
+        names.set(names.size() - 1, names.get(0));
+        EmbeddingGallery after = EmbeddingGallery.fromRows(rows, names);
+
+        float[] extended = new CentroidMatcher(before).extend(after).centroids();
+        float[] fresh = new CentroidMatcher(after).centroids();
+        assertEquals(fresh.length, extended.length);
+        for (int i = 0; i < fresh.length; i++) assertEquals(fresh[i], extended[i], 1e-5f);
+
+        MatchResult result = new MatchResult(2);
+        new CentroidMatcher(before).extend(after).match(noisy(centres.get(0), random, 0.3f), result);
+        assertEquals(after.nameAt(after.size() - 10), result.bestName());
+    }
+
+    // Adds `samples` noisy rows for each of `identities` new centres; returns the centres.
+    private static List<float[]> clustered(Random random, int identities, int samples, List<float[]> rows, List<String> names) {
+        List<float[]> centres = new ArrayList<>();
+        int first = names.size();
+        for (int id = 0; id < identities; id++) {
+            float[] centre = new float[DIM];
+            for (int i = 0; i < DIM; i++) centre[i] = (float) random.nextGaussian();
+            centres.add(normalize(centre));
+            for (int s = 0; s < samples; s++) {
+                rows.add(noisy(centres.get(id), random, 0.6f));
+                names.add("person-" + (first + id));
+            }
+        }
+        return centres;
+    }
+
+    private static float[] noisy(float[] base, Random random, float sigma) {
+        float[] out = new float[base.length];
+        for (int i = 0; i < out.length; i++) out[i] = base[i] + (float) random.nextGaussian() * sigma / (float) Math.sqrt(DIM);
+        return normalize(out);
+    }
+
+    private static float[] normalize(float[] v) {
+        float norm = 0f;
+        for (float x : v) norm += x * x;
+        norm = (float) Math.sqrt(norm);
+        for (int i = 0; i < v.length; i++) v[i] /= norm;
+        return v;
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.attendancefacerecognition.Recognition;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * {@link DetectionScheduler} fed with synthetic latencies for fast and slow devices.
+ */
+public class DetectionSchedulerTest {
+
+    private static final long MS = 1_000_000L;
+
+    @Test
+    public void firstFrameAlwaysDetects() {
+        DetectionScheduler scheduler = new DetectionScheduler(30f, 3, 10);
+        assertTrue(scheduler.shouldDetect());
+    }
+
+    @Test
+    public void fastDetectorRunsEveryMinInterval() {
+        DetectionScheduler scheduler = new DetectionScheduler(30f, 3, 10);
+        int detections = run(scheduler, 300, 8 * MS, 1 * MS);
+        assertEquals(3, scheduler.interval());
+        assertEquals(100, detections);
+    }
+
+    @Test
+    public void slowDetectorStretchesTheInterval() {
+        // 30 fps budget is 33.3 ms; 100 ms detection and 2 ms propagation need N = ceil(98 / 31.3) = 4
+        DetectionScheduler scheduler = new DetectionScheduler(30f, 1, 10);
+        int detections = run(scheduler, 400, 100 * MS, 2 * MS);
+        assertEquals(4, scheduler.interval());
+        assertEquals(100, detections, 1);
+
+        double perFrame = (detections * 100.0 + (400 - detections) * 2.0) / 400;
+        assertTrue(perFrame <= 1000.0 / 30);
+    }
+
+    @Test
+    public void intervalIsClampedWhenPropagationAloneBlowsTheBudget() {
+        DetectionScheduler scheduler = new DetectionScheduler(30f, 2, 6);
+        run(scheduler, 50, 200 * MS, 40 * MS);
+        assertEquals(6, scheduler.interval());
+    }
+
+    @Test
+    public void invalidateForcesTheNextFrame() {
+        DetectionScheduler scheduler = new DetectionScheduler(30f, 5, 10);
+        scheduler.detected(5 * MS);
+        assertFalse(scheduler.shouldDetect());
+        scheduler.invalidate();
+        assertTrue(scheduler.shouldDetect());
+        scheduler.detected(5 * MS);
+        assertFalse(scheduler.shouldDetect());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsInvertedBounds() {
+        new DetectionScheduler(30f, 5, 2);
+    }
+
+    private static int run(DetectionScheduler scheduler, int frames, long detectNanos, long propagateNanos) {
+        int detections = 0;
+        for (int f = 0; f < frames; f++) {
+            if (scheduler.shouldDetect()) {
+                scheduler.detected(detectNanos);
+                detections++;
+            } else {
+                scheduler.propagated(propagateNanos);
+            }
+        }
+        return detections;
+    }
+}
@@ -0,0 +1,170 @@
+package com.example.attendancefacerecognition.Recognition;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * {@link EmbeddingMatcher} against a brute-force scan: early abandon never drops a row that
+ * belongs in the top k, even when a row's weight sits in its last block; results come best
+ * first with one entry per identity; and {@link MatchResult#nameOrUnknown} applies the score
+ * threshold and the margin over the runner-up.
+ */
+public class EmbeddingMatcherTest {
+
+    private static final int DIM = 200; // not a multiple of the block size
+
+    @Test
+    public void earlyAbandonReturnsTheBruteForceTopK() {
+        Random random = new Random(21);
+        List<float[]> rows = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            rows.add(unit(random));
+            names.add("person-" + (i % 400));
+        }
+        EmbeddingGallery gallery = EmbeddingGallery.fromRows(rows, names);
+        EmbeddingMatcher matcher = new EmbeddingMatcher(gallery);
+
+        for (int k : new int[] {1, 2, 5}) {
+            MatchResult out = new MatchResult(k);
+            for (int q = 0; q < 150; q++) {
+                float[] query = q % 3 == 0 ? noisy(rows.get(random.nextInt(rows.size())), random, 0.3f) : unit(random);
+                assertSameRanking(bruteForce(gallery, query, k), matcher.match(query, out));
+            }
+        }
+    }
+
+    @Test
+    public void rowsWhoseWeightIsInTheLastBlockAreNotAbandoned() {
+        // The first blocks score nothing against the query, so the running dot product stays
+        // low until the tail; only the Cauchy-Schwarz bound keeps these rows alive
+        Random random = new Random(22);
+        float[] query = unit(random);
+        List<float[]> rows = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            rows.add(noisy(query, random, 1.2f));
+            names.add("decoy-" + i);
+        }
+        int tailStart = (DIM - 1) / EmbeddingMatcher.BLOCK * EmbeddingMatcher.BLOCK;
+        float[] tail = new float[DIM];
+        System.arraycopy(query, tailStart, tail, tailStart, DIM - tailStart);
+        rows.add(TensorArena.normalize(tail));
+        names.add("tail");
+        EmbeddingGallery gallery = EmbeddingGallery.fromRows(rows, names);
+
+        MatchResult out = new EmbeddingMatcher(gallery).match(query, new MatchResult(3));
+        assertSameRanking(bruteForce(gallery, query, 3), out);
+    }
+
+    @Test
+    public void topKIsBestFirstWithOneEntryPerIdentity() {
+        Random random = new Random(23);
+        float[] query = unit(random);
+        // Ada's three rows beat everyone else's; only her best row counts
+        List<float[]> rows = Arrays.asList(
+                noisy(query, random, 0.9f), noisy(query, random, 0.1f), noisy(query, random, 0.2f),
+                noisy(query, random, 0.5f), noisy(query, random, 0.7f), unit(random));
+        List<String> names = Arrays.asList("Ada", "Ada", "Ada", "Grace", "Alan", "Edsger");
+        EmbeddingGallery gallery = EmbeddingGallery.fromRows(rows, names);
+
+        MatchResult out = new EmbeddingMatcher(gallery).match(query, new MatchResult(3));
+        assertEquals(3, out.size());
+        assertEquals("Ada", out.name(0));
+        assertEquals(1, out.row(0));
+        assertEquals("Grace", out.name(1));
+        assertEquals("Alan", out.name(2));
+        assertTrue(out.score(0) > out.score(1) && out.score(1) > out.score(2));
+        assertEquals(out.score(0) - out.score(1), out.margin(), 0f);
+        assertSameRanking(bruteForce(gallery, query, 3), out);
+
+        // An exact duplicate under another name ties; the earlier row stays in front
+        List<float[]> twins = Arrays.asList(rows.get(3), rows.get(1), rows.get(1).clone());
+        MatchResult tie = new EmbeddingMatcher(EmbeddingGallery.fromRows(twins, Arrays.asList("Grace", "Ada", "Twin")))
+                .match(query, new MatchResult(2));
+        assertEquals("Ada", tie.name(0));
+        assertEquals("Twin", tie.name(1));
+        assertEquals(0f, tie.margin(), 0f);
+    }
+
+    @Test
+    public void nameOrUnknownAppliesThresholdAndMargin() {
+        Random random = new Random(24);
+        float[] query = unit(random);
+        float[] close = noisy(query, random, 0.1f);
+        float[] almostAsClose = noisy(query, random, 0.2f);
+        float minScore = EmbeddingMatcher.scoreForDistance(0.65f);
+
+        MatchResult alone = new EmbeddingMatcher(EmbeddingGallery.fromRows(
+                Collections.singletonList(close), Collections.singletonList("Ada"))).match(query, new MatchResult(2));
+        assertEquals(Float.POSITIVE_INFINITY, alone.margin(), 0f);
+        assertEquals("Ada", alone.nameOrUnknown(minScore, 0.5f));
+
+        MatchResult contested = new EmbeddingMatcher(EmbeddingGallery.fromRows(
+                Arrays.asList(close, almostAsClose), Arrays.asList("Ada", "Grace"))).match(query, new MatchResult(2));
+        float margin = contested.margin();
+        assertTrue("margin " + margin, margin > 0f && margin < 0.05f);
+        assertEquals("Ada", contested.nameOrUnknown(minScore));
+        assertEquals("Ada", contested.nameOrUnknown(minScore, margin));
+        assertEquals(EmbeddingGallery.UNKNOWN, contested.nameOrUnknown(minScore, margin + 1e-4f));
+        assertEquals(EmbeddingGallery.UNKNOWN, contested.nameOrUnknown(contested.bestScore() + 1e-4f));
+
+        MatchResult empty = new EmbeddingMatcher(EmbeddingGallery.empty(DIM)).match(query, new MatchResult(2));
+        assertEquals(EmbeddingGallery.UNKNOWN, empty.nameOrUnknown(-1f, 0f));
+    }
+
+    // Every row scored in full: each identity's best row, best identity first, ties to the lower row
+    private static MatchResult bruteForce(EmbeddingGallery gallery, float[] query, int k) {
+        float[] best = new float[gallery.identityCount()];
+        int[] bestRow = new int[gallery.identityCount()];
+        Arrays.fill(best, Float.NEGATIVE_INFINITY);
+        float[] data = gallery.rawData();
+        for (int row = 0; row < gallery.size(); row++) {
+            float dot = 0f;
+            for (int i = 0; i < DIM; i++) dot += query[i] * data[gallery.offsetOf(row) + i];
+            int identity = gallery.identityOf(row);
+            if (dot > best[identity]) {
+                best[identity] = dot;
+                bestRow[identity] = row;
+            }
+        }
+        List<Integer> order = new ArrayList<>();
+        for (int id = 0; id < best.length; id++) order.add(id);
+        order.sort((a, b) -> best[a] != best[b] ? Float.compare(best[b], best[a]) : Integer.compare(bestRow[a], bestRow[b]));
+
+        MatchResult out = new MatchResult(k);
+        for (int id : order.subList(0, Math.min(k, order.size()))) {
+            out.offer(id, gallery.identityName(id), bestRow[id], best[id]);
+        }
+        return out;
+    }
+
+    private static void assertSameRanking(MatchResult expected, MatchResult actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int rank = 0; rank < expected.size(); rank++) {
+            assertEquals(expected.name(rank), actual.name(rank));
+            assertEquals(expected.row(rank), actual.row(rank));
+            assertEquals(expected.score(rank), actual.score(rank), 0f);
+        }
+    }
+
+    private static float[] noisy(float[] base, Random random, float amount) {
+        float[] v = new float[DIM];
+        for (int i = 0; i < DIM; i++) v[i] = base[i] + amount * (float) random.nextGaussian() / (float) Math.sqrt(DIM);
+        return TensorArena.normalize(v);
+    }
+
+    private static float[] unit(Random random) {
+        float[] v = new float[DIM];
+        for (int i = 0; i < DIM; i++) v[i] = (float) random.nextGaussian();
+        return TensorArena.normalize(v);
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.attendancefacerecognition.Recognition;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * {@link EmbeddingStore}: both headerless layouts are migrated once with their rows intact, a
+ * tail torn by an interrupted append is dropped on open, and files of another dimension or
+ * model are refused.
+ */
+public class EmbeddingStoreTest {
+
+    private static final int DIM = 16;
+    private static final String MODEL = "test-16";
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void bundledAssetLayoutIsMigratedOnOpen() throws Exception {
+        File file = new File(tmp.getRoot(), "embeddings.bin");
+        List<float[]> rows = rows(new Random(1), 5);
+        ByteBuffer asset = ByteBuffer.allocate(8 + 5 * DIM * 4).order(ByteOrder.LITTLE_ENDIAN);
+        asset.putInt(5).putInt(DIM);
+        write(file, asset, rows);
+        assertFalse(EmbeddingStore.hasHeader(file));
+
+        try (EmbeddingStore store = EmbeddingStore.open(file, DIM, MODEL)) {
+            assertEquals(5, store.rowCount());
+            assertEquals(MODEL, store.modelId());
+            assertRows(rows, store.readAll());
+        }
+        assertTrue(EmbeddingStore.hasHeader(file));
+        assertEquals(EmbeddingStore.HEADER_SIZE + 5 * DIM * 4, file.length());
+    }
+
+    @Test
+    public void bareRowsFromTheOldSaveAreMigratedAndAppendable() throws Exception {
+        File file = new File(tmp.getRoot(), "embeddings.bin");
+        Random random = new Random(2);
+        List<float[]> rows = rows(random, 3);
+        write(file, ByteBuffer.allocate(3 * DIM * 4).order(ByteOrder.LITTLE_ENDIAN), rows);
+
+        List<float[]> more = rows(random, 2);
+        try (EmbeddingStore store = EmbeddingStore.open(file, DIM, MODEL)) {
+            assertEquals(3, store.rowCount());
+            assertEquals(2, store.append(more));
+        }
+        List<float[]> all = new ArrayList<>(rows);
+        all.addAll(more);
+        try (EmbeddingStore store = EmbeddingStore.open(file, DIM, MODEL)) {
+            assertRows(all, store.readAll());
+        }
+    }
+
+    @Test
+    public void tornTailIsDroppedOnOpen() throws Exception {
+        File file = new File(tmp.getRoot(), "embeddings.bin");
+        Random random = new Random(3);
+        List<float[]> rows = rows(random, 4);
+        try (EmbeddingStore store = EmbeddingStore.open(file, DIM, MODEL)) {
+            store.append(rows);
+        }
+        long intact = file.length();
+
+        // Rows written but the count never bumped: the extra bytes go
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(intact);
+            raf.write(new byte[DIM * 4 + 10]);
+        }
+        try (EmbeddingStore store = EmbeddingStore.open(file, DIM, MODEL)) {
+            assertEquals(4, store.rowCount());
+            assertEquals(intact, file.length());
+            assertRows(rows, store.readAll());
+        }
+
+        // Count bumped past what reached the disk: only whole rows are kept
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(intact - DIM * 4 - 3);
+        }
+        try (EmbeddingStore store = EmbeddingStore.open(file, DIM, MODEL)) {
+            assertEquals(2, store.rowCount());
+            assertRows(rows.subList(0, 2), store.readAll());
+            store.append(rows.subList(2, 4));
+        }
+        try (EmbeddingStore store = EmbeddingStore.open(file, DIM, MODEL)) {
+            assertRows(rows, store.readAll());
+        }
+    }
+
+    @Test
+    public void otherDimensionsAndModelsAreRefused() throws Exception {
+        File file = new File(tmp.getRoot(), "embeddings.bin");
+        try (EmbeddingStore store = EmbeddingStore.open(file, DIM, MODEL)) {
+            store.append(rows(new Random(4), 1));
+        }
+        for (Object[] other : Arrays.asList(new Object[] {DIM * 2, MODEL}, new Object[] {DIM, "other"})) {
+            try {
+                EmbeddingStore.open(file, (Integer) other[0], (String) other[1]).close();
+                fail("opened as " + Arrays.toString(other));
+            } catch (IOException expected) {
+                // file left as it was
+            }
+        }
+        try (EmbeddingStore store = EmbeddingStore.open(file, DIM, MODEL)) {
+            assertEquals(1, store.rowCount());
+        }
+    }
+
+    private static void write(File file, ByteBuffer buffer, List<float[]> rows) throws IOException {
+        for (float[] row : rows) for (float v : row) buffer.putFloat(v);
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(buffer.array());
+        }
+    }
+
+    private static void assertRows(List<float[]> expected, List<float[]> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) assertArrayEquals(expected.get(i), actual.get(i), 0f);
+    }
+
+    private static List<float[]> rows(Random random, int n) {
+        List<float[]> out = new ArrayList<>();
+        for (int r = 0; r < n; r++) {
+            float[] v = new float[DIM];
+            for (int i = 0; i < DIM; i++) v[i] = (float) random.nextGaussian();
+            out.add(v);
+        }
+        return out;
+    }
+}
@@ -0,0 +1,252 @@
+package com.example.attendancefacerecognition.Recognition;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * {@link FaceDatabase} over a plain directory: enrolment round trip, names files written by the
+ * old {@code org.json} code, import of legacy galleries whose names drifted from their rows, the
+ * bundled seed merged once per version, and the ANN index kept alongside once the gallery is
+ * large enough.
+ */
+public class FaceDatabaseTest {
+
+    private static final int DIM = 16;
+    private static final String MODEL = "test-16";
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void enrolledFacesAreMatchedAfterReopen() throws Exception {
+        File dir = tmp.newFolder("faces");
+        Random random = new Random(3);
+        FaceDatabase db = new FaceDatabase(dir, DIM, MODEL, 1000);
+        float[] ada = unit(random);
+        float[] grace = unit(random);
+        db.enrol(Collections.singletonList(ada), "Ada");
+        db.enrol(Collections.singletonList(grace), "Grace \u00d8");
+
+        EmbeddingGallery gallery = new FaceDatabase(dir, DIM, MODEL, 1000).loadGallery();
+        assertEquals(2, gallery.size());
+        assertEquals("Grace \u00d8", FaceRecognizer.recognize(grace, gallery, 0.5f));
+        assertArrayEquals(ada, gallery.row(0), 0f);
+        assertEquals(2, db.rows().remaining() / DIM);
+        assertNull(db.loadIndex(gallery));
+        assertFalse(db.indexFile().exists());
+    }
+
+    @Test
+    public void readsNamesWrittenByJsonArray() throws Exception {
+        FaceDatabase db = new FaceDatabase(tmp.newFolder("faces"), DIM, MODEL, 1000);
+        // org.json escapes '/' and the bundled asset may contain any UTF-8
+        try (FileOutputStream out = new FileOutputStream(db.namesFile())) {
+            out.write("[\"A\\/B\",\"Zo\u00eb\",\"\\u00c7elik\"]".getBytes(StandardCharsets.UTF_8));
+        }
+        assertEquals(Arrays.asList("A/B", "Zo\u00eb", "\u00c7elik"), db.loadNames());
+
+        try (FileOutputStream out = new FileOutputStream(db.namesFile())) {
+            out.write("[\"torn".getBytes(StandardCharsets.UTF_8));
+        }
+        assertTrue(db.loadNames().isEmpty());
+    }
+
+    @Test
+    public void legacyGalleryWithOneNamePerEnrolmentIsRealigned() throws Exception {
+        File dir = tmp.newFolder("faces");
+        Random random = new Random(5);
+        FaceDatabase db = new FaceDatabase(dir, DIM, MODEL, 1000);
+        // Two bundled rows, then two enrolments by the old code: five rows, one name each
+        List<float[]> rows = new ArrayList<>();
+        for (int i = 0; i < 12; i++) rows.add(unit(random));
+        try (EmbeddingStore legacy = EmbeddingStore.open(db.embeddingsFile(), DIM, MODEL)) {
+            legacy.append(rows);
+        }
+        try (FileOutputStream out = new FileOutputStream(db.namesFile())) {
+            out.write("[\"Ada\",\"Grace\",\"Alan\",\"Edsger\"]".getBytes(StandardCharsets.UTF_8));
+        }
+
+        GalleryStore.Snapshot snapshot = db.store().snapshot();
+        assertEquals(4, snapshot.identities().size());
+        int[] expectedRows = {1, 1, 5, 5};
+        for (int i = 0; i < 4; i++) assertEquals(expectedRows[i], snapshot.identities().get(i).rowCount());
+        EmbeddingGallery gallery = snapshot.gallery();
+        assertEquals(12, gallery.size());
+        assertEquals("Alan", gallery.nameAt(2));
+        assertEquals("Alan", gallery.nameAt(6));
+        assertEquals("Edsger", gallery.nameAt(7));
+        assertArrayEquals(rows.get(11), gallery.row(11), 0f);
+        assertTrue(db.galleryFile().exists());
+
+        // Imported once: the legacy files are no longer read
+        db.close();
+        assertTrue(db.namesFile().delete());
+        assertEquals(12, new FaceDatabase(dir, DIM, MODEL, 1000).loadGallery().size());
+    }
+
+    @Test
+    public void bundledSeedIsMergedOncePerVersionWithoutTouchingEnrolledNames() throws Exception {
+        File dir = tmp.newFolder("faces");
+        Random random = new Random(7);
+        FaceDatabase db = new FaceDatabase(dir, DIM, MODEL, 1000);
+        // An install from before the bundle was merged: only its own enrolments
+        float[] own = unit(random);
+        db.enrol(Collections.singletonList(own), "Grace");
+
+        File seed = tmp.newFolder("seed");
+        File embeddings = new File(seed, FaceDatabase.EMBEDDINGS_FILE);
+        File names = new File(seed, FaceDatabase.NAMES_FILE);
+        List<float[]> bundled = Arrays.asList(unit(random), unit(random), unit(random), unit(random));
+        writeAsset(embeddings, bundled);
+        try (FileOutputStream out = new FileOutputStream(names)) {
+            out.write("[\"Ada\",\"Ada\",\"Grace\",\"Alan\"]".getBytes(StandardCharsets.UTF_8));
+        }
+
+        assertEquals(0, db.seedVersion());
+        assertEquals(2, db.mergeSeed(embeddings, names, 1));
+        assertEquals(1, db.seedVersion());
+        EmbeddingGallery gallery = db.loadGallery();
+        assertEquals(Arrays.asList("Grace", "Ada", "Alan"), identityNames(db));
+        assertEquals(4, gallery.size());
+        assertArrayEquals(own, gallery.row(0), 0f);
+        assertArrayEquals(bundled.get(1), gallery.row(2), 0f);
+
+        // Same version again: nothing is re-read; a newer bundle adds only its new people
+        assertEquals(0, db.mergeSeed(embeddings, names, 1));
+        writeAsset(embeddings, Arrays.asList(unit(random), unit(random)));
+        try (FileOutputStream out = new FileOutputStream(names)) {
+            out.write("[\"Ada\",\"Edsger\"]".getBytes(StandardCharsets.UTF_8));
+        }
+        assertEquals(1, db.mergeSeed(embeddings, names, 2));
+        db.close();
+        FaceDatabase reopened = new FaceDatabase(dir, DIM, MODEL, 1000);
+        assertEquals(2, reopened.seedVersion());
+        assertEquals(Arrays.asList("Grace", "Ada", "Alan", "Edsger"), identityNames(reopened));
+        assertEquals(5, reopened.loadGallery().size());
+    }
+
+    @Test
+    public void legacyNamesThatFitNoEnrolmentHistoryKeepTheAlignedRows() {
+        List<String> names = Arrays.asList("a", "b", "c");
+        assertEquals(names, FaceDatabase.legacyRowNames(names, 3));
+        assertEquals(names, FaceDatabase.legacyRowNames(names, 5));
+        assertEquals(Arrays.asList("a", "b", "c", "c", "c", "c", "c"), FaceDatabase.legacyRowNames(names, 7));
+    }
+
+    @Test
+    public void reenrolAndDeleteDropTheIndexItWouldInvalidate() throws Exception {
+        File dir = tmp.newFolder("faces");
+        Random random = new Random(11);
+        FaceDatabase db = new FaceDatabase(dir, DIM, MODEL, 50);
+        int first = -1;
+        for (int i = 0; i < 60; i++) {
+            int id = db.enrol(Collections.singletonList(unit(random)), "p" + i);
+            if (i == 0) first = id;
+        }
+        db.loadIndex(db.loadGallery());
+        assertTrue(db.indexFile().exists());
+
+        float[] replacement = unit(random);
+        db.reenrol(first, Collections.singletonList(replacement));
+        assertFalse(db.indexFile().exists());
+        EmbeddingGallery gallery = db.loadGallery();
+        assertEquals("p0", FaceRecognizer.recognize(replacement, gallery, db.loadIndex(gallery), 0.1f));
+        assertTrue(db.indexFile().exists());
+
+        float[] probe = gallery.row(30);
+        assertTrue(db.delete(first));
+        assertFalse(db.delete(first));
+        assertFalse(db.indexFile().exists());
+        gallery = db.loadGallery();
+        assertEquals(59, gallery.size());
+        assertEquals("p30", FaceRecognizer.recognize(probe, gallery, db.loadIndex(gallery), 0.1f));
+        assertEquals(59, HnswIndex.load(db.indexFile()).size());
+    }
+
+    @Test
+    public void indexIsBuiltOnLoadPastTheThresholdAndRebuiltWhenCorrupt() throws Exception {
+        File dir = tmp.newFolder("faces");
+        Random random = new Random(9);
+        FaceDatabase db = new FaceDatabase(dir, DIM, MODEL, 50);
+        for (int i = 0; i < 60; i++) db.enrol(Collections.singletonList(unit(random)), "p" + i);
+        assertFalse(db.indexFile().exists()); // enrolment only appends to the gallery log
+
+        EmbeddingGallery gallery = db.loadGallery();
+        HnswIndex index = db.loadIndex(gallery);
+        assertNotNull(index);
+        assertTrue(db.indexFile().exists());
+        assertEquals(60, index.size());
+        float[] probe = gallery.row(42);
+        assertEquals("p42", FaceRecognizer.recognize(probe, gallery, index, 0.1f));
+
+        try (FileOutputStream out = new FileOutputStream(db.indexFile())) {
+            out.write(new byte[] {1, 2, 3});
+        }
+        HnswIndex rebuilt = db.loadIndex(gallery);
+        assertEquals(60, rebuilt.size());
+        assertEquals("p42", FaceRecognizer.recognize(probe, gallery, rebuilt, 0.1f));
+    }
+
+    @Test
+    public void indexCatchesUpOnEnrolmentsAndIsSavedAgainOnlyPastAFraction() throws Exception {
+        File dir = tmp.newFolder("faces");
+        Random random = new Random(13);
+        FaceDatabase db = new FaceDatabase(dir, DIM, MODEL, 50);
+        for (int i = 0; i < 64; i++) db.enrol(Collections.singletonList(unit(random)), "p" + i);
+        assertEquals(64, db.loadIndex(db.loadGallery()).size());
+
+        // Fewer new rows than an eighth of the saved index: matched, but the file is left alone
+        for (int i = 64; i < 71; i++) db.enrol(Collections.singletonList(unit(random)), "p" + i);
+        EmbeddingGallery gallery = db.loadGallery();
+        HnswIndex index = db.loadIndex(gallery);
+        assertEquals(71, index.size());
+        assertEquals("p70", FaceRecognizer.recognize(gallery.row(70), gallery, index, 0.1f));
+        assertEquals(64, HnswIndex.load(db.indexFile()).size());
+
+        db.enrol(Collections.singletonList(unit(random)), "p71");
+        gallery = db.loadGallery();
+        assertEquals(72, db.loadIndex(gallery).size());
+        assertEquals(72, HnswIndex.load(db.indexFile()).size());
+    }
+
+    // The bundled asset layout: int32 count, int32 dimension, then little-endian rows
+    private static void writeAsset(File file, List<float[]> rows) throws Exception {
+        ByteBuffer buffer = ByteBuffer.allocate(8 + rows.size() * DIM * 4).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(rows.size()).putInt(DIM);
+        for (float[] row : rows) for (float v : row) buffer.putFloat(v);
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(buffer.array());
+        }
+    }
+
+    private static List<String> identityNames(FaceDatabase db) throws Exception {
+        List<String> out = new ArrayList<>();
+        for (GalleryStore.Identity identity : db.store().snapshot().identities()) out.add(identity.name);
+        return out;
+    }
+
+    private static float[] unit(Random random) {
+        float[] v = new float[DIM];
+        for (int i = 0; i < DIM; i++) v[i] = (float) random.nextGaussian();
+        return TensorArena.normalize(v);
+    }
+}
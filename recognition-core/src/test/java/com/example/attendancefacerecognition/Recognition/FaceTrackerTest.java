@@ -0,0 +1,142 @@
+package com.example.attendancefacerecognition.Recognition;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * {@link FaceTracker} on synthetic detector output: jittery stationary faces, faces moving at
+ * constant velocity, misses and re-appearances.
+ */
+public class FaceTrackerTest {
+
+    private static final int FPS = 10;
+
+    @Test
+    public void stationaryFaceIsEmbeddedOncePerInterval() {
+        Random random = new Random(1);
+        FaceTracker tracker = new FaceTracker();
+        int frames = 60 * FPS; // one minute at the kiosk
+        int embeddings = 0;
+        int firstId = -1;
+        for (int f = 0; f < frames; f++) {
+            tracker.update(jitter(random, 200, 150, 320, 290, 3f), 1);
+            FaceTracker.Track track = tracker.track(0);
+            if (firstId < 0) firstId = track.id();
+            assertEquals(firstId, track.id());
+            if (track.needsEmbedding()) {
+                track.markEmbedding();
+                track.identify("alice", true);
+                embeddings++;
+            }
+            assertEquals("alice", track.name());
+        }
+        int expected = (frames + FaceTracker.DEFAULT_REEMBED_INTERVAL - 1) / FaceTracker.DEFAULT_REEMBED_INTERVAL;
+        assertEquals(expected, embeddings);
+        assertEquals(1, tracker.trackCount());
+    }
+
+    @Test
+    public void movingFacesKeepTheirIds() {
+        FaceTracker tracker = new FaceTracker();
+        int leftId = -1;
+        int rightId = -1;
+        for (int f = 0; f < 40; f++) {
+            // Two faces walking towards each other without overlapping
+            float a = 50 + f * 6;
+            float b = 600 - f * 6;
+            float[] boxes = f % 2 == 0
+                    ? new float[]{a, 100, a + 80, 180, b, 120, b + 80, 200}
+                    : new float[]{b, 120, b + 80, 200, a, 100, a + 80, 180};
+            tracker.update(boxes, 2);
+            FaceTracker.Track left = tracker.track(f % 2 == 0 ? 0 : 1);
+            FaceTracker.Track right = tracker.track(f % 2 == 0 ? 1 : 0);
+            if (f == 0) {
+                leftId = left.id();
+                rightId = right.id();
+            }
+            assertEquals(leftId, left.id());
+            assertEquals(rightId, right.id());
+        }
+        assertNotEquals(leftId, rightId);
+
+        // The filter has picked up the velocity, so the prediction leads the last box
+        FaceTracker.Track left = tracker.track(1); // last frame was odd
+        assertEquals(leftId, left.id());
+        assertEquals(6f, left.velocityX(), 1f);
+    }
+
+    @Test
+    public void fastJumpFollowsCentreWhenBoxesStopOverlapping() {
+        FaceTracker tracker = new FaceTracker();
+        tracker.update(new float[]{100, 100, 200, 200}, 1);
+        int id = tracker.track(0).id();
+        // No overlap with the previous box, but the centre moved less than half a box
+        tracker.update(new float[]{145, 100, 245, 200}, 1);
+        assertEquals(id, tracker.track(0).id());
+        // Far away: a different person
+        tracker.update(new float[]{600, 100, 700, 200}, 1);
+        assertNotEquals(id, tracker.track(0).id());
+    }
+
+    @Test
+    public void missedTracksCoastThenExpire() {
+        FaceTracker tracker = new FaceTracker(0.3f, 0.5f, 2, 15);
+        float[] box = {100, 100, 200, 200};
+        tracker.update(box, 1);
+        int id = tracker.track(0).id();
+
+        tracker.update(box, 0);
+        tracker.update(box, 0);
+        assertEquals(1, tracker.trackCount());
+        tracker.update(box, 1);
+        assertEquals("survives two misses", id, tracker.track(0).id());
+
+        for (int i = 0; i < 3; i++) tracker.update(box, 0);
+        assertEquals(0, tracker.trackCount());
+        tracker.update(box, 1);
+        assertNotEquals(id, tracker.track(0).id());
+    }
+
+    @Test
+    public void lowConfidenceAndLostResultsAreRetried() {
+        FaceTracker tracker = new FaceTracker(0.3f, 0.5f, 5, 4);
+        float[] box = {100, 100, 200, 200};
+        tracker.update(box, 1);
+        FaceTracker.Track track = tracker.track(0);
+        assertTrue("new track", track.needsEmbedding());
+
+        track.markEmbedding();
+        track.identify(EmbeddingGallery.UNKNOWN, false);
+        tracker.update(box, 1);
+        assertTrue("low confidence", track.needsEmbedding());
+
+        track.markEmbedding();
+        track.identify("bob", true);
+        tracker.update(box, 1);
+        assertFalse(track.needsEmbedding());
+
+        // Scheduled, but the frame never made it to the matcher
+        for (int i = 0; i < 3; i++) tracker.update(box, 1);
+        assertTrue(track.needsEmbedding());
+        track.markEmbedding();
+        for (int i = 0; i < 3; i++) {
+            tracker.update(box, 1);
+            assertFalse("still pending", track.needsEmbedding());
+        }
+        tracker.update(box, 1);
+        assertTrue("retried after the interval", track.needsEmbedding());
+        assertEquals("bob", track.name());
+    }
+
+    private static float[] jitter(Random random, float l, float t, float r, float b, float px) {
+        return new float[]{
+                l + (random.nextFloat() * 2 - 1) * px, t + (random.nextFloat() * 2 - 1) * px,
+                r + (random.nextFloat() * 2 - 1) * px, b + (random.nextFloat() * 2 - 1) * px};
+    }
+}
@@ -0,0 +1,287 @@
+package com.example.attendancefacerecognition.Recognition;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link GalleryStore}: identities keep their ids and rows across add, replace, delete and
+ * reopen; an enrolment writes only its own record, and a batch is one change; a torn tail is
+ * dropped; compaction shrinks the log without changing what readers see or losing changes made
+ * while it runs; and snapshots are never modified in place.
+ */
+public class GalleryStoreTest {
+
+    private static final int DIM = 16;
+    private static final String MODEL = "test-16";
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void identitiesSurviveReplaceDeleteAndReopen() throws Exception {
+        File file = new File(tmp.getRoot(), "gallery.log");
+        Random random = new Random(1);
+        List<float[]> ada = rows(random, 5);
+        List<float[]> grace = rows(random, 3);
+        List<float[]> adaAgain = rows(random, 2);
+        int adaId;
+        int graceId;
+        int alanId;
+        try (GalleryStore store = GalleryStore.open(file, DIM, MODEL)) {
+            adaId = store.add("Ada", ada);
+            graceId = store.add("Grace", grace);
+            alanId = store.add("Alan", rows(random, 1));
+            store.replace(adaId, "Ada L.", adaAgain);
+            assertTrue(store.delete(alanId));
+            assertFalse(store.delete(alanId));
+        }
+
+        try (GalleryStore store = GalleryStore.open(file, DIM, MODEL)) {
+            GalleryStore.Snapshot snapshot = store.snapshot();
+            assertEquals(2, snapshot.identities().size());
+            assertNull(snapshot.find(alanId));
+            GalleryStore.Identity first = snapshot.identities().get(0);
+            assertEquals(adaId, first.id);
+            assertEquals("Ada L.", first.name);
+            assertEquals(2, first.rowCount());
+            assertArrayEquals(adaAgain.get(1), first.row(1), 0f);
+
+            // Every row is named after the identity it was enrolled with, not one name per batch
+            EmbeddingGallery gallery = snapshot.gallery();
+            assertEquals(5, gallery.size());
+            assertEquals(Arrays.asList("Ada L.", "Ada L.", "Grace", "Grace", "Grace"), names(gallery));
+            assertArrayEquals(grace.get(2), gallery.row(4), 0f);
+
+            // Ids are never reused, not even the deleted last one
+            int next = store.add("Edsger", rows(random, 1));
+            assertTrue(next > alanId);
+            assertTrue(graceId > adaId);
+        }
+    }
+
+    @Test
+    public void enrolmentWritesOnlyItsOwnRecord() throws Exception {
+        File file = new File(tmp.getRoot(), "gallery.log");
+        Random random = new Random(2);
+        try (GalleryStore store = GalleryStore.open(file, DIM, MODEL)) {
+            long record = 8 + 13 + "p0".length() + 5 * DIM * 4;
+            for (int i = 0; i < 50; i++) {
+                long before = file.length();
+                store.add("p" + (i % 10), rows(random, 5));
+                assertEquals(record, file.length() - before);
+            }
+            assertEquals(GalleryStore.HEADER_SIZE + 50 * record, file.length());
+            assertEquals(0, store.garbageBytes());
+        }
+    }
+
+    @Test
+    public void batchIsOneChange() throws Exception {
+        File file = new File(tmp.getRoot(), "gallery.log");
+        Random random = new Random(6);
+        List<GalleryStore.Snapshot> seen = new ArrayList<>();
+        int[] ids;
+        try (GalleryStore store = GalleryStore.open(file, DIM, MODEL)) {
+            int ada = store.add("Ada", rows(random, 1));
+            store.addListener(seen::add);
+            GalleryStore.Snapshot one = store.snapshot();
+            long before = file.length();
+            ids = store.addAll(Arrays.asList("Grace", "Alan"), Arrays.asList(rows(random, 2), rows(random, 3)));
+            assertEquals(2, ids.length);
+            assertEquals(ada + 1, ids[0]);
+            assertEquals(ada + 2, ids[1]);
+            assertEquals(2 * (8 + 13) + "Grace".length() + "Alan".length() + 5 * DIM * 4, file.length() - before);
+            assertEquals(1, seen.size());
+            assertSame(store.snapshot(), seen.get(0));
+            assertTrue(seen.get(0).isAppendOf(one));
+            assertEquals(0, store.addAll(new ArrayList<>(), new ArrayList<>()).length);
+        }
+        try (GalleryStore store = GalleryStore.open(file, DIM, MODEL)) {
+            assertEquals(Arrays.asList("Ada", "Grace", "Grace", "Alan", "Alan", "Alan"), names(store.snapshot().gallery()));
+            assertEquals("Alan", store.snapshot().find(ids[1]).name);
+        }
+    }
+
+    @Test
+    public void tornTailIsDroppedOnOpen() throws Exception {
+        File file = new File(tmp.getRoot(), "gallery.log");
+        Random random = new Random(3);
+        long intact;
+        try (GalleryStore store = GalleryStore.open(file, DIM, MODEL)) {
+            store.add("Ada", rows(random, 2));
+            store.add("Grace", rows(random, 2));
+            intact = file.length();
+            store.add("Alan", rows(random, 2));
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() - 7);
+        }
+        try (GalleryStore store = GalleryStore.open(file, DIM, MODEL)) {
+            assertEquals(intact, file.length());
+            assertEquals(2, store.snapshot().identities().size());
+            store.add("Alan", rows(random, 2));
+        }
+
+        // A flipped bit fails the CRC: the record and everything after it are dropped
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(intact + 30);
+            int b = raf.read();
+            raf.seek(intact + 30);
+            raf.write(b ^ 0x10);
+        }
+        try (GalleryStore store = GalleryStore.open(file, DIM, MODEL)) {
+            assertEquals(Arrays.asList("Ada", "Ada", "Grace", "Grace"), names(store.snapshot().gallery()));
+        }
+    }
+
+    @Test
+    public void backgroundCompactionKeepsTheLiveIdentities() throws Exception {
+        File file = new File(tmp.getRoot(), "gallery.log");
+        Random random = new Random(4);
+        List<float[]> last = null;
+        int id;
+        String before;
+        long written;
+        try (GalleryStore store = GalleryStore.open(file, DIM, MODEL, 4096)) {
+            store.add("Ada", rows(random, 3));
+            id = store.add("Grace", rows(random, 3));
+            int doomed = store.add("Alan", rows(random, 3));
+            written = file.length();
+            for (int i = 0; i < 40; i++) {
+                last = rows(random, 3);
+                store.replace(id, "Grace", last);
+                written += 8 + 13 + 5 + 3 * DIM * 4;
+            }
+            store.delete(doomed);
+            written += 8 + 13;
+            before = names(store.snapshot().gallery()).toString();
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (store.compactions() == 0 && System.nanoTime() < deadline) Thread.sleep(5);
+            assertTrue(store.compactions() > 0);
+        }
+        assertTrue("log is " + file.length() + " of " + written + " bytes", file.length() < written - 4096);
+
+        try (GalleryStore store = GalleryStore.open(file, DIM, MODEL, 4096)) {
+            GalleryStore.Snapshot snapshot = store.snapshot();
+            assertEquals(before, names(snapshot.gallery()).toString());
+            assertArrayEquals(last.get(2), snapshot.find(id).row(2), 0f);
+
+            long reclaimable = store.garbageBytes();
+            long size = file.length();
+            assertEquals(reclaimable, store.compact());
+            assertEquals(size - reclaimable, file.length());
+            assertEquals(0, store.garbageBytes());
+            assertEquals(1, store.compactions());
+            assertSame(snapshot, store.snapshot());
+            store.add("Alan", rows(random, 1));
+        }
+        try (GalleryStore store = GalleryStore.open(file, DIM, MODEL)) {
+            assertEquals(Arrays.asList("Ada", "Ada", "Ada", "Grace", "Grace", "Grace", "Alan"), names(store.snapshot().gallery()));
+        }
+    }
+
+    @Test
+    public void changesMadeDuringCompactionAreCopiedOver() throws Exception {
+        File file = new File(tmp.getRoot(), "gallery.log");
+        Random random = new Random(7);
+        List<float[]> adaAgain = rows(random, 2);
+        int ada;
+        int grace;
+        int[] alan = new int[1];
+        try (GalleryStore store = GalleryStore.open(file, DIM, MODEL, Long.MAX_VALUE)) {
+            ada = store.add("Ada", rows(random, 3));
+            grace = store.add("Grace", rows(random, 3));
+            for (int i = 0; i < 5; i++) store.replace(grace, "Grace", rows(random, 3));
+
+            // Lands between the rewrite of the live identities and the copy of the tail
+            store.compactHook = () -> {
+                try {
+                    alan[0] = store.add("Alan", rows(random, 1));
+                    store.replace(ada, "Ada", adaAgain);
+                    assertTrue(store.delete(grace));
+                } catch (IOException e) {
+                    throw new AssertionError(e);
+                }
+            };
+            store.compact();
+            store.compactHook = null;
+            assertEquals(1, store.compactions());
+            assertEquals(Arrays.asList("Ada", "Ada", "Alan"), names(store.snapshot().gallery()));
+            store.add("Edsger", rows(random, 1)); // appends after the copied tail
+        }
+        try (GalleryStore store = GalleryStore.open(file, DIM, MODEL)) {
+            GalleryStore.Snapshot snapshot = store.snapshot();
+            assertEquals(Arrays.asList("Ada", "Ada", "Alan", "Edsger"), names(snapshot.gallery()));
+            assertArrayEquals(adaAgain.get(1), snapshot.find(ada).row(1), 0f);
+            assertNull(snapshot.find(grace));
+            assertTrue(store.add("Barbara", rows(random, 1)) > alan[0] + 1);
+        }
+    }
+
+    @Test
+    public void snapshotsAreCopiedOnWriteAndListenersSeeEveryChange() throws Exception {
+        File file = new File(tmp.getRoot(), "gallery.log");
+        Random random = new Random(5);
+        List<GalleryStore.Snapshot> seen = new ArrayList<>();
+        try (GalleryStore store = GalleryStore.open(file, DIM, MODEL)) {
+            GalleryStore.Listener listener = seen::add;
+            store.addListener(listener);
+            int ada = store.add("Ada", rows(random, 2));
+            GalleryStore.Snapshot one = store.snapshot();
+            EmbeddingGallery oneGallery = one.gallery();
+
+            store.add("Grace", rows(random, 2));
+            GalleryStore.Snapshot two = store.snapshot();
+            assertEquals(2, oneGallery.size());
+            assertSame(oneGallery, one.gallery());
+            assertEquals(4, two.gallery().size());
+            assertTrue(two.isAppendOf(one));
+
+            store.replace(ada, "Ada", rows(random, 1));
+            GalleryStore.Snapshot three = store.snapshot();
+            assertFalse(three.isAppendOf(two));
+            assertEquals(2, one.find(ada).rowCount());
+            assertEquals(1, three.find(ada).rowCount());
+
+            store.removeListener(listener);
+            store.add("Alan", rows(random, 1));
+            assertEquals(Arrays.asList(one, two, three), seen);
+            assertTrue(store.snapshot().version > three.version);
+            assertTrue(store.snapshot().isAppendOf(three));
+        }
+    }
+
+    private static List<float[]> rows(Random random, int n) {
+        List<float[]> out = new ArrayList<>();
+        for (int r = 0; r < n; r++) {
+            float[] v = new float[DIM];
+            for (int i = 0; i < DIM; i++) v[i] = (float) random.nextGaussian();
+            out.add(TensorArena.normalize(v));
+        }
+        return out;
+    }
+
+    private static List<String> names(EmbeddingGallery gallery) {
+        List<String> out = new ArrayList<>();
+        for (int row = 0; row < gallery.size(); row++) out.add(gallery.nameAt(row));
+        return out;
+    }
+}
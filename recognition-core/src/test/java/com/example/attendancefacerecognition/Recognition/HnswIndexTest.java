@@ -0,0 +1,125 @@
+package com.example.attendancefacerecognition.Recognition;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Recall of {@link HnswIndex} against the exact scan in {@link EmbeddingGallery#nearestRow}.
+ */
+public class HnswIndexTest {
+
+    private static final int DIM = 64;
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void recallAtOneMatchesExactScan() {
+        Random random = new Random(7);
+        EmbeddingGallery gallery = clusteredGallery(random, 5000, 500);
+        HnswIndex index = new HnswIndex(DIM);
+        index.addAll(gallery);
+
+        double recall = recallAtOne(gallery, index, random, 200);
+        assertTrue("recall@1 was " + recall, recall >= 0.95);
+    }
+
+    @Test
+    public void higherEfSearchDoesNotLowerRecall() {
+        Random random = new Random(11);
+        EmbeddingGallery gallery = clusteredGallery(random, 3000, 300);
+        HnswIndex index = new HnswIndex(DIM, 8, 64, 1L);
+        index.addAll(gallery);
+
+        index.setEfSearch(4);
+        double low = recallAtOne(gallery, index, new Random(3), 200);
+        index.setEfSearch(128);
+        double high = recallAtOne(gallery, index, new Random(3), 200);
+        assertTrue(high >= low);
+        assertTrue("recall@1 was " + high, high >= 0.95);
+    }
+
+    @Test
+    public void incrementalInsertAndReloadKeepResults() throws Exception {
+        Random random = new Random(5);
+        EmbeddingGallery full = clusteredGallery(random, 2000, 200);
+        List<float[]> rows = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < full.size(); i++) {
+            rows.add(full.row(i));
+            names.add(full.nameAt(i));
+        }
+        EmbeddingGallery half = EmbeddingGallery.fromRows(rows.subList(0, 1000), names.subList(0, 1000));
+
+        HnswIndex index = new HnswIndex(DIM);
+        index.addAll(half);
+        File file = new File(tmp.getRoot(), "embeddings.hnsw");
+        index.save(file);
+
+        HnswIndex reloaded = HnswIndex.load(file);
+        assertEquals(1000, reloaded.size());
+        reloaded.addAll(full);
+        assertEquals(2000, reloaded.size());
+
+        float[] query = full.row(1500);
+        assertEquals(1500, reloaded.nearest(full, query));
+
+        reloaded.save(file);
+        HnswIndex again = HnswIndex.load(file);
+        assertArrayEquals(reloaded.search(full, query, 5), again.search(full, query, 5));
+    }
+
+    private static double recallAtOne(EmbeddingGallery gallery, HnswIndex index, Random random, int queries) {
+        int hits = 0;
+        for (int q = 0; q < queries; q++) {
+            float[] query = noisy(gallery.row(random.nextInt(gallery.size())), random, 0.3f);
+            if (index.nearest(gallery, query) == gallery.nearestRow(query)) hits++;
+        }
+        return hits / (double) queries;
+    }
+
+    // Normalized vectors scattered around a few hundred identity centres, like enrolment samples.
+    private static EmbeddingGallery clusteredGallery(Random random, int rows, int identities) {
+        List<float[]> centres = new ArrayList<>();
+        for (int i = 0; i < identities; i++) centres.add(normalize(gaussian(random)));
+
+        List<float[]> data = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < rows; i++) {
+            int id = random.nextInt(identities);
+            data.add(noisy(centres.get(id), random, 0.4f));
+            names.add("person-" + id);
+        }
+        return EmbeddingGallery.fromRows(data, names);
+    }
+
+    private static float[] noisy(float[] base, Random random, float sigma) {
+        float[] out = new float[base.length];
+        for (int i = 0; i < out.length; i++) out[i] = base[i] + (float) random.nextGaussian() * sigma / (float) Math.sqrt(DIM);
+        return normalize(out);
+    }
+
+    private static float[] gaussian(Random random) {
+        float[] out = new float[DIM];
+        for (int i = 0; i < DIM; i++) out[i] = (float) random.nextGaussian();
+        return out;
+    }
+
+    private static float[] normalize(float[] v) {
+        float norm = 0f;
+        for (float x : v) norm += x * x;
+        norm = (float) Math.sqrt(norm);
+        for (int i = 0; i < v.length; i++) v[i] /= norm;
+        return v;
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.attendancefacerecognition.Recognition;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * {@link InferenceTuner} with a fake benchmark shaped like a big.LITTLE phone, plus the
+ * {@link InferenceConfig} preference encoding and candidate set.
+ */
+public class InferenceTunerTest {
+
+    @Test
+    public void picksFastestAndSkipsFailures() {
+        List<InferenceConfig> candidates = InferenceConfig.candidates(8);
+        InferenceTuner.Result result = InferenceTuner.tune("facenet.tflite", candidates, config -> {
+            if (!config.xnnpack() && config.threads() == 4) throw new UnsupportedOperationException("out of memory");
+            // Scales to two big cores, then spills onto little ones; XNNPACK about 1.6x
+            double ms = 120.0 / Math.min(config.threads(), 2) + (config.threads() > 2 ? 25 : 0);
+            if (config.xnnpack()) ms /= 1.6;
+            return (long) (ms * 1e6);
+        });
+
+        assertEquals(new InferenceConfig(2, true), result.best);
+        assertEquals(candidates.size() - 1, result.configs().size());
+        assertFalse(result.configs().contains(new InferenceConfig(4, false)));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void failsWhenNothingRuns() {
+        InferenceTuner.tune("blazeface.tflite", InferenceConfig.candidates(4), config -> {
+            throw new IllegalArgumentException("broken model");
+        });
+    }
+
+    @Test
+    public void medianIgnoresWarmUpAndOutliers() throws Exception {
+        int[] calls = {0};
+        long median = InferenceTuner.medianNanos(() -> {
+            // First call (warm-up) and one timed call are slow
+            if (calls[0]++ == 0 || calls[0] == 3) Thread.sleep(50);
+        }, 1, 5);
+        assertEquals(6, calls[0]);
+        assertTrue("median " + median, median < 20_000_000L);
+    }
+
+    @Test
+    public void candidatesRespectCoreCount() {
+        assertEquals(2, InferenceConfig.candidates(1).size());
+        assertEquals(4, InferenceConfig.candidates(2).size());
+        assertEquals(6, InferenceConfig.candidates(8).size());
+        for (InferenceConfig c : InferenceConfig.candidates(2)) assertTrue(c.threads() <= 2);
+    }
+
+    @Test
+    public void encodingRoundTrips() {
+        for (InferenceConfig c : InferenceConfig.candidates(4)) assertEquals(c, InferenceConfig.decode(c.encode()));
+        assertEquals("threads=4;xnnpack=1", new InferenceConfig(4, true).encode());
+        // Configs stored before FP16 was dropped still load, without it
+        assertEquals(new InferenceConfig(4, true), InferenceConfig.decode("threads=4;xnnpack=1;fp16=1"));
+        for (String bad : Arrays.asList(null, "", "threads=0;xnnpack=1", "threads=2;fp16=0",
+                "threads=two;xnnpack=1", "threads=2;gpu=1;xnnpack=0")) {
+            assertNull(bad, InferenceConfig.decode(bad));
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.attendancefacerecognition.Recognition;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * {@link ModelPool} with fake models standing in for interpreters: reuse, the size bound,
+ * background prestart and clean shutdown.
+ */
+public class ModelPoolTest {
+
+    @Test
+    public void releasedInstanceIsReusedWarm() throws Exception {
+        AtomicInteger created = new AtomicInteger();
+        List<FakeModel> warmed = Collections.synchronizedList(new ArrayList<FakeModel>());
+        ModelPool<FakeModel> pool = new ModelPool<>("facenet", 2, () -> new FakeModel(created.incrementAndGet()), warmed::add);
+
+        FakeModel first = pool.acquire(1, TimeUnit.SECONDS);
+        pool.release(first);
+        FakeModel again = pool.acquire(1, TimeUnit.SECONDS);
+
+        assertSame(first, again);
+        assertEquals(1, created.get());
+        assertEquals(1, warmed.size());
+        pool.close();
+    }
+
+    @Test
+    public void concurrentOwnersGetDistinctInstancesUpToTheBound() throws Exception {
+        ModelPool<FakeModel> pool = new ModelPool<>("blazeface", 2, () -> new FakeModel(0), null);
+        FakeModel a = pool.acquire(1, TimeUnit.SECONDS);
+        FakeModel b = pool.acquire(1, TimeUnit.SECONDS);
+        assertTrue(a != b);
+        assertEquals(2, pool.size());
+
+        // Full: a third owner waits, then times out
+        assertNull(pool.acquire(50, TimeUnit.MILLISECONDS));
+
+        AtomicReference<FakeModel> waited = new AtomicReference<>();
+        CountDownLatch done = new CountDownLatch(1);
+        Thread owner = new Thread(() -> {
+            try {
+                waited.set(pool.acquire(5, TimeUnit.SECONDS));
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+            done.countDown();
+        });
+        owner.start();
+        Thread.sleep(20);
+        pool.release(b);
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertSame(b, waited.get());
+        assertEquals(2, pool.size());
+        pool.close();
+    }
+
+    @Test
+    public void prestartWarmsInstancesAheadOfTime() throws Exception {
+        AtomicInteger warmUps = new AtomicInteger();
+        ModelPool<FakeModel> pool = new ModelPool<>("facenet", 3, () -> new FakeModel(0), m -> {
+            Thread.sleep(5);
+            warmUps.incrementAndGet();
+        });
+        Thread background = new Thread(() -> {
+            try {
+                pool.prestart(2);
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        background.start();
+        background.join(5000);
+
+        assertEquals(2, pool.idleCount());
+        assertEquals(2, warmUps.get());
+        pool.acquire(1, TimeUnit.SECONDS);
+        assertEquals("acquire took a warm instance", 2, warmUps.get());
+        assertTrue(pool.stats().startsWith("facenet: 2/3 instances (1 idle), 2 created"));
+        pool.close();
+    }
+
+    @Test
+    public void failedCreationFreesItsSlot() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        ModelPool<FakeModel> pool = new ModelPool<>("broken", 1, () -> {
+            if (attempts.incrementAndGet() == 1) throw new IllegalStateException("model file missing");
+            return new FakeModel(0);
+        }, null);
+        try {
+            pool.acquire(1, TimeUnit.SECONDS);
+        } catch (IllegalStateException expected) {
+            // first load fails
+        }
+        FakeModel model = pool.acquire(1, TimeUnit.SECONDS);
+        assertFalse(model == null);
+        pool.close();
+    }
+
+    @Test
+    public void closeClosesIdleNowAndCheckedOutOnRelease() throws Exception {
+        ModelPool<FakeModel> pool = new ModelPool<>("blazeface", 2, () -> new FakeModel(0), null);
+        FakeModel idle = pool.acquire(1, TimeUnit.SECONDS);
+        FakeModel busy = pool.acquire(1, TimeUnit.SECONDS);
+        pool.release(idle);
+
+        pool.close();
+        assertTrue(idle.closed);
+        assertFalse(busy.closed);
+        pool.release(busy);
+        assertTrue(busy.closed);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void acquireAfterCloseFails() throws Exception {
+        ModelPool<FakeModel> pool = new ModelPool<>("facenet", 1, () -> new FakeModel(0), null);
+        pool.close();
+        pool.acquire(1, TimeUnit.SECONDS);
+    }
+
+    private static final class FakeModel implements AutoCloseable {
+        final int id;
+        volatile boolean closed;
+
+        FakeModel(int id) {
+            this.id = id;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
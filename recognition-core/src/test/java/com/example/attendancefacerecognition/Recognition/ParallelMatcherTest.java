@@ -0,0 +1,95 @@
+package com.example.attendancefacerecognition.Recognition;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * {@link ParallelMatcher} must return exactly what the serial scan returns, ties included, with
+ * shards that grow with the gallery up to twice the parallelism.
+ */
+public class ParallelMatcherTest {
+
+    private static final int DIM = 512;
+
+    @Test
+    public void matchesSerialScanIncludingTies() {
+        Random random = new Random(4);
+        List<float[]> rows = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < 6000; i++) {
+            rows.add(randomUnit(random));
+            names.add("person-" + (i % 700));
+        }
+        // Exact duplicates under other identities, spread over different shards.
+        for (int i = 0; i < 50; i++) {
+            rows.set(5000 + i, rows.get(i * 7));
+            names.set(5000 + i, "twin-" + i);
+        }
+        EmbeddingGallery gallery = EmbeddingGallery.fromRows(rows, names);
+
+        EmbeddingMatcher serial = new EmbeddingMatcher(gallery);
+        try (ParallelMatcher parallel = new ParallelMatcher(gallery, 0, 4)) {
+            MatchResult expected = new MatchResult(3);
+            MatchResult actual = new MatchResult(3);
+            for (int q = 0; q < 200; q++) {
+                float[] query = (q % 2 == 0) ? rows.get(random.nextInt(350) * 7).clone() : randomUnit(random);
+                serial.match(query, expected);
+                parallel.match(query, actual);
+
+                assertEquals(expected.size(), actual.size());
+                for (int rank = 0; rank < expected.size(); rank++) {
+                    assertEquals(expected.name(rank), actual.name(rank));
+                    assertEquals(expected.row(rank), actual.row(rank));
+                    assertEquals(expected.score(rank), actual.score(rank), 0f);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void shardsGrowWithTheGallery() {
+        Random random = new Random(8);
+        int[] sizes = {100, 1000, 16000};
+        int[] expectedShards = {1, 3, 6}; // one per 256 rows, at most two per thread
+        for (int s = 0; s < sizes.length; s++) {
+            List<float[]> rows = new ArrayList<>();
+            List<String> names = new ArrayList<>();
+            for (int i = 0; i < sizes[s]; i++) {
+                rows.add(randomUnit(random));
+                names.add("person-" + (i / 5));
+            }
+            EmbeddingGallery gallery = EmbeddingGallery.fromRows(rows, names);
+
+            EmbeddingMatcher serial = new EmbeddingMatcher(gallery);
+            try (ParallelMatcher parallel = new ParallelMatcher(gallery, 0, 3)) {
+                assertEquals(expectedShards[s], parallel.shardCount());
+                MatchResult expected = new MatchResult(2);
+                MatchResult actual = new MatchResult(2);
+                for (int q = 0; q < 30; q++) {
+                    float[] query = randomUnit(random);
+                    serial.match(query, expected);
+                    parallel.match(query, actual);
+                    assertEquals(expected.row(0), actual.row(0));
+                    assertEquals(expected.score(0), actual.score(0), 0f);
+                }
+            }
+        }
+    }
+
+    private static float[] randomUnit(Random random) {
+        float[] v = new float[DIM];
+        float norm = 0f;
+        for (int i = 0; i < DIM; i++) {
+            v[i] = (float) random.nextGaussian();
+            norm += v[i] * v[i];
+        }
+        norm = (float) Math.sqrt(norm);
+        for (int i = 0; i < DIM; i++) v[i] /= norm;
+        return v;
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.attendancefacerecognition.Recognition;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.FloatBuffer;
+import java.nio.file.Files;
+import java.util.Random;
+
+/**
+ * Memory and accuracy of the quantized galleries against the exact float scan, on the bundled
+ * {@code embeddings.bin}/{@code names.json}.
+ */
+public class QuantizedGalleryTest {
+
+    // The gallery bundled with the app; tests run from the module directory
+    private static final File ASSETS = new File("../app/src/main/assets");
+    private static final int QUERIES_PER_ROW = 3;
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private EmbeddingGallery gallery;
+    private FloatBuffer exactRows;
+
+    @Before
+    public void loadBundledGallery() throws Exception {
+        File dir = tmp.newFolder("faces");
+        for (String name : new String[] {FaceDatabase.EMBEDDINGS_FILE, FaceDatabase.NAMES_FILE}) {
+            Files.copy(new File(ASSETS, name).toPath(), new File(dir, name).toPath());
+        }
+        FaceDatabase db = new FaceDatabase(dir, 512, "facenet-512", Integer.MAX_VALUE);
+        exactRows = db.rows();
+        gallery = db.loadGallery();
+        assertEquals(170, gallery.size());
+    }
+
+    @Test
+    public void int8MatchesExactIdentity() {
+        ScalarQuantizedGallery q = ScalarQuantizedGallery.build(gallery);
+        double noRerank = agreement(q, 1, null);
+        double rerank = agreement(q, 5, exactRows);
+
+        assertTrue(q.memoryBytes() * 3 < q.floatBytes());
+        assertTrue("int8 agreement " + noRerank, noRerank >= 0.98);
+        assertTrue("int8+rerank agreement " + rerank, rerank >= 0.99);
+    }
+
+    @Test
+    public void productQuantizationWithRerankMatchesExactIdentity() {
+        ProductQuantizedGallery q = ProductQuantizedGallery.build(gallery);
+        double noRerank = agreement(q, 1, null);
+        double rerank = agreement(q, 10, exactRows);
+
+        assertTrue(rerank >= noRerank);
+        assertTrue("pq+rerank agreement " + rerank, rerank >= 0.97);
+    }
+
+    // Fraction of noisy queries for which the quantized search names the same identity as the exact scan.
+    private double agreement(QuantizedGallery q, int rerankK, FloatBuffer exact) {
+        Random random = new Random(1);
+        int same = 0;
+        int total = 0;
+        for (int row = 0; row < gallery.size(); row++) {
+            for (int n = 0; n < QUERIES_PER_ROW; n++) {
+                float[] query = noisy(gallery.row(row), random);
+                String expected = gallery.nameAt(gallery.nearestRow(query));
+                int found = q.nearest(query, rerankK, exact);
+                if (found >= 0 && expected.equals(q.nameAt(found))) same++;
+                total++;
+            }
+        }
+        return same / (double) total;
+    }
+
+    private static float[] noisy(float[] base, Random random) {
+        float[] out = new float[base.length];
+        float norm = 0f;
+        for (int i = 0; i < out.length; i++) {
+            out[i] = base[i] + (float) random.nextGaussian() * 0.5f / (float) Math.sqrt(base.length);
+            norm += out[i] * out[i];
+        }
+        norm = (float) Math.sqrt(norm);
+        for (int i = 0; i < out.length; i++) out[i] /= norm;
+        return out;
+    }
+}
@@ -0,0 +1,181 @@
+package com.example.attendancefacerecognition.Recognition;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Map;
+
+/**
+ * {@link TensorArena} layout, and a steady-state detect+embed frame through the shipped
+ * {@link FaceModels} adapters that allocates nothing.
+ *
+ * The interpreter calls are stood in for by runners that read the input and write the output
+ * arrays in place, which is what {@code Interpreter.run} does with preallocated outputs.
+ */
+public class TensorArenaTest {
+
+    private static final int SENSOR_W = 640;
+    private static final int SENSOR_H = 480;
+    private static final int DIM = 512;
+    private static final int BATCH = 6;
+
+    @Test
+    public void buffersAreDirectNativeAndSized() {
+        TensorArena arena = new TensorArena(128, 160, DIM);
+        assertTrue(arena.detectorInput().isDirect());
+        assertTrue(arena.embedderInput().isDirect());
+        assertEquals(ByteOrder.nativeOrder(), arena.detectorInput().order());
+        assertEquals(ByteOrder.nativeOrder(), arena.embedderInput().order());
+        assertEquals(128 * 128 * 3 * 4, arena.detectorInput().capacity());
+        assertEquals(160 * 160 * 3 * 4, arena.embedderInput().capacity());
+        assertEquals(TensorArena.DETECTOR_ANCHORS, arena.detectorOutput()[0].length);
+        assertEquals(DIM, arena.embedding().length);
+
+        // Same instances every call, rewound for the next write
+        ByteBuffer input = arena.embedderInput();
+        input.position(40);
+        assertSame(input, arena.embedderInput());
+        assertEquals(0, input.position());
+    }
+
+    @Test
+    public void batchViewsShareSlots() {
+        TensorArena arena = new TensorArena(128, 4, DIM, 3);
+        int faceBytes = 4 * 4 * 3 * 4;
+        for (int n = 1; n <= 3; n++) {
+            assertEquals(n * faceBytes, arena.embedderInput(n).capacity());
+            assertEquals(ByteOrder.nativeOrder(), arena.embedderInput(n).order());
+            assertEquals(n, arena.embedderOutput(n).length);
+            assertEquals(DIM, arena.embedderOutput(n)[n - 1].length);
+        }
+
+        // Writing face 2 lands in the third quarter of the [3, 4, 4, 3] tensor
+        arena.embedderSlot(2).putFloat(0, 0.5f);
+        assertEquals(0.5f, arena.embedderInput(3).getFloat(2 * faceBytes), 0f);
+        assertEquals(ByteOrder.nativeOrder(), arena.embedderSlot(2).order());
+        assertSame(arena.embedderOutput(1), arena.embedderOutput());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void batchLargerThanArenaIsRejected() {
+        new TensorArena(128, 160, DIM, 2).embedderInput(3);
+    }
+
+    @Test
+    public void putRgbFloatsMatchesPixels() {
+        TensorArena arena = new TensorArena(2, 2, DIM);
+        int[] pixels = arena.detectorPixels();
+        pixels[0] = 0xFFFF0000;
+        pixels[3] = 0xFF0080FF;
+        ByteBuffer input = arena.detectorInput();
+        TensorArena.putRgbFloats(pixels, 4, input);
+
+        assertEquals(1f, input.getFloat(0), 0f);
+        assertEquals(0f, input.getFloat(4), 0f);
+        assertEquals(0x80 / 255f, input.getFloat(9 * 4 + 4), 0f);
+        assertEquals(1f, input.getFloat(9 * 4 + 8), 0f);
+        assertEquals(0, input.position());
+    }
+
+    @Test
+    public void normalizeScalesInPlace() {
+        float[] v = {3f, 4f};
+        assertSame(v, TensorArena.normalize(v));
+        assertEquals(0.6f, v[0], 1e-6f);
+        assertEquals(0.8f, v[1], 1e-6f);
+
+        float[] zero = new float[3];
+        TensorArena.normalize(zero);
+        assertEquals(0f, zero[0], 0f);
+    }
+
+    @Test
+    public void steadyStateFrameAllocatesNothing() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        FaceModels.Detector detector = FaceModels.blazeFace(TensorArenaTest::standInBlazeFace,
+                TensorFormat.FLOAT32, TensorFormat.FLOAT32, TensorFormat.FLOAT32);
+        FaceModels.Embedder embedder = FaceModels.faceNet(TensorArenaTest::standInFaceNet,
+                160, DIM, BATCH, TensorFormat.FLOAT32, TensorFormat.FLOAT32);
+        float[] boxes = new float[TensorArena.MAX_DETECTIONS * 4];
+        float[][] embeddings = new float[TensorArena.MAX_DETECTIONS][DIM];
+        YuvFrame frame = new YuvFrame().set(
+                gradient(SENSOR_W * SENSOR_H), SENSOR_W,
+                gradient(SENSOR_W * SENSOR_H / 4), gradient(SENSOR_W * SENSOR_H / 4), SENSOR_W / 2, 1,
+                SENSOR_W, SENSOR_H, 270, 0L);
+
+        for (int i = 0; i < 20; i++) runFrame(frame, detector, embedder, boxes, embeddings);
+
+        long tid = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(tid);
+        float sink = 0f;
+        int frames = 50;
+        for (int i = 0; i < frames; i++) sink += runFrame(frame, detector, embedder, boxes, embeddings);
+        long allocated = threads.getThreadAllocatedBytes(tid) - before;
+
+        assertTrue(sink != 0f);
+        // The old path allocated ~500 KB of direct buffers plus ~60 KB of arrays per face.
+        assertTrue("allocated " + allocated + " bytes over " + frames + " frames", allocated < 1024);
+    }
+
+    // What the attendance pipeline's detect and embed stages call: camera planes into the
+    // detector input, anchor decoding and NMS into boxes, then three face crops into one batch
+    // and normalization.
+    private static float runFrame(YuvFrame frame, FaceModels.Detector detector, FaceModels.Embedder embedder,
+                                  float[] boxes, float[][] embeddings) {
+        try {
+            int faces = detector.detect(frame, boxes);
+            for (int face = 0; face < 3; face++) {
+                int b = face * 4;
+                boxes[b] = 40 * face;
+                boxes[b + 1] = 30;
+                boxes[b + 2] = boxes[b] + 200;
+                boxes[b + 3] = 230;
+            }
+            embedder.embed(frame, boxes, 3, embeddings);
+            return embeddings[0][0] + embeddings[2][1] + faces;
+        } catch (Exception e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    // Stand-in BlazeFace: every anchor gets a 20-pixel box whose score follows the input
+    private static void standInBlazeFace(Object[] inputs, Map<Integer, Object> outputs) {
+        ByteBuffer input = (ByteBuffer) inputs[0];
+        float[][][] regressors = (float[][][]) outputs.get(0);
+        float[][][] logits = (float[][][]) outputs.get(1);
+        int floats = input.capacity() / 4;
+        for (int a = 0; a < TensorArena.DETECTOR_ANCHORS; a++) {
+            float v = input.getFloat((a * 3 % floats) * 4);
+            regressors[0][a][2] = regressors[0][a][3] = 20f;
+            regressors[0][a][4] = v;
+            logits[0][a][0] = v * 4f - 2f;
+        }
+    }
+
+    // Stand-in FaceNet: each row echoes the start of its face's crop
+    private static void standInFaceNet(ByteBuffer input, Object output, int n) {
+        float[][] rows = (float[][]) output;
+        int stride = 160 * 160 * 3;
+        for (int i = 0; i < n; i++) {
+            for (int d = 0; d < DIM; d++) rows[i][d] = input.getFloat((i * stride + d) * 4) + 0.01f;
+        }
+    }
+
+    private static ByteBuffer gradient(int size) {
+        ByteBuffer b = ByteBuffer.allocateDirect(size);
+        for (int i = 0; i < size; i++) b.put(i, (byte) (i * 7));
+        return b;
+    }
+}
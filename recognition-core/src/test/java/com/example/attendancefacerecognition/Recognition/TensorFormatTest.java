@@ -0,0 +1,132 @@
+package com.example.attendancefacerecognition.Recognition;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * {@link TensorFormat} quantization of pixels and dequantization of outputs, and the
+ * {@link TensorArena} re-layout when a quantized model is bound.
+ */
+public class TensorFormatTest {
+
+    private static final TensorFormat UINT8 = TensorFormat.of(TensorFormat.Type.UINT8, 1f / 255f, 0);
+    private static final TensorFormat INT8 = TensorFormat.of(TensorFormat.Type.INT8, 1f / 255f, -128);
+
+    @Test
+    public void pixelsAreWrittenAsCodes() {
+        ByteBuffer out = ByteBuffer.allocate(6);
+        UINT8.putRgb(out, 0, 128, 255);
+        INT8.putRgb(out, 0, 128, 255);
+        assertEquals(0, out.get(0) & 0xFF);
+        assertEquals(128, out.get(1) & 0xFF);
+        assertEquals(255, out.get(2) & 0xFF);
+        assertEquals(-128, out.get(3));
+        assertEquals(0, out.get(4));
+        assertEquals(127, out.get(5));
+
+        // A coarser scale rounds and clamps to the type's range
+        TensorFormat coarse = TensorFormat.of(TensorFormat.Type.INT8, 1f / 127f, 0);
+        ByteBuffer c = ByteBuffer.allocate(3);
+        coarse.putRgb(c, 0, 128, 255);
+        assertEquals(0, c.get(0));
+        assertEquals(64, c.get(1));
+        assertEquals(127, c.get(2));
+    }
+
+    @Test
+    public void dequantizeInvertsTheCodes() {
+        ByteBuffer out = ByteBuffer.allocate(3);
+        for (TensorFormat format : new TensorFormat[]{UINT8, INT8}) {
+            out.clear();
+            format.putRgb(out, 0, 51, 255);
+            float[] real = new float[3];
+            format.dequantize(out, 0, real);
+            assertEquals(0f, real[0], 1e-6f);
+            assertEquals(0.2f, real[1], 1e-6f);
+            assertEquals(1f, real[2], 1e-6f);
+        }
+        ByteBuffer floats = ByteBuffer.allocate(8).order(ByteOrder.nativeOrder());
+        floats.putFloat(4, -1.5f);
+        assertEquals(-1.5f, TensorFormat.FLOAT32.dequantize(floats, 1), 0f);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void quantizedFormatNeedsAScale() {
+        TensorFormat.of(TensorFormat.Type.UINT8, 0f, 0);
+    }
+
+    @Test
+    public void quantizedYuvInputMatchesFloatInput() {
+        YuvFrame frame = new YuvFrame().set(
+                pattern(64 * 48, 3), 64, pattern(64 * 48 / 4, 5), pattern(64 * 48 / 4, 11), 32, 1,
+                64, 48, 90, 0L);
+        ByteBuffer floats = ByteBuffer.allocateDirect(16 * 16 * 3 * 4).order(ByteOrder.nativeOrder());
+        ByteBuffer bytes = ByteBuffer.allocateDirect(16 * 16 * 3);
+        YuvConverter.toRgbFloats(frame, 4, 4, 40, 40, 16, 16, floats);
+        YuvConverter.toRgb(frame, 4, 4, 40, 40, 16, 16, UINT8, bytes);
+
+        assertEquals(0, bytes.position());
+        for (int i = 0; i < 16 * 16 * 3; i++) {
+            assertEquals(floats.getFloat(i * 4), UINT8.dequantize(bytes, i), 1e-6f);
+        }
+    }
+
+    @Test
+    public void bindingAQuantizedModelShrinksInputsAndDequantizesOutputs() {
+        TensorArena arena = new TensorArena(8, 4, 3, 2);
+        Object floatModel = new Object();
+        ByteBuffer floatInput = arena.detectorInput();
+        arena.bindDetector(floatModel, TensorFormat.FLOAT32, TensorFormat.FLOAT32, TensorFormat.FLOAT32);
+        assertSame("same formats keep the buffers", floatInput, arena.detectorInput());
+        assertSame(arena.detectorOutput(), arena.detectorOutputs().get(0));
+        assertTrue(arena.isDetectorBound(floatModel));
+
+        Object int8Model = new Object();
+        TensorFormat scores = TensorFormat.of(TensorFormat.Type.INT8, 0.5f, 10);
+        arena.bindDetector(int8Model, INT8, UINT8, scores);
+        assertTrue(arena.isDetectorBound(int8Model));
+        assertNotSame(floatInput, arena.detectorInput());
+        assertEquals(8 * 8 * 3, arena.detectorInput().capacity());
+        assertEquals(ByteOrder.nativeOrder(), arena.detectorInput().order());
+
+        // Stand-in for the interpreter writing quantized outputs
+        ByteBuffer regressors = (ByteBuffer) arena.detectorOutputs().get(0);
+        ByteBuffer logits = (ByteBuffer) arena.detectorOutputs().get(1);
+        assertEquals(TensorArena.DETECTOR_ANCHORS * TensorArena.DETECTOR_VALUES, regressors.capacity());
+        regressors.put(5 * TensorArena.DETECTOR_VALUES + 2, (byte) 255);
+        logits.put(7, (byte) 14);
+        arena.dequantizeDetectorOutputs();
+        assertEquals(1f, arena.detectorOutput()[0][5][2], 1e-6f);
+        assertEquals(0f, arena.detectorOutput()[0][5][3], 0f);
+        assertEquals(2f, arena.detectorScores()[0][7][0], 0f);
+
+        // Embedder: one byte per input value, batch views over one byte output
+        arena.bindEmbedder(int8Model, UINT8, TensorFormat.of(TensorFormat.Type.INT8, 0.25f, 0));
+        assertEquals(4 * 4 * 3, arena.embedderSlot(1).capacity());
+        assertEquals(2 * 4 * 4 * 3, arena.embedderInput(2).capacity());
+        ByteBuffer out = (ByteBuffer) arena.embedderRunOutput(2);
+        assertEquals(2 * 3, out.capacity());
+        out.put(4, (byte) -8);
+        float[][] embeddings = arena.dequantizeEmbedderOutput(2);
+        assertSame(arena.embedderOutput(2), embeddings);
+        assertEquals(-2f, embeddings[1][1], 0f);
+
+        // Back to float32: outputs are the float arrays again
+        arena.bindEmbedder(floatModel, TensorFormat.FLOAT32, TensorFormat.FLOAT32);
+        assertSame(arena.embedderOutput(2), arena.embedderRunOutput(2));
+        assertEquals(4 * 4 * 3 * 4, arena.embedderSlot(0).capacity());
+    }
+
+    private static ByteBuffer pattern(int size, int step) {
+        ByteBuffer b = ByteBuffer.allocateDirect(size);
+        for (int i = 0; i < size; i++) b.put(i, (byte) (i * step));
+        return b;
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.attendancefacerecognition.Recognition;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * {@link YuvConverter} on synthetic planes: padded row strides, planar and interleaved chroma,
+ * every rotation, and crop-plus-scale in one pass.
+ */
+public class YuvConverterTest {
+
+    private static final int W = 8;
+    private static final int H = 6;
+
+    @Test
+    public void grayFrameKeepsLumaWithPaddedStrides() {
+        YuvFrame frame = frame(W + 4, 1, 128, 128, 0);
+        int[] out = new int[W * H];
+        YuvConverter.toArgb(frame, out);
+        for (int y = 0; y < H; y++) {
+            for (int x = 0; x < W; x++) {
+                int luma = luma(x, y);
+                assertEquals(0xFF000000 | (luma << 16) | (luma << 8) | luma, out[y * W + x]);
+            }
+        }
+    }
+
+    @Test
+    public void interleavedChromaMatchesPlanar() {
+        int[] planar = new int[W * H];
+        int[] interleaved = new int[W * H];
+        YuvConverter.toArgb(frame(W, 1, 90, 240, 0), planar);
+        YuvConverter.toArgb(frame(W + 2, 2, 90, 240, 0), interleaved);
+        for (int i = 0; i < planar.length; i++) assertEquals(planar[i], interleaved[i]);
+    }
+
+    @Test
+    public void convertsKnownColours() {
+        // Full-range BT.601: red is roughly (76, 85, 255), blue roughly (29, 255, 107).
+        int[] out = new int[W * H];
+        YuvConverter.toArgb(solid(76, 85, 255), out);
+        assertColour(0xFE, 0x00, 0x00, out[0]);
+        YuvConverter.toArgb(solid(29, 255, 107), out);
+        assertColour(0x00, 0x00, 0xFF, out[0]);
+    }
+
+    @Test
+    public void rotationMapsCorners() {
+        for (int rotation : new int[]{0, 90, 180, 270}) {
+            YuvFrame frame = frame(W, 1, 128, 128, rotation);
+            int w = frame.uprightWidth();
+            int h = frame.uprightHeight();
+            int[] out = new int[w * h];
+            YuvConverter.toArgb(frame, out);
+
+            // Upright top-left comes from this sensor corner.
+            int sx;
+            int sy;
+            switch (rotation) {
+                case 90:  sx = 0;     sy = H - 1; break;
+                case 180: sx = W - 1; sy = H - 1; break;
+                case 270: sx = W - 1; sy = 0;     break;
+                default:  sx = 0;     sy = 0;     break;
+            }
+            assertEquals("rotation " + rotation, luma(sx, sy), out[0] & 0xFF);
+            assertEquals(rotation % 180 == 0 ? W : H, w);
+        }
+    }
+
+    @Test
+    public void cropAndScaleInOnePass() {
+        YuvFrame frame = frame(W, 1, 128, 128, 0);
+        // 4x2 crop at (2, 2) upscaled 2x: every source pixel becomes a 2x2 block.
+        int[] out = new int[8 * 4];
+        YuvConverter.toArgb(frame, 2, 2, 4, 2, 8, 4, out);
+        for (int y = 0; y < 4; y++) {
+            for (int x = 0; x < 8; x++) assertEquals(luma(2 + x / 2, 2 + y / 2), out[y * 8 + x] & 0xFF);
+        }
+    }
+
+    @Test
+    public void floatOutputMatchesArgb() {
+        YuvFrame frame = frame(W + 3, 2, 70, 200, 90);
+        int w = frame.uprightWidth();
+        int h = frame.uprightHeight();
+        int[] argb = new int[w * h];
+        YuvConverter.toArgb(frame, 1, 1, 4, 4, 4, 4, argb);
+
+        ByteBuffer floats = ByteBuffer.allocateDirect(4 * 4 * 3 * 4).order(ByteOrder.nativeOrder());
+        YuvConverter.toRgbFloats(frame, 1, 1, 4, 4, 4, 4, floats);
+        for (int i = 0; i < 16; i++) {
+            assertEquals(((argb[i] >> 16) & 0xFF) / 255f, floats.getFloat(), 0f);
+            assertEquals(((argb[i] >> 8) & 0xFF) / 255f, floats.getFloat(), 0f);
+            assertEquals((argb[i] & 0xFF) / 255f, floats.getFloat(), 0f);
+        }
+    }
+
+    @Test
+    public void copiedFrameOutlivesItsSource() {
+        YuvFrame source = frame(W + 2, 2, 90, 240, 270);
+        int[] expected = new int[W * H];
+        YuvConverter.toArgb(source, expected);
+
+        YuvFrame copy = new YuvFrame().copyFrom(source);
+        // The camera recycles its buffers once the image is closed
+        for (int i = 0; i < source.y().capacity(); i++) source.y().put(i, (byte) 0);
+        for (int i = 0; i < source.u().capacity(); i++) source.u().put(i, (byte) 0);
+
+        int[] out = new int[W * H];
+        YuvConverter.toArgb(copy, out);
+        for (int i = 0; i < out.length; i++) assertEquals(expected[i], out[i]);
+        assertEquals(source.uprightWidth(), copy.uprightWidth());
+    }
+
+    private static int luma(int x, int y) {
+        return 16 + x * 20 + y * 3;
+    }
+
+    private static YuvFrame solid(int y, int u, int v) {
+        YuvFrame frame = frame(W, 1, u, v, 0);
+        for (int i = 0; i < frame.y().capacity(); i++) frame.y().put(i, (byte) y);
+        return frame;
+    }
+
+    // W x H frame, luma gradient, constant chroma; pixelStride 2 interleaves U and V in one buffer.
+    private static YuvFrame frame(int rowStride, int pixelStride, int u, int v, int rotation) {
+        ByteBuffer y = ByteBuffer.allocate(rowStride * H);
+        for (int row = 0; row < H; row++) {
+            for (int x = 0; x < W; x++) y.put(row * rowStride + x, (byte) luma(x, row));
+        }
+
+        int uvRowStride = (pixelStride == 1) ? rowStride / 2 : rowStride;
+        ByteBuffer uPlane;
+        ByteBuffer vPlane;
+        if (pixelStride == 1) {
+            uPlane = filled(uvRowStride * H / 2, u);
+            vPlane = filled(uvRowStride * H / 2, v);
+        } else {
+            ByteBuffer vu = ByteBuffer.allocate(uvRowStride * H / 2);
+            for (int i = 0; i < vu.capacity(); i++) vu.put(i, (byte) (i % 2 == 0 ? u : v));
+            uPlane = vu;
+            vPlane = vu.duplicate();
+            vPlane.position(1);
+            vPlane = vPlane.slice();
+        }
+        return new YuvFrame().set(y, rowStride, uPlane, vPlane, uvRowStride, pixelStride, W, H, rotation, 0L);
+    }
+
+    private static ByteBuffer filled(int size, int value) {
+        ByteBuffer b = ByteBuffer.allocate(size);
+        for (int i = 0; i < size; i++) b.put(i, (byte) value);
+        return b;
+    }
+
+    private static void assertColour(int r, int g, int b, int argb) {
+        assertEquals(r, (argb >> 16) & 0xFF, 2);
+        assertEquals(g, (argb >> 8) & 0xFF, 2);
+        assertEquals(b, argb & 0xFF, 2);
+    }
+}
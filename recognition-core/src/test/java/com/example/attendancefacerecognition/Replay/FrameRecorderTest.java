@@ -0,0 +1,118 @@
+package com.example.attendancefacerecognition.Replay;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.example.attendancefacerecognition.Recognition.YuvConverter;
+import com.example.attendancefacerecognition.Recognition.YuvFrame;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+
+/**
+ * {@link FrameRecorder} and {@link FrameReader}: camera layouts survive the round trip exactly,
+ * and a recording cut off mid-frame still plays up to its last whole frame.
+ */
+public class FrameRecorderTest {
+
+    private static final int W = 64;
+    private static final int H = 48;
+    private static final int PADDING = 16;
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void paddedInterleavedFramesReplayPixelForPixel() throws Exception {
+        File file = tmp.newFile("capture.yuvr");
+        YuvFrame[] originals = {semiPlanar(1, 0, 1_000L), semiPlanar(2, 90, 34_000_000L), semiPlanar(3, 270, 67_000_000L)};
+        try (FrameRecorder recorder = new FrameRecorder(file)) {
+            for (YuvFrame frame : originals) recorder.write(frame);
+            assertEquals(3, recorder.frames());
+        }
+        // Planes are stored without the slack after their last addressed byte
+        int stride = W + PADDING;
+        long y = (H - 1) * stride + W;
+        long uv = (H / 2 - 1) * stride + (W / 2 - 1) * 2 + 1;
+        assertEquals(8 + 3 * (44 + y + 2 * uv), file.length());
+
+        try (FrameReader reader = new FrameReader(file)) {
+            YuvFrame replayed = new YuvFrame();
+            for (YuvFrame original : originals) {
+                assertTrue(reader.next(replayed));
+                assertEquals(original.width(), replayed.width());
+                assertEquals(original.height(), replayed.height());
+                assertEquals(original.rotationDegrees(), replayed.rotationDegrees());
+                assertEquals(original.yRowStride(), replayed.yRowStride());
+                assertEquals(original.uvRowStride(), replayed.uvRowStride());
+                assertEquals(original.uvPixelStride(), replayed.uvPixelStride());
+                assertEquals(original.timestampNanos(), replayed.timestampNanos());
+                assertArrayEquals(argb(original), argb(replayed));
+            }
+            assertFalse(reader.next(replayed));
+            assertEquals(3, reader.frames());
+        }
+    }
+
+    @Test
+    public void truncatedRecordingEndsAtTheLastWholeFrame() throws Exception {
+        File file = tmp.newFile("capture.yuvr");
+        try (FrameRecorder recorder = new FrameRecorder(file)) {
+            for (int i = 0; i < 3; i++) recorder.write(semiPlanar(i, 0, i));
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() - 100);
+        }
+        try (FrameReader reader = new FrameReader(file)) {
+            YuvFrame frame = new YuvFrame();
+            int frames = 0;
+            while (reader.next(frame)) frames++;
+            assertEquals(2, frames);
+        }
+    }
+
+    @Test
+    public void rejectsOtherFiles() throws Exception {
+        File file = tmp.newFile("embeddings.bin");
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(new byte[] {'F', 'E', 'M', 'B', 0, 0, 0, 1});
+        }
+        try {
+            new FrameReader(file).close();
+            fail("Expected an IOException");
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage(), expected.getMessage().contains("not a frame recording"));
+        }
+    }
+
+    // Padded rows and NV12-style chroma, U and V interleaved in one buffer as many cameras deliver
+    private static YuvFrame semiPlanar(int seed, int rotation, long timestampNanos) {
+        int stride = W + PADDING;
+        ByteBuffer y = ByteBuffer.allocateDirect(stride * H);
+        for (int row = 0; row < H; row++) {
+            for (int x = 0; x < stride; x++) y.put(row * stride + x, (byte) (x < W ? (x * 3 + row * 5 + seed * 17) : 0xEE));
+        }
+        ByteBuffer uv = ByteBuffer.allocateDirect(stride * H / 2);
+        for (int i = 0; i < uv.capacity(); i++) uv.put(i, (byte) (96 + (i * 7 + seed) % 64));
+        ByteBuffer u = uv.duplicate();
+        uv.position(1);
+        ByteBuffer v = uv.slice();
+        return new YuvFrame().set(y, stride, u, v, stride, 2, W, H, rotation, timestampNanos);
+    }
+
+    private static int[] argb(YuvFrame frame) {
+        int[] out = new int[frame.uprightWidth() * frame.uprightHeight()];
+        YuvConverter.toArgb(frame, out);
+        return out;
+    }
+}
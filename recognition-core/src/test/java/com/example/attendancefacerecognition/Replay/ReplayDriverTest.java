@@ -0,0 +1,269 @@
+package com.example.attendancefacerecognition.Replay;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.example.attendancefacerecognition.Metrics.FrameMetrics;
+import com.example.attendancefacerecognition.Recognition.EmbeddingGallery;
+import com.example.attendancefacerecognition.Recognition.EmbeddingMatcher;
+import com.example.attendancefacerecognition.Recognition.FaceModels;
+import com.example.attendancefacerecognition.Recognition.GalleryState;
+import com.example.attendancefacerecognition.Recognition.HnswIndex;
+import com.example.attendancefacerecognition.Recognition.QuantizedGallery;
+import com.example.attendancefacerecognition.Recognition.TensorArena;
+import com.example.attendancefacerecognition.Recognition.YuvFrame;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link ReplayDriver} over a recorded clip of one face with stub models: the face is tracked,
+ * recognized and confirmed once (and not on one embedding's word), two runs agree on the output, the index and quantized paths
+ * and a mid-recording gallery swap behave as on the device, failing model calls cost frames
+ * rather than hanging the replay, and a replay that cannot drain is reported incomplete.
+ */
+public class ReplayDriverTest {
+
+    private static final int W = 320;
+    private static final int H = 240;
+    private static final int FACE = 64;
+    private static final int FACE_X = 120;
+    private static final int FACE_Y = 80;
+    private static final int FRAMES = 90;
+    private static final long FRAME_NANOS = 33_333_333L;
+    private static final int DIM = 128;
+    private static final float[] FACE_BOX = {FACE_X, FACE_Y, FACE_X + FACE, FACE_Y + FACE};
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void recognizesAndConfirmsTheRecordedFace() throws Exception {
+        File clip = record();
+        FaceModels.Embedder embedder = ReplayModels.lumaEmbedder(DIM);
+        EmbeddingGallery gallery = enrol(embedder, "Ada");
+
+        List<String> perFrame = new ArrayList<>();
+        ReplayReport report;
+        try (FrameReader reader = new FrameReader(clip)) {
+            report = ReplayDriver.builder(ReplayModels.fixedBoxes(FACE_BOX), embedder, new EmbeddingMatcher(gallery))
+                    .onFrame((timestampNanos, boxes, count, names) -> perFrame.add(count == 1 ? names[0] : "?"))
+                    .build()
+                    .run(reader);
+        }
+
+        assertEquals(FRAMES, report.frames);
+        assertTrue(report.complete);
+        assertEquals(FRAMES, report.framesProcessed);
+        assertEquals(Collections.nCopies(FRAMES, "Ada"), perFrame);
+        assertEquals(1, report.confirmations.size());
+        assertEquals("Ada", report.confirmations.get(0).name);
+        // Only embeddings vote: the track's second one, reembedInterval frames on, confirms
+        assertEquals(15 * FRAME_NANOS, report.confirmations.get(0).timestampNanos - report.firstTimestampNanos);
+        assertEquals(Long.valueOf(FRAMES), report.recognitions.get("Ada"));
+
+        FrameMetrics.Snapshot metrics = report.metrics;
+        assertEquals(FRAMES, metrics.counter(FrameMetrics.Counter.FRAMES_RECEIVED));
+        assertEquals(0, metrics.counter(FrameMetrics.Counter.FRAMES_DROPPED));
+        assertEquals(FRAMES, metrics.counter(FrameMetrics.Counter.FACES_DETECTED));
+        assertEquals(FRAMES, metrics.stage(FrameMetrics.Stage.DETECT).count());
+        // The track is embedded once, then every reembedInterval frames
+        long embedded = metrics.stage(FrameMetrics.Stage.EMBED).count();
+        assertTrue("embedded " + embedded + " times", embedded >= 1 && embedded < FRAMES / 4);
+        assertTrue(report.framesPerSecond() > 0);
+        assertTrue(report.toString(), report.toString().contains("confirmed Ada at 0.500 s"));
+    }
+
+    @Test
+    public void oneMatchDoesNotConfirmHoweverManyFramesCarryIt() throws Exception {
+        File clip = record(15); // the track is embedded on its first frame only
+        FaceModels.Embedder embedder = ReplayModels.lumaEmbedder(DIM);
+        EmbeddingGallery gallery = enrol(embedder, "Ada");
+
+        ReplayReport report;
+        try (FrameReader reader = new FrameReader(clip)) {
+            report = ReplayDriver.builder(ReplayModels.fixedBoxes(FACE_BOX), embedder, new EmbeddingMatcher(gallery))
+                    .build().run(reader);
+        }
+        assertEquals(1, report.metrics.stage(FrameMetrics.Stage.EMBED).count());
+        assertEquals(Long.valueOf(15), report.recognitions.get("Ada"));
+        assertTrue(report.confirmations.isEmpty());
+    }
+
+    @Test
+    public void runsOverTheSameClipAgree() throws Exception {
+        File clip = record();
+        FaceModels.Embedder embedder = ReplayModels.lumaEmbedder(DIM);
+        EmbeddingGallery gallery = enrol(embedder, "Ada");
+
+        String first;
+        String second;
+        try (FrameReader reader = new FrameReader(clip)) {
+            first = ReplayDriver.builder(ReplayModels.centreBox(0.3f), embedder, new EmbeddingMatcher(gallery))
+                    .build().run(reader).recognitionOutput();
+        }
+        try (FrameReader reader = new FrameReader(clip)) {
+            // A slower detector changes the timings, not the output
+            second = ReplayDriver.builder(ReplayModels.withLatency(ReplayModels.centreBox(0.3f), 2000), embedder,
+                    new EmbeddingMatcher(gallery)).build().run(reader).recognitionOutput();
+        }
+        assertEquals(first, second);
+        assertTrue(first, first.contains("recognized"));
+    }
+
+    @Test
+    public void strangerIsNeverConfirmed() throws Exception {
+        File clip = record();
+        FaceModels.Embedder embedder = ReplayModels.lumaEmbedder(DIM);
+        float[] other = new float[DIM];
+        for (int i = 0; i < DIM; i++) other[i] = (i % 3) - 1;
+        EmbeddingGallery gallery = EmbeddingGallery.fromRows(
+                Collections.singletonList(TensorArena.normalize(other)), Collections.singletonList("Grace"));
+
+        ReplayReport report;
+        try (FrameReader reader = new FrameReader(clip)) {
+            report = ReplayDriver.builder(ReplayModels.fixedBoxes(FACE_BOX), embedder, new EmbeddingMatcher(gallery))
+                    .build().run(reader);
+        }
+        assertTrue(report.confirmations.isEmpty());
+        assertEquals(Long.valueOf(FRAMES), report.recognitions.get(EmbeddingGallery.UNKNOWN));
+        assertTrue(report.metrics.counter(FrameMetrics.Counter.UNKNOWN_MATCHES) >= 1);
+    }
+
+    @Test
+    public void indexAndQuantizedPathsAgreeWithTheExactScan() throws Exception {
+        File clip = record();
+        FaceModels.Embedder embedder = ReplayModels.lumaEmbedder(DIM);
+        EmbeddingGallery gallery = enrol(embedder, "Ada");
+        HnswIndex index = new HnswIndex(DIM);
+        index.addAll(gallery);
+
+        String exact = replay(clip, embedder, GalleryState.of(new EmbeddingMatcher(gallery))).recognitionOutput();
+        String indexed = replay(clip, embedder, GalleryState.of(new EmbeddingMatcher(gallery)).withIndex(index))
+                .recognitionOutput();
+        String quantized = replay(clip, embedder,
+                GalleryState.build(null, gallery, null, QuantizedGallery.Mode.INT8)).recognitionOutput();
+        assertTrue(exact, exact.contains("confirmed Ada"));
+        assertEquals(exact, indexed);
+        assertEquals(exact, quantized);
+    }
+
+    @Test
+    public void enrolmentLandingMidRecordingIsPickedUpFromThatFrame() throws Exception {
+        File clip = record();
+        FaceModels.Embedder embedder = ReplayModels.lumaEmbedder(DIM);
+        EmbeddingGallery gallery = enrol(embedder, "Ada");
+
+        List<String> perFrame = new ArrayList<>();
+        ReplayReport report;
+        try (FrameReader reader = new FrameReader(clip)) {
+            report = ReplayDriver.builder(ReplayModels.fixedBoxes(FACE_BOX), embedder, GalleryState.empty(DIM))
+                    .swapGallery(30, GalleryState.of(new EmbeddingMatcher(gallery)))
+                    .onFrame((timestampNanos, boxes, count, names) -> perFrame.add(names[0]))
+                    .build()
+                    .run(reader);
+        }
+        // A stranger's track is embedded again on the next frame, so the swap shows at once
+        assertEquals(Collections.nCopies(30, EmbeddingGallery.UNKNOWN), perFrame.subList(0, 30));
+        assertEquals(Collections.nCopies(FRAMES - 30, "Ada"), perFrame.subList(30, FRAMES));
+        assertEquals(1, report.confirmations.size());
+        assertTrue(report.confirmations.get(0).timestampNanos - report.firstTimestampNanos >= 30 * FRAME_NANOS);
+    }
+
+    @Test
+    public void failingDetectorCostsFramesWithoutStallingTheReplay() throws Exception {
+        File clip = record();
+        AtomicInteger calls = new AtomicInteger();
+        FaceModels.Detector flaky = (frame, boxes) -> {
+            if (calls.incrementAndGet() % 3 == 0) throw new IllegalStateException("model crashed");
+            return ReplayModels.fixedBoxes(FACE_BOX).detect(frame, boxes);
+        };
+
+        ReplayReport report;
+        try (FrameReader reader = new FrameReader(clip)) {
+            report = ReplayDriver.builder(flaky, ReplayModels.lumaEmbedder(DIM),
+                    new EmbeddingMatcher(EmbeddingGallery.empty(DIM))).build().run(reader);
+        }
+        assertEquals(FRAMES, report.frames);
+        long failed = report.stages.get(0).failed;
+        assertTrue("failed " + failed, failed > 0);
+        assertEquals(FRAMES - failed, report.framesProcessed);
+    }
+
+    @Test
+    public void replayThatCannotDrainIsReportedIncomplete() throws Exception {
+        File clip = record();
+        long lastFrame = 1_000_000_000L + (FRAMES - 1) * FRAME_NANOS;
+        CountDownLatch never = new CountDownLatch(1);
+        FaceModels.Detector stuck = (frame, boxes) -> {
+            if (frame.timestampNanos() == lastFrame) never.await(10, TimeUnit.SECONDS);
+            return ReplayModels.fixedBoxes(FACE_BOX).detect(frame, boxes);
+        };
+
+        ReplayReport report;
+        try (FrameReader reader = new FrameReader(clip)) {
+            report = ReplayDriver.builder(stuck, ReplayModels.lumaEmbedder(DIM), GalleryState.empty(DIM))
+                    .detectEvery(1)
+                    .drainTimeout(100, TimeUnit.MILLISECONDS)
+                    .build().run(reader);
+        }
+        assertFalse(report.complete);
+        assertEquals(FRAMES - 1, report.framesProcessed);
+        assertTrue(report.recognitionOutput(), report.recognitionOutput().startsWith("INCOMPLETE"));
+    }
+
+    private static ReplayReport replay(File clip, FaceModels.Embedder embedder, GalleryState gallery) throws Exception {
+        try (FrameReader reader = new FrameReader(clip)) {
+            ReplayReport report = ReplayDriver.builder(ReplayModels.fixedBoxes(FACE_BOX), embedder, gallery)
+                    .build().run(reader);
+            assertTrue(report.complete);
+            return report;
+        }
+    }
+
+    private File record() throws Exception {
+        return record(FRAMES);
+    }
+
+    private File record(int frames) throws Exception {
+        File file = tmp.newFile();
+        try (FrameRecorder recorder = new FrameRecorder(file)) {
+            for (int i = 0; i < frames; i++) recorder.write(frame(1_000_000_000L + i * FRAME_NANOS));
+        }
+        return file;
+    }
+
+    private static EmbeddingGallery enrol(FaceModels.Embedder embedder, String name) throws Exception {
+        float[][] row = new float[1][DIM];
+        embedder.embed(frame(0), FACE_BOX, 1, row);
+        return EmbeddingGallery.fromRows(Collections.singletonList(row[0]), Collections.singletonList(name));
+    }
+
+    // A still, textured face on a gradient background
+    private static YuvFrame frame(long timestampNanos) {
+        ByteBuffer y = ByteBuffer.allocate(W * H);
+        for (int row = 0; row < H; row++) {
+            for (int x = 0; x < W; x++) y.put(row * W + x, (byte) (60 + x / 8 + row / 8));
+        }
+        for (int row = 0; row < FACE; row++) {
+            for (int x = 0; x < FACE; x++) {
+                double v = 128 + 45 * Math.sin(x / 5.0) * Math.cos(row / 7.0) + 35 * Math.sin((x + 2 * row) / 11.0);
+                y.put((FACE_Y + row) * W + FACE_X + x, (byte) (int) v);
+            }
+        }
+        ByteBuffer chroma = ByteBuffer.allocate(W * H / 4);
+        for (int i = 0; i < chroma.capacity(); i++) chroma.put(i, (byte) 128);
+        return new YuvFrame().set(y, W, chroma, chroma, W / 2, 1, W, H, 0, timestampNanos);
+    }
+}
@@ -17,3 +17,5 @@ dependencyResolutionManagement {
 
 rootProject.name = "AttendanceFaceRecognition"
 include(":app")
+include(":recognition-core")
+include(":benchmarks")